@@ -1,13 +1,27 @@
 
 package com.collectionlog;
 
+import com.collectionlog.analytics.CollectionAnalytics;
 import com.collectionlog.commands.CollectionLogCommand;
 import com.collectionlog.config.ConfigManager;
+import com.collectionlog.group.GroupManager;
+import com.collectionlog.index.CollectionIndex;
 import com.collectionlog.listeners.CollectionListener;
 import com.collectionlog.listeners.PlayerListener;
+import com.collectionlog.manager.AcquisitionPipeline;
+import com.collectionlog.manager.BulkTaskRunner;
 import com.collectionlog.manager.CollectionManager;
 import com.collectionlog.manager.GuiManager;
+import com.collectionlog.manager.SaveScheduler;
+import com.collectionlog.placeholders.CollectionLogExpansion;
+import com.collectionlog.placeholders.PlaceholderCache;
+import com.collectionlog.rewards.RewardEngine;
+import com.collectionlog.scheduler.TaskScheduler;
+import com.collectionlog.sync.SyncService;
+import com.collectionlog.transfer.BulkDataService;
+import com.collectionlog.web.WebServer;
 import lombok.Getter;
+import lombok.Setter;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.logging.Level;
@@ -17,6 +31,10 @@ public class CollectionLog extends JavaPlugin {
     @Getter
     private static CollectionLog instance;
     
+    @Getter
+    @Setter
+    private TaskScheduler taskScheduler;
+    
     @Getter
     private ConfigManager configManager;
     
@@ -25,6 +43,44 @@ public class CollectionLog extends JavaPlugin {
     
     @Getter
     private GuiManager guiManager;
+    
+    @Getter
+    private SaveScheduler saveScheduler;
+    
+    @Getter
+    private BulkTaskRunner bulkTaskRunner;
+    
+    @Getter
+    private SyncService syncService;
+    
+    @Getter
+    private RewardEngine rewardEngine;
+    
+    @Getter
+    private BulkDataService bulkDataService;
+    
+    @Getter
+    private CollectionIndex collectionIndex;
+    
+    @Getter
+    private CollectionAnalytics collectionAnalytics;
+    
+    @Getter
+    private GroupManager groupManager;
+    
+    @Getter
+    private AcquisitionPipeline acquisitionPipeline;
+    
+    @Getter
+    private WebServer webServer;
+    
+    /**
+     * The placeholder values, or null if PlaceholderAPI isn't installed
+     */
+    @Getter
+    private PlaceholderCache placeholderCache;
+    
+    private CollectionLogExpansion placeholderExpansion;
 
     @Override
     public void onEnable() {
@@ -33,11 +89,28 @@ public class CollectionLog extends JavaPlugin {
         
         this.getLogger().info("Initializing Collection Log plugin...");
         
+        // Pick the scheduler for Paper or Folia before anything schedules work
+        this.taskScheduler = TaskScheduler.create(this);
+        
         // Initialize managers
         this.configManager = new ConfigManager(this);
         this.configManager.loadConfigurations();
         
+        this.bulkTaskRunner = new BulkTaskRunner(this);
+        this.saveScheduler = new SaveScheduler(this);
+        this.syncService = new SyncService(this);
         this.collectionManager = new CollectionManager(this);
+        this.rewardEngine = new RewardEngine(this);
+        this.collectionManager.registerChangeListener(this.rewardEngine);
+        this.bulkDataService = new BulkDataService(this);
+        this.collectionIndex = new CollectionIndex(this);
+        this.collectionManager.registerChangeListener(this.collectionIndex);
+        this.collectionAnalytics = new CollectionAnalytics(this);
+        this.groupManager = new GroupManager(this);
+        this.collectionManager.registerChangeListener(this.groupManager);
+        this.acquisitionPipeline = new AcquisitionPipeline(this);
+        this.webServer = new WebServer(this);
+        this.collectionManager.registerChangeListener(this.webServer);
         this.guiManager = new GuiManager(this);
         
         // Register commands
@@ -47,15 +120,33 @@ public class CollectionLog extends JavaPlugin {
         this.getServer().getPluginManager().registerEvents(new CollectionListener(this), this);
         this.getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
         
-        // Schedule regular data saving
-        int saveInterval = this.configManager.getMainConfig().getInt("settings.save-interval", 10);
-        if (saveInterval > 0) {
-            this.getServer().getScheduler().runTaskTimerAsynchronously(
-                this,
-                () -> this.collectionManager.saveAllData(),
-                saveInterval * 1200L, // Convert minutes to ticks (20 ticks/second * 60 seconds)
-                saveInterval * 1200L
-            );
+        // Share collection changes with other servers
+        this.syncService.start();
+        
+        // Load or build the item owner index
+        this.collectionIndex.start();
+        
+        // Continue the analytics windows from the last run
+        this.collectionAnalytics.start();
+        
+        // Load the shared group collections
+        this.groupManager.start();
+        
+        // Schedule staggered data saving
+        this.saveScheduler.start();
+        
+        // Sweep inventories for anything the listeners missed, if enabled
+        this.acquisitionPipeline.start();
+        
+        // Serve the web API, if enabled
+        this.webServer.start();
+        
+        // Serve placeholders if PlaceholderAPI is installed
+        if (this.getServer().getPluginManager().isPluginEnabled("PlaceholderAPI")) {
+            this.placeholderCache = new PlaceholderCache(this);
+            this.collectionManager.registerChangeListener(this.placeholderCache);
+            this.placeholderExpansion = new CollectionLogExpansion(this, this.placeholderCache);
+            this.placeholderExpansion.register();
         }
         
         this.getLogger().info("Collection Log plugin enabled successfully!");
@@ -63,8 +154,44 @@ public class CollectionLog extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (this.webServer != null) {
+            this.webServer.stop();
+        }
+        
+        if (this.placeholderExpansion != null) {
+            this.placeholderExpansion.unregister();
+        }
+        
+        if (this.acquisitionPipeline != null) {
+            this.acquisitionPipeline.stop();
+        }
+        
+        if (this.saveScheduler != null) {
+            this.saveScheduler.stop();
+        }
+        
         if (this.collectionManager != null) {
-            this.collectionManager.saveAllData();
+            this.collectionManager.flushAllParallel();
+        }
+        
+        if (this.collectionIndex != null) {
+            this.collectionIndex.stop();
+        }
+        
+        if (this.collectionAnalytics != null) {
+            this.collectionAnalytics.stop();
+        }
+        
+        if (this.groupManager != null) {
+            this.groupManager.stop();
+        }
+        
+        if (this.syncService != null) {
+            this.syncService.stop();
+        }
+        
+        if (this.bulkTaskRunner != null) {
+            this.bulkTaskRunner.shutdown();
         }
         
         this.getLogger().info("Collection Log plugin disabled successfully!");
@@ -0,0 +1,71 @@
+package com.collectionlog.analytics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The sliding windows analytics are kept for. Each window is a fixed number of buckets,
+ * so it slides one bucket at a time and never holds more than that many counters.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum AnalyticsWindow {
+
+    /** 60 one-minute buckets */
+    HOUR("hour", "Last hour", 60_000L, 60),
+    /** 24 one-hour buckets */
+    DAY("day", "Last 24 hours", 3_600_000L, 24),
+    /** 7 one-day buckets */
+    WEEK("week", "Last 7 days", 86_400_000L, 7);
+    
+    private static final AnalyticsWindow[] VALUES = values();
+    
+    private final String id;
+    private final String displayName;
+    private final long bucketMillis;
+    private final int bucketCount;
+    
+    /**
+     * Get the bucket a time falls in
+     * 
+     * @param timeMillis The time in epoch milliseconds
+     * @return The absolute bucket number
+     */
+    public long bucketOf(final long timeMillis) {
+        return timeMillis / this.bucketMillis;
+    }
+    
+    /**
+     * Get the length of this window in hours
+     * 
+     * @return The number of hours covered
+     */
+    public double getHours() {
+        return this.bucketMillis * this.bucketCount / 3_600_000.0;
+    }
+    
+    /**
+     * Get the next longer window, wrapping around to the shortest
+     * 
+     * @return The next window
+     */
+    public AnalyticsWindow next() {
+        return VALUES[(this.ordinal() + 1) % VALUES.length];
+    }
+    
+    /**
+     * Get a window by its id
+     * 
+     * @param id The id, case insensitive
+     * @return The window, or null if unknown
+     */
+    public static AnalyticsWindow fromId(final String id) {
+        for (AnalyticsWindow window : VALUES) {
+            if (window.id.equalsIgnoreCase(id)) {
+                return window;
+            }
+        }
+        
+        return null;
+    }
+}
@@ -0,0 +1,323 @@
+package com.collectionlog.analytics;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.model.AcquisitionSource;
+import com.collectionlog.scheduler.TaskHandle;
+import com.collectionlog.storage.AtomicFiles;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Server-wide statistics over newly collected items: how many were collected in each
+ * {@link AnalyticsWindow}, which items were collected most, and a feed of the latest
+ * discoveries. Everything is kept in rolling bucket counters and a ring buffer, so
+ * recording an item is O(1) and memory stays the same however long the server runs.
+ * <p>
+ * The state is saved to the plugin folder periodically and on shutdown, and windows
+ * simply continue after a restart; buckets that expired in the meantime read as empty.
+ */
+public class CollectionAnalytics {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final long SAVE_PERIOD_TICKS = 20L * 60;
+    private static final AnalyticsWindow[] WINDOWS = AnalyticsWindow.values();
+    
+    private final CollectionLog plugin;
+    private final File file;
+    private final boolean enabled;
+    
+    private final RollingCounter[] totals;
+    private final Map<String, Map<String, RollingCounter[]>> items;
+    private final DiscoveryFeed feed;
+    
+    /** Held across encoding and writing, so saves never overlap */
+    private final Object saveLock;
+    
+    private volatile boolean dirty;
+    private TaskHandle saveTask;
+    
+    public CollectionAnalytics(final CollectionLog plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "analytics.dat");
+        
+        final ConfigurationSection config = plugin.getConfigManager().getMainConfig();
+        this.enabled = config.getBoolean("settings.analytics.enabled", true);
+        
+        this.totals = newCounters();
+        this.items = new HashMap<>();
+        this.feed = new DiscoveryFeed(Math.max(0, config.getInt("settings.analytics.feed-size", 50)));
+        this.saveLock = new Object();
+    }
+    
+    /**
+     * Load the saved state and start saving periodically
+     */
+    public void start() {
+        if (!this.enabled) {
+            return;
+        }
+        
+        this.load();
+        this.saveTask = this.plugin.getTaskScheduler().runAsyncTimer(() -> {
+            if (this.dirty) {
+                this.save();
+            }
+        }, SAVE_PERIOD_TICKS, SAVE_PERIOD_TICKS);
+    }
+    
+    /**
+     * Stop saving periodically and write the state one last time
+     */
+    public void stop() {
+        if (this.saveTask != null) {
+            this.saveTask.cancel();
+            this.saveTask = null;
+        }
+        
+        // Wait for a save still running on the timer, which may have cleared the flag before writing
+        synchronized (this.saveLock) {
+            if (this.dirty) {
+                this.save();
+            }
+        }
+    }
+    
+    /**
+     * Check whether analytics are being recorded
+     * 
+     * @return True if enabled in the config
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+    
+    /**
+     * Record an item a player newly collected
+     * 
+     * @param playerId The UUID of the player
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @param source How the player acquired the item
+     * @param timestamp When the item was collected, in epoch milliseconds
+     */
+    public void record(final UUID playerId, final String categoryId, final String itemId,
+            final AcquisitionSource source, final long timestamp) {
+        if (!this.enabled) {
+            return;
+        }
+        
+        synchronized (this) {
+            final RollingCounter[] itemCounters = this.items.computeIfAbsent(categoryId, k -> new HashMap<>())
+                    .computeIfAbsent(itemId, k -> newCounters());
+            
+            for (int i = 0; i < WINDOWS.length; i++) {
+                final long bucket = WINDOWS[i].bucketOf(timestamp);
+                this.totals[i].increment(bucket);
+                itemCounters[i].increment(bucket);
+            }
+            
+            this.feed.add(playerId, categoryId, itemId, source, timestamp);
+        }
+        
+        this.dirty = true;
+    }
+    
+    /**
+     * Count the items collected within a window
+     * 
+     * @param window The window
+     * @return The number of items collected
+     */
+    public synchronized int getCount(final AnalyticsWindow window) {
+        return this.totals[window.ordinal()].sum(window.bucketOf(System.currentTimeMillis()));
+    }
+    
+    /**
+     * Get the average number of items collected per hour within a window
+     * 
+     * @param window The window
+     * @return The items per hour
+     */
+    public double getRatePerHour(final AnalyticsWindow window) {
+        return this.getCount(window) / window.getHours();
+    }
+    
+    /**
+     * Get the items collected most often within a window
+     * 
+     * @param window The window
+     * @param limit The maximum number of items
+     * @return The items, most collected first
+     */
+    public List<TrendingItem> getTrending(final AnalyticsWindow window, final int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        
+        // Keep only the best few while scanning, the least collected of them on top
+        final Comparator<TrendingItem> order = Comparator.comparingInt(TrendingItem::getCount)
+                .thenComparing(TrendingItem::getCategoryId, Comparator.reverseOrder())
+                .thenComparing(TrendingItem::getItemId, Comparator.reverseOrder());
+        final PriorityQueue<TrendingItem> best = new PriorityQueue<>(limit + 1, order);
+        final long bucket = window.bucketOf(System.currentTimeMillis());
+        
+        synchronized (this) {
+            for (Map.Entry<String, Map<String, RollingCounter[]>> category : this.items.entrySet()) {
+                for (Map.Entry<String, RollingCounter[]> item : category.getValue().entrySet()) {
+                    final int count = item.getValue()[window.ordinal()].sum(bucket);
+                    if (count == 0) {
+                        continue;
+                    }
+                    
+                    best.add(new TrendingItem(category.getKey(), item.getKey(), count));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+        
+        final List<TrendingItem> trending = new ArrayList<>(best);
+        trending.sort(order.reversed());
+        return trending;
+    }
+    
+    /**
+     * Get the latest discoveries
+     * 
+     * @param limit The maximum number of entries
+     * @return The discoveries, newest first
+     */
+    public synchronized List<Discovery> getRecent(final int limit) {
+        return this.feed.getRecent(limit);
+    }
+    
+    private static RollingCounter[] newCounters() {
+        final RollingCounter[] counters = new RollingCounter[WINDOWS.length];
+        for (int i = 0; i < WINDOWS.length; i++) {
+            counters[i] = new RollingCounter(WINDOWS[i].getBucketCount());
+        }
+        return counters;
+    }
+    
+    private static void writeCounters(final DataOutputStream out, final RollingCounter[] counters) throws IOException {
+        for (RollingCounter counter : counters) {
+            counter.write(out);
+        }
+    }
+    
+    private static RollingCounter[] readCounters(final DataInputStream in) throws IOException {
+        final RollingCounter[] counters = new RollingCounter[WINDOWS.length];
+        for (int i = 0; i < WINDOWS.length; i++) {
+            counters[i] = RollingCounter.read(in, WINDOWS[i].getBucketCount());
+        }
+        return counters;
+    }
+    
+    /**
+     * Read the saved state, if any
+     */
+    private void load() {
+        if (!this.file.exists()) {
+            return;
+        }
+        
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(this.file.toPath())))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            
+            final RollingCounter[] loadedTotals = readCounters(in);
+            final Map<String, Map<String, RollingCounter[]>> loadedItems = new HashMap<>();
+            final int itemCount = in.readInt();
+            for (int i = 0; i < itemCount; i++) {
+                final String categoryId = in.readUTF().intern();
+                final String itemId = in.readUTF().intern();
+                loadedItems.computeIfAbsent(categoryId, k -> new HashMap<>()).put(itemId, readCounters(in));
+            }
+            
+            synchronized (this) {
+                System.arraycopy(loadedTotals, 0, this.totals, 0, WINDOWS.length);
+                this.items.putAll(loadedItems);
+                this.feed.read(in);
+            }
+            
+            this.plugin.debug("Loaded collection analytics for " + itemCount + " items");
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Could not read the collection analytics, starting empty", e);
+        }
+    }
+    
+    /**
+     * Write the state to disk, dropping items that fell out of every window
+     */
+    private void save() {
+        // Saves are serialized so an older snapshot can't replace a newer one
+        synchronized (this.saveLock) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final long now = System.currentTimeMillis();
+            
+            synchronized (this) {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes))) {
+                    this.dirty = false;
+                    out.writeInt(FORMAT_VERSION);
+                    writeCounters(out, this.totals);
+                    
+                    // The longest window outlives the others, so an item expired there is expired everywhere
+                    final AnalyticsWindow longest = WINDOWS[WINDOWS.length - 1];
+                    final long bucket = longest.bucketOf(now);
+                    int itemCount = 0;
+                    for (Iterator<Map<String, RollingCounter[]>> categories = this.items.values().iterator();
+                            categories.hasNext(); ) {
+                        final Map<String, RollingCounter[]> category = categories.next();
+                        category.values().removeIf(counters -> counters[longest.ordinal()].isExpired(bucket));
+                        if (category.isEmpty()) {
+                            categories.remove();
+                        }
+                        itemCount += category.size();
+                    }
+                    
+                    out.writeInt(itemCount);
+                    for (Map.Entry<String, Map<String, RollingCounter[]>> category : this.items.entrySet()) {
+                        for (Map.Entry<String, RollingCounter[]> item : category.getValue().entrySet()) {
+                            out.writeUTF(category.getKey());
+                            out.writeUTF(item.getKey());
+                            writeCounters(out, item.getValue());
+                        }
+                    }
+                    
+                    this.feed.write(out);
+                } catch (IOException e) {
+                    this.plugin.getLogger().log(Level.WARNING, "Could not encode the collection analytics", e);
+                    return;
+                }
+            }
+            
+            try {
+                AtomicFiles.write(this.file.toPath(), bytes.toByteArray());
+                this.plugin.debug("Saved collection analytics");
+            } catch (IOException e) {
+                this.dirty = true;
+                this.plugin.getLogger().log(Level.WARNING, "Could not save the collection analytics", e);
+            }
+        }
+    }
+}
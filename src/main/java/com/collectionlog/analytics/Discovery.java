@@ -0,0 +1,19 @@
+package com.collectionlog.analytics;
+
+import com.collectionlog.model.AcquisitionSource;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * One item newly collected by a player, as shown in the recent discoveries feed
+ */
+@Data
+public class Discovery {
+
+    private final UUID playerId;
+    private final String categoryId;
+    private final String itemId;
+    private final AcquisitionSource source;
+    private final long timestamp;
+}
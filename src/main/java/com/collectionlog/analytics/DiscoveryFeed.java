@@ -0,0 +1,108 @@
+package com.collectionlog.analytics;
+
+import com.collectionlog.model.AcquisitionSource;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The most recent discoveries in a fixed-size ring buffer. Entries live in parallel arrays,
+ * so adding one allocates nothing and the oldest entry is simply overwritten.
+ * <p>
+ * Instances are not thread-safe; {@link CollectionAnalytics} guards them with its lock.
+ */
+final class DiscoveryFeed {
+
+    private final long[] playerMost;
+    private final long[] playerLeast;
+    private final String[] categoryIds;
+    private final String[] itemIds;
+    private final byte[] sources;
+    private final long[] timestamps;
+    
+    /** The slot the next entry is written to */
+    private int head;
+    private int size;
+    
+    DiscoveryFeed(final int capacity) {
+        this.playerMost = new long[capacity];
+        this.playerLeast = new long[capacity];
+        this.categoryIds = new String[capacity];
+        this.itemIds = new String[capacity];
+        this.sources = new byte[capacity];
+        this.timestamps = new long[capacity];
+    }
+    
+    void add(final UUID playerId, final String categoryId, final String itemId, final AcquisitionSource source,
+            final long timestamp) {
+        final int capacity = this.timestamps.length;
+        if (capacity == 0) {
+            return;
+        }
+        
+        this.playerMost[this.head] = playerId.getMostSignificantBits();
+        this.playerLeast[this.head] = playerId.getLeastSignificantBits();
+        this.categoryIds[this.head] = categoryId;
+        this.itemIds[this.head] = itemId;
+        this.sources[this.head] = (byte) source.ordinal();
+        this.timestamps[this.head] = timestamp;
+        
+        this.head = (this.head + 1) % capacity;
+        this.size = Math.min(this.size + 1, capacity);
+    }
+    
+    /**
+     * Get the newest entries
+     * 
+     * @param limit The maximum number of entries
+     * @return The entries, newest first
+     */
+    List<Discovery> getRecent(final int limit) {
+        final int count = Math.min(limit, this.size);
+        final List<Discovery> recent = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            final int slot = Math.floorMod(this.head - i, this.timestamps.length);
+            recent.add(new Discovery(new UUID(this.playerMost[slot], this.playerLeast[slot]),
+                    this.categoryIds[slot], this.itemIds[slot], AcquisitionSource.fromId(this.sources[slot]),
+                    this.timestamps[slot]));
+        }
+        return recent;
+    }
+    
+    void write(final DataOutputStream out) throws IOException {
+        final List<Discovery> entries = this.getRecent(this.size);
+        out.writeInt(entries.size());
+        
+        // Oldest first, so reading them back in order restores the feed
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            final Discovery entry = entries.get(i);
+            out.writeLong(entry.getPlayerId().getMostSignificantBits());
+            out.writeLong(entry.getPlayerId().getLeastSignificantBits());
+            out.writeUTF(entry.getCategoryId());
+            out.writeUTF(entry.getItemId());
+            out.writeByte(entry.getSource().ordinal());
+            out.writeLong(entry.getTimestamp());
+        }
+    }
+    
+    /**
+     * Read entries written by {@link #write} into this feed, keeping the newest if there are more than fit
+     * 
+     * @param in The stream to read from
+     * @throws IOException If an I/O error occurs
+     */
+    void read(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            final UUID playerId = new UUID(in.readLong(), in.readLong());
+            final String categoryId = in.readUTF().intern();
+            final String itemId = in.readUTF().intern();
+            final AcquisitionSource source = AcquisitionSource.fromId(in.readByte());
+            this.add(playerId, categoryId, itemId, source, in.readLong());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.collectionlog.analytics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A count of events over a sliding window of time buckets, kept in a ring of counters.
+ * Buckets that fall out of the window are cleared lazily when a newer bucket is first
+ * written, so adding is O(1) amortized and reading never changes the counter.
+ * <p>
+ * Instances are not thread-safe; {@link CollectionAnalytics} guards them with its lock.
+ */
+final class RollingCounter {
+
+    private final int[] counts;
+    
+    /** The newest bucket written, by absolute bucket number */
+    private long newestBucket;
+    
+    RollingCounter(final int bucketCount) {
+        this.counts = new int[bucketCount];
+        this.newestBucket = Long.MIN_VALUE;
+    }
+    
+    /**
+     * Count one event
+     * 
+     * @param bucket The absolute bucket the event falls in
+     */
+    void increment(final long bucket) {
+        // A clock that went backwards counts into the newest bucket instead of reviving an old one
+        final long target = Math.max(bucket, this.newestBucket);
+        this.advance(target);
+        this.counts[this.slotOf(target)]++;
+    }
+    
+    /**
+     * Sum the events in the window ending at a bucket
+     * 
+     * @param bucket The absolute bucket of the current time
+     * @return The number of events in the window
+     */
+    int sum(final long bucket) {
+        final int size = this.counts.length;
+        if (this.newestBucket == Long.MIN_VALUE || bucket - this.newestBucket >= size) {
+            return 0;
+        }
+        
+        // Only buckets newer than the start of the window count
+        final long oldest = bucket - size;
+        int total = 0;
+        for (int age = 0; age < size; age++) {
+            final long absolute = this.newestBucket - age;
+            if (absolute <= oldest) {
+                break;
+            }
+            total += this.counts[this.slotOf(absolute)];
+        }
+        return total;
+    }
+    
+    /**
+     * Check whether the counter has nothing left in the window ending at a bucket
+     * 
+     * @param bucket The absolute bucket of the current time
+     * @return True if every bucket in the window is empty
+     */
+    boolean isExpired(final long bucket) {
+        return this.sum(bucket) == 0;
+    }
+    
+    private void advance(final long bucket) {
+        if (bucket <= this.newestBucket) {
+            return;
+        }
+        
+        final int size = this.counts.length;
+        if (this.newestBucket == Long.MIN_VALUE || bucket - this.newestBucket >= size) {
+            Arrays.fill(this.counts, 0);
+        } else {
+            for (long cleared = this.newestBucket + 1; cleared <= bucket; cleared++) {
+                this.counts[this.slotOf(cleared)] = 0;
+            }
+        }
+        this.newestBucket = bucket;
+    }
+    
+    private int slotOf(final long bucket) {
+        return (int) Math.floorMod(bucket, (long) this.counts.length);
+    }
+    
+    void write(final DataOutputStream out) throws IOException {
+        out.writeLong(this.newestBucket);
+        for (int count : this.counts) {
+            out.writeInt(count);
+        }
+    }
+    
+    /**
+     * Read a counter written by {@link #write}
+     * 
+     * @param in The stream to read from
+     * @param bucketCount The number of buckets of the counter
+     * @return The counter
+     * @throws IOException If an I/O error occurs
+     */
+    static RollingCounter read(final DataInputStream in, final int bucketCount) throws IOException {
+        final RollingCounter counter = new RollingCounter(bucketCount);
+        counter.newestBucket = in.readLong();
+        for (int i = 0; i < bucketCount; i++) {
+            counter.counts[i] = in.readInt();
+        }
+        return counter;
+    }
+}
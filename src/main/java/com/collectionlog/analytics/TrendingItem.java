@@ -0,0 +1,14 @@
+package com.collectionlog.analytics;
+
+import lombok.Data;
+
+/**
+ * How often an item was newly collected within a window
+ */
+@Data
+public class TrendingItem {
+
+    private final String categoryId;
+    private final String itemId;
+    private final int count;
+}
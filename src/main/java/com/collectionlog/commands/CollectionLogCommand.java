@@ -2,27 +2,62 @@
 package com.collectionlog.commands;
 
 import com.collectionlog.CollectionLog;
+import com.collectionlog.analytics.AnalyticsWindow;
+import com.collectionlog.analytics.CollectionAnalytics;
+import com.collectionlog.analytics.Discovery;
+import com.collectionlog.group.CollectionGroup;
+import com.collectionlog.group.GroupManager;
+import com.collectionlog.group.GroupMember;
+import com.collectionlog.index.CollectionIndex;
+import com.collectionlog.loadtest.LoadTest;
+import com.collectionlog.manager.CollectionManager;
+import com.collectionlog.model.ItemCategory;
+import com.collectionlog.model.PlayerProfiles;
+import com.collectionlog.transfer.BulkDataService;
+import com.collectionlog.transfer.TransferFormat;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 public class CollectionLogCommand implements CommandExecutor, TabCompleter {
 
+    private static final int INDEX_RESULT_LIMIT = 20;
+    private static final int COMPLETION_LIMIT = 50;
+    private static final int ANALYTICS_RESULT_LIMIT = 5;
+    private static final List<String> GROUP_ACTIONS = List.of("create", "delete", "add", "remove", "info", "list");
+    
     private final CollectionLog plugin;
     
+    private LoadTest loadTest;
+    
     public CollectionLogCommand(final CollectionLog plugin) {
         this.plugin = plugin;
     }
     
     @Override
     public boolean onCommand(final CommandSender sender, final Command command, final String label, final String[] args) {
+        // Bulk data commands also work from the console
+        if (args.length >= 1 && sender.hasPermission("collectionlog.admin") 
+                && (this.handleBulkCommand(sender, args) || this.handleIndexCommand(sender, args)
+                        || this.handleProfileCommand(sender, args) || this.handleLoadTestCommand(sender, args)
+                        || this.handleAnalyticsCommand(sender, args) || this.handleGroupAdminCommand(sender, args))) {
+            return true;
+        }
+        
         if (!(sender instanceof Player player)) {
             sender.sendMessage("§cThis command can only be used by players.");
             return true;
@@ -37,9 +72,18 @@ public class CollectionLogCommand implements CommandExecutor, TabCompleter {
         // Admin commands
         if (args.length >= 1) {
             if (args[0].equalsIgnoreCase("reload") && sender.hasPermission("collectionlog.admin")) {
-                this.plugin.getConfigManager().reloadConfigurations();
-                this.plugin.getCollectionManager().loadCategories();
-                sender.sendMessage("§aCollection Log configuration reloaded.");
+                sender.sendMessage("§7Reloading Collection Log configuration...");
+                this.plugin.getConfigManager().reloadConfigurationsAsync().whenComplete((snapshot, error) ->
+                        this.plugin.getTaskScheduler().runForSender(sender, () -> {
+                            if (error != null) {
+                                this.plugin.getLogger().log(Level.SEVERE, "Failed to reload configuration", error);
+                                sender.sendMessage("§cFailed to reload configuration, see console for details.");
+                                return;
+                            }
+                            
+                            sender.sendMessage("§aCollection Log configuration reloaded (" +
+                                    snapshot.getCatalog().getItemCount() + " items).");
+                        }));
                 return true;
             }
             
@@ -57,6 +101,33 @@ public class CollectionLogCommand implements CommandExecutor, TabCompleter {
                 return true;
             }
             
+            if (args[0].equalsIgnoreCase("search")) {
+                if (args.length < 2) {
+                    sender.sendMessage("§cUsage: /log search <text>");
+                    return true;
+                }
+                
+                this.plugin.getGuiManager().openSearchMenu(player, 
+                        String.join(" ", Arrays.copyOfRange(args, 1, args.length)));
+                return true;
+            }
+            
+            if (args[0].equalsIgnoreCase("group")) {
+                final List<CollectionGroup> groups = this.plugin.getGroupManager().getGroups(player.getUniqueId());
+                final CollectionGroup group = args.length >= 2 
+                        ? this.plugin.getGroupManager().getGroup(args[1].toLowerCase())
+                        : groups.isEmpty() ? null : groups.get(0);
+                
+                // Players see their own groups, admins every group
+                if (group == null || (!groups.contains(group) && !sender.hasPermission("collectionlog.admin"))) {
+                    sender.sendMessage(args.length >= 2 ? "§cGroup not found." : "§cYou are not in a group.");
+                    return true;
+                }
+                
+                this.plugin.getGuiManager().openGroupMenu(player, group.getId());
+                return true;
+            }
+            
             if (args[0].equalsIgnoreCase("category") && args.length >= 2) {
                 final String categoryId = args[1].toLowerCase();
                 if (this.plugin.getCollectionManager().getCategories().containsKey(categoryId)) {
@@ -71,11 +142,29 @@ public class CollectionLogCommand implements CommandExecutor, TabCompleter {
             // Show help
             sender.sendMessage("§6Collection Log Commands:");
             sender.sendMessage("§f/log §7- Open the collection log GUI");
+            sender.sendMessage("§f/log search <text> §7- Search the collection log");
+            sender.sendMessage("§f/log group [id] §7- Open your group's shared collection log");
             
             if (sender.hasPermission("collectionlog.admin")) {
                 sender.sendMessage("§f/log category <id> §7- Open a specific category");
                 sender.sendMessage("§f/log reload §7- Reload the plugin configuration");
                 sender.sendMessage("§f/log reset §7- Reset your collection data");
+                sender.sendMessage("§f/log export [ndjson|csv] §7- Export all stored collections");
+                sender.sendMessage("§f/log import <file> §7- Merge an export back into storage");
+                sender.sendMessage("§f/log grant <category> <item> §7- Give an item to every player");
+                sender.sendMessage("§f/log revoke <category> <item> §7- Take an item from every player");
+                sender.sendMessage("§f/log backfill §7- Give players the items their vanilla statistics show");
+                sender.sendMessage("§f/log index who <category> <item> §7- List players owning an item");
+                sender.sendMessage("§f/log index missing <category> [count] §7- List players missing exactly count items");
+                sender.sendMessage("§f/log index all <category>/<item>... §7- List players owning every item");
+                sender.sendMessage("§f/log index rebuild §7- Rebuild the owner index from storage");
+                sender.sendMessage("§f/log profile <player> [name|clear] §7- Show or select a player's profile");
+                sender.sendMessage("§f/log loadtest <players> <seconds> §7- Run a synthetic load test");
+                sender.sendMessage("§f/log analytics [hour|day|week] §7- Show collection rates and trends");
+                sender.sendMessage("§f/log group create <id> [name] §7- Create a group with a shared collection");
+                sender.sendMessage("§f/log group <add|remove> <id> <player> §7- Change a group's members");
+                sender.sendMessage("§f/log group <delete|info> <id> §7- Delete or describe a group");
+                sender.sendMessage("§f/log group list §7- List every group");
             }
         }
         
@@ -89,11 +178,20 @@ public class CollectionLogCommand implements CommandExecutor, TabCompleter {
         final List<String> completions = new ArrayList<>();
         
         if (args.length == 1) {
-            final List<String> commands = new ArrayList<>(Arrays.asList("category"));
+            final List<String> commands = new ArrayList<>(Arrays.asList("category", "search", "group"));
             
             if (sender.hasPermission("collectionlog.admin")) {
                 commands.add("reload");
                 commands.add("reset");
+                commands.add("export");
+                commands.add("import");
+                commands.add("grant");
+                commands.add("revoke");
+                commands.add("backfill");
+                commands.add("index");
+                commands.add("profile");
+                commands.add("loadtest");
+                commands.add("analytics");
             }
             
             final String input = args[0].toLowerCase();
@@ -101,16 +199,559 @@ public class CollectionLogCommand implements CommandExecutor, TabCompleter {
                     .filter(cmd -> cmd.startsWith(input))
                     .collect(Collectors.toList()));
         } else if (args.length == 2) {
-            if (args[0].equalsIgnoreCase("category")) {
+            if (args[0].equalsIgnoreCase("search")) {
+                completions.addAll(this.plugin.getConfigManager().getCatalog().getSearchIndex()
+                        .completeItemIds(args[1], COMPLETION_LIMIT));
+            } else if (args[0].equalsIgnoreCase("group")) {
+                final String input = args[1].toLowerCase();
+                final GroupManager groupManager = this.plugin.getGroupManager();
+                final List<CollectionGroup> groups = sender.hasPermission("collectionlog.admin")
+                        ? groupManager.getGroups()
+                        : sender instanceof Player player ? groupManager.getGroups(player.getUniqueId()) : List.of();
+                groups.stream()
+                        .map(CollectionGroup::getId)
+                        .filter(id -> id.startsWith(input))
+                        .forEach(completions::add);
+                
+                if (sender.hasPermission("collectionlog.admin")) {
+                    GROUP_ACTIONS.stream()
+                            .filter(action -> action.startsWith(input))
+                            .forEach(completions::add);
+                }
+            } else if (args[0].equalsIgnoreCase("category")) {
                 final String input = args[1].toLowerCase();
                 completions.addAll(this.plugin.getCollectionManager().getCategories().keySet().stream()
                         .filter(cat -> cat.startsWith(input))
                         .collect(Collectors.toList()));
             } else if (args[0].equalsIgnoreCase("reset") && sender.hasPermission("collectionlog.admin")) {
                 completions.add("confirm");
+            } else if (args[0].equalsIgnoreCase("export") && sender.hasPermission("collectionlog.admin")) {
+                for (TransferFormat format : TransferFormat.values()) {
+                    if (format.getExtension().startsWith(args[1].toLowerCase())) {
+                        completions.add(format.getExtension());
+                    }
+                }
+            } else if (args[0].equalsIgnoreCase("import") && sender.hasPermission("collectionlog.admin")) {
+                completions.addAll(this.plugin.getBulkDataService().listExports().stream()
+                        .filter(name -> name.startsWith(args[1]))
+                        .collect(Collectors.toList()));
+            } else if (args[0].equalsIgnoreCase("index") && sender.hasPermission("collectionlog.admin")) {
+                final String input = args[1].toLowerCase();
+                completions.addAll(Arrays.asList("who", "missing", "all", "rebuild").stream()
+                        .filter(sub -> sub.startsWith(input))
+                        .collect(Collectors.toList()));
+            } else if (args[0].equalsIgnoreCase("profile") && sender.hasPermission("collectionlog.admin")) {
+                final String input = args[1].toLowerCase();
+                completions.addAll(Bukkit.getOnlinePlayers().stream()
+                        .map(Player::getName)
+                        .filter(name -> name.toLowerCase().startsWith(input))
+                        .collect(Collectors.toList()));
+            } else if (args[0].equalsIgnoreCase("analytics") && sender.hasPermission("collectionlog.admin")) {
+                for (AnalyticsWindow window : AnalyticsWindow.values()) {
+                    if (window.getId().startsWith(args[1].toLowerCase())) {
+                        completions.add(window.getId());
+                    }
+                }
+            } else if ((args[0].equalsIgnoreCase("grant") || args[0].equalsIgnoreCase("revoke")) 
+                    && sender.hasPermission("collectionlog.admin")) {
+                final String input = args[1].toLowerCase();
+                completions.addAll(this.plugin.getCollectionManager().getCategories().keySet().stream()
+                        .filter(cat -> cat.startsWith(input))
+                        .collect(Collectors.toList()));
+            }
+        } else if (args.length == 3) {
+            if (args[0].equalsIgnoreCase("group") && GROUP_ACTIONS.contains(args[1].toLowerCase()) 
+                    && !args[1].equalsIgnoreCase("create") && sender.hasPermission("collectionlog.admin")) {
+                final String input = args[2].toLowerCase();
+                completions.addAll(this.plugin.getGroupManager().getGroups().stream()
+                        .map(CollectionGroup::getId)
+                        .filter(id -> id.startsWith(input))
+                        .collect(Collectors.toList()));
+            } else if ((args[0].equalsIgnoreCase("grant") || args[0].equalsIgnoreCase("revoke")) 
+                    && sender.hasPermission("collectionlog.admin")) {
+                completions.addAll(this.plugin.getConfigManager().getCatalog().getSearchIndex()
+                        .completeItemIds(args[1].toLowerCase(), args[2], COMPLETION_LIMIT));
+            } else if (args[0].equalsIgnoreCase("index") && (args[1].equalsIgnoreCase("who") 
+                    || args[1].equalsIgnoreCase("missing")) && sender.hasPermission("collectionlog.admin")) {
+                final String input = args[2].toLowerCase();
+                completions.addAll(this.plugin.getCollectionManager().getCategories().keySet().stream()
+                        .filter(cat -> cat.startsWith(input))
+                        .collect(Collectors.toList()));
+            }
+        } else if (args.length == 4) {
+            if (args[0].equalsIgnoreCase("group") && sender.hasPermission("collectionlog.admin")
+                    && (args[1].equalsIgnoreCase("add") || args[1].equalsIgnoreCase("remove"))) {
+                final String input = args[3].toLowerCase();
+                completions.addAll(Bukkit.getOnlinePlayers().stream()
+                        .map(Player::getName)
+                        .filter(name -> name.toLowerCase().startsWith(input))
+                        .collect(Collectors.toList()));
+            } else if (args[0].equalsIgnoreCase("index") && args[1].equalsIgnoreCase("who") 
+                    && sender.hasPermission("collectionlog.admin")) {
+                completions.addAll(this.plugin.getConfigManager().getCatalog().getSearchIndex()
+                        .completeItemIds(args[2].toLowerCase(), args[3], COMPLETION_LIMIT));
             }
         }
         
         return completions;
     }
+    
+    /**
+     * Handle the bulk data commands, which run in the background and report progress
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if the arguments were a bulk data command
+     */
+    private boolean handleBulkCommand(final CommandSender sender, final String[] args) {
+        final BulkDataService bulkDataService = this.plugin.getBulkDataService();
+        final CompletableFuture<BulkDataService.Summary> operation;
+        
+        switch (args[0].toLowerCase()) {
+            case "export": {
+                final TransferFormat format = args.length >= 2 ? TransferFormat.fromName(args[1]) : TransferFormat.NDJSON;
+                if (format == null) {
+                    sender.sendMessage("§cUnknown format. Use ndjson or csv.");
+                    return true;
+                }
+                
+                operation = bulkDataService.exportAll(format, message -> this.sendLater(sender, "§7" + message));
+                break;
+            }
+            case "import": {
+                if (args.length < 2) {
+                    sender.sendMessage("§cUsage: /log import <file>");
+                    return true;
+                }
+                
+                operation = bulkDataService.importAll(args[1], message -> this.sendLater(sender, "§7" + message));
+                break;
+            }
+            case "grant":
+            case "revoke": {
+                if (args.length < 3) {
+                    sender.sendMessage("§cUsage: /log " + args[0].toLowerCase() + " <category> <item>");
+                    return true;
+                }
+                
+                final String categoryId = args[1].toLowerCase();
+                final String itemId = args[2].toLowerCase();
+                final boolean grant = args[0].equalsIgnoreCase("grant");
+                
+                // Revoking items that were removed from the catalog is allowed, granting them isn't
+                final ItemCategory category = this.plugin.getCollectionManager().getCategories().get(categoryId);
+                if (grant && (category == null || !category.getItems().containsKey(itemId))) {
+                    sender.sendMessage("§cItem not found.");
+                    return true;
+                }
+                
+                operation = grant
+                        ? bulkDataService.grantAll(categoryId, itemId, message -> this.sendLater(sender, "§7" + message))
+                        : bulkDataService.revokeAll(categoryId, itemId, message -> this.sendLater(sender, "§7" + message));
+                break;
+            }
+            case "backfill": {
+                operation = bulkDataService.backfillStatistics(message -> this.sendLater(sender, "§7" + message));
+                break;
+            }
+            default:
+                return false;
+        }
+        
+        sender.sendMessage("§7Started " + args[0].toLowerCase() + " of all stored collections...");
+        operation.whenComplete((summary, error) -> {
+            if (error != null) {
+                if (!(error instanceof IllegalStateException)) {
+                    this.plugin.getLogger().log(Level.SEVERE, "Bulk " + args[0].toLowerCase() + " failed", error);
+                }
+                this.sendLater(sender, "§cBulk " + args[0].toLowerCase() + " failed: " + error.getMessage());
+                return;
+            }
+            
+            this.sendLater(sender, "§aBulk " + args[0].toLowerCase() + " finished: " + summary.describe());
+        });
+        return true;
+    }
+    
+    /**
+     * Handle the owner index queries
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if the arguments were an index command
+     */
+    private boolean handleIndexCommand(final CommandSender sender, final String[] args) {
+        if (!args[0].equalsIgnoreCase("index")) {
+            return false;
+        }
+        
+        final CollectionIndex index = this.plugin.getCollectionIndex();
+        final String action = args.length >= 2 ? args[1].toLowerCase() : "";
+        final long start = System.nanoTime();
+        final List<UUID> players;
+        final String description;
+        
+        switch (action) {
+            case "rebuild":
+                sender.sendMessage("§7Rebuilding the owner index...");
+                index.rebuild(message -> this.sendLater(sender, "§7" + message)).whenComplete((summary, error) -> {
+                    if (error != null) {
+                        this.sendLater(sender, "§cIndex rebuild failed: " + error.getMessage());
+                        return;
+                    }
+                    this.sendLater(sender, "§aIndex rebuilt: " + summary.describe());
+                });
+                return true;
+            case "who": {
+                if (args.length < 4) {
+                    sender.sendMessage("§cUsage: /log index who <category> <item>");
+                    return true;
+                }
+                
+                players = index.getOwners(args[2].toLowerCase(), args[3].toLowerCase());
+                description = "own " + args[2].toLowerCase() + "/" + args[3].toLowerCase();
+                break;
+            }
+            case "missing": {
+                final ItemCategory category = args.length >= 3 
+                        ? this.plugin.getCollectionManager().getCategories().get(args[2].toLowerCase()) : null;
+                if (category == null) {
+                    sender.sendMessage("§cUsage: /log index missing <category> [count]");
+                    return true;
+                }
+                
+                int missing = 1;
+                if (args.length >= 4) {
+                    try {
+                        missing = Integer.parseInt(args[3]);
+                    } catch (NumberFormatException e) {
+                        sender.sendMessage("§cCount must be a number.");
+                        return true;
+                    }
+                }
+                
+                players = index.getPlayersMissing(category, missing);
+                description = "are missing exactly " + missing + " items in " + category.getId();
+                break;
+            }
+            case "all": {
+                final List<String[]> items = new ArrayList<>();
+                for (int i = 2; i < args.length; i++) {
+                    final String[] parts = args[i].toLowerCase().split("/", 2);
+                    if (parts.length == 2) {
+                        items.add(parts);
+                    }
+                }
+                
+                if (items.isEmpty()) {
+                    sender.sendMessage("§cUsage: /log index all <category>/<item> [<category>/<item>...]");
+                    return true;
+                }
+                
+                players = index.getOwnersOfAll(items);
+                description = "own all " + items.size() + " items";
+                break;
+            }
+            default:
+                sender.sendMessage("§cUsage: /log index <who|missing|all|rebuild>");
+                return true;
+        }
+        
+        final long micros = (System.nanoTime() - start) / 1000;
+        sender.sendMessage("§a" + players.size() + " of " + index.getPlayerCount() + " players " + description + 
+                " §7(" + micros + "µs)");
+        
+        final String names = players.stream()
+                .limit(INDEX_RESULT_LIMIT)
+                .map(playerId -> {
+                    final String name = Bukkit.getOfflinePlayer(playerId).getName();
+                    return name != null ? name : playerId.toString();
+                })
+                .collect(Collectors.joining(", "));
+        
+        if (!names.isEmpty()) {
+            sender.sendMessage("§f" + names + (players.size() > INDEX_RESULT_LIMIT ? "§7, ..." : ""));
+        }
+        return true;
+    }
+    
+    /**
+     * Handle showing and selecting a player's profile
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if the arguments were a profile command
+     */
+    private boolean handleProfileCommand(final CommandSender sender, final String[] args) {
+        if (!args[0].equalsIgnoreCase("profile")) {
+            return false;
+        }
+        
+        if (args.length < 2) {
+            sender.sendMessage("§cUsage: /log profile <player> [name|clear]");
+            return true;
+        }
+        
+        final Player online = Bukkit.getPlayerExact(args[1]);
+        final OfflinePlayer target = online != null ? online : Bukkit.getOfflinePlayerIfCached(args[1]);
+        if (target == null) {
+            sender.sendMessage("§cUnknown player: " + args[1]);
+            return true;
+        }
+        
+        final CollectionManager collectionManager = this.plugin.getCollectionManager();
+        final UUID playerId = target.getUniqueId();
+        
+        if (args.length < 3) {
+            final PlayerProfiles profiles = collectionManager.peekPlayerProfiles(playerId);
+            final List<String> names = profiles.getProfileNames();
+            names.sort(null);
+            
+            sender.sendMessage("§6" + target.getName() + " §7collects into §f" + 
+                    (online != null ? collectionManager.getActiveProfile(playerId) 
+                            : profiles.getSelectedProfile() != null ? profiles.getSelectedProfile() 
+                            : collectionManager.getDefaultProfile()) +
+                    (profiles.getSelectedProfile() != null ? " §7(selected by an admin)" : ""));
+            sender.sendMessage("§7Profiles: §f" + (names.isEmpty() ? "none" : String.join(", ", names)));
+            return true;
+        }
+        
+        final String profile = args[2].toLowerCase();
+        if (profile.equals("clear")) {
+            if (collectionManager.selectProfile(playerId, null)) {
+                sender.sendMessage("§a" + target.getName() + " now collects into the profile of their world.");
+            } else {
+                sender.sendMessage("§cCould not save the profile of " + target.getName() + 
+                        ", see console for details.");
+            }
+            return true;
+        }
+        
+        if (!PlayerProfiles.isValidName(profile)) {
+            sender.sendMessage("§cProfile names are 1-32 letters, digits, dashes or underscores.");
+            return true;
+        }
+        
+        if (collectionManager.selectProfile(playerId, profile)) {
+            sender.sendMessage("§a" + target.getName() + " now collects into profile " + profile + ".");
+        } else {
+            sender.sendMessage("§cCould not save the profile of " + target.getName() + ", see console for details.");
+        }
+        return true;
+    }
+    
+    /**
+     * Handle the synthetic load test, of which only one may run at a time
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if the arguments were a load test command
+     */
+    private boolean handleLoadTestCommand(final CommandSender sender, final String[] args) {
+        if (!args[0].equalsIgnoreCase("loadtest")) {
+            return false;
+        }
+        
+        if (!this.plugin.getConfigManager().getMainConfig().getBoolean("settings.load-test.enabled", false)) {
+            sender.sendMessage("§cLoad tests are disabled. Enable settings.load-test on a test server first.");
+            return true;
+        }
+        
+        final String unsupported = LoadTest.checkSupported();
+        if (unsupported != null) {
+            sender.sendMessage("§c" + unsupported);
+            return true;
+        }
+        
+        if (this.loadTest != null) {
+            sender.sendMessage("§cA load test is already running.");
+            return true;
+        }
+        
+        final int players;
+        final int seconds;
+        try {
+            players = args.length >= 2 ? Integer.parseInt(args[1]) : 100;
+            seconds = args.length >= 3 ? Integer.parseInt(args[2]) : 60;
+        } catch (NumberFormatException e) {
+            sender.sendMessage("§cUsage: /log loadtest <players> <seconds>");
+            return true;
+        }
+        
+        if (players < 1 || seconds < 1) {
+            sender.sendMessage("§cPlayers and seconds must be at least 1.");
+            return true;
+        }
+        
+        final LoadTest test = new LoadTest(this.plugin, players, seconds, message -> {
+            this.plugin.getLogger().info(message.replaceAll("§.", ""));
+            if (!(sender instanceof ConsoleCommandSender)) {
+                this.sendLater(sender, message);
+            }
+        });
+        this.loadTest = test;
+        test.start().whenComplete((result, error) -> this.plugin.getTaskScheduler().runGlobal(() -> {
+            if (this.loadTest == test) {
+                this.loadTest = null;
+            }
+        }));
+        return true;
+    }
+    
+    /**
+     * Handle the analytics view: a menu for players, a text summary for the console
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if the arguments were an analytics command
+     */
+    private boolean handleAnalyticsCommand(final CommandSender sender, final String[] args) {
+        if (!args[0].equalsIgnoreCase("analytics")) {
+            return false;
+        }
+        
+        final CollectionAnalytics analytics = this.plugin.getCollectionAnalytics();
+        if (!analytics.isEnabled()) {
+            sender.sendMessage("§cAnalytics are disabled. Enable settings.analytics first.");
+            return true;
+        }
+        
+        final AnalyticsWindow window = args.length >= 2 ? AnalyticsWindow.fromId(args[1]) : AnalyticsWindow.DAY;
+        if (window == null) {
+            sender.sendMessage("§cUsage: /log analytics [hour|day|week]");
+            return true;
+        }
+        
+        if (sender instanceof Player player) {
+            this.plugin.getGuiManager().openAnalyticsMenu(player, window);
+            return true;
+        }
+        
+        sender.sendMessage("§6" + window.getDisplayName() + ": §f" + analytics.getCount(window) + 
+                " §7items collected, §f" + String.format(Locale.ROOT, "%.1f", analytics.getRatePerHour(window)) + 
+                " §7per hour");
+        
+        final String trending = analytics.getTrending(window, ANALYTICS_RESULT_LIMIT).stream()
+                .map(item -> item.getCategoryId() + "/" + item.getItemId() + " (" + item.getCount() + ")")
+                .collect(Collectors.joining(", "));
+        sender.sendMessage("§7Most collected: §f" + (trending.isEmpty() ? "none" : trending));
+        
+        final long now = System.currentTimeMillis();
+        for (Discovery discovery : analytics.getRecent(ANALYTICS_RESULT_LIMIT)) {
+            final String name = Bukkit.getOfflinePlayer(discovery.getPlayerId()).getName();
+            sender.sendMessage("§7- §f" + (name != null ? name : discovery.getPlayerId()) + " §7found §f" + 
+                    discovery.getCategoryId() + "/" + discovery.getItemId() + " §7" + 
+                    (now - discovery.getTimestamp()) / 60_000 + "m ago via " + discovery.getSource().getDisplayName());
+        }
+        return true;
+    }
+    
+    /**
+     * Handle creating, changing and listing groups. Opening a group's menu is handled with
+     * the player commands.
+     * 
+     * @param sender The command sender
+     * @param args The command arguments
+     * @return True if the arguments were a group admin command
+     */
+    private boolean handleGroupAdminCommand(final CommandSender sender, final String[] args) {
+        if (!args[0].equalsIgnoreCase("group") || args.length < 2 
+                || !GROUP_ACTIONS.contains(args[1].toLowerCase())) {
+            return false;
+        }
+        
+        final GroupManager groupManager = this.plugin.getGroupManager();
+        final String action = args[1].toLowerCase();
+        if (action.equals("list")) {
+            final List<CollectionGroup> groups = groupManager.getGroups();
+            sender.sendMessage("§6Groups: §f" + (groups.isEmpty() ? "none" : groups.stream()
+                    .map(group -> group.getId() + " (" + group.getMembers().size() + ")")
+                    .collect(Collectors.joining(", "))));
+            return true;
+        }
+        
+        if (args.length < 3) {
+            sender.sendMessage("§cUsage: /log group " + action + " <id>" + 
+                    (action.equals("add") || action.equals("remove") ? " <player>" : ""));
+            return true;
+        }
+        
+        final String groupId = args[2].toLowerCase();
+        switch (action) {
+            case "create": {
+                if (!PlayerProfiles.isValidName(groupId)) {
+                    sender.sendMessage("§cGroup IDs are 1-32 letters, digits, dashes or underscores.");
+                    return true;
+                }
+                
+                final String name = args.length >= 4 ? String.join(" ", Arrays.copyOfRange(args, 3, args.length)) 
+                        : groupId;
+                sender.sendMessage(groupManager.createGroup(groupId, name) != null
+                        ? "§aCreated group §f" + groupId + "§a."
+                        : "§cA group with that ID already exists.");
+                return true;
+            }
+            case "delete":
+                sender.sendMessage(groupManager.deleteGroup(groupId)
+                        ? "§aDeleted group §f" + groupId + "§a."
+                        : "§cGroup not found.");
+                return true;
+            case "info": {
+                final CollectionGroup group = groupManager.getGroup(groupId);
+                if (group == null) {
+                    sender.sendMessage("§cGroup not found.");
+                    return true;
+                }
+                
+                sender.sendMessage("§6" + group.getDisplayName().replace('&', '§') + " §7(" + group.getId() + 
+                        "): §f" + group.snapshot().getTotalCollectionCount() + " §7items");
+                for (GroupMember member : group.getContributions()) {
+                    final String name = Bukkit.getOfflinePlayer(member.getPlayerId()).getName();
+                    sender.sendMessage("§7- §f" + (name != null ? name : member.getPlayerId()) + " §7" + 
+                            member.getItems() + " items, " + member.getUnique() + " only they own");
+                }
+                return true;
+            }
+            default:
+                break;
+        }
+        
+        // Adding and removing
+        if (args.length < 4) {
+            sender.sendMessage("§cUsage: /log group " + action + " <id> <player>");
+            return true;
+        }
+        
+        final Player online = Bukkit.getPlayerExact(args[3]);
+        final OfflinePlayer target = online != null ? online : Bukkit.getOfflinePlayerIfCached(args[3]);
+        if (target == null) {
+            sender.sendMessage("§cUnknown player: " + args[3]);
+            return true;
+        }
+        
+        if (groupManager.getGroup(groupId) == null) {
+            sender.sendMessage("§cGroup not found.");
+            return true;
+        }
+        
+        // Adding may read the player's stored collection
+        final boolean add = action.equals("add");
+        this.plugin.getTaskScheduler().runAsync(() -> {
+            final boolean changed = add ? groupManager.addMember(groupId, target.getUniqueId())
+                    : groupManager.removeMember(groupId, target.getUniqueId());
+            if (!changed) {
+                this.sendLater(sender, "§c" + target.getName() + (add ? " is already in" : " is not in") + 
+                        " that group.");
+            } else if (add) {
+                this.sendLater(sender, "§aAdded §f" + target.getName() + " §ato group §f" + groupId + "§a.");
+            } else {
+                this.sendLater(sender, "§aRemoved §f" + target.getName() + " §afrom group §f" + groupId + "§a.");
+            }
+        });
+        return true;
+    }
+    
+    private void sendLater(final CommandSender sender, final String message) {
+        this.plugin.getTaskScheduler().runForSender(sender, () -> sender.sendMessage(message));
+    }
 }
@@ -0,0 +1,221 @@
+package com.collectionlog.config;
+
+import com.collectionlog.model.CollectionItem;
+import com.collectionlog.model.ItemCategory;
+import com.collectionlog.model.Rarity;
+import com.collectionlog.storage.AtomicFiles;
+import org.bukkit.Material;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled, binary copy of the parsed catalog files. Every source file is stored
+ * with the hash of its contents, so a file only has to be parsed again once it changes.
+ */
+public final class CatalogCache {
+
+    private static final int MAGIC = 0x434C4F47;
+    private static final int FORMAT_VERSION = 2;
+    
+    private CatalogCache() {
+    }
+    
+    /**
+     * The categories compiled from one source file
+     */
+    public static final class Entry {
+        
+        private final byte[] hash;
+        private final List<ItemCategory> categories;
+        
+        public Entry(final byte[] hash, final List<ItemCategory> categories) {
+            this.hash = hash;
+            this.categories = categories;
+        }
+        
+        /**
+         * Check whether this entry was compiled from a file with the given contents
+         * 
+         * @param contentHash The hash of the file's current contents
+         * @return True if the entry is still valid
+         */
+        public boolean matches(final byte[] contentHash) {
+            return Arrays.equals(this.hash, contentHash);
+        }
+        
+        /**
+         * Get the compiled categories. The lists and item maps are fresh copies on
+         * every call, since a catalog takes ownership of the categories it is built from.
+         * 
+         * @return Copies of the categories
+         */
+        public List<ItemCategory> getCategories() {
+            final List<ItemCategory> copies = new ArrayList<>(this.categories.size());
+            for (ItemCategory category : this.categories) {
+                copies.add(ItemCategory.builder()
+                        .id(category.getId())
+                        .displayItem(category.getDisplayItem())
+                        .displayName(category.getDisplayName())
+                        .items(new LinkedHashMap<>(category.getItems()))
+                        .build());
+            }
+            return copies;
+        }
+    }
+    
+    /**
+     * Read a cache file
+     * 
+     * @param file The cache file
+     * @return The entries by source file name, empty if the file is missing or was written
+     *         by another version
+     * @throws IOException If the file exists but could not be read
+     */
+    public static Map<String, Entry> read(final File file) throws IOException {
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+        if (!file.exists()) {
+            return entries;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return entries;
+            }
+            
+            final int entryCount = in.readInt();
+            for (int e = 0; e < entryCount; e++) {
+                final String source = in.readUTF();
+                final byte[] hash = new byte[in.readUnsignedShort()];
+                in.readFully(hash);
+                
+                final int categoryCount = in.readInt();
+                final List<ItemCategory> categories = new ArrayList<>(categoryCount);
+                for (int c = 0; c < categoryCount; c++) {
+                    categories.add(readCategory(in));
+                }
+                
+                entries.put(source, new Entry(hash, categories));
+            }
+        } catch (IllegalArgumentException e) {
+            // A material that no longer exists on this server version
+            throw new IOException("Catalog cache refers to an unknown material: " + e.getMessage(), e);
+        }
+        
+        return entries;
+    }
+    
+    /**
+     * Write a cache file, replacing the old one atomically
+     * 
+     * @param file The cache file
+     * @param entries The entries by source file name
+     * @throws IOException If the file could not be written
+     */
+    public static void write(final File file, final Map<String, Entry> entries) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entries.size());
+            
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeShort(entry.getValue().hash.length);
+                out.write(entry.getValue().hash);
+                
+                out.writeInt(entry.getValue().categories.size());
+                for (ItemCategory category : entry.getValue().categories) {
+                    writeCategory(out, category);
+                }
+            }
+        }
+        
+        AtomicFiles.write(file.toPath(), bytes.toByteArray());
+    }
+    
+    private static void writeCategory(final DataOutputStream out, final ItemCategory category) throws IOException {
+        out.writeUTF(category.getId());
+        out.writeUTF(category.getDisplayItem().name());
+        out.writeUTF(category.getDisplayName());
+        out.writeInt(category.getItems().size());
+        
+        for (CollectionItem item : category.getItems().values()) {
+            out.writeUTF(item.getId());
+            out.writeUTF(item.getMaterial().name());
+            out.writeUTF(item.getName());
+            out.writeBoolean(item.getCustomModelData() != null);
+            if (item.getCustomModelData() != null) {
+                out.writeInt(item.getCustomModelData());
+            }
+            writeStrings(out, item.getLore());
+            writeStrings(out, item.getTags());
+            out.writeByte(item.getRarity().ordinal());
+        }
+    }
+    
+    private static ItemCategory readCategory(final DataInputStream in) throws IOException {
+        final String id = in.readUTF().intern();
+        final Material displayItem = Material.valueOf(in.readUTF());
+        final String displayName = in.readUTF();
+        
+        final int itemCount = in.readInt();
+        final Map<String, CollectionItem> items = new LinkedHashMap<>(itemCount * 2);
+        for (int i = 0; i < itemCount; i++) {
+            final String itemId = in.readUTF().intern();
+            final Material material = Material.valueOf(in.readUTF());
+            final String name = in.readUTF();
+            final Integer customModelData = in.readBoolean() ? in.readInt() : null;
+            
+            items.put(itemId, CollectionItem.builder()
+                    .id(itemId)
+                    .categoryId(id)
+                    .material(material)
+                    .name(name)
+                    .customModelData(customModelData)
+                    .lore(readStrings(in))
+                    .tags(readStrings(in))
+                    .rarity(Rarity.fromId(in.readUnsignedByte()))
+                    .build());
+        }
+        
+        return ItemCategory.builder()
+                .id(id)
+                .displayItem(displayItem)
+                .displayName(displayName)
+                .items(items)
+                .build();
+    }
+    
+    private static void writeStrings(final DataOutputStream out, final List<String> strings) throws IOException {
+        if (strings == null) {
+            out.writeInt(0);
+            return;
+        }
+        
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+    
+    private static List<String> readStrings(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,248 @@
+package com.collectionlog.config;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.jfr.CatalogReloadEvent;
+import com.collectionlog.jfr.ConfigLoadEvent;
+import com.collectionlog.model.Catalog;
+import com.collectionlog.model.ItemCategory;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+
+/**
+ * Builds the catalog from items.yml and every file in the categories folder. Source files
+ * are hashed on each load; only files whose contents changed are parsed, in parallel,
+ * and everything else comes from the compiled catalog cache.
+ */
+public class CatalogLoader {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    
+    private final CollectionLog plugin;
+    
+    private final File itemsConfigFile;
+    private final File categoriesFolder;
+    private final File cacheFile;
+    
+    private Map<String, CatalogCache.Entry> cache;
+    
+    public CatalogLoader(final CollectionLog plugin, final File itemsConfigFile) {
+        this.plugin = plugin;
+        this.itemsConfigFile = itemsConfigFile;
+        this.categoriesFolder = new File(plugin.getDataFolder(), "categories");
+        this.cacheFile = new File(plugin.getDataFolder(), "catalog.cache");
+    }
+    
+    /**
+     * Load the catalog, parsing only the source files that changed since the last load
+     * 
+     * @return A new catalog
+     */
+    public synchronized Catalog load() {
+        final CatalogReloadEvent event = new CatalogReloadEvent();
+        event.begin();
+        
+        if (this.cache == null) {
+            this.cache = this.readCache();
+        }
+        
+        final List<File> sources = this.listSources();
+        final Map<String, byte[]> contents = new LinkedHashMap<>();
+        final Map<String, byte[]> hashes = new LinkedHashMap<>();
+        final List<String> changed = new ArrayList<>();
+        
+        for (File source : sources) {
+            final String name = this.getSourceName(source);
+            try {
+                final byte[] bytes = Files.readAllBytes(source.toPath());
+                final byte[] hash = hash(bytes);
+                hashes.put(name, hash);
+                
+                final CatalogCache.Entry cached = this.cache.get(name);
+                if (cached == null || !cached.matches(hash)) {
+                    contents.put(name, bytes);
+                    changed.add(name);
+                }
+            } catch (IOException e) {
+                this.plugin.getLogger().log(Level.WARNING, "Could not read " + name, e);
+            }
+        }
+        
+        // Parse every changed file at once, the files don't depend on each other
+        final Map<String, CatalogCache.Entry> parsed = new LinkedHashMap<>();
+        changed.parallelStream()
+                .map(name -> {
+                    final List<ItemCategory> categories = this.parse(name, contents.get(name));
+                    return categories == null ? null
+                            : Map.entry(name, new CatalogCache.Entry(hashes.get(name), categories));
+                })
+                .filter(Objects::nonNull)
+                .toList()
+                .forEach(entry -> parsed.put(entry.getKey(), entry.getValue()));
+        
+        // Assemble in source order; files that failed to parse are left out until fixed
+        final Map<String, CatalogCache.Entry> entries = new LinkedHashMap<>();
+        final Map<String, ItemCategory> categories = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> source : hashes.entrySet()) {
+            final String name = source.getKey();
+            CatalogCache.Entry entry = parsed.get(name);
+            if (entry == null) {
+                final CatalogCache.Entry cached = this.cache.get(name);
+                if (cached == null || !cached.matches(source.getValue())) {
+                    continue;
+                }
+                entry = cached;
+            }
+            
+            entries.put(name, entry);
+            for (ItemCategory category : entry.getCategories()) {
+                if (categories.putIfAbsent(category.getId(), category) != null) {
+                    this.plugin.getLogger().warning("Category " + category.getId() + " in " + name +
+                            " is already defined, ignoring it");
+                }
+            }
+        }
+        
+        final boolean cacheChanged = !parsed.isEmpty() || !entries.keySet().equals(this.cache.keySet());
+        this.cache = entries;
+        if (cacheChanged) {
+            this.writeCache(entries);
+        }
+        
+        final Catalog catalog = Catalog.of(categories);
+        
+        event.categoryCount = catalog.getCategories().size();
+        event.itemCount = catalog.getItemCount();
+        event.filesParsed = parsed.size();
+        event.filesCached = entries.size() - parsed.size();
+        event.commit();
+        
+        this.plugin.debug("Catalog built from " + entries.size() + " files, " + parsed.size() + " parsed");
+        return catalog;
+    }
+    
+    /**
+     * Get items.yml followed by the files of the categories folder in alphabetical order
+     * 
+     * @return The source files that exist
+     */
+    private List<File> listSources() {
+        final List<File> sources = new ArrayList<>();
+        if (this.itemsConfigFile.isFile()) {
+            sources.add(this.itemsConfigFile);
+        }
+        
+        if (!this.categoriesFolder.exists()) {
+            this.categoriesFolder.mkdirs();
+        }
+        
+        final File[] files = this.categoriesFolder.listFiles((dir, name) ->
+                name.endsWith(".yml") || name.endsWith(".yaml"));
+        if (files != null) {
+            Arrays.sort(files);
+            sources.addAll(Arrays.asList(files));
+        }
+        
+        return sources;
+    }
+    
+    private String getSourceName(final File source) {
+        return source.equals(this.itemsConfigFile) ? source.getName() : "categories/" + source.getName();
+    }
+    
+    /**
+     * Parse one source file. A file with a top-level "categories" key may hold any number
+     * of categories, like items.yml; otherwise the whole file is one category named after it.
+     * 
+     * @param name The source name
+     * @param bytes The file's contents
+     * @return The categories, or null if the file could not be parsed
+     */
+    private List<ItemCategory> parse(final String name, final byte[] bytes) {
+        final ConfigLoadEvent event = new ConfigLoadEvent();
+        event.begin();
+        
+        final Object root;
+        try {
+            // Yaml instances are not thread-safe, so every file gets its own
+            final LoaderOptions options = new LoaderOptions();
+            options.setCodePointLimit(Integer.MAX_VALUE);
+            root = new Yaml(new SafeConstructor(options)).load(new ByteArrayInputStream(bytes));
+        } catch (RuntimeException e) {
+            this.plugin.getLogger().log(Level.SEVERE, "Could not parse " + name + ", skipping it", e);
+            return null;
+        }
+        
+        final List<ItemCategory> categories = new ArrayList<>();
+        if (root instanceof Map<?, ?> values) {
+            if (values.get("categories") instanceof Map<?, ?> categoriesMap) {
+                for (Map.Entry<?, ?> entry : categoriesMap.entrySet()) {
+                    if (entry.getValue() instanceof Map<?, ?> categoryValues) {
+                        this.addCategory(categories, name, String.valueOf(entry.getKey()), categoryValues);
+                    }
+                }
+            } else if (!values.containsKey("categories")) {
+                final String fileName = name.substring(name.lastIndexOf('/') + 1);
+                this.addCategory(categories, name, fileName.substring(0, fileName.lastIndexOf('.')), values);
+            }
+        }
+        
+        if (event.shouldCommit()) {
+            event.file = name;
+            event.bytes = bytes.length;
+            event.commit();
+        }
+        
+        return categories;
+    }
+    
+    private void addCategory(final List<ItemCategory> categories, final String source, final String id,
+            final Map<?, ?> values) {
+        final ItemCategory category = ItemCategory.fromMap(id, values);
+        if (category == null) {
+            this.plugin.getLogger().warning("Category " + id + " in " + source + " has an unknown display item");
+            return;
+        }
+        
+        categories.add(category);
+    }
+    
+    private Map<String, CatalogCache.Entry> readCache() {
+        try {
+            return CatalogCache.read(this.cacheFile);
+        } catch (IOException e) {
+            this.plugin.getLogger().warning("Discarding catalog cache: " + e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+    
+    private void writeCache(final Map<String, CatalogCache.Entry> entries) {
+        try {
+            CatalogCache.write(this.cacheFile, entries);
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Could not write catalog cache", e);
+        }
+    }
+    
+    private static byte[] hash(final byte[] bytes) {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM).digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+}
@@ -1,108 +1,206 @@
-
 package com.collectionlog.config;
 
 import com.collectionlog.CollectionLog;
-import lombok.Getter;
+import com.collectionlog.jfr.ConfigLoadEvent;
+import com.collectionlog.model.Catalog;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 public class ConfigManager {
 
     private final CollectionLog plugin;
     
-    @Getter
-    private FileConfiguration mainConfig;
+    private final AtomicReference<ConfigSnapshot> snapshot;
     
-    @Getter
-    private FileConfiguration itemsConfig;
+    private final File mainConfigFile;
+    private final File itemsConfigFile;
+    private final File guiConfigFile;
+    private final File rewardsConfigFile;
     
-    @Getter
-    private FileConfiguration guiConfig;
+    private final CatalogLoader catalogLoader;
     
-    private File mainConfigFile;
-    private File itemsConfigFile;
-    private File guiConfigFile;
-
     public ConfigManager(final CollectionLog plugin) {
         this.plugin = plugin;
+        this.snapshot = new AtomicReference<>(ConfigSnapshot.empty());
+        this.mainConfigFile = new File(plugin.getDataFolder(), "config.yml");
+        this.itemsConfigFile = new File(plugin.getDataFolder(), "items.yml");
+        this.guiConfigFile = new File(plugin.getDataFolder(), "gui.yml");
+        this.rewardsConfigFile = new File(plugin.getDataFolder(), "rewards.yml");
+        this.catalogLoader = new CatalogLoader(plugin, this.itemsConfigFile);
     }
     
     /**
-     * Load all configuration files
+     * Load all configuration files, writing the defaults if they don't exist
      */
     public void loadConfigurations() {
-        this.loadMainConfig();
-        this.loadItemsConfig();
-        this.loadGuiConfig();
+        this.saveDefault(this.mainConfigFile);
+        this.saveDefault(this.itemsConfigFile);
+        this.saveDefault(this.guiConfigFile);
+        this.saveDefault(this.rewardsConfigFile);
+        
+        this.publish(this.readSnapshot());
     }
     
     /**
-     * Save all configuration files
+     * Save all configuration files. The catalog sources are never written back,
+     * as the plugin does not modify them.
      */
     public void saveConfigurations() {
+        final ConfigSnapshot current = this.snapshot.get();
         try {
-            this.mainConfig.save(this.mainConfigFile);
-            this.itemsConfig.save(this.itemsConfigFile);
-            this.guiConfig.save(this.guiConfigFile);
+            current.getMainConfig().save(this.mainConfigFile);
+            current.getGuiConfig().save(this.guiConfigFile);
+            current.getRewardsConfig().save(this.rewardsConfigFile);
         } catch (IOException e) {
             this.plugin.getLogger().log(Level.SEVERE, "Could not save config files", e);
         }
     }
     
     /**
-     * Load the main config (config.yml)
+     * Reload all configuration files on the calling thread
      */
-    public void loadMainConfig() {
-        this.mainConfigFile = new File(this.plugin.getDataFolder(), "config.yml");
+    public void reloadConfigurations() {
+        this.publish(this.readSnapshot());
+        this.plugin.debug("All configurations reloaded");
+    }
+    
+    /**
+     * Reload all configuration files off the main thread. The new configuration
+     * and catalog become visible in a single swap once everything is parsed;
+     * until then readers keep seeing the previous snapshot.
+     * 
+     * @return A future completed with the published snapshot
+     */
+    public CompletableFuture<ConfigSnapshot> reloadConfigurationsAsync() {
+        final CompletableFuture<ConfigSnapshot> future = new CompletableFuture<>();
         
-        if (!this.mainConfigFile.exists()) {
-            this.plugin.saveResource("config.yml", false);
-        }
+        this.plugin.getTaskScheduler().runAsync(() -> {
+            try {
+                final ConfigSnapshot loaded = this.readSnapshot();
+                this.publish(loaded);
+                this.plugin.debug("All configurations reloaded");
+                future.complete(loaded);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
         
-        this.mainConfig = YamlConfiguration.loadConfiguration(this.mainConfigFile);
-        this.plugin.debug("Main configuration loaded");
+        return future;
     }
     
     /**
-     * Load the items config (items.yml)
+     * Get the currently published configuration snapshot
+     * 
+     * @return The current snapshot
      */
-    public void loadItemsConfig() {
-        this.itemsConfigFile = new File(this.plugin.getDataFolder(), "items.yml");
+    public ConfigSnapshot getSnapshot() {
+        return this.snapshot.get();
+    }
+    
+    /**
+     * Get the main config (config.yml)
+     * 
+     * @return The main config
+     */
+    public FileConfiguration getMainConfig() {
+        return this.snapshot.get().getMainConfig();
+    }
+    
+    /**
+     * Get the GUI config (gui.yml)
+     * 
+     * @return The GUI config
+     */
+    public FileConfiguration getGuiConfig() {
+        return this.snapshot.get().getGuiConfig();
+    }
+    
+    /**
+     * Get the rewards config (rewards.yml)
+     * 
+     * @return The rewards config
+     */
+    public FileConfiguration getRewardsConfig() {
+        return this.snapshot.get().getRewardsConfig();
+    }
+    
+    /**
+     * Get the collection catalog built from items.yml and the categories folder
+     * 
+     * @return The current catalog
+     */
+    public Catalog getCatalog() {
+        return this.snapshot.get().getCatalog();
+    }
+    
+    /**
+     * Parse every configuration file and build the catalog without touching live state
+     * 
+     * @return A fully built snapshot
+     */
+    private ConfigSnapshot readSnapshot() {
+        final YamlConfiguration mainConfig = this.loadYaml(this.mainConfigFile);
+        final YamlConfiguration guiConfig = this.loadYaml(this.guiConfigFile);
+        final YamlConfiguration rewardsConfig = this.loadYaml(this.rewardsConfigFile);
         
-        if (!this.itemsConfigFile.exists()) {
-            this.plugin.saveResource("items.yml", false);
-        }
+        final Catalog catalog = this.catalogLoader.load();
         
-        this.itemsConfig = YamlConfiguration.loadConfiguration(this.itemsConfigFile);
-        this.plugin.debug("Items configuration loaded");
+        return new ConfigSnapshot(mainConfig, guiConfig, rewardsConfig, catalog);
     }
     
     /**
-     * Load the GUI config (gui.yml)
+     * Publish a snapshot, making it visible to all readers at once
+     * 
+     * @param loaded The snapshot to publish
      */
-    public void loadGuiConfig() {
-        this.guiConfigFile = new File(this.plugin.getDataFolder(), "gui.yml");
+    private void publish(final ConfigSnapshot loaded) {
+        this.snapshot.set(loaded);
         
-        if (!this.guiConfigFile.exists()) {
-            this.plugin.saveResource("gui.yml", false);
+        final Catalog catalog = loaded.getCatalog();
+        if (catalog.getCategories().isEmpty()) {
+            this.plugin.getLogger().warning("No categories found in items.yml or the categories folder");
         }
         
-        this.guiConfig = YamlConfiguration.loadConfiguration(this.guiConfigFile);
-        this.plugin.debug("GUI configuration loaded");
+        this.plugin.getLogger().info("Loaded " + catalog.getCategories().size() + " categories with " +
+                catalog.getItemCount() + " items");
     }
     
     /**
-     * Reload all configuration files
+     * Write a bundled default file if it doesn't exist yet
+     * 
+     * @param file The file in the data folder
      */
-    public void reloadConfigurations() {
-        this.mainConfig = YamlConfiguration.loadConfiguration(this.mainConfigFile);
-        this.itemsConfig = YamlConfiguration.loadConfiguration(this.itemsConfigFile);
-        this.guiConfig = YamlConfiguration.loadConfiguration(this.guiConfigFile);
+    private void saveDefault(final File file) {
+        if (!file.exists()) {
+            this.plugin.saveResource(file.getName(), false);
+        }
+    }
+    
+    /**
+     * Parse a YAML file, recording the read in Flight Recorder
+     * 
+     * @param file The file to parse
+     * @return The parsed configuration
+     */
+    private YamlConfiguration loadYaml(final File file) {
+        final ConfigLoadEvent event = new ConfigLoadEvent();
+        event.begin();
         
-        this.plugin.debug("All configurations reloaded");
+        final YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        
+        if (event.shouldCommit()) {
+            event.file = file.getName();
+            event.bytes = file.length();
+            event.commit();
+        }
+        
+        this.plugin.debug("Loaded " + file.getName());
+        return config;
     }
 }
@@ -0,0 +1,32 @@
+package com.collectionlog.config;
+
+import com.collectionlog.model.Catalog;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+/**
+ * Everything parsed from the plugin's configuration files in one reload.
+ * Snapshots are never modified after being published; a reload builds a new one
+ * and swaps it in atomically.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class ConfigSnapshot {
+
+    private final FileConfiguration mainConfig;
+    private final FileConfiguration guiConfig;
+    private final FileConfiguration rewardsConfig;
+    private final Catalog catalog;
+    
+    /**
+     * Create a snapshot with empty configurations, used before the first load
+     * 
+     * @return An empty snapshot
+     */
+    public static ConfigSnapshot empty() {
+        return new ConfigSnapshot(new YamlConfiguration(), new YamlConfiguration(),
+                new YamlConfiguration(), Catalog.empty());
+    }
+}
@@ -0,0 +1,325 @@
+package com.collectionlog.group;
+
+import com.collectionlog.model.AcquisitionSource;
+import com.collectionlog.model.PlayerCollection;
+import lombok.Getter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A collection shared by a group of players, such as a clan: every item any member owns,
+ * with the number of members owning each. Every item the group has seen gets a row; each
+ * member keeps a bit set of the rows they own and each row a count of owning members, so
+ * a member collecting an item updates the group in constant time and a member leaving
+ * only touches their own rows.
+ * <p>
+ * The union is kept as a regular collection, recording when and how the group first got
+ * each item, so menus can show it like a player's own.
+ */
+public final class CollectionGroup {
+
+    @Getter
+    private final String id;
+    
+    @Getter
+    private final String displayName;
+    
+    private final Map<UUID, BitSet> members;
+    private final Map<String, Map<String, Integer>> rows;
+    private final List<String> rowCategories;
+    private final List<String> rowItems;
+    private int[] counts;
+    private PlayerCollection union;
+    
+    public CollectionGroup(final String id, final String displayName) {
+        this.id = id;
+        this.displayName = displayName;
+        this.members = new LinkedHashMap<>();
+        this.rows = new HashMap<>();
+        this.rowCategories = new ArrayList<>();
+        this.rowItems = new ArrayList<>();
+        this.counts = new int[16];
+        this.union = PlayerCollection.createEmpty(null);
+    }
+    
+    /**
+     * Check whether a player is a member
+     * 
+     * @param playerId The UUID of the player
+     * @return True if the player is a member
+     */
+    public synchronized boolean isMember(final UUID playerId) {
+        return this.members.containsKey(playerId);
+    }
+    
+    /**
+     * Get the members in the order they joined
+     * 
+     * @return A copy of the members' UUIDs
+     */
+    public synchronized List<UUID> getMembers() {
+        return new ArrayList<>(this.members.keySet());
+    }
+    
+    /**
+     * Add a member and their items, or bring an existing member's items up to date
+     * 
+     * @param playerId The UUID of the player
+     * @param collection The player's collection in the default profile
+     * @return True if the player was not a member before
+     */
+    public synchronized boolean addMember(final UUID playerId, final PlayerCollection collection) {
+        final boolean added = !this.members.containsKey(playerId);
+        if (added) {
+            this.members.put(playerId, new BitSet());
+        }
+        this.update(playerId, collection);
+        return added;
+    }
+    
+    /**
+     * Remove a member, taking out every item no remaining member owns
+     * 
+     * @param playerId The UUID of the player
+     * @return True if the player was a member
+     */
+    public synchronized boolean removeMember(final UUID playerId) {
+        final BitSet owned = this.members.remove(playerId);
+        if (owned == null) {
+            return false;
+        }
+        
+        for (int row = owned.nextSetBit(0); row >= 0; row = owned.nextSetBit(row + 1)) {
+            this.release(row);
+        }
+        return true;
+    }
+    
+    /**
+     * Record that a member collected an item
+     * 
+     * @param playerId The UUID of the member
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @param source How the member acquired the item
+     * @param timestampMillis When the member acquired the item
+     * @return True if the group had no member owning the item before
+     */
+    public synchronized boolean addItem(final UUID playerId, final String categoryId, final String itemId,
+            final AcquisitionSource source, final long timestampMillis) {
+        final BitSet owned = this.members.get(playerId);
+        if (owned == null) {
+            return false;
+        }
+        
+        final int row = this.getOrAssignRow(categoryId, itemId);
+        if (owned.get(row)) {
+            return false;
+        }
+        
+        owned.set(row);
+        if (this.counts[row]++ > 0) {
+            return false;
+        }
+        
+        this.union.addItem(categoryId, itemId, source, timestampMillis);
+        return true;
+    }
+    
+    /**
+     * Replace a member's rows with the current contents of their collection, touching
+     * only the rows that differ
+     * 
+     * @param playerId The UUID of the member
+     * @param collection The member's collection in the default profile
+     */
+    public synchronized void update(final UUID playerId, final PlayerCollection collection) {
+        final BitSet owned = this.members.get(playerId);
+        if (owned == null) {
+            return;
+        }
+        
+        final BitSet current = new BitSet();
+        for (Map.Entry<String, Set<String>> entry : collection.getCollectedItems().entrySet()) {
+            for (String itemId : entry.getValue()) {
+                current.set(this.getOrAssignRow(entry.getKey(), itemId));
+            }
+        }
+        
+        final BitSet lost = (BitSet) owned.clone();
+        lost.andNot(current);
+        for (int row = lost.nextSetBit(0); row >= 0; row = lost.nextSetBit(row + 1)) {
+            this.release(row);
+        }
+        
+        final BitSet gained = (BitSet) current.clone();
+        gained.andNot(owned);
+        for (int row = gained.nextSetBit(0); row >= 0; row = gained.nextSetBit(row + 1)) {
+            if (this.counts[row]++ == 0) {
+                final String categoryId = this.rowCategories.get(row);
+                final String itemId = this.rowItems.get(row);
+                this.union.addItem(categoryId, itemId, collection.getAcquisitionSource(categoryId, itemId),
+                        collection.getFirstCollectedAt(categoryId, itemId));
+            }
+        }
+        
+        owned.clear();
+        owned.or(current);
+    }
+    
+    /**
+     * Get the number of members owning an item
+     * 
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @return The number of owning members
+     */
+    public synchronized int getOwnerCount(final String categoryId, final String itemId) {
+        final Map<String, Integer> items = this.rows.get(categoryId);
+        final Integer row = items == null ? null : items.get(itemId);
+        return row == null ? 0 : this.counts[row];
+    }
+    
+    /**
+     * Get what each member contributes, most items first
+     * 
+     * @return The members with their item counts
+     */
+    public synchronized List<GroupMember> getContributions() {
+        final List<GroupMember> contributions = new ArrayList<>(this.members.size());
+        for (Map.Entry<UUID, BitSet> member : this.members.entrySet()) {
+            final BitSet owned = member.getValue();
+            int unique = 0;
+            for (int row = owned.nextSetBit(0); row >= 0; row = owned.nextSetBit(row + 1)) {
+                if (this.counts[row] == 1) {
+                    unique++;
+                }
+            }
+            contributions.add(new GroupMember(member.getKey(), owned.cardinality(), unique));
+        }
+        
+        contributions.sort(Comparator.comparingInt(GroupMember::getItems).reversed());
+        return contributions;
+    }
+    
+    /**
+     * Take a private copy of the group's collection, e.g. to render from
+     * 
+     * @return A copy of every item any member owns
+     */
+    public synchronized PlayerCollection snapshot() {
+        return this.union.copy();
+    }
+    
+    private int getOrAssignRow(final String categoryId, final String itemId) {
+        return this.rows.computeIfAbsent(categoryId, k -> new HashMap<>()).computeIfAbsent(itemId, k -> {
+            final int row = this.rowItems.size();
+            this.rowCategories.add(categoryId);
+            this.rowItems.add(itemId);
+            if (row == this.counts.length) {
+                this.counts = Arrays.copyOf(this.counts, row * 2);
+            }
+            return row;
+        });
+    }
+    
+    /**
+     * Drop one owner of a row, taking the item out of the union if it was the last
+     */
+    private void release(final int row) {
+        if (--this.counts[row] == 0) {
+            this.union.removeItem(this.rowCategories.get(row), this.rowItems.get(row), this.union.getEpoch() + 1);
+        }
+    }
+    
+    /**
+     * Write the group: its rows, each member's rows as a bit set, and the union
+     * 
+     * @param out The stream to write to
+     * @throws IOException If an I/O error occurs
+     */
+    public synchronized void write(final DataOutputStream out) throws IOException {
+        out.writeUTF(this.id);
+        out.writeUTF(this.displayName);
+        
+        // Category IDs are written once and referred to by index
+        final List<String> categories = new ArrayList<>(this.rows.keySet());
+        final Map<String, Integer> categoryIndexes = new HashMap<>();
+        out.writeInt(categories.size());
+        for (String categoryId : categories) {
+            categoryIndexes.put(categoryId, categoryIndexes.size());
+            out.writeUTF(categoryId);
+        }
+        
+        out.writeInt(this.rowItems.size());
+        for (int row = 0; row < this.rowItems.size(); row++) {
+            out.writeInt(categoryIndexes.get(this.rowCategories.get(row)));
+            out.writeUTF(this.rowItems.get(row));
+        }
+        
+        out.writeInt(this.members.size());
+        for (Map.Entry<UUID, BitSet> member : this.members.entrySet()) {
+            out.writeLong(member.getKey().getMostSignificantBits());
+            out.writeLong(member.getKey().getLeastSignificantBits());
+            final long[] words = member.getValue().toLongArray();
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+        
+        this.union.write(out);
+    }
+    
+    /**
+     * Read a group written by {@link #write(DataOutputStream)}. Owner counts are
+     * rebuilt from the members' bit sets.
+     * 
+     * @param in The stream to read from
+     * @return The group
+     * @throws IOException If an I/O error occurs
+     */
+    public static CollectionGroup read(final DataInputStream in) throws IOException {
+        final CollectionGroup group = new CollectionGroup(in.readUTF(), in.readUTF());
+        
+        final String[] categories = new String[in.readInt()];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = in.readUTF().intern();
+        }
+        
+        final int rowCount = in.readInt();
+        for (int row = 0; row < rowCount; row++) {
+            group.getOrAssignRow(categories[in.readInt()], in.readUTF().intern());
+        }
+        
+        final int memberCount = in.readInt();
+        for (int i = 0; i < memberCount; i++) {
+            final UUID playerId = new UUID(in.readLong(), in.readLong());
+            final long[] words = new long[in.readInt()];
+            for (int j = 0; j < words.length; j++) {
+                words[j] = in.readLong();
+            }
+            
+            final BitSet owned = BitSet.valueOf(words);
+            for (int row = owned.nextSetBit(0); row >= 0; row = owned.nextSetBit(row + 1)) {
+                group.counts[row]++;
+            }
+            group.members.put(playerId, owned);
+        }
+        
+        group.union = PlayerCollection.read(null, PlayerCollection.DEFAULT_PROFILE, in);
+        return group;
+    }
+}
@@ -0,0 +1,311 @@
+package com.collectionlog.group;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.manager.CollectionChangeListener;
+import com.collectionlog.manager.CollectionManager;
+import com.collectionlog.model.AcquisitionSource;
+import com.collectionlog.model.PlayerCollection;
+import com.collectionlog.scheduler.TaskHandle;
+import com.collectionlog.storage.AtomicFiles;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Keeps the shared collections of player groups, such as clans, current as members
+ * collect items, join and leave. Like the owner index, groups only follow the default
+ * profile. Groups are saved to the plugin folder.
+ */
+public class GroupManager implements CollectionChangeListener {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final long SAVE_PERIOD_TICKS = 20L * 60;
+    
+    private final CollectionLog plugin;
+    private final File file;
+    private final Map<String, CollectionGroup> groups;
+    
+    /** The IDs of the groups each player belongs to */
+    private final Map<UUID, Set<String>> memberships;
+    
+    /** Held across encoding and writing, so saves never overlap */
+    private final Object saveLock;
+    
+    private volatile boolean dirty;
+    private TaskHandle saveTask;
+    
+    public GroupManager(final CollectionLog plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "groups.dat");
+        this.groups = new ConcurrentHashMap<>();
+        this.memberships = new ConcurrentHashMap<>();
+        this.saveLock = new Object();
+    }
+    
+    /**
+     * Load the saved groups and start saving them periodically
+     */
+    public void start() {
+        this.load();
+        
+        this.saveTask = this.plugin.getTaskScheduler().runAsyncTimer(() -> {
+            if (this.dirty) {
+                this.save();
+            }
+        }, SAVE_PERIOD_TICKS, SAVE_PERIOD_TICKS);
+    }
+    
+    /**
+     * Stop saving periodically and write the groups one last time
+     */
+    public void stop() {
+        if (this.saveTask != null) {
+            this.saveTask.cancel();
+            this.saveTask = null;
+        }
+        
+        // Wait for a save still running on the timer, which may have cleared the flag before writing
+        synchronized (this.saveLock) {
+            if (this.dirty) {
+                this.save();
+            }
+        }
+    }
+    
+    @Override
+    public void onItemAdded(final UUID playerId, final String profile, final String categoryId,
+            final String itemId) {
+        final Set<String> groupIds = this.memberships.get(playerId);
+        final CollectionManager collectionManager = this.plugin.getCollectionManager();
+        if (groupIds == null || !profile.equals(collectionManager.getDefaultProfile())) {
+            return;
+        }
+        
+        // The member's copy is loaded, as they just collected into it
+        final PlayerCollection collection = collectionManager.peekPlayerCollection(playerId);
+        final AcquisitionSource source = collection.getAcquisitionSource(categoryId, itemId);
+        final long timestamp = collection.getFirstCollectedAt(categoryId, itemId);
+        
+        for (String groupId : groupIds) {
+            final CollectionGroup group = this.groups.get(groupId);
+            if (group != null) {
+                group.addItem(playerId, categoryId, itemId, source, timestamp);
+                this.dirty = true;
+            }
+        }
+    }
+    
+    @Override
+    public void onCollectionChanged(final UUID playerId) {
+        final Set<String> groupIds = this.memberships.get(playerId);
+        if (groupIds == null) {
+            return;
+        }
+        
+        final PlayerCollection collection = this.plugin.getCollectionManager().peekPlayerCollection(playerId);
+        for (String groupId : groupIds) {
+            final CollectionGroup group = this.groups.get(groupId);
+            if (group != null) {
+                group.update(playerId, collection);
+                this.dirty = true;
+            }
+        }
+    }
+    
+    /**
+     * Create an empty group
+     * 
+     * @param groupId The group ID
+     * @param displayName The name shown in menus
+     * @return The new group, or null if a group with that ID exists
+     */
+    public synchronized CollectionGroup createGroup(final String groupId, final String displayName) {
+        if (this.groups.containsKey(groupId)) {
+            return null;
+        }
+        
+        final CollectionGroup group = new CollectionGroup(groupId, displayName);
+        this.groups.put(groupId, group);
+        this.dirty = true;
+        return group;
+    }
+    
+    /**
+     * Delete a group. Members keep their own collections.
+     * 
+     * @param groupId The group ID
+     * @return True if the group existed
+     */
+    public synchronized boolean deleteGroup(final String groupId) {
+        final CollectionGroup group = this.groups.remove(groupId);
+        if (group == null) {
+            return false;
+        }
+        
+        for (UUID playerId : group.getMembers()) {
+            this.removeMembership(playerId, groupId);
+        }
+        this.dirty = true;
+        return true;
+    }
+    
+    /**
+     * Add a player to a group, adding every item they own to it. May read the player's
+     * stored collection, so avoid calling it on the main thread.
+     * 
+     * @param groupId The group ID
+     * @param playerId The UUID of the player
+     * @return True if the player was added, false if the group doesn't exist or they were a member
+     */
+    public synchronized boolean addMember(final String groupId, final UUID playerId) {
+        final CollectionGroup group = this.groups.get(groupId);
+        if (group == null || group.isMember(playerId)) {
+            return false;
+        }
+        
+        // Items collected from here on reach the group through the listener, earlier ones through the collection
+        this.memberships.computeIfAbsent(playerId, k -> ConcurrentHashMap.newKeySet()).add(groupId);
+        group.addMember(playerId, this.plugin.getCollectionManager().peekPlayerCollection(playerId));
+        this.dirty = true;
+        return true;
+    }
+    
+    /**
+     * Remove a player from a group, taking out every item only they owned
+     * 
+     * @param groupId The group ID
+     * @param playerId The UUID of the player
+     * @return True if the player was a member
+     */
+    public synchronized boolean removeMember(final String groupId, final UUID playerId) {
+        final CollectionGroup group = this.groups.get(groupId);
+        if (group == null || !group.removeMember(playerId)) {
+            return false;
+        }
+        
+        this.removeMembership(playerId, groupId);
+        this.dirty = true;
+        return true;
+    }
+    
+    private void removeMembership(final UUID playerId, final String groupId) {
+        this.memberships.computeIfPresent(playerId, (id, groupIds) -> {
+            groupIds.remove(groupId);
+            return groupIds.isEmpty() ? null : groupIds;
+        });
+    }
+    
+    /**
+     * Get a group by ID
+     * 
+     * @param groupId The group ID
+     * @return The group, or null if it does not exist
+     */
+    public CollectionGroup getGroup(final String groupId) {
+        return this.groups.get(groupId);
+    }
+    
+    /**
+     * Get every group, ordered by ID
+     * 
+     * @return The groups
+     */
+    public List<CollectionGroup> getGroups() {
+        final List<CollectionGroup> sorted = new ArrayList<>(this.groups.values());
+        sorted.sort(Comparator.comparing(CollectionGroup::getId));
+        return sorted;
+    }
+    
+    /**
+     * Get the groups a player belongs to, ordered by ID
+     * 
+     * @param playerId The UUID of the player
+     * @return The groups, empty if none
+     */
+    public List<CollectionGroup> getGroups(final UUID playerId) {
+        final List<CollectionGroup> playerGroups = new ArrayList<>();
+        for (String groupId : this.memberships.getOrDefault(playerId, Set.of())) {
+            final CollectionGroup group = this.groups.get(groupId);
+            if (group != null) {
+                playerGroups.add(group);
+            }
+        }
+        
+        playerGroups.sort(Comparator.comparing(CollectionGroup::getId));
+        return playerGroups;
+    }
+    
+    /**
+     * Read the saved groups
+     */
+    private void load() {
+        if (!this.file.exists()) {
+            return;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file.toPath())))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                this.plugin.getLogger().warning("Ignoring groups saved by another version: " + this.file.getName());
+                return;
+            }
+            
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final CollectionGroup group = CollectionGroup.read(in);
+                this.groups.put(group.getId(), group);
+                for (UUID playerId : group.getMembers()) {
+                    this.memberships.computeIfAbsent(playerId, k -> ConcurrentHashMap.newKeySet()).add(group.getId());
+                }
+            }
+            
+            this.plugin.debug("Loaded " + count + " collection groups");
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.SEVERE, "Could not read the collection groups", e);
+        }
+    }
+    
+    /**
+     * Write the groups to disk
+     */
+    private void save() {
+        // Saves are serialized so an older snapshot can't replace a newer one
+        synchronized (this.saveLock) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes))) {
+                this.dirty = false;
+                final List<CollectionGroup> snapshot = this.getGroups();
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(snapshot.size());
+                for (CollectionGroup group : snapshot) {
+                    group.write(out);
+                }
+            } catch (IOException e) {
+                this.plugin.getLogger().log(Level.WARNING, "Could not encode the collection groups", e);
+                return;
+            }
+            
+            try {
+                AtomicFiles.write(this.file.toPath(), bytes.toByteArray());
+                this.plugin.debug("Saved collection groups");
+            } catch (IOException e) {
+                this.dirty = true;
+                this.plugin.getLogger().log(Level.WARNING, "Could not save the collection groups", e);
+            }
+        }
+    }
+}
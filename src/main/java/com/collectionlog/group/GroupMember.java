@@ -0,0 +1,20 @@
+package com.collectionlog.group;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * What one member contributes to their group's collection
+ */
+@Data
+public class GroupMember {
+
+    private final UUID playerId;
+    
+    /** The items the member owns in the default profile */
+    private final int items;
+    
+    /** The items no other member of the group owns */
+    private final int unique;
+}
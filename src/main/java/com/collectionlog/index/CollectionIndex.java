@@ -0,0 +1,551 @@
+package com.collectionlog.index;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.manager.CollectionChangeListener;
+import com.collectionlog.model.ItemCategory;
+import com.collectionlog.model.PlayerCollection;
+import com.collectionlog.scheduler.TaskHandle;
+import com.collectionlog.storage.AtomicFiles;
+import com.collectionlog.transfer.BulkDataService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * An inverted index from each collected item to the players who own it, kept as one
+ * compressed bitmap of player rows per item. Answers "who has X" style questions
+ * without reading any player file.
+ * <p>
+ * The index is kept current from collection changes on this server and saved to the
+ * plugin folder. Players whose files were changed by other servers while not loaded
+ * here are picked up by a rebuild. Only the default profile is indexed, so the index
+ * has to be rebuilt after the default profile is changed.
+ * <p>
+ * Players are also ranked by the number of items they own, kept up to date the same way.
+ */
+public class CollectionIndex implements CollectionChangeListener {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final long SAVE_PERIOD_TICKS = 20L * 60;
+    
+    private final CollectionLog plugin;
+    private final File file;
+    private final ReadWriteLock lock;
+    
+    /** Held across encoding and writing, so saves never overlap */
+    private final Object saveLock;
+    
+    private PlayerRegistry registry;
+    private Map<String, Map<String, PlayerBitmap>> owners;
+    private TotalRanking ranking;
+    
+    /** Changes whenever any player's rank may have changed */
+    private volatile long rankVersion;
+    
+    /** Players changed while a rebuild is running, re-indexed once it finishes */
+    private volatile Set<UUID> changedDuringRebuild;
+    private volatile boolean dirty;
+    private TaskHandle saveTask;
+    
+    public CollectionIndex(final CollectionLog plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "collection-index.dat");
+        this.lock = new ReentrantReadWriteLock();
+        this.saveLock = new Object();
+        this.registry = new PlayerRegistry();
+        this.owners = new HashMap<>();
+        this.ranking = new TotalRanking();
+    }
+    
+    /**
+     * Load the saved index, or rebuild it from storage if there is none, and start saving it periodically
+     */
+    public void start() {
+        if (!this.load()) {
+            this.rebuild(message -> this.plugin.getLogger().info(message)).whenComplete((summary, error) -> {
+                if (error != null) {
+                    this.plugin.getLogger().log(Level.WARNING, "Could not build the collection index", error);
+                }
+            });
+        }
+        
+        this.saveTask = this.plugin.getTaskScheduler().runAsyncTimer(() -> {
+            if (this.dirty) {
+                this.save();
+            }
+        }, SAVE_PERIOD_TICKS, SAVE_PERIOD_TICKS);
+    }
+    
+    /**
+     * Stop saving periodically and write the index one last time
+     */
+    public void stop() {
+        if (this.saveTask != null) {
+            this.saveTask.cancel();
+            this.saveTask = null;
+        }
+        
+        // Wait for a save still running on the timer, which may have cleared the flag before writing
+        synchronized (this.saveLock) {
+            if (this.dirty) {
+                this.save();
+            }
+        }
+    }
+    
+    @Override
+    public void onItemAdded(final UUID playerId, final String profile, final String categoryId, 
+            final String itemId) {
+        if (!profile.equals(this.plugin.getCollectionManager().getDefaultProfile())) {
+            return;
+        }
+        
+        this.markChanged(playerId);
+        
+        this.lock.writeLock().lock();
+        try {
+            final int row = this.registry.getOrAssign(playerId);
+            final boolean added = this.owners.computeIfAbsent(categoryId, k -> new HashMap<>())
+                    .computeIfAbsent(itemId, k -> new PlayerBitmap())
+                    .add(row);
+            
+            if (added) {
+                this.ranking.increment(row);
+                this.rankVersion++;
+            }
+            this.dirty = true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onRemoteItemAdded(final UUID playerId, final String profile, final String categoryId, 
+            final String itemId) {
+        this.onItemAdded(playerId, profile, categoryId, itemId);
+    }
+    
+    @Override
+    public void onCollectionChanged(final UUID playerId) {
+        this.markChanged(playerId);
+        this.reindex(this.plugin.getCollectionManager().peekPlayerCollection(playerId));
+    }
+    
+    /**
+     * Bring a player's row in line with the current contents of their collection, touching
+     * only the bitmaps of items gained or lost since it was last indexed
+     * 
+     * @param collection The player's collection
+     */
+    private void reindex(final PlayerCollection collection) {
+        final Map<String, Set<String>> collected = collection.getCollectedItems();
+        
+        this.lock.writeLock().lock();
+        try {
+            final int row = this.registry.getOrAssign(collection.getPlayerId());
+            boolean changed = false;
+            
+            // Drop rows for items no longer owned; a membership test leaves the other bitmaps untouched
+            for (Map.Entry<String, Map<String, PlayerBitmap>> category : this.owners.entrySet()) {
+                final Set<String> owned = collected.getOrDefault(category.getKey(), Set.of());
+                for (Map.Entry<String, PlayerBitmap> item : category.getValue().entrySet()) {
+                    if (!owned.contains(item.getKey()) && item.getValue().contains(row)) {
+                        item.getValue().remove(row);
+                        changed = true;
+                    }
+                }
+            }
+            
+            int total = 0;
+            for (Map.Entry<String, Set<String>> entry : collected.entrySet()) {
+                final Map<String, PlayerBitmap> items = this.owners.computeIfAbsent(entry.getKey(), k -> new HashMap<>());
+                for (String itemId : entry.getValue()) {
+                    changed |= items.computeIfAbsent(itemId, k -> new PlayerBitmap()).add(row);
+                    total++;
+                }
+            }
+            
+            if (changed) {
+                this.ranking.set(row, total);
+                this.rankVersion++;
+                this.dirty = true;
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+    
+    private void markChanged(final UUID playerId) {
+        final Set<UUID> changed = this.changedDuringRebuild;
+        if (changed != null) {
+            changed.add(playerId);
+        }
+    }
+    
+    /**
+     * Rebuild the index from every stored collection on the bulk worker pool. The current
+     * index keeps answering queries until the new one is swapped in.
+     * 
+     * @param progress Receives progress messages, called off the main thread
+     * @return A future completed with the outcome
+     */
+    public CompletableFuture<BulkDataService.Summary> rebuild(final Consumer<String> progress) {
+        if (this.plugin.getBulkDataService().isRunning()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Another bulk operation is already running"));
+        }
+        
+        final PlayerRegistry rebuiltRegistry = new PlayerRegistry();
+        final Map<String, Map<String, PlayerBitmap>> rebuiltOwners = new HashMap<>();
+        this.changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        
+        return this.plugin.getBulkDataService().forEachStored("Index rebuild", collection -> {
+            final int row = rebuiltRegistry.getOrAssign(collection.getPlayerId());
+            synchronized (rebuiltOwners) {
+                for (Map.Entry<String, Set<String>> entry : collection.getCollectedItems().entrySet()) {
+                    final Map<String, PlayerBitmap> items = rebuiltOwners.computeIfAbsent(entry.getKey(), k -> new HashMap<>());
+                    for (String itemId : entry.getValue()) {
+                        items.computeIfAbsent(itemId, k -> new PlayerBitmap()).add(row);
+                    }
+                }
+            }
+            return true;
+        }, progress).whenComplete((summary, error) -> {
+            final Set<UUID> changed = this.changedDuringRebuild;
+            this.changedDuringRebuild = null;
+            
+            if (error != null) {
+                return;
+            }
+            
+            final TotalRanking rebuiltRanking = TotalRanking.build(rebuiltOwners, rebuiltRegistry.size());
+            
+            this.lock.writeLock().lock();
+            try {
+                this.registry = rebuiltRegistry;
+                this.owners = rebuiltOwners;
+                this.ranking = rebuiltRanking;
+                this.rankVersion++;
+                this.dirty = true;
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            
+            // Players changed while the rebuild was reading storage may have been read before the change
+            for (UUID playerId : changed) {
+                this.reindex(this.plugin.getCollectionManager().peekPlayerCollection(playerId));
+            }
+        });
+    }
+    
+    /**
+     * Get the players who own an item
+     * 
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @return The UUIDs of the owners
+     */
+    public List<UUID> getOwners(final String categoryId, final String itemId) {
+        this.lock.readLock().lock();
+        try {
+            return this.toPlayers(this.getBitmap(categoryId, itemId));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Count the players who own an item
+     * 
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @return The number of owners
+     */
+    public int countOwners(final String categoryId, final String itemId) {
+        this.lock.readLock().lock();
+        try {
+            return this.getBitmap(categoryId, itemId).cardinality();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the players who own every one of the given items
+     * 
+     * @param items Pairs of category ID and item ID
+     * @return The UUIDs of the players owning all items
+     */
+    public List<UUID> getOwnersOfAll(final Collection<String[]> items) {
+        this.lock.readLock().lock();
+        try {
+            PlayerBitmap result = null;
+            for (String[] item : items) {
+                final PlayerBitmap bitmap = this.getBitmap(item[0], item[1]);
+                result = result == null ? bitmap : result.and(bitmap);
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result == null ? List.of() : this.toPlayers(result);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the players who own any of the given items
+     * 
+     * @param items Pairs of category ID and item ID
+     * @return The UUIDs of the players owning at least one item
+     */
+    public List<UUID> getOwnersOfAny(final Collection<String[]> items) {
+        this.lock.readLock().lock();
+        try {
+            PlayerBitmap result = new PlayerBitmap();
+            for (String[] item : items) {
+                result = result.or(this.getBitmap(item[0], item[1]));
+            }
+            return this.toPlayers(result);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the indexed players who don't own an item
+     * 
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @return The UUIDs of the players missing the item
+     */
+    public List<UUID> getMissing(final String categoryId, final String itemId) {
+        this.lock.readLock().lock();
+        try {
+            return this.toPlayers(PlayerBitmap.range(this.registry.size()).andNot(this.getBitmap(categoryId, itemId)));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the players who are missing exactly a number of items in a category,
+     * e.g. one for players about to complete it
+     * 
+     * @param category The category
+     * @param missing The number of missing items
+     * @return The UUIDs of the matching players
+     */
+    public List<UUID> getPlayersMissing(final ItemCategory category, final int missing) {
+        final int required = category.getItems().size() - missing;
+        if (required < 0) {
+            return List.of();
+        }
+        
+        this.lock.readLock().lock();
+        try {
+            final int[] counts = new int[this.registry.size()];
+            for (String itemId : category.getItems().keySet()) {
+                this.getBitmap(category.getId(), itemId).forEach(row -> counts[row]++);
+            }
+            
+            final List<UUID> players = new ArrayList<>();
+            for (int row = 0; row < counts.length; row++) {
+                if (counts[row] == required) {
+                    players.add(this.registry.getPlayer(row));
+                }
+            }
+            return players;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the number of players in the index
+     * 
+     * @return The number of indexed players
+     */
+    public int getPlayerCount() {
+        this.lock.readLock().lock();
+        try {
+            return this.registry.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get a player's rank by the number of items they own in the default profile
+     * 
+     * @param playerId The UUID of the player
+     * @return The rank, where 1 owns the most and ties share a rank, or 0 if the player isn't indexed
+     */
+    public int getRank(final UUID playerId) {
+        this.lock.readLock().lock();
+        try {
+            return this.ranking.getRank(this.registry.getRow(playerId));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the players owning the most items in the default profile
+     * 
+     * @param limit The maximum number of players
+     * @return The players, highest total first
+     */
+    public List<RankedPlayer> getTopPlayers(final int limit) {
+        this.lock.readLock().lock();
+        try {
+            final int[] rows = this.ranking.top(limit);
+            final List<RankedPlayer> players = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                players.add(new RankedPlayer(this.registry.getPlayer(row), this.ranking.getTotal(row), 
+                        this.ranking.getRank(row)));
+            }
+            return players;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get a value that changes whenever any rank may have changed, so ranks can be cached
+     * 
+     * @return The current rank version
+     */
+    public long getRankVersion() {
+        return this.rankVersion;
+    }
+    
+    private PlayerBitmap getBitmap(final String categoryId, final String itemId) {
+        final Map<String, PlayerBitmap> items = this.owners.get(categoryId);
+        final PlayerBitmap bitmap = items == null ? null : items.get(itemId);
+        return bitmap == null ? new PlayerBitmap() : bitmap;
+    }
+    
+    private List<UUID> toPlayers(final PlayerBitmap bitmap) {
+        final List<UUID> players = new ArrayList<>(bitmap.cardinality());
+        bitmap.forEach(row -> players.add(this.registry.getPlayer(row)));
+        return players;
+    }
+    
+    /**
+     * Read the saved index
+     * 
+     * @return True if an index was loaded
+     */
+    private boolean load() {
+        if (!this.file.exists()) {
+            return false;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file.toPath())))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return false;
+            }
+            
+            final PlayerRegistry loadedRegistry = new PlayerRegistry();
+            final int players = in.readInt();
+            for (int i = 0; i < players; i++) {
+                loadedRegistry.getOrAssign(new UUID(in.readLong(), in.readLong()));
+            }
+            
+            final Map<String, Map<String, PlayerBitmap>> loadedOwners = new HashMap<>();
+            final int categories = in.readInt();
+            for (int i = 0; i < categories; i++) {
+                final String categoryId = in.readUTF();
+                final Map<String, PlayerBitmap> items = new HashMap<>();
+                final int itemCount = in.readInt();
+                for (int j = 0; j < itemCount; j++) {
+                    items.put(in.readUTF(), PlayerBitmap.read(in));
+                }
+                loadedOwners.put(categoryId, items);
+            }
+            
+            final TotalRanking loadedRanking = TotalRanking.build(loadedOwners, loadedRegistry.size());
+            
+            this.lock.writeLock().lock();
+            try {
+                this.registry = loadedRegistry;
+                this.owners = loadedOwners;
+                this.ranking = loadedRanking;
+                this.rankVersion++;
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            
+            this.plugin.debug("Loaded collection index with " + players + " players");
+            return true;
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Could not read the collection index, rebuilding it", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Write the index to disk
+     */
+    private void save() {
+        // Saves are serialized so an older snapshot can't replace a newer one
+        synchronized (this.saveLock) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            
+            this.lock.readLock().lock();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes))) {
+                this.dirty = false;
+                out.writeInt(FORMAT_VERSION);
+                
+                final List<UUID> players = this.registry.getPlayers();
+                out.writeInt(players.size());
+                for (UUID playerId : players) {
+                    out.writeLong(playerId.getMostSignificantBits());
+                    out.writeLong(playerId.getLeastSignificantBits());
+                }
+                
+                out.writeInt(this.owners.size());
+                for (Map.Entry<String, Map<String, PlayerBitmap>> category : this.owners.entrySet()) {
+                    out.writeUTF(category.getKey());
+                    out.writeInt(category.getValue().size());
+                    for (Map.Entry<String, PlayerBitmap> item : category.getValue().entrySet()) {
+                        out.writeUTF(item.getKey());
+                        item.getValue().write(out);
+                    }
+                }
+            } catch (IOException e) {
+                this.plugin.getLogger().log(Level.WARNING, "Could not encode the collection index", e);
+                return;
+            } finally {
+                this.lock.readLock().unlock();
+            }
+            
+            try {
+                AtomicFiles.write(this.file.toPath(), bytes.toByteArray());
+                this.plugin.debug("Saved collection index");
+            } catch (IOException e) {
+                this.dirty = true;
+                this.plugin.getLogger().log(Level.WARNING, "Could not save the collection index", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package com.collectionlog.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non-negative ints, laid out like a Roaring bitmap. Values are split
+ * by their high 16 bits into chunks; a chunk holding few values stores them as a sorted
+ * char array, a dense chunk as a 65536-bit bitmap. Set operations work chunk by chunk,
+ * so intersections of sparse sets only touch the chunks both sides have.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class PlayerBitmap {
+
+    /** Chunks with more values than this are stored as bitmaps */
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    
+    private char[] keys;
+    private Object[] chunks;
+    private int size;
+    
+    public PlayerBitmap() {
+        this.keys = new char[4];
+        this.chunks = new Object[4];
+    }
+    
+    /**
+     * Create a bitmap holding every value in [0, end)
+     * 
+     * @param end The exclusive upper bound
+     * @return A new bitmap
+     */
+    public static PlayerBitmap range(final int end) {
+        final PlayerBitmap bitmap = new PlayerBitmap();
+        for (int high = 0; high <= (end - 1) >>> 16 && end > 0; high++) {
+            final int count = Math.min(65536, end - (high << 16));
+            final long[] words = new long[BITMAP_WORDS];
+            Arrays.fill(words, 0, count >>> 6, -1L);
+            if ((count & 63) != 0) {
+                words[count >>> 6] = (1L << (count & 63)) - 1;
+            }
+            bitmap.append((char) high, normalize(new Chunk(words, count)));
+        }
+        return bitmap;
+    }
+    
+    /**
+     * Add a value
+     * 
+     * @param value The value, must not be negative
+     * @return True if the value was not present before
+     */
+    public boolean add(final int value) {
+        final char high = (char) (value >>> 16);
+        final char low = (char) value;
+        int index = this.indexOf(high);
+        
+        if (index < 0) {
+            index = -index - 1;
+            this.insertAt(index, high, new char[]{low});
+            return true;
+        }
+        
+        final Object chunk = this.chunks[index];
+        if (chunk instanceof Chunk bitmap) {
+            return bitmap.add(low);
+        }
+        
+        final char[] values = (char[]) chunk;
+        final int position = Arrays.binarySearch(values, low);
+        if (position >= 0) {
+            return false;
+        }
+        
+        final int insert = -position - 1;
+        if (values.length >= ARRAY_LIMIT) {
+            final Chunk bitmap = Chunk.of(values);
+            bitmap.add(low);
+            this.chunks[index] = bitmap;
+            return true;
+        }
+        
+        final char[] grown = new char[values.length + 1];
+        System.arraycopy(values, 0, grown, 0, insert);
+        grown[insert] = low;
+        System.arraycopy(values, insert, grown, insert + 1, values.length - insert);
+        this.chunks[index] = grown;
+        return true;
+    }
+    
+    /**
+     * Remove a value
+     * 
+     * @param value The value
+     * @return True if the value was present
+     */
+    public boolean remove(final int value) {
+        final int index = this.indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        
+        final char low = (char) value;
+        final Object chunk = this.chunks[index];
+        final Object updated;
+        
+        if (chunk instanceof Chunk bitmap) {
+            if (!bitmap.remove(low)) {
+                return false;
+            }
+            updated = normalize(bitmap);
+        } else {
+            final char[] values = (char[]) chunk;
+            final int position = Arrays.binarySearch(values, low);
+            if (position < 0) {
+                return false;
+            }
+            
+            final char[] shrunk = new char[values.length - 1];
+            System.arraycopy(values, 0, shrunk, 0, position);
+            System.arraycopy(values, position + 1, shrunk, position, values.length - position - 1);
+            updated = shrunk;
+        }
+        
+        if (cardinality(updated) == 0) {
+            this.removeAt(index);
+        } else {
+            this.chunks[index] = updated;
+        }
+        return true;
+    }
+    
+    /**
+     * Check whether a value is present
+     * 
+     * @param value The value
+     * @return True if present
+     */
+    public boolean contains(final int value) {
+        final int index = this.indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        
+        final Object chunk = this.chunks[index];
+        return chunk instanceof Chunk bitmap
+                ? bitmap.contains((char) value)
+                : Arrays.binarySearch((char[]) chunk, (char) value) >= 0;
+    }
+    
+    /**
+     * Get the number of values
+     * 
+     * @return The cardinality
+     */
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < this.size; i++) {
+            total += cardinality(this.chunks[i]);
+        }
+        return total;
+    }
+    
+    /**
+     * Check whether the bitmap holds no values
+     * 
+     * @return True if empty
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+    
+    /**
+     * Visit every value in ascending order
+     * 
+     * @param consumer Receives each value
+     */
+    public void forEach(final IntConsumer consumer) {
+        for (int i = 0; i < this.size; i++) {
+            final int base = this.keys[i] << 16;
+            final Object chunk = this.chunks[i];
+            
+            if (chunk instanceof Chunk bitmap) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long bits = bitmap.words[word];
+                    while (bits != 0) {
+                        consumer.accept(base | (word << 6) | Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1;
+                    }
+                }
+            } else {
+                for (char low : (char[]) chunk) {
+                    consumer.accept(base | low);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Get the values present in both bitmaps
+     * 
+     * @param other The other bitmap
+     * @return A new bitmap
+     */
+    public PlayerBitmap and(final PlayerBitmap other) {
+        final PlayerBitmap result = new PlayerBitmap();
+        int i = 0;
+        int j = 0;
+        
+        while (i < this.size && j < other.size) {
+            if (this.keys[i] < other.keys[j]) {
+                i++;
+            } else if (this.keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                final Object chunk = combine(this.chunks[i], other.chunks[j], Operation.AND);
+                if (cardinality(chunk) > 0) {
+                    result.append(this.keys[i], chunk);
+                }
+                i++;
+                j++;
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Get the values present in either bitmap
+     * 
+     * @param other The other bitmap
+     * @return A new bitmap
+     */
+    public PlayerBitmap or(final PlayerBitmap other) {
+        final PlayerBitmap result = new PlayerBitmap();
+        int i = 0;
+        int j = 0;
+        
+        while (i < this.size || j < other.size) {
+            if (j >= other.size || (i < this.size && this.keys[i] < other.keys[j])) {
+                result.append(this.keys[i], copy(this.chunks[i]));
+                i++;
+            } else if (i >= this.size || this.keys[i] > other.keys[j]) {
+                result.append(other.keys[j], copy(other.chunks[j]));
+                j++;
+            } else {
+                result.append(this.keys[i], combine(this.chunks[i], other.chunks[j], Operation.OR));
+                i++;
+                j++;
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Get the values present in this bitmap but not the other
+     * 
+     * @param other The other bitmap
+     * @return A new bitmap
+     */
+    public PlayerBitmap andNot(final PlayerBitmap other) {
+        final PlayerBitmap result = new PlayerBitmap();
+        int j = 0;
+        
+        for (int i = 0; i < this.size; i++) {
+            while (j < other.size && other.keys[j] < this.keys[i]) {
+                j++;
+            }
+            
+            if (j < other.size && other.keys[j] == this.keys[i]) {
+                final Object chunk = combine(this.chunks[i], other.chunks[j], Operation.AND_NOT);
+                if (cardinality(chunk) > 0) {
+                    result.append(this.keys[i], chunk);
+                }
+            } else {
+                result.append(this.keys[i], copy(this.chunks[i]));
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Copy this bitmap
+     * 
+     * @return An independent copy
+     */
+    public PlayerBitmap copy() {
+        final PlayerBitmap result = new PlayerBitmap();
+        for (int i = 0; i < this.size; i++) {
+            result.append(this.keys[i], copy(this.chunks[i]));
+        }
+        return result;
+    }
+    
+    /**
+     * Write this bitmap
+     * 
+     * @param out The output
+     * @throws IOException If writing fails
+     */
+    public void write(final DataOutput out) throws IOException {
+        out.writeInt(this.size);
+        
+        for (int i = 0; i < this.size; i++) {
+            out.writeChar(this.keys[i]);
+            final Object chunk = this.chunks[i];
+            
+            if (chunk instanceof Chunk bitmap) {
+                out.writeBoolean(true);
+                for (long word : bitmap.words) {
+                    out.writeLong(word);
+                }
+            } else {
+                final char[] values = (char[]) chunk;
+                out.writeBoolean(false);
+                out.writeShort(values.length);
+                for (char value : values) {
+                    out.writeChar(value);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Read a bitmap written by {@link #write(DataOutput)}
+     * 
+     * @param in The input
+     * @return The bitmap
+     * @throws IOException If reading fails
+     */
+    public static PlayerBitmap read(final DataInput in) throws IOException {
+        final PlayerBitmap bitmap = new PlayerBitmap();
+        final int count = in.readInt();
+        
+        for (int i = 0; i < count; i++) {
+            final char key = in.readChar();
+            
+            if (in.readBoolean()) {
+                final long[] words = new long[BITMAP_WORDS];
+                int cardinality = 0;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] = in.readLong();
+                    cardinality += Long.bitCount(words[w]);
+                }
+                bitmap.append(key, new Chunk(words, cardinality));
+            } else {
+                final char[] values = new char[in.readUnsignedShort()];
+                for (int v = 0; v < values.length; v++) {
+                    values[v] = in.readChar();
+                }
+                bitmap.append(key, values);
+            }
+        }
+        
+        return bitmap;
+    }
+    
+    private int indexOf(final char key) {
+        return Arrays.binarySearch(this.keys, 0, this.size, key);
+    }
+    
+    private void append(final char key, final Object chunk) {
+        this.insertAt(this.size, key, chunk);
+    }
+    
+    private void insertAt(final int index, final char key, final Object chunk) {
+        if (this.size == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            this.chunks = Arrays.copyOf(this.chunks, this.size * 2);
+        }
+        
+        System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+        System.arraycopy(this.chunks, index, this.chunks, index + 1, this.size - index);
+        this.keys[index] = key;
+        this.chunks[index] = chunk;
+        this.size++;
+    }
+    
+    private void removeAt(final int index) {
+        System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index - 1);
+        System.arraycopy(this.chunks, index + 1, this.chunks, index, this.size - index - 1);
+        this.size--;
+        this.chunks[this.size] = null;
+    }
+    
+    private static int cardinality(final Object chunk) {
+        return chunk instanceof Chunk bitmap ? bitmap.cardinality : ((char[]) chunk).length;
+    }
+    
+    private static Object copy(final Object chunk) {
+        return chunk instanceof Chunk bitmap ? new Chunk(bitmap.words.clone(), bitmap.cardinality) : chunk;
+    }
+    
+    /**
+     * Store a bitmap chunk as an array once it is sparse enough
+     */
+    private static Object normalize(final Chunk bitmap) {
+        if (bitmap.cardinality > ARRAY_LIMIT) {
+            return bitmap;
+        }
+        
+        final char[] values = new char[bitmap.cardinality];
+        int position = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long bits = bitmap.words[word];
+            while (bits != 0) {
+                values[position++] = (char) ((word << 6) | Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return values;
+    }
+    
+    private static Object combine(final Object left, final Object right, final Operation operation) {
+        if (left instanceof char[] a && right instanceof char[] b) {
+            return mergeArrays(a, b, operation);
+        }
+        
+        final long[] a = left instanceof Chunk bitmap ? bitmap.words : Chunk.of((char[]) left).words;
+        final long[] b = right instanceof Chunk bitmap ? bitmap.words : Chunk.of((char[]) right).words;
+        final long[] words = new long[BITMAP_WORDS];
+        int cardinality = 0;
+        
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            words[w] = switch (operation) {
+                case AND -> a[w] & b[w];
+                case OR -> a[w] | b[w];
+                case AND_NOT -> a[w] & ~b[w];
+            };
+            cardinality += Long.bitCount(words[w]);
+        }
+        
+        return normalize(new Chunk(words, cardinality));
+    }
+    
+    private static Object mergeArrays(final char[] a, final char[] b, final Operation operation) {
+        final char[] out = new char[operation == Operation.OR ? a.length + b.length : a.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                if (operation != Operation.AND) {
+                    out[n++] = a[i];
+                }
+                i++;
+            } else if (a[i] > b[j]) {
+                if (operation == Operation.OR) {
+                    out[n++] = b[j];
+                }
+                j++;
+            } else {
+                if (operation != Operation.AND_NOT) {
+                    out[n++] = a[i];
+                }
+                i++;
+                j++;
+            }
+        }
+        
+        if (operation != Operation.AND) {
+            while (i < a.length) {
+                out[n++] = a[i++];
+            }
+        }
+        if (operation == Operation.OR) {
+            while (j < b.length) {
+                out[n++] = b[j++];
+            }
+        }
+        
+        return n > ARRAY_LIMIT ? Chunk.of(Arrays.copyOf(out, n)) : Arrays.copyOf(out, n);
+    }
+    
+    private enum Operation {
+        AND,
+        OR,
+        AND_NOT
+    }
+    
+    /**
+     * A dense chunk, one bit per low 16-bit value
+     */
+    private static final class Chunk {
+        private final long[] words;
+        private int cardinality;
+        
+        private Chunk(final long[] words, final int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+        
+        private static Chunk of(final char[] values) {
+            final long[] words = new long[BITMAP_WORDS];
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+            return new Chunk(words, values.length);
+        }
+        
+        private boolean add(final char value) {
+            final long before = this.words[value >>> 6];
+            final long after = before | (1L << value);
+            this.words[value >>> 6] = after;
+            if (before != after) {
+                this.cardinality++;
+                return true;
+            }
+            return false;
+        }
+        
+        private boolean remove(final char value) {
+            final long before = this.words[value >>> 6];
+            final long after = before & ~(1L << value);
+            this.words[value >>> 6] = after;
+            if (before != after) {
+                this.cardinality--;
+                return true;
+            }
+            return false;
+        }
+        
+        private boolean contains(final char value) {
+            return (this.words[value >>> 6] & (1L << value)) != 0;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.collectionlog.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Assigns every player a small, stable row number used as their position in the
+ * index bitmaps. Rows are never reused, so a bitmap stays valid as players are added.
+ */
+public final class PlayerRegistry {
+
+    private final Map<UUID, Integer> rows;
+    private final List<UUID> players;
+    
+    public PlayerRegistry() {
+        this.rows = new HashMap<>();
+        this.players = new ArrayList<>();
+    }
+    
+    /**
+     * Get a player's row, assigning the next free one if they don't have one yet
+     * 
+     * @param playerId The UUID of the player
+     * @return The row
+     */
+    public synchronized int getOrAssign(final UUID playerId) {
+        return this.rows.computeIfAbsent(playerId, id -> {
+            this.players.add(id);
+            return this.players.size() - 1;
+        });
+    }
+    
+    /**
+     * Get a player's row
+     * 
+     * @param playerId The UUID of the player
+     * @return The row, or -1 if the player has none
+     */
+    public synchronized int getRow(final UUID playerId) {
+        return this.rows.getOrDefault(playerId, -1);
+    }
+    
+    /**
+     * Get the player in a row
+     * 
+     * @param row The row
+     * @return The UUID of the player
+     */
+    public synchronized UUID getPlayer(final int row) {
+        return this.players.get(row);
+    }
+    
+    /**
+     * Get the number of rows assigned
+     * 
+     * @return The number of players
+     */
+    public synchronized int size() {
+        return this.players.size();
+    }
+    
+    /**
+     * Get every player in row order
+     * 
+     * @return A copy of the players
+     */
+    public synchronized List<UUID> getPlayers() {
+        return new ArrayList<>(this.players);
+    }
+}
@@ -0,0 +1,16 @@
+package com.collectionlog.index;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * A player's place on the leaderboard of items owned in the default profile
+ */
+@Data
+public class RankedPlayer {
+
+    private final UUID playerId;
+    private final int total;
+    private final int rank;
+}
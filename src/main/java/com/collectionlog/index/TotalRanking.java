@@ -0,0 +1,183 @@
+package com.collectionlog.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Ranks indexed players by how many items they own. Each row's total is kept next to a
+ * Fenwick tree counting players per total, so moving a player and looking up a rank are
+ * both O(log m) in the highest total, independent of the number of players.
+ * <p>
+ * Instances are not thread-safe; the index guards them with its lock.
+ */
+final class TotalRanking {
+
+    private int[] totals;
+    private int[] tree;
+    private int players;
+    
+    TotalRanking() {
+        this.totals = new int[0];
+        this.tree = new int[64];
+    }
+    
+    /**
+     * Count every row's items in a set of owner bitmaps
+     * 
+     * @param owners The owner bitmaps by category and item
+     * @param rows The number of rows in the registry
+     * @return A ranking of every row
+     */
+    static TotalRanking build(final Map<String, Map<String, PlayerBitmap>> owners, final int rows) {
+        final int[] totals = new int[rows];
+        for (Map<String, PlayerBitmap> items : owners.values()) {
+            for (PlayerBitmap bitmap : items.values()) {
+                bitmap.forEach(row -> totals[row]++);
+            }
+        }
+        
+        final TotalRanking ranking = new TotalRanking();
+        for (int row = 0; row < rows; row++) {
+            ranking.set(row, totals[row]);
+        }
+        return ranking;
+    }
+    
+    /**
+     * Set a row's total, adding the row if it wasn't ranked yet
+     * 
+     * @param row The row
+     * @param total The number of items the row's player owns
+     */
+    void set(final int row, final int total) {
+        if (row >= this.totals.length) {
+            final int previous = this.totals.length;
+            this.totals = Arrays.copyOf(this.totals, Math.max(row + 1, previous * 2));
+            Arrays.fill(this.totals, previous, this.totals.length, -1);
+        }
+        
+        final int old = this.totals[row];
+        if (old == total) {
+            return;
+        }
+        
+        if (total + 1 >= this.tree.length) {
+            this.grow(total + 2);
+        }
+        
+        if (old >= 0) {
+            this.update(old, -1);
+        } else {
+            this.players++;
+        }
+        
+        this.totals[row] = total;
+        this.update(total, 1);
+    }
+    
+    /**
+     * Add one item to a row's total
+     * 
+     * @param row The row
+     */
+    void increment(final int row) {
+        this.set(row, row < this.totals.length ? Math.max(0, this.totals[row]) + 1 : 1);
+    }
+    
+    /**
+     * Get a row's rank, where 1 owns the most items and ties share a rank
+     * 
+     * @param row The row
+     * @return The rank, or 0 if the row isn't ranked
+     */
+    int getRank(final int row) {
+        if (row < 0 || row >= this.totals.length || this.totals[row] < 0) {
+            return 0;
+        }
+        
+        // Players ranked above are those with a higher total
+        return this.players - this.countUpTo(this.totals[row]) + 1;
+    }
+    
+    /**
+     * Get the rows with the highest totals
+     * 
+     * @param limit The maximum number of rows
+     * @return The rows, highest total first
+     */
+    int[] top(final int limit) {
+        if (limit <= 0) {
+            return new int[0];
+        }
+        
+        // Keep the best rows seen so far in a min-heap, so this is O(n log limit)
+        final PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1,
+                Comparator.comparingInt((Integer row) -> this.totals[row]));
+        for (int row = 0; row < this.totals.length; row++) {
+            if (this.totals[row] < 0) {
+                continue;
+            }
+            
+            if (best.size() < limit) {
+                best.add(row);
+            } else if (this.totals[row] > this.totals[best.peek()]) {
+                best.poll();
+                best.add(row);
+            }
+        }
+        
+        final int[] rows = new int[best.size()];
+        for (int i = rows.length - 1; i >= 0; i--) {
+            rows[i] = best.poll();
+        }
+        return rows;
+    }
+    
+    /**
+     * Get a row's total
+     * 
+     * @param row The row
+     * @return The number of items the row's player owns, or 0 if the row isn't ranked
+     */
+    int getTotal(final int row) {
+        return row >= 0 && row < this.totals.length ? Math.max(0, this.totals[row]) : 0;
+    }
+    
+    private void update(final int total, final int delta) {
+        for (int i = total + 1; i < this.tree.length; i += i & -i) {
+            this.tree[i] += delta;
+        }
+    }
+    
+    /**
+     * Count the players whose total is at most the given one
+     */
+    private int countUpTo(final int total) {
+        int count = 0;
+        for (int i = Math.min(total + 1, this.tree.length - 1); i > 0; i -= i & -i) {
+            count += this.tree[i];
+        }
+        return count;
+    }
+    
+    /**
+     * Rebuild the tree with room for larger totals
+     */
+    private void grow(final int minimum) {
+        int capacity = this.tree.length;
+        while (capacity < minimum) {
+            capacity *= 2;
+        }
+        
+        this.tree = new int[capacity];
+        for (int total : this.totals) {
+            if (total >= 0) {
+                for (int i = total + 1; i < capacity; i += i & -i) {
+                    this.tree[i]++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.collectionlog.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when the item catalog is rebuilt from items.yml and the categories folder.
+ */
+@Name("com.collectionlog.CatalogReload")
+@Label("Catalog Reload")
+@Category({"Collection Log", "Catalog"})
+@Description("The collection catalog was rebuilt from configuration")
+@StackTrace(false)
+public class CatalogReloadEvent extends Event {
+
+    @Label("Categories")
+    public int categoryCount;
+    
+    @Label("Items")
+    public int itemCount;
+    
+    @Label("Files Parsed")
+    public int filesParsed;
+    
+    @Label("Files From Cache")
+    public int filesCached;
+}
@@ -0,0 +1,27 @@
+package com.collectionlog.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when one of the plugin's YAML files is parsed.
+ */
+@Name("com.collectionlog.ConfigLoad")
+@Label("Config Load")
+@Category({"Collection Log", "Catalog"})
+@Description("A configuration file was read and parsed")
+@StackTrace(false)
+public class ConfigLoadEvent extends Event {
+
+    @Label("File")
+    public String file;
+    
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,29 @@
+package com.collectionlog.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when a collection log menu is built and opened.
+ */
+@Name("com.collectionlog.GuiRender")
+@Label("GUI Render")
+@Category({"Collection Log", "GUI"})
+@Description("A collection log menu was rendered for a player")
+@StackTrace(false)
+public class GuiRenderEvent extends Event {
+
+    @Label("Menu Type")
+    public String menuType;
+    
+    @Label("Category")
+    public String categoryId;
+    
+    @Label("Slots")
+    @Description("Number of populated inventory slots")
+    public int slotCount;
+}
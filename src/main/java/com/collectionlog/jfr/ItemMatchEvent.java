@@ -0,0 +1,29 @@
+package com.collectionlog.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when an acquired ItemStack is matched against the catalog.
+ */
+@Name("com.collectionlog.ItemMatch")
+@Label("Item Match")
+@Category({"Collection Log", "Tracking"})
+@Description("An acquired item was matched against the collection catalog")
+@StackTrace(false)
+public class ItemMatchEvent extends Event {
+
+    @Label("Material")
+    public String material;
+    
+    @Label("Hit")
+    @Description("Whether the item matched a catalog entry")
+    public boolean hit;
+    
+    @Label("Newly Collected")
+    public boolean added;
+}
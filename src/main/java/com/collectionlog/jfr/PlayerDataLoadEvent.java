@@ -0,0 +1,28 @@
+package com.collectionlog.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when a player's collection is read from storage.
+ * The event duration covers the file read and parse.
+ */
+@Name("com.collectionlog.PlayerDataLoad")
+@Label("Player Data Load")
+@Category({"Collection Log", "Storage"})
+@Description("A player's collection data was loaded from storage")
+@StackTrace(false)
+public class PlayerDataLoadEvent extends Event {
+
+    @Label("Player")
+    public String playerId;
+    
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytes;
+}
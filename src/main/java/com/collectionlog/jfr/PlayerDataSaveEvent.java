@@ -0,0 +1,31 @@
+package com.collectionlog.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when a player's collection is written to storage.
+ * The event duration covers serialization and the file write.
+ */
+@Name("com.collectionlog.PlayerDataSave")
+@Label("Player Data Save")
+@Category({"Collection Log", "Storage"})
+@Description("A player's collection data was saved to storage")
+@StackTrace(false)
+public class PlayerDataSaveEvent extends Event {
+
+    @Label("Player")
+    public String playerId;
+    
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytes;
+    
+    @Label("Succeeded")
+    public boolean success;
+}
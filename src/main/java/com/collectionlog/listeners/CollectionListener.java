@@ -2,19 +2,42 @@
 package com.collectionlog.listeners;
 
 import com.collectionlog.CollectionLog;
+import com.collectionlog.manager.CollectionMenuHolder;
+import com.collectionlog.model.AcquisitionSource;
+import io.papermc.paper.event.player.PlayerTradeEvent;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityPickupItemEvent;
 import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerFishEvent;
+import org.bukkit.event.server.ServerCommandEvent;
+import org.bukkit.event.world.LootGenerateEvent;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
 public class CollectionListener implements Listener {
 
+    private static final Set<String> GIVE_COMMANDS = Set.of("give", "minecraft:give");
+    
+    private static final Set<InventoryAction> TAKE_ACTIONS = EnumSet.of(
+            InventoryAction.PICKUP_ALL, InventoryAction.PICKUP_HALF, InventoryAction.PICKUP_ONE,
+            InventoryAction.PICKUP_SOME, InventoryAction.MOVE_TO_OTHER_INVENTORY,
+            InventoryAction.HOTBAR_SWAP, InventoryAction.SWAP_WITH_CURSOR);
+    
     private final CollectionLog plugin;
     
     public CollectionListener(final CollectionLog plugin) {
@@ -24,46 +47,126 @@ public class CollectionListener implements Listener {
     /**
      * Handle item pickup events to track collection
      */
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onItemPickup(final EntityPickupItemEvent event) {
         if (!(event.getEntity() instanceof Player player)) {
             return;
         }
         
-        final ItemStack itemStack = event.getItem().getItemStack();
-        this.plugin.getCollectionManager().addToCollection(player, itemStack);
+        this.plugin.getAcquisitionPipeline().submit(player, event.getItem().getItemStack(), AcquisitionSource.PICKUP);
     }
     
     /**
      * Handle item crafting events to track collection
      */
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onItemCraft(final CraftItemEvent event) {
         if (!(event.getWhoClicked() instanceof Player player)) {
             return;
         }
         
-        final ItemStack result = event.getCurrentItem();
-        if (result == null || result.getType().isAir()) {
+        this.plugin.getAcquisitionPipeline().submit(player, event.getCurrentItem(), AcquisitionSource.CRAFT);
+    }
+    
+    /**
+     * Handle fishing events to track collection
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerFish(final PlayerFishEvent event) {
+        if (event.getState() != PlayerFishEvent.State.CAUGHT_FISH || !(event.getCaught() instanceof Item caughtItem)) {
             return;
         }
         
-        this.plugin.getCollectionManager().addToCollection(player, result);
+        this.plugin.getAcquisitionPipeline().submit(event.getPlayer(), caughtItem.getItemStack(),
+                AcquisitionSource.FISHING);
     }
     
     /**
-     * Handle fishing events to track collection
+     * Handle villager and wandering trader trades to track collection
      */
-    @EventHandler
-    public void onPlayerFish(final PlayerFishEvent event) {
-        if (event.getState() != PlayerFishEvent.State.CAUGHT_FISH || !(event.getCaught() instanceof org.bukkit.entity.Item)) {
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTrade(final PlayerTradeEvent event) {
+        this.plugin.getAcquisitionPipeline().submit(event.getPlayer(), event.getTrade().getResult(),
+                AcquisitionSource.TRADE);
+    }
+    
+    /**
+     * Handle items taken out of containers and brewing stands to track collection
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onContainerTake(final InventoryClickEvent event) {
+        if (!(event.getWhoClicked() instanceof Player player)) {
             return;
         }
         
-        final org.bukkit.entity.Item caughtItem = (org.bukkit.entity.Item) event.getCaught();
-        final ItemStack itemStack = caughtItem.getItemStack();
+        // Our own GUI cancels its clicks, so only real containers get here
+        final Inventory clicked = event.getClickedInventory();
+        if (clicked == null || clicked != event.getView().getTopInventory()
+                || !TAKE_ACTIONS.contains(event.getAction())) {
+            return;
+        }
+        
+        final AcquisitionSource source = switch (clicked.getType()) {
+            case BREWING -> AcquisitionSource.BREWING;
+            case CHEST, BARREL, SHULKER_BOX, ENDER_CHEST, HOPPER, DISPENSER, DROPPER,
+                    FURNACE, BLAST_FURNACE, SMOKER -> AcquisitionSource.CONTAINER;
+            default -> null;
+        };
         
-        this.plugin.getCollectionManager().addToCollection(event.getPlayer(), itemStack);
+        if (source != null) {
+            this.plugin.getAcquisitionPipeline().submit(player, event.getCurrentItem(), source);
+        }
+    }
+    
+    /**
+     * Handle generated loot, such as a structure chest opened by a player, to track collection
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onLootGenerate(final LootGenerateEvent event) {
+        if (!(event.getEntity() instanceof Player player)) {
+            return;
+        }
+        
+        for (ItemStack itemStack : event.getLoot()) {
+            this.plugin.getAcquisitionPipeline().submit(player, itemStack, AcquisitionSource.LOOT);
+        }
+    }
+    
+    /**
+     * Handle /give run by a player. The command doesn't report what it gave, so the
+     * targets' inventories are checked once it has run.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerCommand(final PlayerCommandPreprocessEvent event) {
+        this.handleGiveCommand(event.getPlayer(), event.getMessage().substring(1));
+    }
+    
+    /**
+     * Handle /give run from the console or a command block
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onServerCommand(final ServerCommandEvent event) {
+        this.handleGiveCommand(event.getSender(), event.getCommand());
+    }
+    
+    private void handleGiveCommand(final CommandSender sender, final String command) {
+        final String[] args = command.trim().split("\\s+");
+        if (args.length < 3 || !GIVE_COMMANDS.contains(args[0].toLowerCase())) {
+            return;
+        }
+        
+        final List<Entity> targets;
+        try {
+            targets = this.plugin.getServer().selectEntities(sender, args[1]);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        
+        for (Entity target : targets) {
+            if (target instanceof Player player) {
+                this.plugin.getAcquisitionPipeline().submitInventory(player, AcquisitionSource.COMMAND);
+            }
+        }
     }
     
     /**
@@ -75,10 +178,8 @@ public class CollectionListener implements Listener {
             return;
         }
         
-        final String title = event.getView().getTitle();
-        
-        // Check if the inventory is our GUI
-        if (title.contains("Collection")) {
+        // Check if the inventory is our GUI; titles come from gui.yml and can't be relied on
+        if (event.getView().getTopInventory().getHolder(false) instanceof CollectionMenuHolder) {
             event.setCancelled(true);
             
             if (event.getClickedInventory() == event.getView().getTopInventory()) {
@@ -4,6 +4,7 @@ package com.collectionlog.listeners;
 import com.collectionlog.CollectionLog;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
@@ -20,7 +21,16 @@ public class PlayerListener implements Listener {
      */
     @EventHandler
     public void onPlayerJoin(final PlayerJoinEvent event) {
-        this.plugin.getCollectionManager().loadPlayerData(event.getPlayer().getUniqueId());
+        this.plugin.getCollectionManager().handleJoin(event.getPlayer().getUniqueId());
+        this.plugin.getCollectionManager().updateWorldProfile(event.getPlayer());
+    }
+    
+    /**
+     * Switch to the profile of the new world, if it has its own
+     */
+    @EventHandler
+    public void onPlayerChangedWorld(final PlayerChangedWorldEvent event) {
+        this.plugin.getCollectionManager().updateWorldProfile(event.getPlayer());
     }
     
     /**
@@ -28,6 +38,17 @@ public class PlayerListener implements Listener {
      */
     @EventHandler
     public void onPlayerQuit(final PlayerQuitEvent event) {
+        this.plugin.getAcquisitionPipeline().flushPlayer(event.getPlayer());
         this.plugin.getCollectionManager().savePlayerData(event.getPlayer().getUniqueId());
+        this.plugin.getSaveScheduler().untrack(event.getPlayer().getUniqueId());
+        this.plugin.getRewardEngine().forgetPlayer(event.getPlayer().getUniqueId());
+        this.plugin.getGuiManager().forgetPlayer(event.getPlayer().getUniqueId());
+        this.plugin.getCollectionManager().forgetWorldProfile(event.getPlayer().getUniqueId());
+        this.plugin.getCollectionManager().forgetNotifications(event.getPlayer().getUniqueId());
+        this.plugin.getWebServer().forgetPlayer(event.getPlayer().getUniqueId());
+        
+        if (this.plugin.getPlaceholderCache() != null) {
+            this.plugin.getPlaceholderCache().forgetPlayer(event.getPlayer().getUniqueId());
+        }
     }
 }
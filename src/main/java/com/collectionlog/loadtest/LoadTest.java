@@ -0,0 +1,461 @@
+package com.collectionlog.loadtest;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.listeners.CollectionListener;
+import com.collectionlog.model.AcquisitionSource;
+import com.collectionlog.model.CollectionItem;
+import com.collectionlog.model.ItemCategory;
+import com.collectionlog.scheduler.TaskHandle;
+import com.collectionlog.scheduler.TaskScheduler;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.FishHook;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.player.PlayerFishEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * A synthetic load test run on a live (test) server. Simulated players join, then pick up,
+ * craft and fish items at the configured per-player rates through the same listener
+ * methods real events reach, open menus through the GuiManager and are saved with
+ * saveAllData. While it runs, every task the plugin schedules is timed, so the report
+ * shows the plugin's own cost per tick rather than the server's.
+ * <p>
+ * Synthetic players are stored and indexed like real ones and their data is deleted
+ * afterwards, so this must only be run on a test server. Their rewards are granted but
+ * never executed, and their acquisitions are neither synced nor counted in the analytics.
+ */
+public class LoadTest {
+
+    private static final int JOINS_PER_TICK = 25;
+    private static final int SETTLE_TICKS = 40;
+    private static final Material[] FILLER = {
+            Material.DIRT, Material.COBBLESTONE, Material.GRAVEL, Material.SAND, Material.OAK_LOG,
+            Material.ROTTEN_FLESH, Material.BONE, Material.STRING, Material.WHEAT_SEEDS, Material.NETHERRACK
+    };
+    
+    /** Players simulated by any running test, until their data is deleted */
+    private static final Set<UUID> SYNTHETIC_PLAYERS = ConcurrentHashMap.newKeySet();
+    
+    private final CollectionLog plugin;
+    private final Consumer<String> output;
+    private final CompletableFuture<Void> completion;
+    
+    private final int playerCount;
+    private final int durationTicks;
+    private final double pickupsPerSecond;
+    private final double craftsPerSecond;
+    private final double fishPerSecond;
+    private final double menusPerSecond;
+    private final int saveEveryTicks;
+    private final SplittableRandom random;
+    
+    private final CollectionListener listener;
+    private final List<Player> players;
+    private final List<ItemStack> catalogStacks;
+    private final List<Item> catalogItems;
+    private final List<Item> fillerItems;
+    private final List<String> categoryIds;
+    private final FishHook hook;
+    private final double[] carry;
+    
+    private final long[] tickNanos;
+    private final long[] tickBytes;
+    private final List<Long> saveMillis;
+    
+    /** Saves started by the driver, which must finish before the synthetic data is deleted */
+    private final List<CompletableFuture<Void>> saves;
+    
+    private ProfilingTaskScheduler profiler;
+    private TaskHandle driver;
+    private int runTick;
+    private long pendingNanos;
+    private long pendingBytes;
+    private long heapBefore;
+    private long runStart;
+    private long runNanos;
+    private long asyncNanosStart;
+    private long asyncBytesStart;
+    private int pickups;
+    private int crafts;
+    private int catches;
+    private int menus;
+    
+    /**
+     * Prepare a load test with the rates from settings.load-test
+     * 
+     * @param plugin The plugin
+     * @param playerCount How many players to simulate
+     * @param seconds How long to generate load for
+     * @param output Receives progress and the report
+     */
+    public LoadTest(final CollectionLog plugin, final int playerCount, final int seconds,
+            final Consumer<String> output) {
+        this.plugin = plugin;
+        this.output = output;
+        this.completion = new CompletableFuture<>();
+        
+        final ConfigurationSection config = plugin.getConfigManager().getMainConfig();
+        this.playerCount = playerCount;
+        this.durationTicks = seconds * 20;
+        this.pickupsPerSecond = config.getDouble("settings.load-test.pickups-per-second", 2.0);
+        this.craftsPerSecond = config.getDouble("settings.load-test.crafts-per-second", 0.2);
+        this.fishPerSecond = config.getDouble("settings.load-test.fish-per-second", 0.05);
+        this.menusPerSecond = config.getDouble("settings.load-test.menus-per-second", 0.02);
+        this.saveEveryTicks = config.getInt("settings.load-test.save-every-seconds", 30) * 20;
+        this.random = new SplittableRandom(config.getLong("settings.load-test.seed", 1L));
+        
+        this.listener = new CollectionListener(plugin);
+        this.players = new ArrayList<>(playerCount);
+        this.catalogStacks = new ArrayList<>();
+        this.catalogItems = new ArrayList<>();
+        this.fillerItems = new ArrayList<>();
+        this.categoryIds = new ArrayList<>(plugin.getConfigManager().getCatalog().getCategories().keySet());
+        this.hook = SyntheticPlayers.hook();
+        this.carry = new double[4];
+        
+        this.tickNanos = new long[this.durationTicks];
+        this.tickBytes = new long[this.durationTicks];
+        this.saveMillis = new ArrayList<>();
+        this.saves = new ArrayList<>();
+    }
+    
+    /**
+     * Start the test on the server thread
+     * 
+     * @return A future completed once the report was sent and the synthetic data removed
+     */
+    public CompletableFuture<Void> start() {
+        for (ItemCategory category : this.plugin.getConfigManager().getCatalog().getCategories().values()) {
+            for (CollectionItem item : category.getItems().values()) {
+                final ItemStack stack = item.toItemStack(true, null);
+                this.catalogStacks.add(stack);
+                this.catalogItems.add(SyntheticPlayers.item(stack));
+            }
+        }
+        for (Material material : FILLER) {
+            this.fillerItems.add(SyntheticPlayers.item(new ItemStack(material)));
+        }
+        
+        if (this.catalogStacks.isEmpty()) {
+            this.output.accept("§cThe catalog is empty, there is nothing to collect.");
+            this.completion.complete(null);
+            return this.completion;
+        }
+        
+        final Location spawn = this.plugin.getServer().getWorlds().get(0).getSpawnLocation();
+        for (int i = 0; i < this.playerCount; i++) {
+            final byte[] seed = ("CollectionLogLoadTest:" + i).getBytes(StandardCharsets.UTF_8);
+            final UUID playerId = UUID.nameUUIDFromBytes(seed);
+            SYNTHETIC_PLAYERS.add(playerId);
+            this.players.add(SyntheticPlayers.player(playerId, "LoadTest" + i, spawn));
+        }
+        
+        this.heapBefore = usedHeapAfterGc();
+        
+        // Time everything the plugin schedules from here on
+        this.profiler = new ProfilingTaskScheduler(this.plugin.getTaskScheduler());
+        this.plugin.setTaskScheduler(this.profiler);
+        this.driver = this.profiler.getDelegate().runGlobalTimer(this::tick, 1L, 1L);
+        
+        this.output.accept("§7Load test started: " + this.playerCount + " players for " +
+                (this.durationTicks / 20) + "s");
+        return this.completion;
+    }
+    
+    private void tick() {
+        try {
+            if (this.runTick == 0 && this.joinNext()) {
+                return;
+            }
+            
+            if (this.runTick == 0) {
+                // Work caused by the joins doesn't belong to the first measured tick
+                this.profiler.takeSyncNanos();
+                this.profiler.takeSyncBytes();
+                this.asyncNanosStart = this.profiler.getAsyncNanos();
+                this.asyncBytesStart = this.profiler.getAsyncBytes();
+                this.runStart = System.nanoTime();
+            } else if (this.runTick <= this.durationTicks) {
+                // Everything the plugin ran since the last tick of the driver
+                this.tickNanos[this.runTick - 1] = this.pendingNanos + this.profiler.takeSyncNanos();
+                this.tickBytes[this.runTick - 1] = this.pendingBytes + this.profiler.takeSyncBytes();
+            }
+            
+            if (this.runTick < this.durationTicks) {
+                this.drive();
+            } else if (this.runTick == this.durationTicks) {
+                this.runNanos = System.nanoTime() - this.runStart;
+            } else if (this.runTick == this.durationTicks + SETTLE_TICKS) {
+                this.finish();
+                return;
+            }
+            
+            this.runTick++;
+        } catch (RuntimeException e) {
+            this.plugin.getLogger().log(Level.SEVERE, "Load test failed", e);
+            this.output.accept("§cLoad test failed: " + e.getMessage());
+            this.stop();
+            this.cleanUp();
+        }
+    }
+    
+    /**
+     * Let the next few players join
+     * 
+     * @return True while players are still joining
+     */
+    private boolean joinNext() {
+        final int joined = (int) this.players.stream().filter(player ->
+                this.plugin.getCollectionManager().getLoadedCollection(player.getUniqueId()) != null).count();
+        if (joined >= this.players.size()) {
+            return false;
+        }
+        
+        for (int i = joined; i < Math.min(joined + JOINS_PER_TICK, this.players.size()); i++) {
+            this.plugin.getCollectionManager().handleJoin(this.players.get(i).getUniqueId());
+        }
+        return true;
+    }
+    
+    /**
+     * Generate one tick of events. Only the plugin calls are timed; building the events is not.
+     */
+    private void drive() {
+        this.pendingNanos = 0L;
+        this.pendingBytes = 0L;
+        
+        for (int i = this.events(0, this.pickupsPerSecond); i > 0; i--) {
+            // Half the pickups are common blocks that aren't in the catalog, like a real farm
+            final List<Item> pool = this.random.nextBoolean() ? this.catalogItems : this.fillerItems;
+            final EntityPickupItemEvent event = new EntityPickupItemEvent(this.randomPlayer(),
+                    pool.get(this.random.nextInt(pool.size())), 0);
+            this.timed(() -> this.listener.onItemPickup(event));
+            this.pickups++;
+        }
+        
+        for (int i = this.events(1, this.craftsPerSecond); i > 0; i--) {
+            // Crafting events need a real inventory view, so this submits what onItemCraft would
+            final Player player = this.randomPlayer();
+            final ItemStack result = this.catalogStacks.get(this.random.nextInt(this.catalogStacks.size()));
+            this.timed(() -> this.plugin.getAcquisitionPipeline().submit(player, result, AcquisitionSource.CRAFT));
+            this.crafts++;
+        }
+        
+        for (int i = this.events(2, this.fishPerSecond); i > 0; i--) {
+            final PlayerFishEvent event = new PlayerFishEvent(this.randomPlayer(),
+                    this.catalogItems.get(this.random.nextInt(this.catalogItems.size())), this.hook,
+                    PlayerFishEvent.State.CAUGHT_FISH);
+            this.timed(() -> this.listener.onPlayerFish(event));
+            this.catches++;
+        }
+        
+        for (int i = this.events(3, this.menusPerSecond); i > 0; i--) {
+            final Player player = this.randomPlayer();
+            if (this.categoryIds.isEmpty() || this.random.nextBoolean()) {
+                this.timed(() -> this.plugin.getGuiManager().openMainMenu(player));
+            } else {
+                final String categoryId = this.categoryIds.get(this.random.nextInt(this.categoryIds.size()));
+                this.timed(() -> this.plugin.getGuiManager().openCategoryMenu(player, categoryId));
+            }
+            this.menus++;
+        }
+        
+        if (this.saveEveryTicks > 0 && this.runTick % this.saveEveryTicks == this.saveEveryTicks - 1) {
+            final CompletableFuture<Void> save = new CompletableFuture<>();
+            this.saves.add(save);
+            this.profiler.getDelegate().runAsync(() -> {
+                try {
+                    final long start = System.nanoTime();
+                    this.plugin.getCollectionManager().saveAllData();
+                    synchronized (this.saveMillis) {
+                        this.saveMillis.add((System.nanoTime() - start) / 1_000_000L);
+                    }
+                } finally {
+                    save.complete(null);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Get how many events of one kind happen this tick, carrying fractions over
+     */
+    private int events(final int kind, final double perPlayerPerSecond) {
+        this.carry[kind] += this.playerCount * perPlayerPerSecond / 20.0;
+        final int count = (int) this.carry[kind];
+        this.carry[kind] -= count;
+        return count;
+    }
+    
+    private Player randomPlayer() {
+        return this.players.get(this.random.nextInt(this.players.size()));
+    }
+    
+    private void timed(final Runnable action) {
+        final long startBytes = ProfilingTaskScheduler.allocatedBytes();
+        final long start = System.nanoTime();
+        action.run();
+        this.pendingNanos += System.nanoTime() - start;
+        this.pendingBytes += ProfilingTaskScheduler.allocatedBytes() - startBytes;
+    }
+    
+    private void finish() {
+        this.stop();
+        
+        final long heapAfter = usedHeapAfterGc();
+        final String report = this.report(heapAfter - this.heapBefore);
+        for (String line : report.split("\n")) {
+            this.output.accept("§f" + line);
+        }
+        
+        this.cleanUp();
+        this.plugin.getTaskScheduler().runAsync(() -> this.writeReport(report));
+    }
+    
+    /**
+     * Stop generating load and put the plugin's own scheduler back
+     */
+    private void stop() {
+        this.driver.cancel();
+        if (this.plugin.getTaskScheduler() == this.profiler) {
+            this.plugin.setTaskScheduler(this.profiler.getDelegate());
+        }
+    }
+    
+    /**
+     * Let the synthetic players leave and delete everything stored for them
+     */
+    private void cleanUp() {
+        final List<UUID> playerIds = new ArrayList<>(this.players.size());
+        for (Player player : this.players) {
+            this.plugin.getAcquisitionPipeline().flushPlayer(player);
+            SyntheticPlayers.disconnect(player);
+            this.plugin.getRewardEngine().forgetPlayer(player.getUniqueId());
+            this.plugin.getGuiManager().forgetPlayer(player.getUniqueId());
+            playerIds.add(player.getUniqueId());
+        }
+        
+        // A save still writing the synthetic players would bring their files back after the delete
+        final CompletableFuture<?>[] pending = this.saves.toArray(new CompletableFuture<?>[0]);
+        CompletableFuture.allOf(pending).thenRun(() -> this.plugin.getTaskScheduler().runAsync(() -> {
+            for (UUID playerId : playerIds) {
+                this.plugin.getCollectionManager().deletePlayerData(playerId);
+            }
+            
+            // Synthetic players keep their index rows until the index is rebuilt without them
+            this.plugin.getCollectionIndex().rebuild(message -> { }).whenComplete((summary, error) -> {
+                SYNTHETIC_PLAYERS.removeAll(playerIds);
+                this.output.accept(error == null ? "§7Removed the data of " + playerIds.size() + " synthetic players."
+                        : "§cCould not rebuild the index after the load test: " + error.getMessage());
+                this.completion.complete(null);
+            });
+        }));
+    }
+    
+    private String report(final long heapGrowth) {
+        final long[] sortedNanos = this.tickNanos.clone();
+        Arrays.sort(sortedNanos);
+        
+        long totalBytes = 0L;
+        for (long bytes : this.tickBytes) {
+            totalBytes += bytes;
+        }
+        
+        final double seconds = Math.max(this.runNanos, 1L) / 1_000_000_000.0;
+        final double asyncMegabytes = (this.profiler.getAsyncBytes() - this.asyncBytesStart) / 1_048_576.0;
+        final double asyncMillis = (this.profiler.getAsyncNanos() - this.asyncNanosStart) / 1_000_000.0;
+        
+        final StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Load test: %d players, %d ticks in %.1fs%n",
+                this.playerCount, this.durationTicks, seconds));
+        report.append(String.format(Locale.ROOT, "Events: %d pickups, %d crafts, %d catches, %d menus%n",
+                this.pickups, this.crafts, this.catches, this.menus));
+        report.append(String.format(Locale.ROOT, "Plugin time per tick: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                percentile(sortedNanos, 0.50) / 1_000_000.0, percentile(sortedNanos, 0.99) / 1_000_000.0,
+                sortedNanos[sortedNanos.length - 1] / 1_000_000.0));
+        report.append(String.format(Locale.ROOT, "Allocation: %.2f MB/s on the server thread, %.2f MB/s async%n",
+                totalBytes / 1_048_576.0 / seconds, asyncMegabytes / seconds));
+        report.append(String.format(Locale.ROOT, "Async work: %.1f ms total%n", asyncMillis));
+        report.append(String.format(Locale.ROOT, "Heap growth: %.1f MB%n", heapGrowth / 1_048_576.0));
+        
+        synchronized (this.saveMillis) {
+            if (!this.saveMillis.isEmpty()) {
+                report.append(String.format(Locale.ROOT, "saveAllData: %d runs, avg %d ms, max %d ms%n",
+                        this.saveMillis.size(),
+                        this.saveMillis.stream().mapToLong(Long::longValue).sum() / this.saveMillis.size(),
+                        this.saveMillis.stream().mapToLong(Long::longValue).max().orElse(0L)));
+            }
+        }
+        
+        return report.toString().trim();
+    }
+    
+    private void writeReport(final String report) {
+        final File folder = new File(this.plugin.getDataFolder(), "load-tests");
+        final File file = new File(folder, "load-test-" +
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt");
+        
+        try {
+            Files.createDirectories(folder.toPath());
+            Files.writeString(file.toPath(), report + "\n", StandardCharsets.UTF_8);
+            this.output.accept("§7Report written to load-tests/" + file.getName());
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Could not write load test report", e);
+        }
+    }
+    
+    private static long percentile(final long[] sorted, final double quantile) {
+        final int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+    
+    private static long usedHeapAfterGc() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+    
+    /**
+     * Check whether a player is simulated by a load test, so real side effects can be skipped
+     * 
+     * @param playerId The UUID of the player
+     * @return True if the player is synthetic
+     */
+    public static boolean isSynthetic(final UUID playerId) {
+        return SYNTHETIC_PLAYERS.contains(playerId);
+    }
+    
+    /**
+     * Check whether the load test can run on this server
+     * 
+     * @return Null if it can, otherwise the reason it can't
+     */
+    public static String checkSupported() {
+        return TaskScheduler.isFolia()
+                ? "The load test needs a Paper server; synthetic players can't be scheduled on Folia." : null;
+    }
+}
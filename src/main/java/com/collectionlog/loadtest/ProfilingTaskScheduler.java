@@ -0,0 +1,158 @@
+package com.collectionlog.loadtest;
+
+import com.collectionlog.scheduler.TaskHandle;
+import com.collectionlog.scheduler.TaskScheduler;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps the plugin's scheduler while a load test runs and adds up the time and memory
+ * every task takes, separately for the server thread and for async work.
+ */
+final class ProfilingTaskScheduler implements TaskScheduler {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    
+    private final TaskScheduler delegate;
+    
+    private final AtomicLong syncNanos;
+    private final AtomicLong syncBytes;
+    private final AtomicLong asyncNanos;
+    private final AtomicLong asyncBytes;
+    
+    ProfilingTaskScheduler(final TaskScheduler delegate) {
+        this.delegate = delegate;
+        this.syncNanos = new AtomicLong();
+        this.syncBytes = new AtomicLong();
+        this.asyncNanos = new AtomicLong();
+        this.asyncBytes = new AtomicLong();
+    }
+    
+    /**
+     * Get the scheduler this one wraps
+     * 
+     * @return The wrapped scheduler
+     */
+    TaskScheduler getDelegate() {
+        return this.delegate;
+    }
+    
+    /**
+     * Take the server thread time spent in tasks since the last call
+     * 
+     * @return The time in nanoseconds
+     */
+    long takeSyncNanos() {
+        return this.syncNanos.getAndSet(0L);
+    }
+    
+    /**
+     * Take the bytes allocated by server thread tasks since the last call
+     * 
+     * @return The allocated bytes
+     */
+    long takeSyncBytes() {
+        return this.syncBytes.getAndSet(0L);
+    }
+    
+    /**
+     * Get the total time spent in async tasks
+     * 
+     * @return The time in nanoseconds
+     */
+    long getAsyncNanos() {
+        return this.asyncNanos.get();
+    }
+    
+    /**
+     * Get the total bytes allocated by async tasks
+     * 
+     * @return The allocated bytes
+     */
+    long getAsyncBytes() {
+        return this.asyncBytes.get();
+    }
+    
+    /**
+     * Get the bytes the current thread has allocated so far
+     * 
+     * @return The allocated bytes
+     */
+    static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+    
+    @Override
+    public TaskHandle runGlobal(final Runnable task) {
+        return this.delegate.runGlobal(this.sync(task));
+    }
+    
+    @Override
+    public TaskHandle runGlobalLater(final Runnable task, final long delayTicks) {
+        return this.delegate.runGlobalLater(this.sync(task), delayTicks);
+    }
+    
+    @Override
+    public TaskHandle runGlobalTimer(final Runnable task, final long delayTicks, final long periodTicks) {
+        return this.delegate.runGlobalTimer(this.sync(task), delayTicks, periodTicks);
+    }
+    
+    @Override
+    public TaskHandle runAsync(final Runnable task) {
+        return this.delegate.runAsync(this.async(task));
+    }
+    
+    @Override
+    public TaskHandle runAsyncTimer(final Runnable task, final long delayTicks, final long periodTicks) {
+        return this.delegate.runAsyncTimer(this.async(task), delayTicks, periodTicks);
+    }
+    
+    @Override
+    public TaskHandle runAtLocation(final Location location, final Runnable task) {
+        return this.delegate.runAtLocation(location, this.sync(task));
+    }
+    
+    @Override
+    public TaskHandle runForEntity(final Entity entity, final Runnable task, final Runnable retired) {
+        return this.delegate.runForEntity(entity, this.sync(task), retired);
+    }
+    
+    @Override
+    public TaskHandle runForEntityLater(final Entity entity, final Runnable task, final Runnable retired,
+            final long delayTicks) {
+        return this.delegate.runForEntityLater(entity, this.sync(task), retired, delayTicks);
+    }
+    
+    @Override
+    public boolean isOwnedByCurrentRegion(final Entity entity) {
+        return this.delegate.isOwnedByCurrentRegion(entity);
+    }
+    
+    @Override
+    public boolean isGlobalThread() {
+        return this.delegate.isGlobalThread();
+    }
+    
+    private Runnable sync(final Runnable task) {
+        return () -> measure(task, this.syncNanos, this.syncBytes);
+    }
+    
+    private Runnable async(final Runnable task) {
+        return () -> measure(task, this.asyncNanos, this.asyncBytes);
+    }
+    
+    private static void measure(final Runnable task, final AtomicLong nanos, final AtomicLong bytes) {
+        final long startBytes = allocatedBytes();
+        final long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            nanos.addAndGet(System.nanoTime() - start);
+            bytes.addAndGet(allocatedBytes() - startBytes);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.collectionlog.loadtest;
+
+import org.bukkit.Location;
+import org.bukkit.entity.FishHook;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+/**
+ * Stand-ins for players and entities used by the load test. They are dynamic proxies:
+ * identity methods answer from the given values and everything else (titles, sounds,
+ * opening inventories) does nothing, so the plugin's own work is all that gets measured.
+ */
+final class SyntheticPlayers {
+
+    private SyntheticPlayers() {
+    }
+    
+    /**
+     * A player that is online until {@link #disconnect(Player)} is called
+     * 
+     * @param playerId The UUID of the player
+     * @param name The name of the player
+     * @param location Where the player stands
+     * @return The synthetic player
+     */
+    static Player player(final UUID playerId, final String name, final Location location) {
+        return proxy(Player.class, new PlayerHandler(playerId, name, location));
+    }
+    
+    /**
+     * Take a synthetic player offline, so tasks still scheduled for them are dropped
+     * 
+     * @param player The synthetic player
+     */
+    static void disconnect(final Player player) {
+        ((PlayerHandler) Proxy.getInvocationHandler(player)).online = false;
+    }
+    
+    /**
+     * A dropped item entity holding a stack
+     * 
+     * @param itemStack The stack
+     * @return The synthetic item entity
+     */
+    static Item item(final ItemStack itemStack) {
+        return proxy(Item.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getItemStack" -> itemStack;
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+    
+    /**
+     * A fishing hook
+     * 
+     * @return The synthetic hook
+     */
+    static FishHook hook() {
+        return proxy(FishHook.class, (proxy, method, args) -> switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+    
+    private static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+    
+    private static Object defaultValue(final Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == float.class) {
+            return 0.0f;
+        }
+        if (type == double.class) {
+            return 0.0d;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        return type == short.class ? (short) 0 : (byte) 0;
+    }
+    
+    private static final class PlayerHandler implements InvocationHandler {
+        private final UUID playerId;
+        private final String name;
+        private final Location location;
+        private volatile boolean online;
+        
+        private PlayerHandler(final UUID playerId, final String name, final Location location) {
+            this.playerId = playerId;
+            this.name = name;
+            this.location = location;
+            this.online = true;
+        }
+        
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            return switch (method.getName()) {
+                case "getUniqueId" -> this.playerId;
+                case "getName", "toString" -> this.name;
+                case "isOnline", "isValid" -> this.online;
+                case "getLocation" -> this.location.clone();
+                case "getWorld" -> this.location.getWorld();
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> this.playerId.hashCode();
+                default -> defaultValue(method.getReturnType());
+            };
+        }
+    }
+}
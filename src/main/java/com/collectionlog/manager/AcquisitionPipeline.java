@@ -0,0 +1,249 @@
+package com.collectionlog.manager;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.model.AcquisitionSource;
+import com.collectionlog.scheduler.TaskHandle;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects item acquisitions reported by listeners and matches them against the catalog
+ * in one batch per tick. Listeners only record a snapshot of the stack; repeats of the
+ * same material for the same player within a tick are dropped before any matching.
+ * <p>
+ * Each player has their own queue, drained on the thread owning the player (the main
+ * thread on Paper, the player's region on Folia), so players in different regions
+ * never contend for the same batch.
+ */
+public class AcquisitionPipeline {
+
+    private final CollectionLog plugin;
+    
+    private final boolean sweepEnabled;
+    private final long sweepPeriodTicks;
+    private final int sweepPlayersPerRun;
+    
+    private final Map<UUID, PlayerQueue> queues;
+    
+    private int sweepCursor;
+    private TaskHandle sweepTask;
+    
+    public AcquisitionPipeline(final CollectionLog plugin) {
+        this.plugin = plugin;
+        
+        final ConfigurationSection config = plugin.getConfigManager().getMainConfig();
+        this.sweepEnabled = config.getBoolean("settings.acquisition.inventory-sweep.enabled", false);
+        this.sweepPeriodTicks = Math.max(1, 
+                config.getInt("settings.acquisition.inventory-sweep.interval-seconds", 10)) * 20L;
+        this.sweepPlayersPerRun = Math.max(1, 
+                config.getInt("settings.acquisition.inventory-sweep.players-per-run", 5));
+        
+        this.queues = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Start the inventory sweep if it is enabled
+     */
+    public void start() {
+        if (!this.sweepEnabled || this.sweepTask != null) {
+            return;
+        }
+        
+        this.sweepTask = this.plugin.getTaskScheduler().runGlobalTimer(
+                this::sweep, this.sweepPeriodTicks, this.sweepPeriodTicks);
+    }
+    
+    /**
+     * Stop the inventory sweep and match everything still queued for players this thread may touch
+     */
+    public void stop() {
+        if (this.sweepTask != null) {
+            this.sweepTask.cancel();
+            this.sweepTask = null;
+        }
+        
+        for (Player player : this.plugin.getServer().getOnlinePlayers()) {
+            if (this.plugin.getTaskScheduler().isOwnedByCurrentRegion(player)) {
+                this.flushPlayer(player);
+            }
+        }
+    }
+    
+    /**
+     * Queue an acquired item for matching at the end of the tick
+     * 
+     * @param player The player who acquired the item
+     * @param itemStack The item, copied before this returns
+     * @param source How the player acquired the item
+     */
+    public void submit(final Player player, final ItemStack itemStack, final AcquisitionSource source) {
+        if (itemStack == null || itemStack.getType().isAir()) {
+            return;
+        }
+        
+        // Most stacks aren't in the catalog at all, drop those before copying anything
+        if (this.plugin.getConfigManager().getCatalog().getItemsByMaterial(itemStack.getType()).isEmpty()) {
+            return;
+        }
+        
+        final PlayerQueue queue = this.queues.computeIfAbsent(player.getUniqueId(), id -> new PlayerQueue());
+        final long key = dedupKey(itemStack);
+        final boolean schedule;
+        
+        synchronized (queue) {
+            if (!queue.items.containsKey(key)) {
+                final ItemStack snapshot = itemStack.clone();
+                snapshot.setAmount(1);
+                queue.items.put(key, new Pending(snapshot, source));
+            }
+            schedule = queue.markScheduled();
+        }
+        
+        if (schedule) {
+            this.scheduleDrain(player, queue);
+        }
+    }
+    
+    /**
+     * Queue a check of a player's whole inventory at the end of the tick, for sources
+     * that don't say which items they gave (such as commands)
+     * 
+     * @param player The player
+     * @param source The source to record for anything new
+     */
+    public void submitInventory(final Player player, final AcquisitionSource source) {
+        final PlayerQueue queue = this.queues.computeIfAbsent(player.getUniqueId(), id -> new PlayerQueue());
+        final boolean schedule;
+        
+        synchronized (queue) {
+            if (queue.scan == null) {
+                queue.scan = source;
+            }
+            schedule = queue.markScheduled();
+        }
+        
+        if (schedule) {
+            this.scheduleDrain(player, queue);
+        }
+    }
+    
+    /**
+     * Match everything queued for a player right away, used when they leave.
+     * Must run on the thread owning the player.
+     * 
+     * @param player The player
+     */
+    public void flushPlayer(final Player player) {
+        this.drain(player);
+        this.queues.remove(player.getUniqueId());
+    }
+    
+    private void scheduleDrain(final Player player, final PlayerQueue queue) {
+        // If the player left first, nothing is matched; drop the queue so it can't stay marked scheduled
+        this.plugin.getTaskScheduler().runForEntity(player, () -> this.drain(player),
+                () -> this.queues.remove(player.getUniqueId(), queue));
+    }
+    
+    /**
+     * Match the batch collected for a player during the last tick
+     */
+    private void drain(final Player player) {
+        final PlayerQueue queue = this.queues.get(player.getUniqueId());
+        if (queue == null) {
+            return;
+        }
+        
+        final AcquisitionSource scan;
+        synchronized (queue) {
+            scan = queue.scan;
+            queue.scan = null;
+        }
+        
+        // Scanned items join this batch; the queue is still marked scheduled, so they don't start another
+        if (scan != null) {
+            this.scanInventory(player, scan);
+        }
+        
+        final Map<Long, Pending> batch;
+        synchronized (queue) {
+            batch = queue.items;
+            queue.items = new LinkedHashMap<>();
+            queue.scheduled = false;
+        }
+        
+        final CollectionManager collectionManager = this.plugin.getCollectionManager();
+        for (Pending item : batch.values()) {
+            collectionManager.addToCollection(player, item.itemStack, item.source);
+        }
+    }
+    
+    private void scanInventory(final Player player, final AcquisitionSource source) {
+        for (ItemStack itemStack : player.getInventory().getContents()) {
+            this.submit(player, itemStack, source);
+        }
+    }
+    
+    /**
+     * Queue inventory checks for the next few online players, continuing where the last run stopped.
+     * The checks themselves run on each player's own thread.
+     */
+    private void sweep() {
+        final List<Player> online = new ArrayList<>(this.plugin.getServer().getOnlinePlayers());
+        if (online.isEmpty()) {
+            return;
+        }
+        
+        final int count = Math.min(this.sweepPlayersPerRun, online.size());
+        for (int i = 0; i < count; i++) {
+            this.sweepCursor = (this.sweepCursor + 1) % online.size();
+            this.submitInventory(online.get(this.sweepCursor), AcquisitionSource.INVENTORY);
+        }
+    }
+    
+    /**
+     * Items of one material only differ to the catalog by custom model data
+     */
+    private static long dedupKey(final ItemStack itemStack) {
+        final ItemMeta meta = itemStack.hasItemMeta() ? itemStack.getItemMeta() : null;
+        final int modelData = meta != null && meta.hasCustomModelData() ? meta.getCustomModelData() : -1;
+        return ((long) itemStack.getType().ordinal() << 32) | (modelData & 0xFFFFFFFFL);
+    }
+    
+    private static final class PlayerQueue {
+        private Map<Long, Pending> items = new LinkedHashMap<>();
+        private AcquisitionSource scan;
+        private boolean scheduled;
+        
+        /**
+         * Mark a drain as scheduled
+         * 
+         * @return True if the caller must schedule it
+         */
+        private boolean markScheduled() {
+            if (this.scheduled) {
+                return false;
+            }
+            this.scheduled = true;
+            return true;
+        }
+    }
+    
+    private static final class Pending {
+        private final ItemStack itemStack;
+        private final AcquisitionSource source;
+        
+        private Pending(final ItemStack itemStack, final AcquisitionSource source) {
+            this.itemStack = itemStack;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.collectionlog.manager;
+
+import com.collectionlog.CollectionLog;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * A bounded worker pool for bulk storage work such as loading every online player
+ * or flushing every loaded collection. Work is spread over a fixed number of threads
+ * and bounded by a deadline, after which unfinished items are reported instead of
+ * holding up server start or stop.
+ */
+public class BulkTaskRunner {
+
+    private final CollectionLog plugin;
+    private final ExecutorService executor;
+    
+    @Getter
+    private final int threads;
+    
+    public BulkTaskRunner(final CollectionLog plugin) {
+        this.plugin = plugin;
+        this.threads = Math.max(1, plugin.getConfigManager().getMainConfig()
+                .getInt("settings.bulk-io.threads", Math.min(4, Runtime.getRuntime().availableProcessors())));
+        
+        final AtomicInteger counter = new AtomicInteger();
+        final ThreadFactory factory = runnable -> {
+            final Thread thread = new Thread(runnable, "CollectionLog-Worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        
+        this.executor = Executors.newFixedThreadPool(this.threads, factory);
+    }
+    
+    /**
+     * Run a task for every item on the worker pool and wait until all of them finish
+     * or the deadline passes
+     * 
+     * @param items The items to process
+     * @param task The task to run for each item
+     * @param timeoutMillis The time to wait for all items
+     * @param <T> The item type
+     * @return The outcome, listing items that failed or did not finish in time
+     */
+    public <T> BulkResult<T> runAll(final Collection<T> items, final Consumer<T> task, final long timeoutMillis) {
+        final long start = System.currentTimeMillis();
+        final List<T> ordered = new ArrayList<>(items);
+        final List<Callable<Void>> callables = new ArrayList<>(ordered.size());
+        
+        for (T item : ordered) {
+            callables.add(() -> {
+                task.accept(item);
+                return null;
+            });
+        }
+        
+        final List<Future<Void>> futures;
+        try {
+            futures = this.executor.invokeAll(callables, timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new BulkResult<>(0, Collections.emptyList(), ordered, System.currentTimeMillis() - start);
+        }
+        
+        final List<T> failed = new ArrayList<>();
+        final List<T> timedOut = new ArrayList<>();
+        int completed = 0;
+        
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+                completed++;
+            } catch (CancellationException e) {
+                timedOut.add(ordered.get(i));
+            } catch (ExecutionException e) {
+                failed.add(ordered.get(i));
+                this.plugin.getLogger().log(Level.WARNING, "Bulk task failed for " + ordered.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                timedOut.add(ordered.get(i));
+            }
+        }
+        
+        return new BulkResult<>(completed, failed, timedOut, System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * Run a task for every item on the calling thread, for work that must stay on it
+     * 
+     * @param items The items to process
+     * @param task The task to run for each item
+     * @param <T> The item type
+     * @return The outcome, listing items that failed
+     */
+    public <T> BulkResult<T> runInline(final Collection<T> items, final Consumer<T> task) {
+        final long start = System.currentTimeMillis();
+        final List<T> failed = new ArrayList<>();
+        int completed = 0;
+        
+        for (T item : new ArrayList<>(items)) {
+            try {
+                task.accept(item);
+                completed++;
+            } catch (RuntimeException e) {
+                failed.add(item);
+                this.plugin.getLogger().log(Level.WARNING, "Bulk task failed for " + item, e);
+            }
+        }
+        
+        return new BulkResult<>(completed, failed, Collections.emptyList(), System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * Stop the worker pool, waiting briefly for running tasks
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                this.executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * The outcome of a bulk run
+     * 
+     * @param <T> The item type
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class BulkResult<T> {
+        
+        private final int completed;
+        private final List<T> failed;
+        private final List<T> timedOut;
+        private final long elapsedMillis;
+        
+        /**
+         * Check whether every item completed successfully
+         * 
+         * @return True if nothing failed or timed out
+         */
+        public boolean isComplete() {
+            return this.failed.isEmpty() && this.timedOut.isEmpty();
+        }
+    }
+}
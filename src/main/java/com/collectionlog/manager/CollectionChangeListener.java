@@ -0,0 +1,48 @@
+package com.collectionlog.manager;
+
+import java.util.UUID;
+
+/**
+ * Receives changes to player collections so that derived state (rewards, indexes,
+ * statistics) can be maintained incrementally instead of recomputed from scratch.
+ * Callbacks may arrive from worker threads as well as the main thread.
+ */
+public interface CollectionChangeListener {
+
+    /**
+     * Called when an item was newly collected by a player on this server
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile the item was collected in
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     */
+    void onItemAdded(UUID playerId, String profile, String categoryId, String itemId);
+    
+    /**
+     * Called when another server reported a single item newly collected by a player,
+     * within the collection's current epoch. Nothing was collected on this server, so
+     * by default this is treated like any other change.
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile the item was collected in
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     */
+    default void onRemoteItemAdded(final UUID playerId, final String profile, final String categoryId, 
+            final String itemId) {
+        this.onCollectionChanged(playerId);
+    }
+    
+    /**
+     * Called when a player's collection changed in any other way: it was loaded,
+     * reset, merged with updates from storage or another server, changed in
+     * storage by a bulk operation without being loaded, or the player moved to
+     * another profile. Listeners should discard anything derived from the
+     * previous contents of any of the player's profiles.
+     * 
+     * @param playerId The UUID of the player
+     */
+    default void onCollectionChanged(final UUID playerId) {
+    }
+}
@@ -2,94 +2,154 @@
 package com.collectionlog.manager;
 
 import com.collectionlog.CollectionLog;
+import com.collectionlog.jfr.ItemMatchEvent;
+import com.collectionlog.jfr.PlayerDataLoadEvent;
+import com.collectionlog.jfr.PlayerDataSaveEvent;
+import com.collectionlog.loadtest.LoadTest;
+import com.collectionlog.model.AcquisitionSource;
 import com.collectionlog.model.CollectionItem;
 import com.collectionlog.model.ItemCategory;
 import com.collectionlog.model.PlayerCollection;
-import lombok.Getter;
+import com.collectionlog.model.PlayerProfiles;
+import com.collectionlog.storage.PlayerStorage;
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
-import org.bukkit.Particle;
-import org.bukkit.Sound;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 public class CollectionManager {
 
-    private final CollectionLog plugin;
+    private static final int STORED_LOCK_STRIPES = 64;
     
-    @Getter
-    private final Map<String, ItemCategory> categories;
+    private final CollectionLog plugin;
     
-    private final Map<UUID, PlayerCollection> playerCollections;
+    private final Map<UUID, PlayerProfiles> playerProfiles;
+    private final Map<UUID, String> worldProfiles;
+    private final Map<UUID, Long> storedStamps;
+    private final List<CollectionChangeListener> changeListeners;
     private final File dataFolder;
+    private final PlayerStorage storage;
+    private final NotificationAggregator notifications;
+    
+    /** Serialize read-modify-writes of players that aren't loaded, striped by player */
+    private final Object[] storedLocks;
     
     public CollectionManager(final CollectionLog plugin) {
         this.plugin = plugin;
-        this.categories = new LinkedHashMap<>();
-        this.playerCollections = new HashMap<>();
-        this.dataFolder = new File(plugin.getDataFolder(), "data");
+        this.playerProfiles = new ConcurrentHashMap<>();
+        this.worldProfiles = new ConcurrentHashMap<>();
+        this.storedStamps = new ConcurrentHashMap<>();
+        this.changeListeners = new CopyOnWriteArrayList<>();
+        this.dataFolder = this.resolveDataFolder();
+        this.notifications = new NotificationAggregator(plugin);
+        this.storedLocks = new Object[STORED_LOCK_STRIPES];
+        for (int i = 0; i < this.storedLocks.length; i++) {
+            this.storedLocks[i] = new Object();
+        }
         
         if (!this.dataFolder.exists() && !this.dataFolder.mkdirs()) {
             plugin.getLogger().severe("Failed to create data directory!");
         }
-        
-        this.loadCategories();
+        this.storage = PlayerStorage.create(plugin, this.dataFolder);
         
         // Load online players' data if plugin is enabled after players joined
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            this.loadPlayerData(player.getUniqueId());
+        final List<UUID> onlinePlayers = Bukkit.getOnlinePlayers().stream()
+                .map(Player::getUniqueId)
+                .collect(Collectors.toList());
+        
+        if (!onlinePlayers.isEmpty()) {
+            this.loadPlayersParallel(onlinePlayers);
         }
     }
     
     /**
-     * Load all categories from the items.yml configuration
+     * Resolve the folder holding player data. Servers that share collections
+     * point this at the same directory.
+     * 
+     * @return The player data folder
      */
-    public void loadCategories() {
-        this.categories.clear();
-        
-        final ConfigurationSection categoriesSection = this.plugin.getConfigManager()
-                .getItemsConfig().getConfigurationSection("categories");
+    private File resolveDataFolder() {
+        final File configured = new File(this.plugin.getConfigManager().getMainConfig()
+                .getString("storage.data-folder", "data"));
         
-        if (categoriesSection == null) {
-            this.plugin.getLogger().warning("No categories found in items.yml");
-            return;
+        return configured.isAbsolute() ? configured : new File(this.plugin.getDataFolder(), configured.getPath());
+    }
+    
+    /**
+     * Register a listener for changes to player collections
+     * 
+     * @param listener The listener
+     */
+    public void registerChangeListener(final CollectionChangeListener listener) {
+        this.changeListeners.add(listener);
+    }
+    
+    private void fireCollectionChanged(final UUID playerId) {
+        for (CollectionChangeListener listener : this.changeListeners) {
+            listener.onCollectionChanged(playerId);
         }
-        
-        for (String categoryId : categoriesSection.getKeys(false)) {
-            final ConfigurationSection categorySection = categoriesSection.getConfigurationSection(categoryId);
-            if (categorySection != null) {
-                final ItemCategory category = ItemCategory.fromConfig(categoryId, categorySection);
-                if (category != null) {
-                    this.categories.put(categoryId, category);
-                    this.plugin.debug("Loaded category: " + categoryId + " with " + 
-                            category.getItems().size() + " items");
-                }
-            }
+    }
+    
+    private void fireRemoteItemAdded(final UUID playerId, final String profile, final String categoryId, 
+            final String itemId) {
+        for (CollectionChangeListener listener : this.changeListeners) {
+            listener.onRemoteItemAdded(playerId, profile, categoryId, itemId);
         }
-        
-        this.plugin.getLogger().info("Loaded " + this.categories.size() + " categories with " + 
-                this.categories.values().stream().mapToInt(cat -> cat.getItems().size()).sum() + " items");
     }
     
     /**
-     * Get a player's collection data
+     * Get all categories of the current catalog, in configuration order
+     * 
+     * @return An unmodifiable map of category ID to category
+     */
+    public Map<String, ItemCategory> getCategories() {
+        return this.plugin.getConfigManager().getCatalog().getCategories();
+    }
+    
+    /**
+     * Get a player's collection data in their current profile
      * 
      * @param playerId The UUID of the player
      * @return The player's collection data
      */
     public PlayerCollection getPlayerCollection(final UUID playerId) {
-        return this.playerCollections.computeIfAbsent(playerId, id -> {
-            final File playerFile = this.getPlayerDataFile(id);
-            return PlayerCollection.fromFile(id, playerFile);
+        return this.getPlayerCollection(playerId, this.getActiveProfile(playerId));
+    }
+    
+    /**
+     * Get a player's collection data in a profile
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile
+     * @return The player's collection data, empty if they never used the profile
+     */
+    public PlayerCollection getPlayerCollection(final UUID playerId, final String profile) {
+        return this.getPlayerProfiles(playerId).getProfile(profile);
+    }
+    
+    /**
+     * Get all profiles of a player, loading them if needed
+     * 
+     * @param playerId The UUID of the player
+     * @return The player's profiles
+     */
+    public PlayerProfiles getPlayerProfiles(final UUID playerId) {
+        return this.playerProfiles.computeIfAbsent(playerId, id -> {
+            this.plugin.getSaveScheduler().track(id);
+            return this.readPlayerData(id);
         });
     }
     
@@ -99,49 +159,526 @@ public class CollectionManager {
      * @param playerId The UUID of the player
      */
     public void loadPlayerData(final UUID playerId) {
-        final File playerFile = this.getPlayerDataFile(playerId);
-        final PlayerCollection collection = PlayerCollection.fromFile(playerId, playerFile);
-        this.playerCollections.put(playerId, collection);
+        final PlayerProfiles profiles = this.readPlayerData(playerId);
+        this.playerProfiles.put(playerId, profiles);
+        this.plugin.getSaveScheduler().track(playerId);
+        this.fireCollectionChanged(playerId);
         this.plugin.debug("Loaded collection data for player: " + playerId);
     }
     
+    /**
+     * Read a player's collection data from storage
+     * 
+     * @param playerId The UUID of the player
+     * @return The player's profiles, empty if nothing is stored
+     */
+    private PlayerProfiles readPlayerData(final UUID playerId) {
+        final PlayerDataLoadEvent event = new PlayerDataLoadEvent();
+        event.begin();
+        
+        final long stamp = this.storage.getStamp(playerId);
+        final PlayerProfiles profiles = this.storage.read(playerId);
+        this.storedStamps.put(playerId, stamp);
+        
+        if (event.shouldCommit()) {
+            event.playerId = playerId.toString();
+            event.bytes = this.storage.getSize(playerId);
+            event.commit();
+        }
+        
+        return profiles;
+    }
+    
     /**
      * Save a player's collection data
      * 
      * @param playerId The UUID of the player
+     * @return The number of bytes written, or -1 if nothing was saved
      */
-    public void savePlayerData(final UUID playerId) {
-        final PlayerCollection collection = this.playerCollections.get(playerId);
-        if (collection == null) {
-            return;
+    public long savePlayerData(final UUID playerId) {
+        final PlayerProfiles profiles = this.playerProfiles.get(playerId);
+        if (profiles == null) {
+            return -1;
         }
         
-        try {
-            collection.saveToFile(this.getPlayerDataFile(playerId));
-            this.plugin.debug("Saved collection data for player: " + playerId);
-        } catch (IOException e) {
-            this.plugin.getLogger().log(Level.SEVERE, "Failed to save player data: " + playerId, e);
+        final PlayerDataSaveEvent event = new PlayerDataSaveEvent();
+        event.begin();
+        
+        long bytes = -1;
+        
+        // Saves of one player on this server are serialized; other writers are reconciled by merging
+        synchronized (profiles) {
+            try {
+                // Only read the stored copy back if someone else wrote it since we last did
+                final long stamp = this.storage.getStamp(playerId);
+                final Long knownStamp = this.storedStamps.get(playerId);
+                if (stamp != 0L && (knownStamp == null || knownStamp != stamp)
+                        && profiles.merge(this.storage.read(playerId))) {
+                    this.fireCollectionChanged(playerId);
+                }
+                
+                bytes = this.storage.write(profiles);
+                this.storedStamps.put(playerId, this.storage.getStamp(playerId));
+                event.success = true;
+                this.plugin.debug("Saved collection data for player: " + playerId);
+            } catch (IOException e) {
+                this.plugin.getLogger().log(Level.SEVERE, "Failed to save player data: " + playerId, e);
+            }
         }
+        
+        if (event.shouldCommit()) {
+            event.playerId = playerId.toString();
+            event.bytes = Math.max(bytes, 0);
+            event.commit();
+        }
+        
+        return bytes;
     }
     
     /**
      * Save all player collection data
      */
     public void saveAllData() {
-        for (UUID playerId : this.playerCollections.keySet()) {
+        for (UUID playerId : this.playerProfiles.keySet()) {
             this.savePlayerData(playerId);
         }
         this.plugin.debug("Saved all player collection data");
     }
     
     /**
-     * Get the file for a player's data
+     * Load several players' collection data in parallel on the bulk worker pool
+     * 
+     * @param playerIds The UUIDs of the players to load
+     * @return The outcome, listing players that could not be loaded in time
+     */
+    public BulkTaskRunner.BulkResult<UUID> loadPlayersParallel(final Collection<UUID> playerIds) {
+        final BulkTaskRunner.BulkResult<UUID> result = this.runBulk(playerIds, this::loadPlayerData);
+        
+        this.reportBulkResult("Loaded", result);
+        return result;
+    }
+    
+    /**
+     * Save every loaded player's collection data in parallel on the bulk worker pool,
+     * giving up after the configured deadline
+     * 
+     * @return The outcome, listing players whose data was not saved
+     */
+    public BulkTaskRunner.BulkResult<UUID> flushAllParallel() {
+        final BulkTaskRunner.BulkResult<UUID> result = this.runBulk(this.playerProfiles.keySet(),
+                this::savePlayerData);
+        
+        this.reportBulkResult("Saved", result);
+        return result;
+    }
+    
+    /**
+     * Run a task for several players on the bulk worker pool, or on this thread if the
+     * storage backend must touch players on the thread owning them
+     */
+    private BulkTaskRunner.BulkResult<UUID> runBulk(final Collection<UUID> playerIds, 
+            final Consumer<UUID> task) {
+        final BulkTaskRunner runner = this.plugin.getBulkTaskRunner();
+        return this.storage.isThreadBound() ? runner.runInline(playerIds, task) 
+                : runner.runAll(playerIds, task, this.getBulkTimeoutMillis());
+    }
+    
+    private long getBulkTimeoutMillis() {
+        return Math.max(1, this.plugin.getConfigManager().getMainConfig()
+                .getInt("settings.bulk-io.timeout-seconds", 30)) * 1000L;
+    }
+    
+    private void reportBulkResult(final String action, final BulkTaskRunner.BulkResult<UUID> result) {
+        this.plugin.getLogger().info(action + " collection data for " + result.getCompleted() + " players in " +
+                result.getElapsedMillis() + "ms");
+        
+        if (!result.getFailed().isEmpty()) {
+            this.plugin.getLogger().warning(action.toLowerCase() + " failed for " + result.getFailed().size() +
+                    " players: " + result.getFailed());
+        }
+        
+        if (!result.getTimedOut().isEmpty()) {
+            this.plugin.getLogger().warning("Deadline passed before " + result.getTimedOut().size() +
+                    " players were processed: " + result.getTimedOut());
+        }
+    }
+    
+    /**
+     * Get the folder holding player data files
+     * 
+     * @return The player data folder
+     */
+    public File getDataFolder() {
+        return this.dataFolder;
+    }
+    
+    /**
+     * Get the storage backend holding player collections
+     * 
+     * @return The player storage
+     */
+    public PlayerStorage getStorage() {
+        return this.storage;
+    }
+    
+    /**
+     * Get a player's collection in their current profile if it is loaded, without loading it
+     * 
+     * @param playerId The UUID of the player
+     * @return The loaded collection, or null if it isn't loaded
+     */
+    public PlayerCollection getLoadedCollection(final UUID playerId) {
+        final PlayerProfiles profiles = this.playerProfiles.get(playerId);
+        return profiles != null ? profiles.getProfile(this.getActiveProfile(playerId)) : null;
+    }
+    
+    /**
+     * Check whether a player's profiles are loaded
+     * 
+     * @param playerId The UUID of the player
+     * @return True if the player is loaded
+     */
+    public boolean isLoaded(final UUID playerId) {
+        return this.playerProfiles.containsKey(playerId);
+    }
+    
+    /**
+     * Read a player's stored collection in the default profile without loading it,
+     * preferring the loaded copy if any
+     * 
+     * @param playerId The UUID of the player
+     * @return The player's collection
+     */
+    public PlayerCollection peekPlayerCollection(final UUID playerId) {
+        return this.peekPlayerProfiles(playerId).getProfile(this.getDefaultProfile());
+    }
+    
+    /**
+     * Read all of a player's stored profiles without loading them, preferring the loaded copy if any
      * 
      * @param playerId The UUID of the player
-     * @return The file for the player's data
+     * @return The player's profiles
      */
-    private File getPlayerDataFile(final UUID playerId) {
-        return new File(this.dataFolder, playerId.toString() + ".yml");
+    public PlayerProfiles peekPlayerProfiles(final UUID playerId) {
+        final PlayerProfiles loaded = this.playerProfiles.get(playerId);
+        return loaded != null ? loaded : this.storage.read(playerId);
+    }
+    
+    /**
+     * Give a player an item in the default profile without loading players that aren't
+     * loaded yet. Stored files are changed in place; a copy loaded concurrently picks the
+     * change up by merging on its next save.
+     * 
+     * @param playerId The UUID of the player
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @return True if the item was newly added
+     */
+    public boolean grantStoredItem(final UUID playerId, final String categoryId, final String itemId) {
+        final String profile = this.getDefaultProfile();
+        if (this.playerProfiles.containsKey(playerId)) {
+            return this.addToCollection(playerId, profile, categoryId, itemId, AcquisitionSource.ADMIN);
+        }
+        
+        final long now = System.currentTimeMillis();
+        final PlayerProfiles written = this.updateStored(playerId, 
+                stored -> stored.getProfile(profile).addItem(categoryId, itemId, AcquisitionSource.ADMIN, now));
+        if (written == null) {
+            return false;
+        }
+        
+        this.plugin.getSyncService().publishItemAdded(playerId, profile, written.getProfile(profile).getEpoch(), 
+                categoryId, itemId, AcquisitionSource.ADMIN, now);
+        this.fireCollectionChanged(playerId);
+        return true;
+    }
+    
+    /**
+     * Add items a player had before the log was installed to their default profile, loaded
+     * or not, with one write for all of them. Unlike collecting, this doesn't notify the
+     * player, count towards analytics or publish every item to other servers.
+     * 
+     * @param playerId The UUID of the player
+     * @param items The items and how they were acquired
+     * @param timestampMillis When the items were acquired
+     * @return True if any item was newly added
+     */
+    public boolean backfillItems(final UUID playerId, final Map<CollectionItem, AcquisitionSource> items, 
+            final long timestampMillis) {
+        final Predicate<PlayerProfiles> backfill = profiles -> {
+            final PlayerCollection collection = profiles.getProfile(this.getDefaultProfile());
+            boolean changed = false;
+            for (Map.Entry<CollectionItem, AcquisitionSource> entry : items.entrySet()) {
+                final CollectionItem item = entry.getKey();
+                changed |= collection.addItem(item.getCategoryId(), item.getId(), entry.getValue(), timestampMillis);
+            }
+            return changed;
+        };
+        
+        final PlayerProfiles cached = this.playerProfiles.get(playerId);
+        if (cached != null) {
+            if (!backfill.test(cached)) {
+                return false;
+            }
+            this.plugin.getSaveScheduler().markDirty(playerId);
+        } else if (this.updateStored(playerId, backfill) == null) {
+            return false;
+        }
+        
+        this.fireCollectionChanged(playerId);
+        return true;
+    }
+    
+    /**
+     * Take an item away from a player's default profile, loaded or not. This starts a new
+     * epoch like a reset so that copies still holding the item can't bring it back.
+     * 
+     * @param playerId The UUID of the player
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @return True if the player had the item
+     */
+    public boolean revokeItem(final UUID playerId, final String categoryId, final String itemId) {
+        final String profile = this.getDefaultProfile();
+        final PlayerProfiles cached = this.playerProfiles.get(playerId);
+        final long newEpoch;
+        
+        synchronized (cached != null ? cached : this.storedLock(playerId)) {
+            final long stamp = this.storage.getStamp(playerId);
+            final PlayerProfiles stored = this.storage.read(playerId);
+            final PlayerProfiles profiles = cached != null ? cached : stored;
+            final PlayerCollection collection = profiles.getProfile(profile);
+            if (cached != null) {
+                // Don't lose what other writers stored when moving to the new epoch
+                cached.merge(stored);
+            }
+            
+            final long epoch = Math.max(stored.getProfile(profile).getEpoch(), collection.getEpoch()) + 1;
+            if (!collection.removeItem(categoryId, itemId, epoch)) {
+                return false;
+            }
+            
+            if (!this.writeStored(profiles, stamp)) {
+                return false;
+            }
+            newEpoch = collection.getEpoch();
+        }
+        
+        this.plugin.getSyncService().publishReset(playerId, profile, newEpoch);
+        this.fireCollectionChanged(playerId);
+        return true;
+    }
+    
+    /**
+     * Merge an externally supplied copy of a player's collection into storage, or into
+     * the loaded collection if the player is loaded. The copy goes into its own profile.
+     * 
+     * @param imported The imported collection
+     * @return True if anything changed
+     */
+    public boolean mergeStoredCollection(final PlayerCollection imported) {
+        final UUID playerId = imported.getPlayerId();
+        final PlayerProfiles cached = this.playerProfiles.get(playerId);
+        if (cached != null) {
+            if (!cached.getProfile(imported.getProfile()).merge(imported)) {
+                return false;
+            }
+            
+            this.plugin.getSaveScheduler().markDirty(playerId);
+            this.fireCollectionChanged(playerId);
+            return true;
+        }
+        
+        if (this.updateStored(playerId, stored -> stored.getProfile(imported.getProfile()).merge(imported)) == null) {
+            return false;
+        }
+        
+        this.fireCollectionChanged(playerId);
+        return true;
+    }
+    
+    /**
+     * Change a player's stored profiles without loading them, holding the player's lock
+     * from the read until the write
+     * 
+     * @param playerId The UUID of the player
+     * @param change Applies the change to the stored copy, returning true if anything changed
+     * @return The written profiles, or null if nothing changed or the write failed
+     */
+    private PlayerProfiles updateStored(final UUID playerId, final Predicate<PlayerProfiles> change) {
+        synchronized (this.storedLock(playerId)) {
+            final long stamp = this.storage.getStamp(playerId);
+            final PlayerProfiles stored = this.storage.read(playerId);
+            if (!change.test(stored)) {
+                return null;
+            }
+            
+            return this.writeStored(stored, stamp) ? stored : null;
+        }
+    }
+    
+    private Object storedLock(final UUID playerId) {
+        return this.storedLocks[Math.floorMod(playerId.hashCode(), this.storedLocks.length)];
+    }
+    
+    /**
+     * Write a player's loaded profiles outside the regular save, reconciled with storage like a save.
+     * Callers hold the lock of the profiles.
+     * 
+     * @param profiles The loaded profiles
+     * @return True if they were written
+     */
+    private boolean writeStored(final PlayerProfiles profiles) {
+        return this.writeStored(profiles, this.storedStamps.get(profiles.getPlayerId()));
+    }
+    
+    /**
+     * Write a player's profiles, first merging in the stored copy if someone else wrote it
+     * since it was read, so their changes aren't overwritten. Callers hold the lock of the copy.
+     * 
+     * @param profiles The profiles to write
+     * @param readStamp The stamp of the stored copy the profiles were last reconciled with, or null if unknown
+     * @return True if they were written
+     */
+    private boolean writeStored(final PlayerProfiles profiles, final Long readStamp) {
+        final UUID playerId = profiles.getPlayerId();
+        try {
+            final long stamp = this.storage.getStamp(playerId);
+            if (stamp != 0L && (readStamp == null || readStamp != stamp)) {
+                profiles.merge(this.storage.read(playerId));
+            }
+            
+            this.storage.write(profiles);
+            if (this.playerProfiles.get(playerId) == profiles) {
+                this.storedStamps.put(playerId, this.storage.getStamp(playerId));
+            }
+            return true;
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.SEVERE, "Failed to save player data: " + playerId, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Get the profile used where no world or admin selection applies
+     * 
+     * @return The configured default profile
+     */
+    public String getDefaultProfile() {
+        final String configured = this.plugin.getConfigManager().getMainConfig()
+                .getString("settings.profiles.default", PlayerCollection.DEFAULT_PROFILE).toLowerCase();
+        return PlayerProfiles.isValidName(configured) ? configured : PlayerCollection.DEFAULT_PROFILE;
+    }
+    
+    /**
+     * Get the profile a player currently collects into: the one an admin selected for
+     * them, else the one of the world they are in, else the default profile
+     * 
+     * @param playerId The UUID of the player
+     * @return The profile name
+     */
+    public String getActiveProfile(final UUID playerId) {
+        final PlayerProfiles profiles = this.playerProfiles.get(playerId);
+        final String selected = profiles != null ? profiles.getSelectedProfile() : null;
+        if (selected != null) {
+            return selected;
+        }
+        
+        final String worldProfile = this.worldProfiles.get(playerId);
+        return worldProfile != null ? worldProfile : this.getDefaultProfile();
+    }
+    
+    /**
+     * Pick a player's profile for the world they are in, after joining or changing worlds
+     * 
+     * @param player The player
+     */
+    public void updateWorldProfile(final Player player) {
+        final UUID playerId = player.getUniqueId();
+        final String previous = this.getActiveProfile(playerId);
+        
+        final String profile = this.getWorldProfile(player.getWorld().getName());
+        if (profile != null) {
+            this.worldProfiles.put(playerId, profile);
+        } else {
+            this.worldProfiles.remove(playerId);
+        }
+        
+        if (!previous.equals(this.getActiveProfile(playerId))) {
+            this.fireCollectionChanged(playerId);
+            this.plugin.debug("Player " + playerId + " now uses profile " + this.getActiveProfile(playerId));
+        }
+    }
+    
+    /**
+     * Forget which world a player was in, when they leave
+     * 
+     * @param playerId The UUID of the player
+     */
+    public void forgetWorldProfile(final UUID playerId) {
+        this.worldProfiles.remove(playerId);
+    }
+    
+    /**
+     * Drop a leaving player's pending collection notifications
+     * 
+     * @param playerId The UUID of the player
+     */
+    public void forgetNotifications(final UUID playerId) {
+        this.notifications.forgetPlayer(playerId);
+    }
+    
+    private String getWorldProfile(final String worldName) {
+        final ConfigurationSection worlds = this.plugin.getConfigManager().getMainConfig()
+                .getConfigurationSection("settings.profiles.worlds");
+        if (worlds == null) {
+            return null;
+        }
+        
+        // World names may contain dots, so they can't be used as a path
+        for (String key : worlds.getKeys(false)) {
+            if (key.equalsIgnoreCase(worldName)) {
+                final String profile = String.valueOf(worlds.get(key)).toLowerCase();
+                return PlayerProfiles.isValidName(profile) ? profile.intern() : null;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Select a profile for a player regardless of world, loaded or not
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile, or null to choose by world again
+     * @return True if the selection was stored
+     */
+    public boolean selectProfile(final UUID playerId, final String profile) {
+        final String selected = profile == null ? null : profile.intern();
+        final PlayerProfiles cached = this.playerProfiles.get(playerId);
+        
+        final boolean stored;
+        final long version;
+        if (cached != null) {
+            synchronized (cached) {
+                cached.setSelectedProfile(selected);
+                version = cached.getSelectionVersion();
+                stored = this.writeStored(cached);
+            }
+        } else {
+            final PlayerProfiles written = this.updateStored(playerId, profiles -> {
+                profiles.setSelectedProfile(selected);
+                return true;
+            });
+            stored = written != null;
+            version = stored ? written.getSelectionVersion() : 0L;
+        }
+        
+        this.fireCollectionChanged(playerId);
+        if (version != 0L) {
+            this.plugin.getSyncService().publishProfileSelected(playerId, selected, version);
+        }
+        return stored;
     }
     
     /**
@@ -165,23 +702,41 @@ public class CollectionManager {
      * @return True if the item was newly added to the collection
      */
     public boolean addToCollection(final Player player, final ItemStack itemStack) {
-        // Find the matching collection item
-        for (ItemCategory category : this.categories.values()) {
-            for (CollectionItem item : category.getAllItems()) {
-                if (item.matches(itemStack)) {
-                    final boolean added = this.addToCollection(player.getUniqueId(), 
-                            item.getCategoryId(), item.getId());
-                    
-                    if (added) {
-                        this.notifyCollection(player, item);
-                    }
-                    
-                    return added;
-                }
+        return this.addToCollection(player, itemStack, AcquisitionSource.UNKNOWN);
+    }
+    
+    /**
+     * Add an item to a player's collection
+     * 
+     * @param player The player
+     * @param itemStack The item to add
+     * @param source How the player acquired the item
+     * @return True if the item was newly added to the collection
+     */
+    public boolean addToCollection(final Player player, final ItemStack itemStack, final AcquisitionSource source) {
+        final ItemMatchEvent event = new ItemMatchEvent();
+        event.begin();
+        
+        final CollectionItem item = this.plugin.getConfigManager().getCatalog().findMatch(itemStack);
+        boolean added = false;
+        
+        if (item != null) {
+            added = this.addToCollection(player.getUniqueId(), this.getActiveProfile(player.getUniqueId()), 
+                    item.getCategoryId(), item.getId(), source);
+            
+            if (added) {
+                this.notifyCollection(player, item);
             }
         }
         
-        return false;
+        if (event.shouldCommit()) {
+            event.material = itemStack == null ? null : itemStack.getType().name();
+            event.hit = item != null;
+            event.added = added;
+            event.commit();
+        }
+        
+        return added;
     }
     
     /**
@@ -193,76 +748,272 @@ public class CollectionManager {
      * @return True if the item was newly added to the collection
      */
     public boolean addToCollection(final UUID playerId, final String categoryId, final String itemId) {
-        final PlayerCollection collection = this.getPlayerCollection(playerId);
-        return collection.addItem(categoryId, itemId);
+        return this.addToCollection(playerId, categoryId, itemId, AcquisitionSource.UNKNOWN);
     }
     
     /**
-     * Notify a player that they've collected a new item
+     * Add an item to a player's collection in their current profile
      * 
-     * @param player The player
-     * @param item The collected item
+     * @param playerId The UUID of the player
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @param source How the player acquired the item
+     * @return True if the item was newly added to the collection
      */
-    private void notifyCollection(final Player player, final CollectionItem item) {
-        if (!this.plugin.getConfigManager().getMainConfig().getBoolean("settings.collection-notifications", true)) {
-            return;
+    public boolean addToCollection(final UUID playerId, final String categoryId, final String itemId, 
+            final AcquisitionSource source) {
+        return this.addToCollection(playerId, this.getActiveProfile(playerId), categoryId, itemId, source);
+    }
+    
+    /**
+     * Add an item to a player's collection in a profile
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @param source How the player acquired the item
+     * @return True if the item was newly added to the collection
+     */
+    public boolean addToCollection(final UUID playerId, final String profile, final String categoryId, 
+            final String itemId, final AcquisitionSource source) {
+        final PlayerCollection collection = this.getPlayerCollection(playerId, profile);
+        final long now = System.currentTimeMillis();
+        if (!collection.addItem(categoryId, itemId, source, now)) {
+            return false;
         }
         
-        // Get the clean item name
-        final String itemName = item.getName().replace('&', '§');
+        this.plugin.getSaveScheduler().markDirty(playerId);
         
-        // Send title notification
-        if (this.plugin.getConfigManager().getMainConfig().getBoolean("settings.use-titles", true)) {
-            player.sendTitle(
-                    "§aItem Collected!", 
-                    itemName, 
-                    10, 40, 10
-            );
-        } else {
-            player.sendMessage("§a[Collection Log] §fYou've collected: " + itemName);
+        // Synthetic load test players stay on this server and out of the analytics
+        if (!LoadTest.isSynthetic(playerId)) {
+            this.plugin.getSyncService().publishItemAdded(playerId, profile, collection.getEpoch(), categoryId, 
+                    itemId, source, now);
+            this.plugin.getCollectionAnalytics().record(playerId, categoryId, itemId, source, now);
+        }
+        
+        for (CollectionChangeListener listener : this.changeListeners) {
+            listener.onItemAdded(playerId, profile, categoryId, itemId);
         }
         
-        // Play sound
-        if (this.plugin.getConfigManager().getMainConfig().getBoolean("settings.play-sound", true)) {
-            final String soundName = this.plugin.getConfigManager().getMainConfig()
-                    .getString("settings.collection-sound", "ENTITY_PLAYER_LEVELUP");
+        return true;
+    }
+    
+    /**
+     * Prepare a joining player's collection. With sync enabled a cached collection is
+     * kept current by other servers' updates, so it is reused instead of reloaded. Updates
+     * are only delivered while this server has players online, so the cached copy is
+     * brought up to date from storage if another server wrote it since.
+     * 
+     * @param playerId The UUID of the player
+     */
+    public void handleJoin(final UUID playerId) {
+        final PlayerProfiles cached = this.playerProfiles.get(playerId);
+        if (this.plugin.getSyncService().isEnabled() && cached != null) {
+            this.plugin.getSaveScheduler().track(playerId);
+            this.refreshFromStorage(playerId, cached);
+            this.plugin.debug("Reusing synced collection data for player: " + playerId);
+            return;
+        }
+        
+        this.loadPlayerData(playerId);
+    }
+    
+    /**
+     * Merge the stored copy of a player's profiles into the loaded one if someone else
+     * wrote it since this server last read or wrote it
+     * 
+     * @param playerId The UUID of the player
+     * @param profiles The loaded profiles
+     */
+    private void refreshFromStorage(final UUID playerId, final PlayerProfiles profiles) {
+        final boolean changed;
+        synchronized (profiles) {
+            final long stamp = this.storage.getStamp(playerId);
+            final Long knownStamp = this.storedStamps.get(playerId);
+            if (stamp == 0L || (knownStamp != null && knownStamp == stamp)) {
+                return;
+            }
             
-            try {
-                final Sound sound = Sound.valueOf(soundName);
-                player.playSound(player.getLocation(), sound, 1.0f, 1.0f);
-            } catch (IllegalArgumentException e) {
-                this.plugin.getLogger().warning("Invalid sound name in config: " + soundName);
+            changed = profiles.merge(this.storage.read(playerId));
+            this.storedStamps.put(playerId, stamp);
+        }
+        
+        if (changed) {
+            this.fireCollectionChanged(playerId);
+            this.plugin.debug("Merged newer stored collection data for player: " + playerId);
+        }
+    }
+    
+    /**
+     * Apply an item gained on another server to the cached collection, if any.
+     * Players that aren't cached pick the change up from storage when loaded.
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile the item was collected in
+     * @param epoch The epoch the item was collected in
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @param source How the player acquired the item
+     * @param timestampMillis When the player acquired the item
+     */
+    public void applyRemoteItem(final UUID playerId, final String profile, final long epoch, final String categoryId, 
+            final String itemId, final AcquisitionSource source, final long timestampMillis) {
+        final PlayerProfiles profiles = this.playerProfiles.get(playerId);
+        if (profiles == null || !PlayerProfiles.isValidName(profile)) {
+            return;
+        }
+        
+        final PlayerCollection delta = PlayerCollection.createEmpty(playerId, profile);
+        delta.setEpoch(epoch);
+        delta.addItem(categoryId, itemId, source, timestampMillis);
+        
+        final PlayerCollection collection = profiles.getProfile(profile.intern());
+        final long previousEpoch = collection.getEpoch();
+        if (collection.merge(delta)) {
+            // A newer epoch replaced the whole collection, not just added the item
+            if (collection.getEpoch() == previousEpoch) {
+                this.fireRemoteItemAdded(playerId, collection.getProfile(), categoryId, itemId);
+            } else {
+                this.fireCollectionChanged(playerId);
             }
+            this.plugin.debug("Applied synced item " + categoryId + "/" + itemId + " for player: " + playerId);
+        }
+    }
+    
+    /**
+     * Apply a profile selection made on another server to the cached profiles, if any.
+     * Players that aren't cached pick the selection up from storage when loaded.
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The selected profile, or null to choose by world
+     * @param version When the selection was made
+     */
+    public void applyRemoteSelection(final UUID playerId, final String profile, final long version) {
+        final PlayerProfiles profiles = this.playerProfiles.get(playerId);
+        if (profiles == null || (profile != null && !PlayerProfiles.isValidName(profile))) {
+            return;
         }
         
-        // Show particles
-        if (this.plugin.getConfigManager().getMainConfig().getBoolean("settings.show-particles", true)) {
-            final String particleName = this.plugin.getConfigManager().getMainConfig()
-                    .getString("settings.particle-type", "VILLAGER_HAPPY");
-            
-            try {
-                final Particle particle = Particle.valueOf(particleName);
-                final Location loc = player.getLocation().add(0, 1, 0);
-                
-                player.getWorld().spawnParticle(particle, loc, 20, 0.5, 0.5, 0.5, 0.1);
-            } catch (IllegalArgumentException e) {
-                this.plugin.getLogger().warning("Invalid particle name in config: " + particleName);
+        if (profiles.mergeSelection(profile, version)) {
+            this.fireCollectionChanged(playerId);
+            this.plugin.debug("Applied synced profile selection for player: " + playerId);
+        }
+    }
+    
+    /**
+     * Apply a reset made on another server to the cached collection, if any. The new epoch
+     * is then filled from storage, since a revoke starts a new epoch that keeps every other item.
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile that was reset
+     * @param epoch The epoch the collection was reset to
+     */
+    public void applyRemoteReset(final UUID playerId, final String profile, final long epoch) {
+        final PlayerProfiles profiles = this.playerProfiles.get(playerId);
+        if (profiles == null || !PlayerProfiles.isValidName(profile)) {
+            return;
+        }
+        
+        final PlayerCollection collection = profiles.getProfile(profile.intern());
+        final PlayerCollection delta = PlayerCollection.createEmpty(playerId, profile);
+        delta.setEpoch(epoch);
+        
+        if (!collection.merge(delta)) {
+            return;
+        }
+        
+        this.fireCollectionChanged(playerId);
+        this.plugin.debug("Applied synced reset for player: " + playerId);
+        
+        // Storage reads stay off the global thread unless the backend is bound to it
+        final Runnable refill = () -> {
+            final PlayerCollection stored = this.storage.read(playerId).findProfile(profile);
+            if (stored != null && collection.merge(stored)) {
+                this.fireCollectionChanged(playerId);
             }
+        };
+        
+        if (this.storage.isThreadBound()) {
+            refill.run();
+        } else {
+            this.plugin.getTaskScheduler().runAsync(refill);
         }
     }
     
     /**
-     * Clear the collection data for a player
+     * Notify a player that they've collected a new item, together with anything
+     * else they collect within the notification window
+     * 
+     * @param player The player
+     * @param item The collected item
+     */
+    private void notifyCollection(final Player player, final CollectionItem item) {
+        this.notifications.add(player, item);
+    }
+    
+    /**
+     * Clear the collection data for a player in their current profile
      * 
      * @param playerId The UUID of the player
      */
     public void clearPlayerData(final UUID playerId) {
-        final File playerFile = this.getPlayerDataFile(playerId);
-        if (playerFile.exists() && !playerFile.delete()) {
-            this.plugin.getLogger().warning("Failed to delete player data file: " + playerFile.getPath());
+        this.clearPlayerData(playerId, this.getActiveProfile(playerId));
+    }
+    
+    /**
+     * Clear the collection data for a player in one profile, leaving other profiles alone
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile
+     */
+    public void clearPlayerData(final UUID playerId, final String profile) {
+        final PlayerProfiles cached = this.playerProfiles.get(playerId);
+        final long newEpoch;
+        
+        // A reset starts a new epoch rather than deleting the file, so copies still
+        // held by other writers can't resurrect the cleared items when merged
+        synchronized (cached != null ? cached : this.storedLock(playerId)) {
+            final long stamp = this.storage.getStamp(playerId);
+            final PlayerProfiles stored = this.storage.read(playerId);
+            final PlayerProfiles profiles = cached != null ? cached : stored;
+            final PlayerCollection collection = profiles.getProfile(profile);
+            if (cached != null) {
+                // Keep what other writers stored in the other profiles
+                cached.merge(stored);
+            }
+            
+            final long epoch = Math.max(stored.getProfile(profile).getEpoch(), collection.getEpoch()) + 1;
+            collection.reset(epoch);
+            this.writeStored(profiles, stamp);
+            newEpoch = collection.getEpoch();
         }
         
-        this.playerCollections.remove(playerId);
+        this.plugin.getSyncService().publishReset(playerId, profile, newEpoch);
+        this.fireCollectionChanged(playerId);
         this.plugin.debug("Cleared collection data for player: " + playerId);
     }
+    
+    /**
+     * Unload a player and delete their stored data. Unlike a reset this leaves no epoch
+     * behind, so it is only meant for players that should never have existed, such as
+     * the synthetic players of a load test.
+     * 
+     * @param playerId The UUID of the player
+     */
+    public void deletePlayerData(final UUID playerId) {
+        this.playerProfiles.remove(playerId);
+        this.worldProfiles.remove(playerId);
+        this.storedStamps.remove(playerId);
+        this.plugin.getSaveScheduler().untrack(playerId);
+        
+        try {
+            this.storage.delete(playerId);
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Failed to delete player data: " + playerId, e);
+        }
+        
+        this.fireCollectionChanged(playerId);
+        this.plugin.debug("Deleted collection data for player: " + playerId);
+    }
 }
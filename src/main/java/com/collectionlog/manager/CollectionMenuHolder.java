@@ -0,0 +1,25 @@
+package com.collectionlog.manager;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+/**
+ * Marks the inventories opened by the GuiManager, so clicks in them are recognised
+ * regardless of the titles configured in gui.yml
+ */
+public final class CollectionMenuHolder implements InventoryHolder {
+
+    private Inventory inventory;
+    
+    CollectionMenuHolder() {
+    }
+    
+    void setInventory(final Inventory inventory) {
+        this.inventory = inventory;
+    }
+    
+    @Override
+    public Inventory getInventory() {
+        return this.inventory;
+    }
+}
@@ -2,8 +2,19 @@
 package com.collectionlog.manager;
 
 import com.collectionlog.CollectionLog;
+import com.collectionlog.analytics.AnalyticsWindow;
+import com.collectionlog.analytics.CollectionAnalytics;
+import com.collectionlog.analytics.Discovery;
+import com.collectionlog.analytics.TrendingItem;
+import com.collectionlog.config.ConfigSnapshot;
+import com.collectionlog.group.CollectionGroup;
+import com.collectionlog.group.GroupMember;
+import com.collectionlog.jfr.GuiRenderEvent;
+import com.collectionlog.model.CategoryLayout;
 import com.collectionlog.model.CollectionItem;
 import com.collectionlog.model.ItemCategory;
+import com.collectionlog.model.ItemFilter;
+import com.collectionlog.model.ItemSort;
 import com.collectionlog.model.PlayerCollection;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -14,21 +25,41 @@ import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 public class GuiManager {
 
     private final CollectionLog plugin;
     private final Map<UUID, String> openCategories;
+    private final Map<UUID, List<CollectionItem>> openSearches;
+    private final Map<UUID, AnalyticsWindow> openAnalytics;
+    private final Map<UUID, String> openGroups;
+    private final Map<UUID, ItemSort> itemSorts;
+    private final Map<UUID, ItemFilter> itemFilters;
+    private final Map<UUID, Long> renderTokens;
     
     public GuiManager(final CollectionLog plugin) {
         this.plugin = plugin;
-        this.openCategories = new HashMap<>();
+        this.openCategories = new ConcurrentHashMap<>();
+        this.openSearches = new ConcurrentHashMap<>();
+        this.openAnalytics = new ConcurrentHashMap<>();
+        this.openGroups = new ConcurrentHashMap<>();
+        this.itemSorts = new ConcurrentHashMap<>();
+        this.itemFilters = new ConcurrentHashMap<>();
+        this.renderTokens = new ConcurrentHashMap<>();
     }
     
     /**
@@ -37,124 +68,300 @@ public class GuiManager {
      * @param player The player to open the GUI for
      */
     public void openMainMenu(final Player player) {
-        // Clear the open category for this player
-        this.openCategories.remove(player.getUniqueId());
+        final UUID playerId = player.getUniqueId();
+        this.render(player, () -> this.renderMainMenu(playerId, null));
+    }
+    
+    /**
+     * Open the main GUI of a group's shared collection for a player
+     * 
+     * @param player The player to open the GUI for
+     * @param groupId The group ID
+     */
+    public void openGroupMenu(final Player player, final String groupId) {
+        final UUID playerId = player.getUniqueId();
+        this.render(player, () -> this.renderMainMenu(playerId, groupId));
+    }
+    
+    /**
+     * Open a category GUI for a player, sorted and filtered the way they last chose
+     * 
+     * @param player The player to open the GUI for
+     * @param categoryId The category ID to open
+     */
+    public void openCategoryMenu(final Player player, final String categoryId) {
+        this.openCategoryMenu(player, categoryId, null);
+    }
+    
+    /**
+     * Open a category GUI for a player, showing their own items or a group's
+     * 
+     * @param player The player to open the GUI for
+     * @param categoryId The category ID to open
+     * @param groupId The group whose items to show, or null for the player's own
+     */
+    public void openCategoryMenu(final Player player, final String categoryId, final String groupId) {
+        final UUID playerId = player.getUniqueId();
+        final ItemSort sort = this.itemSorts.getOrDefault(playerId, ItemSort.CATALOG);
+        final ItemFilter filter = this.itemFilters.getOrDefault(playerId, ItemFilter.ALL);
+        this.render(player, () -> this.renderCategoryMenu(playerId, categoryId, groupId, sort, filter));
+    }
+    
+    /**
+     * Open the search results GUI for a player
+     * 
+     * @param player The player to open the GUI for
+     * @param query The search text
+     */
+    public void openSearchMenu(final Player player, final String query) {
+        final UUID playerId = player.getUniqueId();
+        this.render(player, () -> this.renderSearchMenu(playerId, query));
+    }
+    
+    /**
+     * Open the server-wide analytics GUI for an admin
+     * 
+     * @param player The player to open the GUI for
+     * @param window The window to show
+     */
+    public void openAnalyticsMenu(final Player player, final AnalyticsWindow window) {
+        this.render(player, () -> this.renderAnalyticsMenu(window));
+    }
+    
+    /**
+     * Forget the GUI state of a player who left
+     * 
+     * @param playerId The UUID of the player
+     */
+    public void forgetPlayer(final UUID playerId) {
+        this.renderTokens.remove(playerId);
+        this.openCategories.remove(playerId);
+        this.openSearches.remove(playerId);
+        this.openAnalytics.remove(playerId);
+        this.openGroups.remove(playerId);
+        this.itemSorts.remove(playerId);
+        this.itemFilters.remove(playerId);
+    }
+    
+    /**
+     * Render a menu off the main thread, then open it on the player's region thread. Each request
+     * takes a new token; a render whose token is no longer the player's latest is dropped,
+     * so rapid clicks only ever open the last menu asked for.
+     * 
+     * @param player The player to open the menu for
+     * @param renderer Builds the menu contents; must not touch live server state
+     */
+    private void render(final Player player, final Supplier<RenderedMenu> renderer) {
+        final UUID playerId = player.getUniqueId();
+        final long token = this.renderTokens.merge(playerId, 1L, Long::sum);
         
-        final ConfigurationSection guiConfig = this.plugin.getConfigManager()
-                .getGuiConfig().getConfigurationSection("main-menu");
+        this.plugin.getTaskScheduler().runAsync(() -> {
+            if (!this.isLatestRender(playerId, token)) {
+                return;
+            }
+            
+            final RenderedMenu menu;
+            try {
+                menu = renderer.get();
+            } catch (RuntimeException e) {
+                this.plugin.getLogger().log(Level.WARNING, "Failed to render menu for " + player.getName(), e);
+                return;
+            }
+            
+            if (menu != null) {
+                this.plugin.getTaskScheduler().runForEntity(player, () -> this.apply(player, token, menu));
+            }
+        });
+    }
+    
+    /**
+     * Open a rendered menu. Runs on the player's region thread and does no more than create the
+     * inventory and copy the prepared contents in.
+     */
+    private void apply(final Player player, final long token, final RenderedMenu menu) {
+        if (!player.isOnline() || !this.isLatestRender(player.getUniqueId(), token)) {
+            return;
+        }
         
-        if (guiConfig == null) {
-            player.sendMessage("§cError: GUI configuration is invalid.");
+        if (menu.error != null) {
+            player.sendMessage(menu.error);
             return;
         }
         
-        final String title = guiConfig.getString("title", "Collection Log")
+        final CollectionMenuHolder holder = new CollectionMenuHolder();
+        final Inventory inventory = Bukkit.createInventory(holder, menu.contents.length, menu.title);
+        holder.setInventory(inventory);
+        inventory.setContents(menu.contents);
+        
+        if (menu.categoryId == null) {
+            this.openCategories.remove(player.getUniqueId());
+        } else {
+            this.openCategories.put(player.getUniqueId(), menu.categoryId);
+        }
+        
+        if (menu.searchResults == null) {
+            this.openSearches.remove(player.getUniqueId());
+        } else {
+            this.openSearches.put(player.getUniqueId(), menu.searchResults);
+        }
+        
+        if (menu.analyticsWindow == null) {
+            this.openAnalytics.remove(player.getUniqueId());
+        } else {
+            this.openAnalytics.put(player.getUniqueId(), menu.analyticsWindow);
+        }
+        
+        if (menu.groupId == null) {
+            this.openGroups.remove(player.getUniqueId());
+        } else {
+            this.openGroups.put(player.getUniqueId(), menu.groupId);
+        }
+        
+        player.openInventory(inventory);
+    }
+    
+    private boolean isLatestRender(final UUID playerId, final long token) {
+        final Long latest = this.renderTokens.get(playerId);
+        return latest != null && latest == token;
+    }
+    
+    /**
+     * Build the main menu contents from a config snapshot and a copy of the player's or group's collection
+     * 
+     * @param playerId The UUID of the viewing player
+     * @param groupId The group whose collection to show, or null for the player's own
+     * @return The rendered menu, or null if nothing should be opened
+     */
+    private RenderedMenu renderMainMenu(final UUID playerId, final String groupId) {
+        final GuiRenderEvent event = new GuiRenderEvent();
+        event.begin();
+        
+        // Render against one snapshot so a concurrent reload can't mix old and new config
+        final ConfigSnapshot snapshot = this.plugin.getConfigManager().getSnapshot();
+        final ConfigurationSection guiConfig = snapshot.getGuiConfig().getConfigurationSection("main-menu");
+        
+        final ConfigurationSection groupConfig = snapshot.getGuiConfig().getConfigurationSection("group-menu");
+        
+        if (guiConfig == null || (groupId != null && groupConfig == null)) {
+            return RenderedMenu.error("§cError: GUI configuration is invalid.");
+        }
+        
+        final CollectionGroup group = groupId == null ? null : this.plugin.getGroupManager().getGroup(groupId);
+        if (groupId != null && group == null) {
+            return RenderedMenu.error("§cError: Group not found.");
+        }
+        
+        final String title = (group == null ? guiConfig.getString("title", "Collection Log")
+                : groupConfig.getString("title", "%group% Collection Log").replace("%group%", group.getDisplayName()))
                 .replace('&', '§');
         final int size = guiConfig.getInt("size", 54);
         
-        final Inventory inventory = Bukkit.createInventory(null, size, title);
+        final ItemStack[] contents = new ItemStack[size];
         
         // Add border items
         if (guiConfig.isSet("border-item.material")) {
-            final ItemStack borderItem = this.createGuiItem(guiConfig.getConfigurationSection("border-item"));
-            
-            // Add border around the edge of the inventory
-            for (int i = 0; i < size; i++) {
-                if (i < 9 || i >= size - 9 || i % 9 == 0 || i % 9 == 8) {
-                    inventory.setItem(i, borderItem);
-                }
-            }
+            this.fillBorder(contents, this.createGuiItem(guiConfig.getConfigurationSection("border-item")));
         }
         
-        // Add info item
-        if (guiConfig.isSet("info.material")) {
+        // Add info item, or the members and what they contribute for a group
+        if (group != null) {
+            if (groupConfig.isSet("members.material")) {
+                this.setSlot(contents, groupConfig.getInt("members.slot", 4), 
+                        this.createMembersItem(groupConfig.getConfigurationSection("members"), group));
+            }
+        } else if (guiConfig.isSet("info.material")) {
             final ItemStack infoItem = this.createGuiItem(guiConfig.getConfigurationSection("info"));
             final int infoSlot = guiConfig.getInt("info.slot", 4);
-            inventory.setItem(infoSlot, infoItem);
+            this.setSlot(contents, infoSlot, infoItem);
         }
         
         // Add close button
         if (guiConfig.isSet("close.material")) {
             final ItemStack closeItem = this.createGuiItem(guiConfig.getConfigurationSection("close"));
             final int closeSlot = guiConfig.getInt("close.slot", 49);
-            inventory.setItem(closeSlot, closeItem);
+            this.setSlot(contents, closeSlot, closeItem);
         }
         
         // Add category items
         final List<Integer> categorySlots = guiConfig.getIntegerList("category-slots");
         if (categorySlots.isEmpty()) {
             this.plugin.getLogger().warning("No category slots defined in GUI configuration");
-            return;
+            return null;
         }
         
-        final PlayerCollection playerCollection = this.plugin.getCollectionManager()
-                .getPlayerCollection(player.getUniqueId());
+        final PlayerCollection playerCollection = this.copyCollection(playerId, group);
         
         int index = 0;
-        for (ItemCategory category : this.plugin.getCollectionManager().getCategories().values()) {
+        for (ItemCategory category : snapshot.getCatalog().getCategories().values()) {
             if (index >= categorySlots.size()) {
                 break;
             }
             
             final int collectedCount = playerCollection.getCategoryCollectionCount(category.getId());
             final ItemStack categoryItem = category.toItemStack(collectedCount);
-            inventory.setItem(categorySlots.get(index), categoryItem);
+            this.setSlot(contents, categorySlots.get(index), categoryItem);
             
             index++;
         }
         
-        player.openInventory(inventory);
+        this.commitRenderEvent(event, group == null ? "main" : "group", null, contents);
+        return new RenderedMenu(title, contents, null, null, null, groupId, null);
     }
     
     /**
-     * Open a category GUI for a player
+     * Build a category menu's contents from a config snapshot and a copy of the player's collection
      * 
-     * @param player The player to open the GUI for
-     * @param categoryId The category ID to open
+     * @param playerId The UUID of the viewing player
+     * @param categoryId The category ID to render
+     * @param groupId The group whose collection to show, or null for the player's own
+     * @param sort The order to show the items in
+     * @param filter Which items to show
+     * @return The rendered menu, or null if nothing should be opened
      */
-    public void openCategoryMenu(final Player player, final String categoryId) {
-        // Store the open category for this player
-        this.openCategories.put(player.getUniqueId(), categoryId);
+    private RenderedMenu renderCategoryMenu(final UUID playerId, final String categoryId, final String groupId,
+            final ItemSort sort, final ItemFilter filter) {
+        final GuiRenderEvent event = new GuiRenderEvent();
+        event.begin();
         
-        final ItemCategory category = this.plugin.getCollectionManager().getCategories().get(categoryId);
+        // Render against one snapshot so a concurrent reload can't mix old and new config
+        final ConfigSnapshot snapshot = this.plugin.getConfigManager().getSnapshot();
+        final ItemCategory category = snapshot.getCatalog().getCategory(categoryId);
         if (category == null) {
-            player.sendMessage("§cError: Category not found.");
-            return;
+            return RenderedMenu.error("§cError: Category not found.");
         }
         
-        final ConfigurationSection guiConfig = this.plugin.getConfigManager()
-                .getGuiConfig().getConfigurationSection("category-menu");
+        final ConfigurationSection guiConfig = snapshot.getGuiConfig().getConfigurationSection("category-menu");
+        final ConfigurationSection groupConfig = snapshot.getGuiConfig().getConfigurationSection("group-menu");
         
-        if (guiConfig == null) {
-            player.sendMessage("§cError: GUI configuration is invalid.");
-            return;
+        if (guiConfig == null || (groupId != null && groupConfig == null)) {
+            return RenderedMenu.error("§cError: GUI configuration is invalid.");
         }
         
-        final String title = guiConfig.getString("title", "%category% Collection")
+        final CollectionGroup group = groupId == null ? null : this.plugin.getGroupManager().getGroup(groupId);
+        if (groupId != null && group == null) {
+            return RenderedMenu.error("§cError: Group not found.");
+        }
+        
+        final String title = (group == null ? guiConfig.getString("title", "%category% Collection")
+                : groupConfig.getString("category-title", "%group%: %category%")
+                        .replace("%group%", group.getDisplayName()))
                 .replace("%category%", category.getDisplayName().replace('&', '§'))
                 .replace('&', '§');
         final int size = guiConfig.getInt("size", 54);
         
-        final Inventory inventory = Bukkit.createInventory(null, size, title);
+        final ItemStack[] contents = new ItemStack[size];
+        final PlayerCollection playerCollection = this.copyCollection(playerId, group);
+        final List<String> ownersLore = group == null ? List.of() : groupConfig.getStringList("owners-lore");
+        final String memberCount = group == null ? "" : String.valueOf(group.getMembers().size());
         
         // Add border items (reusing code from openMainMenu)
-        if (this.plugin.getConfigManager().getGuiConfig().isSet("main-menu.border-item.material")) {
-            final ItemStack borderItem = this.createGuiItem(
-                    this.plugin.getConfigManager().getGuiConfig().getConfigurationSection("main-menu.border-item"));
-            
-            // Add border around the edge of the inventory
-            for (int i = 0; i < size; i++) {
-                if (i < 9 || i >= size - 9 || i % 9 == 0 || i % 9 == 8) {
-                    inventory.setItem(i, borderItem);
-                }
-            }
+        if (snapshot.getGuiConfig().isSet("main-menu.border-item.material")) {
+            this.fillBorder(contents, this.createGuiItem(
+                    snapshot.getGuiConfig().getConfigurationSection("main-menu.border-item")));
         }
         
         // Add progress indicator
         if (guiConfig.isSet("progress.material")) {
-            final PlayerCollection playerCollection = this.plugin.getCollectionManager()
-                    .getPlayerCollection(player.getUniqueId());
-            
             final int collectedCount = playerCollection.getCategoryCollectionCount(categoryId);
             final int totalItems = category.getItems().size();
             final int percentage = totalItems > 0 ? (collectedCount * 100) / totalItems : 0;
@@ -180,36 +387,69 @@ public class GuiManager {
             }
             
             final int progressSlot = guiConfig.getInt("progress.slot", 4);
-            inventory.setItem(progressSlot, progressItem);
+            this.setSlot(contents, progressSlot, progressItem);
         }
         
         // Add back button
         if (guiConfig.isSet("back.material")) {
             final ItemStack backItem = this.createGuiItem(guiConfig.getConfigurationSection("back"));
             final int backSlot = guiConfig.getInt("back.slot", 49);
-            inventory.setItem(backSlot, backItem);
+            this.setSlot(contents, backSlot, backItem);
+        }
+        
+        // Add sort and filter buttons showing the current modes
+        if (guiConfig.isSet("sort.material")) {
+            final ItemStack sortItem = this.createGuiItem(guiConfig.getConfigurationSection("sort"));
+            this.decorate(sortItem, List.of(), Map.of("%mode%", sort.getDisplayName()));
+            this.setSlot(contents, guiConfig.getInt("sort.slot", 47), sortItem);
+        }
+        
+        if (guiConfig.isSet("filter.material")) {
+            final ItemStack filterItem = this.createGuiItem(guiConfig.getConfigurationSection("filter"));
+            this.decorate(filterItem, List.of(), Map.of("%mode%", filter.getDisplayName()));
+            this.setSlot(contents, guiConfig.getInt("filter.slot", 51), filterItem);
         }
         
         // Add items from the category
         final List<Integer> itemSlots = guiConfig.getIntegerList("item-slots");
         if (itemSlots.isEmpty()) {
             this.plugin.getLogger().warning("No item slots defined in GUI configuration");
-            return;
+            return null;
         }
         
         final ConfigurationSection collectableConfig = guiConfig.getConfigurationSection("collected");
-        final PlayerCollection playerCollection = this.plugin.getCollectionManager()
-                .getPlayerCollection(player.getUniqueId());
+        final DateTimeFormatter dateFormat = this.getDateFormat(collectableConfig);
+        
+        // Orders are precomputed per catalog; the filter is a bit set over the same positions
+        final CategoryLayout layout = snapshot.getCatalog().getLayout(categoryId);
+        final BitSet collectedPositions = layout.collectedBy(playerCollection);
+        final BitSet shown = filter.select(collectedPositions, layout.size());
         
         int index = 0;
-        for (CollectionItem item : category.getAllItems()) {
+        for (int position : layout.order(sort, collectedPositions)) {
             if (index >= itemSlots.size()) {
                 break;
             }
             
-            final boolean collected = playerCollection.hasCollected(categoryId, item.getId());
+            if (!shown.get(position)) {
+                continue;
+            }
+            
+            final CollectionItem item = layout.getItem(position);
+            final boolean collected = collectedPositions.get(position);
             final ItemStack itemStack = item.toItemStack(collected, guiConfig);
             
+            if (collected) {
+                this.applyAcquisitionPlaceholders(itemStack, playerCollection, item, dateFormat);
+            }
+            
+            // Show how many members of a group own the item
+            if (collected && group != null) {
+                this.decorate(itemStack, ownersLore, Map.of(
+                        "%owners%", String.valueOf(group.getOwnerCount(categoryId, item.getId())),
+                        "%members%", memberCount));
+            }
+            
             // Add glow effect if collected and configured
             if (collected && collectableConfig != null && collectableConfig.getBoolean("glow", false)) {
                 final ItemMeta meta = itemStack.getItemMeta();
@@ -220,12 +460,297 @@ public class GuiManager {
                 }
             }
             
-            inventory.setItem(itemSlots.get(index), itemStack);
+            this.setSlot(contents, itemSlots.get(index), itemStack);
             
             index++;
         }
         
-        player.openInventory(inventory);
+        this.commitRenderEvent(event, "category", categoryId, contents);
+        return new RenderedMenu(title, contents, categoryId, null, null, groupId, null);
+    }
+    
+    /**
+     * Build the search results menu from the catalog's search index
+     * 
+     * @param playerId The UUID of the viewing player
+     * @param query The search text
+     * @return The rendered menu
+     */
+    private RenderedMenu renderSearchMenu(final UUID playerId, final String query) {
+        final GuiRenderEvent event = new GuiRenderEvent();
+        event.begin();
+        
+        final ConfigSnapshot snapshot = this.plugin.getConfigManager().getSnapshot();
+        final ConfigurationSection guiConfig = snapshot.getGuiConfig().getConfigurationSection("search-menu");
+        final ConfigurationSection itemConfig = snapshot.getGuiConfig().getConfigurationSection("category-menu");
+        
+        if (guiConfig == null || itemConfig == null) {
+            return RenderedMenu.error("§cError: GUI configuration is invalid.");
+        }
+        
+        final List<Integer> itemSlots = guiConfig.getIntegerList("item-slots");
+        final List<CollectionItem> results = snapshot.getCatalog().getSearchIndex()
+                .search(query, itemSlots.size());
+        
+        if (results.isEmpty()) {
+            return RenderedMenu.error("§cNo items match §f" + query + "§c.");
+        }
+        
+        final String title = guiConfig.getString("title", "Collection Search: %query%")
+                .replace("%query%", query)
+                .replace('&', '§');
+        final int size = guiConfig.getInt("size", 54);
+        
+        final ItemStack[] contents = new ItemStack[size];
+        final PlayerCollection playerCollection = this.plugin.getCollectionManager()
+                .getPlayerCollection(playerId).copy();
+        
+        if (snapshot.getGuiConfig().isSet("main-menu.border-item.material")) {
+            this.fillBorder(contents, this.createGuiItem(
+                    snapshot.getGuiConfig().getConfigurationSection("main-menu.border-item")));
+        }
+        
+        if (guiConfig.isSet("back.material")) {
+            this.setSlot(contents, guiConfig.getInt("back.slot", 49), 
+                    this.createGuiItem(guiConfig.getConfigurationSection("back")));
+        }
+        
+        final DateTimeFormatter dateFormat = this.getDateFormat(itemConfig.getConfigurationSection("collected"));
+        
+        // Results are ranked; collected items show as in their category, others as locked
+        for (int i = 0; i < results.size(); i++) {
+            final CollectionItem item = results.get(i);
+            final boolean collected = playerCollection.hasCollected(item.getCategoryId(), item.getId());
+            final ItemStack itemStack = item.toItemStack(collected, itemConfig);
+            
+            if (collected) {
+                this.applyAcquisitionPlaceholders(itemStack, playerCollection, item, dateFormat);
+            }
+            
+            this.setSlot(contents, itemSlots.get(i), itemStack);
+        }
+        
+        this.commitRenderEvent(event, "search", null, contents);
+        return new RenderedMenu(title, contents, null, results, null, null, null);
+    }
+    
+    /**
+     * Build the analytics menu: collection rates, the most collected items and the latest
+     * discoveries within a window
+     * 
+     * @param window The window to show
+     * @return The rendered menu
+     */
+    private RenderedMenu renderAnalyticsMenu(final AnalyticsWindow window) {
+        final GuiRenderEvent event = new GuiRenderEvent();
+        event.begin();
+        
+        final ConfigSnapshot snapshot = this.plugin.getConfigManager().getSnapshot();
+        final ConfigurationSection guiConfig = snapshot.getGuiConfig().getConfigurationSection("analytics-menu");
+        
+        if (guiConfig == null) {
+            return RenderedMenu.error("§cError: GUI configuration is invalid.");
+        }
+        
+        final CollectionAnalytics analytics = this.plugin.getCollectionAnalytics();
+        if (!analytics.isEnabled()) {
+            return RenderedMenu.error("§cAnalytics are disabled in the config.");
+        }
+        
+        final String title = guiConfig.getString("title", "Collection Analytics")
+                .replace("%window%", window.getDisplayName())
+                .replace('&', '§');
+        final int size = guiConfig.getInt("size", 54);
+        final ItemStack[] contents = new ItemStack[size];
+        final long now = System.currentTimeMillis();
+        
+        if (snapshot.getGuiConfig().isSet("main-menu.border-item.material")) {
+            this.fillBorder(contents, this.createGuiItem(
+                    snapshot.getGuiConfig().getConfigurationSection("main-menu.border-item")));
+        }
+        
+        // Totals for the window; clicking switches to the next window
+        if (guiConfig.isSet("window.material")) {
+            final Map<String, String> values = new HashMap<>();
+            values.put("%window%", window.getDisplayName());
+            values.put("%count%", String.valueOf(analytics.getCount(window)));
+            values.put("%rate%", String.format(Locale.ROOT, "%.1f", analytics.getRatePerHour(window)));
+            
+            final ItemStack windowItem = this.createGuiItem(guiConfig.getConfigurationSection("window"));
+            this.decorate(windowItem, List.of(), values);
+            this.setSlot(contents, guiConfig.getInt("window.slot", 4), windowItem);
+        }
+        
+        if (guiConfig.isSet("close.material")) {
+            this.setSlot(contents, guiConfig.getInt("close.slot", 49), 
+                    this.createGuiItem(guiConfig.getConfigurationSection("close")));
+        }
+        
+        // Most collected items, skipping any that were removed from the catalog since
+        final List<Integer> trendingSlots = guiConfig.getIntegerList("trending-slots");
+        final List<String> trendingLore = guiConfig.getStringList("trending-lore");
+        int index = 0;
+        for (TrendingItem trending : analytics.getTrending(window, trendingSlots.size())) {
+            final CollectionItem item = this.findItem(snapshot, trending.getCategoryId(), trending.getItemId());
+            if (item == null) {
+                continue;
+            }
+            
+            final Map<String, String> values = new HashMap<>();
+            values.put("%window%", window.getDisplayName().toLowerCase(Locale.ROOT));
+            values.put("%count%", String.valueOf(trending.getCount()));
+            values.put("%rank%", String.valueOf(index + 1));
+            
+            final ItemStack itemStack = item.toItemStack(true, null);
+            this.decorate(itemStack, trendingLore, values);
+            this.setSlot(contents, trendingSlots.get(index), itemStack);
+            index++;
+        }
+        
+        // Latest discoveries, newest first
+        final List<Integer> feedSlots = guiConfig.getIntegerList("feed-slots");
+        final List<String> feedLore = guiConfig.getStringList("feed-lore");
+        final Map<UUID, String> names = new HashMap<>();
+        index = 0;
+        for (Discovery discovery : analytics.getRecent(feedSlots.size())) {
+            final CollectionItem item = this.findItem(snapshot, discovery.getCategoryId(), discovery.getItemId());
+            if (item == null) {
+                continue;
+            }
+            
+            final Map<String, String> values = new HashMap<>();
+            values.put("%player%", names.computeIfAbsent(discovery.getPlayerId(), playerId -> {
+                final String name = Bukkit.getOfflinePlayer(playerId).getName();
+                return name != null ? name : playerId.toString();
+            }));
+            values.put("%ago%", formatAge(now - discovery.getTimestamp()));
+            values.put("%source%", discovery.getSource().getDisplayName());
+            
+            final ItemStack itemStack = item.toItemStack(true, null);
+            this.decorate(itemStack, feedLore, values);
+            this.setSlot(contents, feedSlots.get(index), itemStack);
+            index++;
+        }
+        
+        this.commitRenderEvent(event, "analytics", null, contents);
+        return new RenderedMenu(title, contents, null, null, window, null, null);
+    }
+    
+    /**
+     * Take a private copy of the collection a menu shows
+     * 
+     * @param playerId The UUID of the viewing player
+     * @param group The group whose collection to show, or null for the player's own
+     * @return The copy
+     */
+    private PlayerCollection copyCollection(final UUID playerId, final CollectionGroup group) {
+        if (group != null) {
+            return group.snapshot();
+        }
+        return this.plugin.getCollectionManager().getPlayerCollection(playerId).copy();
+    }
+    
+    /**
+     * Create the item listing a group's members, one lore line each, most items first
+     * 
+     * @param config The "members" section of the group menu config
+     * @param group The group
+     * @return The item
+     */
+    private ItemStack createMembersItem(final ConfigurationSection config, final CollectionGroup group) {
+        final List<String> lines = new ArrayList<>();
+        final String line = config.getString("member-line", "&7%player%: &f%items% items");
+        for (GroupMember member : group.getContributions()) {
+            final String name = Bukkit.getOfflinePlayer(member.getPlayerId()).getName();
+            lines.add(line.replace("%player%", name != null ? name : member.getPlayerId().toString())
+                    .replace("%items%", String.valueOf(member.getItems()))
+                    .replace("%unique%", String.valueOf(member.getUnique())));
+        }
+        
+        final ItemStack item = this.createGuiItem(config);
+        this.decorate(item, lines, Map.of(
+                "%group%", group.getDisplayName().replace('&', '§'),
+                "%members%", String.valueOf(lines.size())));
+        return item;
+    }
+    
+    private CollectionItem findItem(final ConfigSnapshot snapshot, final String categoryId, final String itemId) {
+        final ItemCategory category = snapshot.getCatalog().getCategory(categoryId);
+        return category == null ? null : category.getItems().get(itemId);
+    }
+    
+    /**
+     * Append lore lines to an item and fill in placeholders in its name and lore
+     * 
+     * @param itemStack The item to change
+     * @param extraLore Lore lines to append, with & color codes
+     * @param values Placeholder values by placeholder
+     */
+    private void decorate(final ItemStack itemStack, final List<String> extraLore, final Map<String, String> values) {
+        final ItemMeta meta = itemStack.getItemMeta();
+        if (meta == null) {
+            return;
+        }
+        
+        final List<String> lore = meta.getLore() != null ? new ArrayList<>(meta.getLore()) : new ArrayList<>();
+        for (String line : extraLore) {
+            lore.add(line.replace('&', '§'));
+        }
+        
+        lore.replaceAll(line -> this.fill(line, values));
+        meta.setLore(lore);
+        if (meta.hasDisplayName()) {
+            meta.setDisplayName(this.fill(meta.getDisplayName(), values));
+        }
+        itemStack.setItemMeta(meta);
+    }
+    
+    private String fill(String text, final Map<String, String> values) {
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            text = text.replace(value.getKey(), value.getValue());
+        }
+        return text;
+    }
+    
+    /**
+     * Describe how long ago something happened, in its largest whole unit
+     * 
+     * @param millis The elapsed time in milliseconds
+     * @return The age, e.g. "5m"
+     */
+    private static String formatAge(final long millis) {
+        final long seconds = Math.max(0, millis / 1000);
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return seconds / 60 + "m";
+        }
+        if (seconds < 172_800) {
+            return seconds / 3600 + "h";
+        }
+        return seconds / 86_400 + "d";
+    }
+    
+    /**
+     * Put an item in every border slot
+     * 
+     * @param contents The menu contents
+     * @param borderItem The border item
+     */
+    private void fillBorder(final ItemStack[] contents, final ItemStack borderItem) {
+        final int size = contents.length;
+        for (int i = 0; i < size; i++) {
+            if (i < 9 || i >= size - 9 || i % 9 == 0 || i % 9 == 8) {
+                contents[i] = borderItem;
+            }
+        }
+    }
+    
+    private void setSlot(final ItemStack[] contents, final int slot, final ItemStack item) {
+        if (slot >= 0 && slot < contents.length) {
+            contents[slot] = item;
+        }
     }
     
     /**
@@ -238,8 +763,49 @@ public class GuiManager {
      */
     public boolean handleClick(final Player player, final Inventory inventory, final int slot) {
         final String openCategory = this.openCategories.get(player.getUniqueId());
+        final List<CollectionItem> openSearch = this.openSearches.get(player.getUniqueId());
+        final AnalyticsWindow openWindow = this.openAnalytics.get(player.getUniqueId());
+        final String openGroup = this.openGroups.get(player.getUniqueId());
         
-        if (openCategory == null) {
+        if (openWindow != null) {
+            // Analytics
+            final ConfigurationSection guiConfig = this.plugin.getConfigManager()
+                    .getGuiConfig().getConfigurationSection("analytics-menu");
+            
+            if (guiConfig == null) {
+                return false;
+            }
+            
+            if (slot == guiConfig.getInt("window.slot", 4)) {
+                this.openAnalyticsMenu(player, openWindow.next());
+                return true;
+            }
+            
+            if (slot == guiConfig.getInt("close.slot", 49)) {
+                player.closeInventory();
+                return true;
+            }
+        } else if (openSearch != null) {
+            // Search results
+            final ConfigurationSection guiConfig = this.plugin.getConfigManager()
+                    .getGuiConfig().getConfigurationSection("search-menu");
+            
+            if (guiConfig == null) {
+                return false;
+            }
+            
+            if (slot == guiConfig.getInt("back.slot", 49)) {
+                this.openMainMenu(player);
+                return true;
+            }
+            
+            // Open the category of the clicked result
+            final int index = guiConfig.getIntegerList("item-slots").indexOf(slot);
+            if (index >= 0 && index < openSearch.size()) {
+                this.openCategoryMenu(player, openSearch.get(index).getCategoryId());
+                return true;
+            }
+        } else if (openCategory == null) {
             // Main menu
             final ConfigurationSection guiConfig = this.plugin.getConfigManager()
                     .getGuiConfig().getConfigurationSection("main-menu");
@@ -264,7 +830,7 @@ public class GuiManager {
                 
                 if (index < categories.size()) {
                     final String categoryId = categories.get(index);
-                    this.openCategoryMenu(player, categoryId);
+                    this.openCategoryMenu(player, categoryId, openGroup);
                     return true;
                 }
             }
@@ -280,7 +846,24 @@ public class GuiManager {
             // Check for back button
             final int backSlot = guiConfig.getInt("back.slot", 49);
             if (slot == backSlot) {
-                this.openMainMenu(player);
+                if (openGroup != null) {
+                    this.openGroupMenu(player, openGroup);
+                } else {
+                    this.openMainMenu(player);
+                }
+                return true;
+            }
+            
+            // Switch to the next sort or filter and show the category again
+            if (guiConfig.isSet("sort.material") && slot == guiConfig.getInt("sort.slot", 47)) {
+                this.itemSorts.merge(player.getUniqueId(), ItemSort.CATALOG.next(), (old, next) -> old.next());
+                this.openCategoryMenu(player, openCategory, openGroup);
+                return true;
+            }
+            
+            if (guiConfig.isSet("filter.material") && slot == guiConfig.getInt("filter.slot", 51)) {
+                this.itemFilters.merge(player.getUniqueId(), ItemFilter.ALL.next(), (old, next) -> old.next());
+                this.openCategoryMenu(player, openCategory, openGroup);
                 return true;
             }
         }
@@ -288,6 +871,76 @@ public class GuiManager {
         return false;
     }
     
+    /**
+     * Get the formatter for first-collected dates shown in item lore
+     * 
+     * @param collectedConfig The "collected" section of the category menu config
+     * @return The date formatter
+     */
+    private DateTimeFormatter getDateFormat(final ConfigurationSection collectedConfig) {
+        final String pattern = collectedConfig == null ? "yyyy-MM-dd" 
+                : collectedConfig.getString("date-format", "yyyy-MM-dd");
+        
+        try {
+            return DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault());
+        } catch (IllegalArgumentException e) {
+            this.plugin.getLogger().warning("Invalid date format in GUI configuration: " + pattern);
+            return DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneId.systemDefault());
+        }
+    }
+    
+    /**
+     * Fill in %date% and %source% in a collected item's lore
+     * 
+     * @param itemStack The rendered item
+     * @param collection The viewing player's collection
+     * @param item The collection item
+     * @param dateFormat The formatter for the date
+     */
+    private void applyAcquisitionPlaceholders(final ItemStack itemStack, final PlayerCollection collection, 
+            final CollectionItem item, final DateTimeFormatter dateFormat) {
+        final ItemMeta meta = itemStack.getItemMeta();
+        if (meta == null || meta.getLore() == null) {
+            return;
+        }
+        
+        final long collectedAt = collection.getFirstCollectedAt(item.getCategoryId(), item.getId());
+        final String date = collectedAt > 0 ? dateFormat.format(Instant.ofEpochMilli(collectedAt)) : "unknown";
+        final String source = collection.getAcquisitionSource(item.getCategoryId(), item.getId()).getDisplayName();
+        
+        meta.setLore(meta.getLore().stream()
+                .map(line -> line.replace("%date%", date).replace("%source%", source))
+                .collect(Collectors.toList()));
+        itemStack.setItemMeta(meta);
+    }
+    
+    /**
+     * Commit a Flight Recorder render event for an opened menu
+     * 
+     * @param event The event started when rendering began
+     * @param menuType The type of menu that was rendered
+     * @param categoryId The category shown, or null for the main menu
+     * @param contents The rendered contents
+     */
+    private void commitRenderEvent(final GuiRenderEvent event, final String menuType, 
+            final String categoryId, final ItemStack[] contents) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        
+        int slotCount = 0;
+        for (ItemStack content : contents) {
+            if (content != null) {
+                slotCount++;
+            }
+        }
+        
+        event.menuType = menuType;
+        event.categoryId = categoryId;
+        event.slotCount = slotCount;
+        event.commit();
+    }
+    
     /**
      * Create an ItemStack for the GUI
      * 
@@ -329,4 +982,33 @@ public class GuiManager {
         
         return item;
     }
+    
+    /**
+     * Menu contents prepared off the main thread, ready to be put into an inventory
+     */
+    private static final class RenderedMenu {
+        private final String title;
+        private final ItemStack[] contents;
+        private final String categoryId;
+        private final List<CollectionItem> searchResults;
+        private final AnalyticsWindow analyticsWindow;
+        private final String groupId;
+        private final String error;
+        
+        private RenderedMenu(final String title, final ItemStack[] contents, final String categoryId, 
+                final List<CollectionItem> searchResults, final AnalyticsWindow analyticsWindow, final String groupId,
+                final String error) {
+            this.title = title;
+            this.contents = contents;
+            this.categoryId = categoryId;
+            this.searchResults = searchResults;
+            this.analyticsWindow = analyticsWindow;
+            this.groupId = groupId;
+            this.error = error;
+        }
+        
+        private static RenderedMenu error(final String message) {
+            return new RenderedMenu(null, null, null, null, null, null, message);
+        }
+    }
 }
@@ -0,0 +1,137 @@
+package com.collectionlog.manager;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.model.CollectionItem;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Announces newly collected items. Items a player collects within a short window are
+ * gathered and announced together with one title or action bar message, one sound and
+ * one particle burst, instead of one of each per item.
+ * <p>
+ * A player's items are only added and flushed on the thread owning the player, so
+ * each player's pending list is never shared between threads.
+ */
+public class NotificationAggregator {
+
+    /** How many item names a chat summary lists before shortening */
+    private static final int MAX_LISTED_NAMES = 5;
+    
+    private final CollectionLog plugin;
+    private final Map<UUID, List<String>> pending;
+    
+    public NotificationAggregator(final CollectionLog plugin) {
+        this.plugin = plugin;
+        this.pending = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Queue a newly collected item for the player's next notification
+     * 
+     * @param player The player
+     * @param item The collected item
+     */
+    public void add(final Player player, final CollectionItem item) {
+        final ConfigurationSection config = this.plugin.getConfigManager().getMainConfig();
+        if (!config.getBoolean("settings.collection-notifications", true)) {
+            return;
+        }
+        
+        final List<String> names = this.pending.get(player.getUniqueId());
+        if (names != null) {
+            names.add(item.getName().replace('&', '§'));
+            return;
+        }
+        
+        final List<String> newNames = new ArrayList<>();
+        newNames.add(item.getName().replace('&', '§'));
+        this.pending.put(player.getUniqueId(), newNames);
+        
+        final long window = Math.max(1, config.getLong("settings.notification-window-ticks", 10L));
+        this.plugin.getTaskScheduler().runForEntityLater(player, () -> this.flush(player),
+                () -> this.pending.remove(player.getUniqueId(), newNames), window);
+    }
+    
+    /**
+     * Drop anything still waiting to be announced to a player, e.g. when they leave
+     * 
+     * @param playerId The UUID of the player
+     */
+    public void forgetPlayer(final UUID playerId) {
+        this.pending.remove(playerId);
+    }
+    
+    /**
+     * Send one notification for everything the player collected during the window
+     * 
+     * @param player The player
+     */
+    private void flush(final Player player) {
+        final List<String> names = this.pending.remove(player.getUniqueId());
+        if (names == null || names.isEmpty() || !player.isOnline()) {
+            return;
+        }
+        
+        final ConfigurationSection config = this.plugin.getConfigManager().getMainConfig();
+        final String heading = names.size() == 1 ? "§aItem Collected!" : "§a" + names.size() + " Items Collected!";
+        final String summary = names.size() == 1 ? names.get(0)
+                : names.get(0) + " §7and " + (names.size() - 1) + " more";
+        
+        // Send title notification
+        if (config.getBoolean("settings.use-actionbar", false)) {
+            player.sendActionBar(LegacyComponentSerializer.legacySection().deserialize(heading + " §f" + summary));
+        } else if (config.getBoolean("settings.use-titles", true)) {
+            player.sendTitle(heading, summary, 10, 40, 10);
+        } else {
+            player.sendMessage("§a[Collection Log] §fYou've collected: " + this.listNames(names));
+        }
+        
+        // Play sound
+        if (config.getBoolean("settings.play-sound", true)) {
+            final String soundName = config.getString("settings.collection-sound", "ENTITY_PLAYER_LEVELUP");
+            
+            try {
+                final Sound sound = Sound.valueOf(soundName);
+                player.playSound(player.getLocation(), sound, 1.0f, 1.0f);
+            } catch (IllegalArgumentException e) {
+                this.plugin.getLogger().warning("Invalid sound name in config: " + soundName);
+            }
+        }
+        
+        // Show particles
+        if (config.getBoolean("settings.show-particles", true)) {
+            final String particleName = config.getString("settings.particle-type", "HAPPY_VILLAGER");
+            
+            try {
+                final Particle particle = Particle.valueOf(particleName);
+                final Location loc = player.getLocation().add(0, 1, 0);
+                
+                if (config.getBoolean("settings.particles-player-only", true)) {
+                    player.spawnParticle(particle, loc, 20, 0.5, 0.5, 0.5, 0.1);
+                } else {
+                    player.getWorld().spawnParticle(particle, loc, 20, 0.5, 0.5, 0.5, 0.1);
+                }
+            } catch (IllegalArgumentException e) {
+                this.plugin.getLogger().warning("Invalid particle name in config: " + particleName);
+            }
+        }
+    }
+    
+    private String listNames(final List<String> names) {
+        final List<String> listed = names.subList(0, Math.min(MAX_LISTED_NAMES, names.size()));
+        final String joined = String.join("§f, ", listed);
+        
+        return names.size() > listed.size() ? joined + " §fand " + (names.size() - listed.size()) + " more" : joined;
+    }
+}
@@ -0,0 +1,207 @@
+package com.collectionlog.manager;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.scheduler.TaskHandle;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Spreads player saves evenly across the save interval instead of writing
+ * every loaded player in one burst.
+ * <p>
+ * Each tracked player gets a fixed phase within the interval derived from their UUID,
+ * so deadlines are uniformly distributed. Due players are written under a files/sec and
+ * bytes/sec budget; when the backlog grows the budget scales up (bounded by a multiplier)
+ * so that no player's unsaved changes are older than the interval.
+ */
+public class SaveScheduler {
+
+    /** How often the scheduler wakes up, in ticks */
+    private static final long PERIOD_TICKS = 5L;
+    
+    private final CollectionLog plugin;
+    private final long intervalMillis;
+    private final double filesPerSecond;
+    private final double bytesPerSecond;
+    private final double maxCatchUpMultiplier;
+    private final double catchUpSeconds;
+    
+    private final Map<UUID, Entry> entries;
+    private final PriorityQueue<Entry> schedule;
+    private final Deque<Entry> backlog;
+    
+    private double fileTokens;
+    private double byteTokens;
+    private long lastRefill;
+    private TaskHandle task;
+    
+    public SaveScheduler(final CollectionLog plugin) {
+        this.plugin = plugin;
+        
+        final ConfigurationSection config = plugin.getConfigManager().getMainConfig();
+        this.intervalMillis = config.getInt("settings.save-interval", 10) * 60_000L;
+        this.filesPerSecond = Math.max(0.1, config.getDouble("settings.save-scheduler.files-per-second", 20.0));
+        this.bytesPerSecond = config.getDouble("settings.save-scheduler.bytes-per-second", 0.0);
+        this.maxCatchUpMultiplier = Math.max(1.0, config.getDouble("settings.save-scheduler.max-catch-up-multiplier", 4.0));
+        this.catchUpSeconds = Math.max(1.0, config.getDouble("settings.save-scheduler.catch-up-seconds", 30.0));
+        
+        this.entries = new HashMap<>();
+        this.schedule = new PriorityQueue<>(Comparator.comparingLong(entry -> entry.deadline));
+        this.backlog = new ArrayDeque<>();
+    }
+    
+    /**
+     * Start the scheduler if a save interval is configured
+     */
+    public void start() {
+        if (this.intervalMillis <= 0 || this.task != null) {
+            return;
+        }
+        
+        this.lastRefill = System.currentTimeMillis();
+        this.task = this.plugin.getTaskScheduler().runAsyncTimer(this::tick, PERIOD_TICKS, PERIOD_TICKS);
+    }
+    
+    /**
+     * Stop the scheduler. Pending saves are left to the caller (e.g. a final saveAllData).
+     */
+    public void stop() {
+        if (this.task != null) {
+            this.task.cancel();
+            this.task = null;
+        }
+    }
+    
+    /**
+     * Start tracking a player, assigning them a save deadline at their phase within the interval
+     * 
+     * @param playerId The UUID of the player
+     */
+    public synchronized void track(final UUID playerId) {
+        if (this.intervalMillis <= 0 || this.entries.containsKey(playerId)) {
+            return;
+        }
+        
+        final long mixed = playerId.getMostSignificantBits() ^ playerId.getLeastSignificantBits();
+        final long phase = Math.floorMod(mixed, this.intervalMillis);
+        
+        final Entry entry = new Entry(playerId, System.currentTimeMillis() + phase);
+        this.entries.put(playerId, entry);
+        this.schedule.add(entry);
+    }
+    
+    /**
+     * Stop tracking a player, e.g. after their quit save
+     * 
+     * @param playerId The UUID of the player
+     */
+    public synchronized void untrack(final UUID playerId) {
+        final Entry entry = this.entries.remove(playerId);
+        if (entry != null) {
+            this.schedule.remove(entry);
+            this.backlog.remove(entry);
+        }
+    }
+    
+    /**
+     * Mark a player's collection as changed so their next deadline writes it
+     * 
+     * @param playerId The UUID of the player
+     */
+    public synchronized void markDirty(final UUID playerId) {
+        final Entry entry = this.entries.get(playerId);
+        if (entry != null) {
+            entry.dirty = true;
+        }
+    }
+    
+    /**
+     * Get the number of players whose deadline has passed but who have not been saved yet
+     * 
+     * @return The current backlog size
+     */
+    public synchronized int getBacklogSize() {
+        return this.backlog.size();
+    }
+    
+    private void tick() {
+        final long now = System.currentTimeMillis();
+        
+        synchronized (this) {
+            while (!this.schedule.isEmpty() && this.schedule.peek().deadline <= now) {
+                this.backlog.addLast(this.schedule.poll());
+            }
+            
+            // Scale the budget so the backlog drains within the catch-up window
+            final double required = this.backlog.size() / this.catchUpSeconds;
+            final double multiplier = Math.min(this.maxCatchUpMultiplier,
+                    Math.max(1.0, required / this.filesPerSecond));
+            final double elapsed = (now - this.lastRefill) / 1000.0;
+            this.lastRefill = now;
+            
+            final double fileRate = this.filesPerSecond * multiplier;
+            this.fileTokens = Math.min(fileRate, this.fileTokens + fileRate * elapsed);
+            
+            if (this.bytesPerSecond > 0) {
+                final double byteRate = this.bytesPerSecond * multiplier;
+                this.byteTokens = Math.min(byteRate, this.byteTokens + byteRate * elapsed);
+            }
+        }
+        
+        while (true) {
+            final Entry entry;
+            synchronized (this) {
+                if (this.backlog.isEmpty() || this.fileTokens < 1.0
+                        || (this.bytesPerSecond > 0 && this.byteTokens <= 0)) {
+                    return;
+                }
+                
+                entry = this.backlog.pollFirst();
+                
+                // Clean players cost nothing, they just move on to their next deadline
+                if (!entry.dirty) {
+                    this.reschedule(entry, now);
+                    continue;
+                }
+                
+                entry.dirty = false;
+                this.fileTokens -= 1.0;
+            }
+            
+            final long bytes = this.plugin.getCollectionManager().savePlayerData(entry.playerId);
+            
+            synchronized (this) {
+                if (bytes > 0) {
+                    this.byteTokens -= bytes;
+                }
+                
+                if (this.entries.get(entry.playerId) == entry) {
+                    this.reschedule(entry, now);
+                }
+            }
+        }
+    }
+    
+    private void reschedule(final Entry entry, final long now) {
+        entry.deadline = Math.max(now, entry.deadline + this.intervalMillis);
+        this.schedule.add(entry);
+    }
+    
+    private static final class Entry {
+        private final UUID playerId;
+        private long deadline;
+        private boolean dirty;
+        
+        private Entry(final UUID playerId, final long deadline) {
+            this.playerId = playerId;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.collectionlog.model;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * When and how each item of one category was first collected, kept in acquisition order.
+ * <p>
+ * The position of an item in this history is its ordinal within the player's category.
+ * Timestamps and sources live in parallel primitive arrays instead of per-item objects,
+ * and are persisted as one blob (base64 in YAML) of zig-zag varint timestamp deltas followed
+ * by a source byte per item, so each item costs only a few bytes in memory and on disk.
+ * Ordinals are looked up through a small open-addressing table kept next to the arrays.
+ */
+public final class AcquisitionHistory {
+
+    /** Timestamps are stored in seconds since 2020-01-01T00:00:00Z; 0 means unknown */
+    private static final long BASE_EPOCH_SECONDS = 1_577_836_800L;
+    
+    private String[] itemIds;
+    private int[] times;
+    private byte[] sources;
+    private int size;
+    
+    /** Ordinal plus one per slot, 0 for empty; at most half full */
+    private int[] slots;
+    
+    public AcquisitionHistory() {
+        this(4);
+    }
+    
+    private AcquisitionHistory(final int capacity) {
+        this.itemIds = new String[capacity];
+        this.times = new int[capacity];
+        this.sources = new byte[capacity];
+        this.slots = new int[Math.max(8, Integer.highestOneBit(capacity) << 2)];
+    }
+    
+    /**
+     * Record an item at the end of the history
+     * 
+     * @param itemId The item ID
+     * @param timestampMillis The acquisition time in epoch milliseconds, or 0 if unknown
+     * @param source How the item was acquired
+     */
+    public void add(final String itemId, final long timestampMillis, final AcquisitionSource source) {
+        if (this.size == this.itemIds.length) {
+            final int capacity = this.size + (this.size >> 1) + 1;
+            this.itemIds = Arrays.copyOf(this.itemIds, capacity);
+            this.times = Arrays.copyOf(this.times, capacity);
+            this.sources = Arrays.copyOf(this.sources, capacity);
+        }
+        
+        this.itemIds[this.size] = itemId;
+        this.times[this.size] = toStoredTime(timestampMillis);
+        this.sources[this.size] = (byte) source.ordinal();
+        this.size++;
+        
+        if (this.size << 1 > this.slots.length) {
+            this.slots = new int[this.slots.length << 1];
+            for (int i = 0; i < this.size; i++) {
+                this.insertSlot(i);
+            }
+        } else {
+            this.insertSlot(this.size - 1);
+        }
+    }
+    
+    /**
+     * Add an ordinal to the lookup table, keeping the first ordinal of a repeated item ID
+     * 
+     * @param index The item's ordinal
+     */
+    private void insertSlot(final int index) {
+        final int mask = this.slots.length - 1;
+        for (int slot = spread(this.itemIds[index].hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            final int entry = this.slots[slot];
+            if (entry == 0) {
+                this.slots[slot] = index + 1;
+                return;
+            }
+            if (this.itemIds[entry - 1].equals(this.itemIds[index])) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Replace the acquisition details of an item if the given ones are earlier or the current ones unknown
+     * 
+     * @param index The item's ordinal
+     * @param timestampMillis The acquisition time in epoch milliseconds, or 0 if unknown
+     * @param source How the item was acquired
+     * @return True if the record changed
+     */
+    public boolean updateIfEarlier(final int index, final long timestampMillis, final AcquisitionSource source) {
+        final int stored = toStoredTime(timestampMillis);
+        if (stored == 0 || (this.times[index] != 0 && this.times[index] <= stored)) {
+            return false;
+        }
+        
+        this.times[index] = stored;
+        this.sources[index] = (byte) source.ordinal();
+        return true;
+    }
+    
+    /**
+     * Get the ordinal of an item
+     * 
+     * @param itemId The item ID
+     * @return The ordinal, or -1 if the item is not in this history
+     */
+    public int indexOf(final String itemId) {
+        final int mask = this.slots.length - 1;
+        for (int slot = spread(itemId.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            final int entry = this.slots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (this.itemIds[entry - 1].equals(itemId)) {
+                return entry - 1;
+            }
+        }
+    }
+    
+    public int size() {
+        return this.size;
+    }
+    
+    public String getItemId(final int index) {
+        return this.itemIds[index];
+    }
+    
+    /**
+     * Get the acquisition time of an item
+     * 
+     * @param index The item's ordinal
+     * @return The time in epoch milliseconds, or 0 if unknown
+     */
+    public long getTimestamp(final int index) {
+        final int stored = this.times[index];
+        return stored == 0 ? 0L : (BASE_EPOCH_SECONDS + Integer.toUnsignedLong(stored)) * 1000L;
+    }
+    
+    public AcquisitionSource getSource(final int index) {
+        return AcquisitionSource.fromId(this.sources[index]);
+    }
+    
+    /**
+     * Get the item IDs in acquisition order
+     * 
+     * @return The item IDs
+     */
+    public List<String> getItemIds() {
+        return Arrays.asList(Arrays.copyOf(this.itemIds, this.size));
+    }
+    
+    /**
+     * Encode the timestamps and sources, in ordinal order
+     * 
+     * @return The base64 encoded history
+     */
+    public String encode() {
+        return Base64.getEncoder().withoutPadding().encodeToString(this.toBytes());
+    }
+    
+    /**
+     * Pack the timestamps and sources, in ordinal order
+     * 
+     * @return The packed history
+     */
+    public byte[] toBytes() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(this.size * 3);
+        int previous = 0;
+        for (int i = 0; i < this.size; i++) {
+            writeVarInt(out, zigZag(this.times[i] - previous));
+            previous = this.times[i];
+        }
+        out.write(this.sources, 0, this.size);
+        
+        return out.toByteArray();
+    }
+    
+    /**
+     * Rebuild a history for items listed in ordinal order. Items without encoded
+     * details, e.g. from files written before history was recorded, are kept with
+     * an unknown time and source.
+     * 
+     * @param itemIds The item IDs in ordinal order
+     * @param encoded The encoded history, may be null
+     * @return The decoded history
+     */
+    public static AcquisitionHistory decode(final List<String> itemIds, final String encoded) {
+        byte[] bytes = null;
+        if (encoded != null && !encoded.isEmpty()) {
+            try {
+                bytes = Base64.getDecoder().decode(encoded);
+            } catch (IllegalArgumentException e) {
+                // Corrupt history; keep the items, drop the details
+            }
+        }
+        
+        return decode(itemIds, bytes);
+    }
+    
+    /**
+     * Rebuild a history for items listed in ordinal order from {@link #toBytes}
+     * 
+     * @param itemIds The item IDs in ordinal order
+     * @param bytes The packed history, may be null
+     * @return The decoded history
+     */
+    public static AcquisitionHistory decode(final List<String> itemIds, final byte[] bytes) {
+        final int count = itemIds.size();
+        final AcquisitionHistory history = new AcquisitionHistory(Math.max(4, count));
+        final int[] times = new int[count];
+        final byte[] sources = new byte[count];
+        
+        if (bytes != null && bytes.length > 0) {
+            try {
+                final int[] position = {0};
+                int previous = 0;
+                
+                for (int i = 0; i < count; i++) {
+                    previous += unZigZag(readVarInt(bytes, position));
+                    times[i] = previous;
+                }
+                for (int i = 0; i < count; i++) {
+                    sources[i] = bytes[position[0]++];
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                // Corrupt or mismatched history; keep the items, drop the details
+                Arrays.fill(times, 0);
+                Arrays.fill(sources, (byte) 0);
+            }
+        }
+        
+        for (int i = 0; i < count; i++) {
+            history.add(itemIds.get(i), 0L, AcquisitionSource.UNKNOWN);
+            history.times[i] = times[i];
+            history.sources[i] = sources[i];
+        }
+        
+        return history;
+    }
+    
+    private static int toStoredTime(final long timestampMillis) {
+        if (timestampMillis <= 0) {
+            return 0;
+        }
+        
+        return (int) Math.max(1L, timestampMillis / 1000L - BASE_EPOCH_SECONDS);
+    }
+    
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+    
+    private static int zigZag(final int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+    
+    private static int unZigZag(final int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private static void writeVarInt(final ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+    
+    private static int readVarInt(final byte[] bytes, final int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = bytes[position[0]++];
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0 && shift < 35);
+        
+        return value;
+    }
+}
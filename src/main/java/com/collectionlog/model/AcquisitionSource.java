@@ -0,0 +1,39 @@
+package com.collectionlog.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * How a player first acquired a collected item. Stored as a single byte per item,
+ * so new sources must only ever be appended.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum AcquisitionSource {
+
+    UNKNOWN("Unknown"),
+    PICKUP("Pickup"),
+    CRAFT("Crafting"),
+    FISHING("Fishing"),
+    ADMIN("Admin"),
+    TRADE("Trading"),
+    CONTAINER("Container"),
+    LOOT("Loot"),
+    COMMAND("Command"),
+    BREWING("Brewing"),
+    INVENTORY("Inventory");
+    
+    private static final AcquisitionSource[] VALUES = values();
+    
+    private final String displayName;
+    
+    /**
+     * Get a source by its stored id
+     * 
+     * @param id The stored id
+     * @return The source, or UNKNOWN if the id is not recognised
+     */
+    public static AcquisitionSource fromId(final int id) {
+        return id >= 0 && id < VALUES.length ? VALUES[id] : UNKNOWN;
+    }
+}
@@ -0,0 +1,177 @@
+package com.collectionlog.model;
+
+import lombok.Getter;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable view of every category and item in the collection log.
+ * A new catalog is built on each reload and published as a whole, so readers
+ * never observe a partially loaded catalog.
+ */
+public final class Catalog {
+
+    private static final Catalog EMPTY = new Catalog(new LinkedHashMap<>());
+    
+    @Getter
+    private final Map<String, ItemCategory> categories;
+    
+    @Getter
+    private final int itemCount;
+    
+    private final Map<Material, List<CollectionItem>> materialIndex;
+    
+    @Getter
+    private final SearchIndex searchIndex;
+    
+    private final Map<String, CategoryLayout> layouts;
+    
+    /**
+     * Build a catalog from copies of the given categories, so the caller's objects are left untouched
+     * 
+     * @param categories The categories by ID, in display order
+     */
+    private Catalog(final Map<String, ItemCategory> categories) {
+        final Map<String, ItemCategory> copies = new LinkedHashMap<>();
+        final Map<Material, List<CollectionItem>> index = new EnumMap<>(Material.class);
+        final Map<String, CategoryLayout> layoutMap = new HashMap<>();
+        int count = 0;
+        
+        for (Map.Entry<String, ItemCategory> entry : categories.entrySet()) {
+            final ItemCategory source = entry.getValue();
+            final ItemCategory category = ItemCategory.builder()
+                    .id(source.getId())
+                    .displayItem(source.getDisplayItem())
+                    .displayName(source.getDisplayName())
+                    .items(Collections.unmodifiableMap(new LinkedHashMap<>(source.getItems())))
+                    .build();
+            copies.put(entry.getKey(), category);
+            layoutMap.put(category.getId(), new CategoryLayout(category));
+            
+            for (CollectionItem item : category.getItems().values()) {
+                index.computeIfAbsent(item.getMaterial(), k -> new ArrayList<>()).add(item);
+                count++;
+            }
+        }
+        
+        // Items pinned to custom model data are more specific than plain material entries
+        index.replaceAll((material, items) -> {
+            items.sort(Comparator.comparing(item -> item.getCustomModelData() == null));
+            return List.copyOf(items);
+        });
+        
+        this.categories = Collections.unmodifiableMap(copies);
+        this.materialIndex = index;
+        this.itemCount = count;
+        this.layouts = layoutMap;
+        this.searchIndex = SearchIndex.build(this.categories.values());
+    }
+    
+    /**
+     * Get a catalog with no categories
+     * 
+     * @return The empty catalog
+     */
+    public static Catalog empty() {
+        return EMPTY;
+    }
+    
+    /**
+     * Build a catalog from the categories section of items.yml
+     * 
+     * @param categoriesSection The "categories" configuration section, may be null
+     * @return A new immutable catalog
+     */
+    public static Catalog fromConfig(final ConfigurationSection categoriesSection) {
+        final Map<String, ItemCategory> categories = new LinkedHashMap<>();
+        
+        if (categoriesSection != null) {
+            for (String categoryId : categoriesSection.getKeys(false)) {
+                final ConfigurationSection categorySection = categoriesSection.getConfigurationSection(categoryId);
+                if (categorySection != null) {
+                    final ItemCategory category = ItemCategory.fromConfig(categoryId, categorySection);
+                    if (category != null) {
+                        categories.put(categoryId, category);
+                    }
+                }
+            }
+        }
+        
+        return new Catalog(categories);
+    }
+    
+    /**
+     * Build a catalog from already parsed categories
+     * 
+     * @param categories The categories by ID, in display order
+     * @return A new immutable catalog
+     */
+    public static Catalog of(final Map<String, ItemCategory> categories) {
+        return new Catalog(categories);
+    }
+    
+    /**
+     * Get a category by ID
+     * 
+     * @param categoryId The category ID
+     * @return The category, or null if it does not exist
+     */
+    public ItemCategory getCategory(final String categoryId) {
+        return this.categories.get(categoryId);
+    }
+    
+    /**
+     * Get the precomputed item orders of a category
+     * 
+     * @param categoryId The category ID
+     * @return The layout, or null if the category does not exist
+     */
+    public CategoryLayout getLayout(final String categoryId) {
+        return this.layouts.get(categoryId);
+    }
+    
+    /**
+     * Find the collection item matching an ItemStack
+     * 
+     * @param itemStack The ItemStack to match
+     * @return The matching collection item, or null if none matches
+     */
+    public CollectionItem findMatch(final ItemStack itemStack) {
+        if (itemStack == null) {
+            return null;
+        }
+        
+        final List<CollectionItem> candidates = this.materialIndex.get(itemStack.getType());
+        if (candidates == null) {
+            return null;
+        }
+        
+        for (CollectionItem item : candidates) {
+            if (item.matches(itemStack)) {
+                return item;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get every catalog item with the given material
+     * 
+     * @param material The material
+     * @return The items using that material, empty if none
+     */
+    public List<CollectionItem> getItemsByMaterial(final Material material) {
+        return this.materialIndex.getOrDefault(material, List.of());
+    }
+}
@@ -0,0 +1,124 @@
+package com.collectionlog.model;
+
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * The item orders of one category, built once per catalog load. Each item has a fixed
+ * position in catalog order; the orders that only depend on the catalog are kept as
+ * arrays of positions, and what a player collected is a bit set over the same positions,
+ * so sorting and filtering a menu never compares items again.
+ */
+public final class CategoryLayout {
+
+    private static final Pattern COLOR_CODE = Pattern.compile("[&§][0-9a-fk-orx]", Pattern.CASE_INSENSITIVE);
+    
+    private final String categoryId;
+    private final CollectionItem[] items;
+    private final Map<String, Integer> positions;
+    private final int[] catalogOrder;
+    private final int[] nameOrder;
+    private final int[] rarityOrder;
+    
+    CategoryLayout(final ItemCategory category) {
+        this.categoryId = category.getId();
+        this.items = category.getItems().values().toArray(new CollectionItem[0]);
+        this.positions = new HashMap<>(this.items.length * 2);
+        
+        final String[] sortNames = new String[this.items.length];
+        for (int i = 0; i < this.items.length; i++) {
+            this.positions.put(this.items[i].getId(), i);
+            sortNames[i] = COLOR_CODE.matcher(this.items[i].getName()).replaceAll("").toLowerCase(Locale.ROOT);
+        }
+        
+        final Comparator<Integer> byName = Comparator.comparing(position -> sortNames[position]);
+        final Comparator<Integer> byRarity = Comparator.<Integer, Rarity>comparing(
+                position -> this.items[position].getRarity(), Comparator.reverseOrder());
+        
+        this.catalogOrder = IntStream.range(0, this.items.length).toArray();
+        this.nameOrder = sorted(this.items.length, byName);
+        this.rarityOrder = sorted(this.items.length, byRarity.thenComparing(byName));
+    }
+    
+    private static int[] sorted(final int size, final Comparator<Integer> comparator) {
+        return IntStream.range(0, size).boxed()
+                .sorted(comparator)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+    
+    /**
+     * Get the number of items in the category
+     * 
+     * @return The item count
+     */
+    public int size() {
+        return this.items.length;
+    }
+    
+    /**
+     * Get the item at a position
+     * 
+     * @param position The position in catalog order
+     * @return The item
+     */
+    public CollectionItem getItem(final int position) {
+        return this.items[position];
+    }
+    
+    /**
+     * Get the positions of the items a player collected in this category
+     * 
+     * @param collection The player's collection; must not change while this runs
+     * @return The collected positions
+     */
+    public BitSet collectedBy(final PlayerCollection collection) {
+        final BitSet collected = new BitSet(this.items.length);
+        final Set<String> itemIds = collection.getCollectedItems().get(this.categoryId);
+        if (itemIds != null) {
+            for (String itemId : itemIds) {
+                final Integer position = this.positions.get(itemId);
+                if (position != null) {
+                    collected.set(position);
+                }
+            }
+        }
+        return collected;
+    }
+    
+    /**
+     * Get the item positions in the order of a sort. The returned array must not be modified.
+     * 
+     * @param sort The sort
+     * @param collected The positions the player collected, used by {@link ItemSort#COLLECTED_FIRST}
+     * @return The positions in display order
+     */
+    public int[] order(final ItemSort sort, final BitSet collected) {
+        switch (sort) {
+            case NAME:
+                return this.nameOrder;
+            case RARITY:
+                return this.rarityOrder;
+            case COLLECTED_FIRST:
+                // A stable partition of catalog order, no comparisons needed
+                final int size = this.items.length;
+                final int[] order = new int[size];
+                int index = 0;
+                for (int i = collected.nextSetBit(0); i >= 0 && i < size; i = collected.nextSetBit(i + 1)) {
+                    order[index++] = i;
+                }
+                for (int i = collected.nextClearBit(0); i < size; i = collected.nextClearBit(i + 1)) {
+                    order[index++] = i;
+                }
+                return order;
+            default:
+                return this.catalogOrder;
+        }
+    }
+}
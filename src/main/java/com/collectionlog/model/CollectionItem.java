@@ -12,6 +12,7 @@ import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -27,6 +28,8 @@ public class CollectionItem {
     private String name;
     private Integer customModelData;
     private List<String> lore;
+    private List<String> tags;
+    private Rarity rarity;
     
     /**
      * Create a collection item from a configuration section
@@ -49,15 +52,69 @@ public class CollectionItem {
         }
         
         return CollectionItem.builder()
-                .id(id)
-                .categoryId(categoryId)
+                .id(id.intern())
+                .categoryId(categoryId.intern())
                 .material(material)
                 .name(section.getString("name", material.name()))
                 .customModelData(section.isSet("model-data") ? section.getInt("model-data") : null)
                 .lore(section.getStringList("lore"))
+                .tags(section.getStringList("tags").stream()
+                        .map(String::toLowerCase)
+                        .collect(Collectors.toList()))
+                .rarity(Rarity.fromName(section.getString("rarity")))
                 .build();
     }
     
+    /**
+     * Create a collection item from a raw YAML mapping, as parsed by SnakeYAML
+     * 
+     * @param id The unique identifier for this item
+     * @param categoryId The category this item belongs to
+     * @param values The item's keys and values
+     * @return A new CollectionItem, or null if the material is unknown
+     */
+    public static CollectionItem fromMap(final String id, final String categoryId, final Map<?, ?> values) {
+        final Material material;
+        try {
+            material = Material.valueOf(Objects.toString(values.get("material"), "STONE").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        
+        final Object modelData = values.get("model-data");
+        
+        return CollectionItem.builder()
+                .id(id.intern())
+                .categoryId(categoryId.intern())
+                .material(material)
+                .name(Objects.toString(values.get("name"), material.name()))
+                .customModelData(modelData instanceof Number number ? number.intValue() : null)
+                .lore(toStringList(values.get("lore")))
+                .tags(toStringList(values.get("tags")).stream()
+                        .map(String::toLowerCase)
+                        .collect(Collectors.toList()))
+                .rarity(Rarity.fromName(Objects.toString(values.get("rarity"), null)))
+                .build();
+    }
+    
+    /**
+     * Convert a raw YAML value to a list of strings the way {@link ConfigurationSection#getStringList} does
+     * 
+     * @param value The raw value
+     * @return The list, empty if the value is not a list
+     */
+    static List<String> toStringList(final Object value) {
+        final List<String> list = new ArrayList<>();
+        if (value instanceof List<?> raw) {
+            for (Object element : raw) {
+                if (element != null) {
+                    list.add(String.valueOf(element));
+                }
+            }
+        }
+        return list;
+    }
+    
     /**
      * Convert this collection item to an ItemStack
      * 
@@ -11,9 +11,10 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Data
@@ -47,10 +48,10 @@ public class ItemCategory {
         }
         
         final ItemCategory category = ItemCategory.builder()
-                .id(id)
+                .id(id.intern())
                 .displayItem(displayItem)
                 .displayName(section.getString("display-name", id))
-                .items(new HashMap<>())
+                .items(new LinkedHashMap<>())
                 .build();
         
         // Load the items
@@ -70,6 +71,45 @@ public class ItemCategory {
         return category;
     }
     
+    /**
+     * Create an item category from a raw YAML mapping, as parsed by SnakeYAML. This skips
+     * the ConfigurationSection tree entirely, which matters for large generated catalogs.
+     * 
+     * @param id The unique identifier for this category
+     * @param values The category's keys and values
+     * @return A new ItemCategory, or null if the display item is unknown
+     */
+    public static ItemCategory fromMap(final String id, final Map<?, ?> values) {
+        final Material displayItem;
+        try {
+            displayItem = Material.valueOf(Objects.toString(values.get("display-item"), "BOOK").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        
+        final ItemCategory category = ItemCategory.builder()
+                .id(id.intern())
+                .displayItem(displayItem)
+                .displayName(Objects.toString(values.get("display-name"), id))
+                .items(new LinkedHashMap<>())
+                .build();
+        
+        // Load the items
+        if (values.get("items") instanceof Map<?, ?> itemsMap) {
+            for (Map.Entry<?, ?> entry : itemsMap.entrySet()) {
+                if (entry.getValue() instanceof Map<?, ?> itemValues) {
+                    final String itemId = String.valueOf(entry.getKey());
+                    final CollectionItem item = CollectionItem.fromMap(itemId, id, itemValues);
+                    if (item != null) {
+                        category.getItems().put(itemId, item);
+                    }
+                }
+            }
+        }
+        
+        return category;
+    }
+    
     /**
      * Convert this category to an ItemStack for display in the GUI
      * 
@@ -0,0 +1,54 @@
+package com.collectionlog.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.BitSet;
+
+/**
+ * Which items of a category menu are shown, by whether the player collected them
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ItemFilter {
+
+    ALL("All items"),
+    MISSING("Missing only"),
+    COLLECTED("Collected only");
+    
+    private static final ItemFilter[] VALUES = values();
+    
+    private final String displayName;
+    
+    /**
+     * Get the next filter, wrapping around to the first
+     * 
+     * @return The next filter
+     */
+    public ItemFilter next() {
+        return VALUES[(this.ordinal() + 1) % VALUES.length];
+    }
+    
+    /**
+     * Select the positions of the shown items
+     * 
+     * @param collected The positions of the items the player collected
+     * @param size The number of items in the category
+     * @return The positions to show
+     */
+    public BitSet select(final BitSet collected, final int size) {
+        final BitSet shown;
+        switch (this) {
+            case MISSING:
+                shown = (BitSet) collected.clone();
+                shown.flip(0, size);
+                return shown;
+            case COLLECTED:
+                return collected;
+            default:
+                shown = new BitSet(size);
+                shown.set(0, size);
+                return shown;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.collectionlog.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The orders items of a category menu can be shown in
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ItemSort {
+
+    /** The order of the catalog files */
+    CATALOG("Default"),
+    /** By display name, ignoring colors and case */
+    NAME("Name"),
+    /** Rarest first, then by name */
+    RARITY("Rarity"),
+    /** The player's collected items first, each group in catalog order */
+    COLLECTED_FIRST("Collected first");
+    
+    private static final ItemSort[] VALUES = values();
+    
+    private final String displayName;
+    
+    /**
+     * Get the next sort, wrapping around to the first
+     * 
+     * @return The next sort
+     */
+    public ItemSort next() {
+        return VALUES[(this.ordinal() + 1) % VALUES.length];
+    }
+}
@@ -6,15 +6,18 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.YamlConfiguration;
 
-import java.io.File;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Data
 @Builder
@@ -22,65 +25,296 @@ import java.util.UUID;
 @AllArgsConstructor
 public class PlayerCollection {
 
+    /** The profile legacy single-collection files are read into */
+    public static final String DEFAULT_PROFILE = "default";
+    
     private UUID playerId;
+    
+    /**
+     * The profile this collection belongs to. A player has one collection per profile used.
+     */
+    private String profile;
+    
     private Map<String, Set<String>> collectedItems;
     
     /**
-     * Initialize a new empty player collection
+     * First-acquisition details per category, aligned with acquisition order
+     */
+    private Map<String, AcquisitionHistory> history;
+    
+    /**
+     * IDs of completion rewards already granted. Survives resets so rewards can't be farmed.
+     */
+    private Set<String> grantedRewards;
+    
+    /**
+     * Reset generation. A collection only grows within an epoch; a reset starts a new
+     * epoch, and copies from an older epoch are discarded when merged.
+     */
+    private volatile long epoch;
+    
+    /**
+     * Initialize a new empty player collection in the default profile
      * 
      * @param playerId The UUID of the player
      * @return A new PlayerCollection
      */
     public static PlayerCollection createEmpty(final UUID playerId) {
+        return createEmpty(playerId, DEFAULT_PROFILE);
+    }
+    
+    /**
+     * Initialize a new empty player collection
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile
+     * @return A new PlayerCollection
+     */
+    public static PlayerCollection createEmpty(final UUID playerId, final String profile) {
         return PlayerCollection.builder()
                 .playerId(playerId)
-                .collectedItems(new HashMap<>())
+                .profile(profile)
+                .collectedItems(new ConcurrentHashMap<>())
+                .history(new HashMap<>())
+                .grantedRewards(ConcurrentHashMap.newKeySet())
                 .build();
     }
     
     /**
-     * Load a player collection from a file
+     * Read a player collection from its section of a stored player record. IDs are interned
+     * so that every loaded collection shares the catalog's strings instead of holding its own.
      * 
      * @param playerId The UUID of the player
-     * @param file The file to load from
+     * @param profile The profile
+     * @param section The section holding the collection
      * @return The loaded PlayerCollection
      */
-    public static PlayerCollection fromFile(final UUID playerId, final File file) {
-        if (!file.exists()) {
-            return createEmpty(playerId);
-        }
-        
-        final YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
-        final PlayerCollection collection = createEmpty(playerId);
+    public static PlayerCollection read(final UUID playerId, final String profile, final ConfigurationSection section) {
+        final PlayerCollection collection = createEmpty(playerId, profile);
+        collection.epoch = section.getLong("epoch", 0L);
+        collection.grantedRewards.addAll(section.getStringList("rewards-granted"));
         
-        final ConfigurationSection categoriesSection = config.getConfigurationSection("collected-items");
+        final ConfigurationSection categoriesSection = section.getConfigurationSection("collected-items");
         if (categoriesSection != null) {
-            for (String categoryId : categoriesSection.getKeys(false)) {
-                final Set<String> itemIds = new HashSet<>(
-                        categoriesSection.getStringList(categoryId));
+            for (String key : categoriesSection.getKeys(false)) {
+                final String categoryId = key.intern();
+                final List<String> orderedIds = new ArrayList<>();
+                for (String itemId : categoriesSection.getStringList(key)) {
+                    orderedIds.add(itemId.intern());
+                }
+                
+                final Set<String> itemIds = ConcurrentHashMap.newKeySet();
+                itemIds.addAll(orderedIds);
                 
                 collection.collectedItems.put(categoryId, itemIds);
+                collection.history.put(categoryId, AcquisitionHistory.decode(
+                        orderedIds, section.getString("history." + key)));
+            }
+        }
+        
+        return collection;
+    }
+    
+    /**
+     * Write this player collection to its section of a player record
+     * 
+     * @param section The section to write to
+     */
+    public synchronized void write(final ConfigurationSection section) {
+        section.set("epoch", this.epoch);
+        
+        if (!this.grantedRewards.isEmpty()) {
+            section.set("rewards-granted", new ArrayList<>(this.grantedRewards));
+        }
+        
+        // Items are written in acquisition order; their position is the ordinal the history refers to
+        for (Map.Entry<String, AcquisitionHistory> entry : this.history.entrySet()) {
+            section.set("collected-items." + entry.getKey(), entry.getValue().getItemIds());
+            section.set("history." + entry.getKey(), entry.getValue().encode());
+        }
+    }
+    
+    /**
+     * Read a player collection written by {@link #write(DataOutputStream)}
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile
+     * @param in The stream to read from
+     * @return The loaded PlayerCollection
+     * @throws IOException If an I/O error occurs
+     */
+    public static PlayerCollection read(final UUID playerId, final String profile, final DataInputStream in) 
+            throws IOException {
+        final PlayerCollection collection = createEmpty(playerId, profile);
+        collection.epoch = in.readLong();
+        
+        final int rewards = in.readInt();
+        for (int i = 0; i < rewards; i++) {
+            collection.grantedRewards.add(in.readUTF());
+        }
+        
+        final int categories = in.readInt();
+        for (int i = 0; i < categories; i++) {
+            final String categoryId = in.readUTF().intern();
+            final int itemCount = in.readInt();
+            final List<String> orderedIds = new ArrayList<>(itemCount);
+            for (int j = 0; j < itemCount; j++) {
+                orderedIds.add(in.readUTF().intern());
             }
+            
+            final byte[] packedHistory = new byte[in.readInt()];
+            in.readFully(packedHistory);
+            
+            final Set<String> itemIds = ConcurrentHashMap.newKeySet();
+            itemIds.addAll(orderedIds);
+            collection.collectedItems.put(categoryId, itemIds);
+            collection.history.put(categoryId, AcquisitionHistory.decode(orderedIds, packedHistory));
         }
         
         return collection;
     }
     
     /**
-     * Save this player collection to a file
+     * Write this player collection in the packed binary form
      * 
-     * @param file The file to save to
+     * @param out The stream to write to
      * @throws IOException If an I/O error occurs
      */
-    public void saveToFile(final File file) throws IOException {
-        final YamlConfiguration config = new YamlConfiguration();
+    public synchronized void write(final DataOutputStream out) throws IOException {
+        out.writeLong(this.epoch);
         
-        for (Map.Entry<String, Set<String>> entry : this.collectedItems.entrySet()) {
-            config.set("collected-items." + entry.getKey(), 
-                    entry.getValue().stream().collect(java.util.stream.Collectors.toList()));
+        out.writeInt(this.grantedRewards.size());
+        for (String rewardId : new ArrayList<>(this.grantedRewards)) {
+            out.writeUTF(rewardId);
         }
         
-        config.save(file);
+        // Items are written in acquisition order, as in the YAML form
+        out.writeInt(this.history.size());
+        for (Map.Entry<String, AcquisitionHistory> entry : this.history.entrySet()) {
+            final List<String> itemIds = entry.getValue().getItemIds();
+            out.writeUTF(entry.getKey());
+            out.writeInt(itemIds.size());
+            for (String itemId : itemIds) {
+                out.writeUTF(itemId);
+            }
+            
+            final byte[] packedHistory = entry.getValue().toBytes();
+            out.writeInt(packedHistory.length);
+            out.write(packedHistory);
+        }
+    }
+    
+    /**
+     * Check whether this collection holds nothing worth storing
+     * 
+     * @return True if nothing was collected or granted and it was never reset
+     */
+    public boolean isEmpty() {
+        return this.epoch == 0L && this.collectedItems.isEmpty() && this.grantedRewards.isEmpty();
+    }
+    
+    /**
+     * Merge another copy of this player's collection into this one. Within the same epoch
+     * the result is the union of both; a copy from a newer epoch replaces this one, and a
+     * copy from an older epoch is ignored. Merging is commutative and idempotent, so copies
+     * written by independent writers converge without coordination.
+     * 
+     * @param other The other copy, e.g. the one currently in storage
+     * @return True if this collection changed
+     */
+    public synchronized boolean merge(final PlayerCollection other) {
+        // Granted rewards are independent of epochs and only ever grow
+        boolean changed = this.grantedRewards.addAll(other.grantedRewards);
+        
+        if (other.epoch < this.epoch) {
+            return changed;
+        }
+        
+        if (other.epoch > this.epoch) {
+            this.collectedItems.clear();
+            this.history.clear();
+            this.epoch = other.epoch;
+            changed = true;
+        }
+        
+        final Map<String, AcquisitionHistory> otherHistory;
+        synchronized (other) {
+            otherHistory = new HashMap<>(other.history);
+        }
+        
+        for (Map.Entry<String, AcquisitionHistory> entry : otherHistory.entrySet()) {
+            final AcquisitionHistory theirs = entry.getValue();
+            for (int i = 0; i < theirs.size(); i++) {
+                final String itemId = theirs.getItemId(i);
+                if (this.addItem(entry.getKey(), itemId, theirs.getSource(i), theirs.getTimestamp(i))) {
+                    changed = true;
+                    continue;
+                }
+                
+                // Both copies have the item; keep the earliest known acquisition
+                final AcquisitionHistory ours = this.history.get(entry.getKey());
+                changed |= ours.updateIfEarlier(ours.indexOf(itemId), theirs.getTimestamp(i), theirs.getSource(i));
+            }
+        }
+        
+        return changed;
+    }
+    
+    /**
+     * Take a private copy of this collection, e.g. to render from without holding its lock
+     * 
+     * @return A copy sharing no state with this collection
+     */
+    public PlayerCollection copy() {
+        final PlayerCollection copy = createEmpty(this.playerId, this.profile);
+        copy.merge(this);
+        return copy;
+    }
+    
+    /**
+     * Clear this collection and move it to a new epoch
+     * 
+     * @param newEpoch The new epoch, must be greater than the current one
+     */
+    public synchronized void reset(final long newEpoch) {
+        this.collectedItems.clear();
+        this.history.clear();
+        this.epoch = newEpoch;
+    }
+    
+    /**
+     * Remove an item and move the collection to a new epoch. Removal can't be expressed
+     * within an epoch, so the new epoch makes older copies that still hold the item lose
+     * when merged.
+     * 
+     * @param categoryId The category ID of the item
+     * @param itemId The ID of the item
+     * @param newEpoch The new epoch, must be greater than the current one
+     * @return True if the item was collected and has been removed
+     */
+    public synchronized boolean removeItem(final String categoryId, final String itemId, final long newEpoch) {
+        final Set<String> categoryItems = this.collectedItems.get(categoryId);
+        if (categoryItems == null || !categoryItems.remove(itemId)) {
+            return false;
+        }
+        
+        final AcquisitionHistory previous = this.history.get(categoryId);
+        final AcquisitionHistory remaining = new AcquisitionHistory();
+        for (int i = 0; i < previous.size(); i++) {
+            if (!previous.getItemId(i).equals(itemId)) {
+                remaining.add(previous.getItemId(i), previous.getTimestamp(i), previous.getSource(i));
+            }
+        }
+        
+        if (categoryItems.isEmpty()) {
+            this.collectedItems.remove(categoryId);
+            this.history.remove(categoryId);
+        } else {
+            this.history.put(categoryId, remaining);
+        }
+        
+        this.epoch = newEpoch;
+        return true;
     }
     
     /**
@@ -103,10 +337,76 @@ public class PlayerCollection {
      * @return True if the item was newly added, false if already collected
      */
     public boolean addItem(final String categoryId, final String itemId) {
+        return this.addItem(categoryId, itemId, AcquisitionSource.UNKNOWN, System.currentTimeMillis());
+    }
+    
+    /**
+     * Add an item to the player's collection, recording how and when it was acquired
+     * 
+     * @param categoryId The category ID of the item
+     * @param itemId The ID of the item
+     * @param source How the item was acquired
+     * @param timestampMillis When the item was acquired, in epoch milliseconds, or 0 if unknown
+     * @return True if the item was newly added, false if already collected
+     */
+    public synchronized boolean addItem(final String categoryId, final String itemId, 
+            final AcquisitionSource source, final long timestampMillis) {
         final Set<String> categoryItems = this.collectedItems.computeIfAbsent(
-                categoryId, k -> new HashSet<>());
+                categoryId, k -> ConcurrentHashMap.newKeySet());
+        
+        if (!categoryItems.add(itemId)) {
+            return false;
+        }
         
-        return categoryItems.add(itemId);
+        this.history.computeIfAbsent(categoryId, k -> new AcquisitionHistory())
+                .add(itemId, timestampMillis, source);
+        return true;
+    }
+    
+    /**
+     * Get when an item was first collected
+     * 
+     * @param categoryId The category ID of the item
+     * @param itemId The ID of the item
+     * @return The time in epoch milliseconds, or 0 if unknown or not collected
+     */
+    public synchronized long getFirstCollectedAt(final String categoryId, final String itemId) {
+        final AcquisitionHistory categoryHistory = this.history.get(categoryId);
+        final int index = categoryHistory == null ? -1 : categoryHistory.indexOf(itemId);
+        return index < 0 ? 0L : categoryHistory.getTimestamp(index);
+    }
+    
+    /**
+     * Get how an item was first collected
+     * 
+     * @param categoryId The category ID of the item
+     * @param itemId The ID of the item
+     * @return The acquisition source, UNKNOWN if not recorded or not collected
+     */
+    public synchronized AcquisitionSource getAcquisitionSource(final String categoryId, final String itemId) {
+        final AcquisitionHistory categoryHistory = this.history.get(categoryId);
+        final int index = categoryHistory == null ? -1 : categoryHistory.indexOf(itemId);
+        return index < 0 ? AcquisitionSource.UNKNOWN : categoryHistory.getSource(index);
+    }
+    
+    /**
+     * Record that a completion reward was granted
+     * 
+     * @param rewardId The reward ID
+     * @return True if the reward had not been granted before
+     */
+    public boolean markRewardGranted(final String rewardId) {
+        return this.grantedRewards.add(rewardId);
+    }
+    
+    /**
+     * Check whether a completion reward was already granted
+     * 
+     * @param rewardId The reward ID
+     * @return True if the reward was granted
+     */
+    public boolean hasReceivedReward(final String rewardId) {
+        return this.grantedRewards.contains(rewardId);
     }
     
     /**
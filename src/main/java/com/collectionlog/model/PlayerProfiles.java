@@ -0,0 +1,305 @@
+package com.collectionlog.model;
+
+import com.collectionlog.storage.AtomicFiles;
+import lombok.Getter;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Everything stored for one player: a collection per profile they have used, plus the
+ * profile an admin selected for them, if any. All profiles live in one file per player.
+ * Profiles are created on first use and empty ones are never written, so memory and
+ * storage grow with the profiles a player actually plays in.
+ * <p>
+ * Files written before profiles existed hold a single collection at the top level,
+ * which is read as the default profile.
+ */
+public class PlayerProfiles {
+
+    private static final Pattern PROFILE_NAME = Pattern.compile("[a-z0-9_-]{1,32}");
+    private static final int PACKED_VERSION = 2;
+    
+    @Getter
+    private final UUID playerId;
+    private final Map<String, PlayerCollection> profiles;
+    
+    /**
+     * The profile an admin selected for this player, or null to choose by world
+     */
+    @Getter
+    private volatile String selectedProfile;
+    
+    /**
+     * When the selection was last changed, in milliseconds, or 0 if it never was.
+     * Copies converge on the newest selection when merged.
+     */
+    @Getter
+    private volatile long selectionVersion;
+    
+    public PlayerProfiles(final UUID playerId) {
+        this.playerId = playerId;
+        this.profiles = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Check whether a profile name may be used
+     * 
+     * @param profile The profile name
+     * @return True if it is 1-32 lowercase letters, digits, dashes or underscores
+     */
+    public static boolean isValidName(final String profile) {
+        return profile != null && PROFILE_NAME.matcher(profile).matches();
+    }
+    
+    /**
+     * Load a player's profiles from a file
+     * 
+     * @param playerId The UUID of the player
+     * @param file The file to load from
+     * @return The loaded profiles, empty if the file doesn't exist
+     */
+    public static PlayerProfiles fromFile(final UUID playerId, final File file) {
+        final PlayerProfiles record = new PlayerProfiles(playerId);
+        if (!file.exists()) {
+            return record;
+        }
+        
+        final YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        final ConfigurationSection profilesSection = config.getConfigurationSection("profiles");
+        if (profilesSection == null) {
+            // Written before profiles existed
+            record.profiles.put(PlayerCollection.DEFAULT_PROFILE,
+                    PlayerCollection.read(playerId, PlayerCollection.DEFAULT_PROFILE, config));
+            return record;
+        }
+        
+        record.selectedProfile = config.getString("selected-profile");
+        record.selectionVersion = config.getLong("selected-profile-version", 0L);
+        for (String key : profilesSection.getKeys(false)) {
+            final ConfigurationSection section = profilesSection.getConfigurationSection(key);
+            if (section != null) {
+                final String profile = key.intern();
+                record.profiles.put(profile, PlayerCollection.read(playerId, profile, section));
+            }
+        }
+        
+        return record;
+    }
+    
+    /**
+     * Save these profiles to a file, leaving out empty ones
+     * 
+     * @param file The file to save to
+     * @throws IOException If an I/O error occurs
+     */
+    public void saveToFile(final File file) throws IOException {
+        final YamlConfiguration config = new YamlConfiguration();
+        
+        synchronized (this) {
+            if (this.selectedProfile != null) {
+                config.set("selected-profile", this.selectedProfile);
+            }
+            if (this.selectionVersion != 0L) {
+                config.set("selected-profile-version", this.selectionVersion);
+            }
+            
+            final ConfigurationSection profilesSection = config.createSection("profiles");
+            for (PlayerCollection collection : this.profiles.values()) {
+                if (!collection.isEmpty()) {
+                    collection.write(profilesSection.createSection(collection.getProfile()));
+                }
+            }
+        }
+        
+        AtomicFiles.write(file.toPath(), config.saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Load a player's profiles from the packed binary form
+     * 
+     * @param playerId The UUID of the player
+     * @param bytes The packed profiles, from {@link #toBytes}
+     * @return The loaded profiles
+     * @throws IOException If the bytes are corrupt or from a newer version
+     */
+    public static PlayerProfiles fromBytes(final UUID playerId, final byte[] bytes) throws IOException {
+        final PlayerProfiles record = new PlayerProfiles(playerId);
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        
+        final int version = in.readUnsignedByte();
+        if (version < 1 || version > PACKED_VERSION) {
+            throw new IOException("Unsupported packed collection version " + version);
+        }
+        
+        if (in.readBoolean()) {
+            record.selectedProfile = in.readUTF().intern();
+        }
+        if (version >= 2) {
+            record.selectionVersion = in.readLong();
+        }
+        
+        final int profileCount = in.readInt();
+        for (int i = 0; i < profileCount; i++) {
+            final String profile = in.readUTF().intern();
+            record.profiles.put(profile, PlayerCollection.read(playerId, profile, in));
+        }
+        
+        return record;
+    }
+    
+    /**
+     * Pack these profiles into a compact binary form, leaving out empty ones
+     * 
+     * @return The packed profiles
+     */
+    public byte[] toBytes() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            synchronized (this) {
+                out.writeByte(PACKED_VERSION);
+                out.writeBoolean(this.selectedProfile != null);
+                if (this.selectedProfile != null) {
+                    out.writeUTF(this.selectedProfile);
+                }
+                out.writeLong(this.selectionVersion);
+                
+                final List<PlayerCollection> stored = new ArrayList<>();
+                for (PlayerCollection collection : this.profiles.values()) {
+                    if (!collection.isEmpty()) {
+                        stored.add(collection);
+                    }
+                }
+                
+                out.writeInt(stored.size());
+                for (PlayerCollection collection : stored) {
+                    out.writeUTF(collection.getProfile());
+                    collection.write(out);
+                }
+            }
+        } catch (IOException e) {
+            // Writing to memory doesn't fail
+            throw new UncheckedIOException(e);
+        }
+        
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Get a profile's collection, creating it empty if the player never used it
+     * 
+     * @param profile The profile name
+     * @return The collection
+     */
+    public PlayerCollection getProfile(final String profile) {
+        return this.profiles.computeIfAbsent(profile, name -> PlayerCollection.createEmpty(this.playerId, name));
+    }
+    
+    /**
+     * Get a profile's collection if the player has one
+     * 
+     * @param profile The profile name
+     * @return The collection, or null if the player never used the profile
+     */
+    public PlayerCollection findProfile(final String profile) {
+        return this.profiles.get(profile);
+    }
+    
+    /**
+     * Get the collections of every profile this player has
+     * 
+     * @return The collections, in no particular order
+     */
+    public List<PlayerCollection> getCollections() {
+        return new ArrayList<>(this.profiles.values());
+    }
+    
+    /**
+     * Get the names of the profiles this player has
+     * 
+     * @return The profile names, in no particular order
+     */
+    public List<String> getProfileNames() {
+        return new ArrayList<>(this.profiles.keySet());
+    }
+    
+    /**
+     * Select a profile for this player regardless of world, as a newer selection than any before
+     * 
+     * @param profile The profile name, or null to choose by world again
+     */
+    public synchronized void setSelectedProfile(final String profile) {
+        this.selectedProfile = profile;
+        this.selectionVersion = Math.max(System.currentTimeMillis(), this.selectionVersion + 1);
+    }
+    
+    /**
+     * Adopt a selection made elsewhere if it is newer than this one. Selections made at
+     * the same time are ordered by name, with no selection lowest, so every copy picks the same one.
+     * 
+     * @param profile The selected profile name, or null to choose by world
+     * @param version When the selection was made
+     * @return True if the selection changed
+     */
+    public synchronized boolean mergeSelection(final String profile, final long version) {
+        if (version < this.selectionVersion || Objects.equals(profile, this.selectedProfile)) {
+            if (version > this.selectionVersion) {
+                this.selectionVersion = version;
+            }
+            return false;
+        }
+        
+        if (version == this.selectionVersion && profile != null && this.selectedProfile != null 
+                && profile.compareTo(this.selectedProfile) < 0) {
+            return false;
+        }
+        if (version == this.selectionVersion && profile == null) {
+            return false;
+        }
+        
+        this.selectedProfile = profile == null ? null : profile.intern();
+        this.selectionVersion = version;
+        return true;
+    }
+    
+    /**
+     * Merge another copy of this player's profiles into these, profile by profile.
+     * See {@link PlayerCollection#merge} for how each profile converges; the selection
+     * converges on the newest one.
+     * 
+     * @param other The other copy, e.g. the one currently in storage
+     * @return True if any profile changed
+     */
+    public boolean merge(final PlayerProfiles other) {
+        boolean changed = false;
+        for (PlayerCollection theirs : other.profiles.values()) {
+            changed |= this.getProfile(theirs.getProfile()).merge(theirs);
+        }
+        
+        final String theirSelection;
+        final long theirVersion;
+        synchronized (other) {
+            theirSelection = other.selectedProfile;
+            theirVersion = other.selectionVersion;
+        }
+        changed |= this.mergeSelection(theirSelection, theirVersion);
+        
+        return changed;
+    }
+}
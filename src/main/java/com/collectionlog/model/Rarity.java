@@ -0,0 +1,53 @@
+package com.collectionlog.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Locale;
+
+/**
+ * How rare a catalog item is, set per item in the catalog. Only used for ordering menus.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum Rarity {
+
+    COMMON("Common"),
+    UNCOMMON("Uncommon"),
+    RARE("Rare"),
+    EPIC("Epic"),
+    LEGENDARY("Legendary");
+    
+    private static final Rarity[] VALUES = values();
+    
+    private final String displayName;
+    
+    /**
+     * Get a rarity by name
+     * 
+     * @param name The name, case insensitive, may be null
+     * @return The rarity, or COMMON if the name is missing or unknown
+     */
+    public static Rarity fromName(final String name) {
+        if (name != null) {
+            final String upper = name.toUpperCase(Locale.ROOT);
+            for (Rarity rarity : VALUES) {
+                if (rarity.name().equals(upper)) {
+                    return rarity;
+                }
+            }
+        }
+        
+        return COMMON;
+    }
+    
+    /**
+     * Get a rarity by its stored id
+     * 
+     * @param id The stored id
+     * @return The rarity, or COMMON if the id is not recognised
+     */
+    public static Rarity fromId(final int id) {
+        return id >= 0 && id < VALUES.length ? VALUES[id] : COMMON;
+    }
+}
@@ -0,0 +1,315 @@
+package com.collectionlog.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A full-text index over the catalog, built once per catalog load. Words from item IDs,
+ * color-stripped names and lore go into a prefix trie for as-you-type matching, and
+ * every word's trigrams into an n-gram index so words can also be found by any part
+ * of them. Queries only touch the postings of their own words.
+ */
+public final class SearchIndex {
+
+    private static final int WEIGHT_LORE = 1;
+    private static final int WEIGHT_NAME = 3;
+    private static final int WEIGHT_ID = 4;
+    private static final int[] NO_POSTINGS = new int[0];
+    
+    private final CollectionItem[] items;
+    private final String[] words;
+    private final TrieNode root;
+    private final Map<String, int[]> trigrams;
+    private final String[] sortedIds;
+    private final String[] sortedKeys;
+    
+    private SearchIndex(final Collection<ItemCategory> categories) {
+        final List<CollectionItem> itemList = new ArrayList<>();
+        final Map<String, Map<Integer, Integer>> wordWeights = new LinkedHashMap<>();
+        
+        for (ItemCategory category : categories) {
+            for (CollectionItem item : category.getItems().values()) {
+                final int ordinal = itemList.size();
+                itemList.add(item);
+                
+                this.addWords(wordWeights, ordinal, item.getId(), WEIGHT_ID);
+                this.addWords(wordWeights, ordinal, item.getName(), WEIGHT_NAME);
+                if (item.getLore() != null) {
+                    for (String line : item.getLore()) {
+                        this.addWords(wordWeights, ordinal, line, WEIGHT_LORE);
+                    }
+                }
+            }
+        }
+        
+        this.items = itemList.toArray(new CollectionItem[0]);
+        this.words = wordWeights.keySet().toArray(new String[0]);
+        this.root = new TrieNode();
+        
+        // Each trie node keeps the best weight per item over all words below it
+        final Map<TrieNode, Map<Integer, Integer>> nodePostings = new HashMap<>();
+        final Map<String, List<Integer>> trigramWords = new HashMap<>();
+        
+        for (int w = 0; w < this.words.length; w++) {
+            final String word = this.words[w];
+            final Map<Integer, Integer> postings = wordWeights.get(word);
+            
+            TrieNode node = this.root;
+            for (int i = 0; i < word.length(); i++) {
+                node = node.children.computeIfAbsent(word.charAt(i), k -> new TrieNode());
+                final Map<Integer, Integer> merged = nodePostings.computeIfAbsent(node, k -> new HashMap<>());
+                postings.forEach((item, weight) -> merged.merge(item, weight, Math::max));
+            }
+            node.exact = postings;
+            
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                final List<Integer> list = trigramWords.computeIfAbsent(
+                        word.substring(i, i + 3), k -> new ArrayList<>());
+                if (list.isEmpty() || list.get(list.size() - 1) != w) {
+                    list.add(w);
+                }
+            }
+        }
+        
+        nodePostings.forEach(TrieNode::freeze);
+        this.trigrams = new HashMap<>();
+        trigramWords.forEach((trigram, list) -> 
+                this.trigrams.put(trigram, list.stream().mapToInt(Integer::intValue).toArray()));
+        
+        this.sortedIds = itemList.stream().map(CollectionItem::getId).distinct().sorted().toArray(String[]::new);
+        this.sortedKeys = itemList.stream()
+                .map(item -> item.getCategoryId() + "/" + item.getId())
+                .sorted()
+                .toArray(String[]::new);
+    }
+    
+    /**
+     * Build the index for a set of categories
+     * 
+     * @param categories The categories, in catalog order
+     * @return A new index
+     */
+    public static SearchIndex build(final Collection<ItemCategory> categories) {
+        return new SearchIndex(categories);
+    }
+    
+    /**
+     * Find the items matching every word of a query, best matches first. A word matches
+     * as a prefix of an indexed word, or anywhere inside one if it has three or more letters.
+     * 
+     * @param query The query text
+     * @param limit The maximum number of results
+     * @return The matching items
+     */
+    public List<CollectionItem> search(final String query, final int limit) {
+        final List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        
+        int[] scores = null;
+        for (String queryWord : queryWords) {
+            final int[] wordScores = this.scoreWord(queryWord);
+            
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                for (int i = 0; i < scores.length; i++) {
+                    scores[i] = scores[i] > 0 && wordScores[i] > 0 ? scores[i] + wordScores[i] : 0;
+                }
+            }
+        }
+        
+        final List<Integer> matches = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > 0) {
+                matches.add(i);
+            }
+        }
+        
+        // Higher scores first, catalog order among equals
+        final int[] finalScores = scores;
+        matches.sort((a, b) -> finalScores[a] != finalScores[b] 
+                ? Integer.compare(finalScores[b], finalScores[a]) : Integer.compare(a, b));
+        
+        final List<CollectionItem> results = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            results.add(this.items[matches.get(i)]);
+        }
+        return results;
+    }
+    
+    /**
+     * Complete an item ID
+     * 
+     * @param prefix The typed prefix
+     * @param limit The maximum number of completions
+     * @return Item IDs starting with the prefix, in alphabetical order
+     */
+    public List<String> completeItemIds(final String prefix, final int limit) {
+        return completeSorted(this.sortedIds, prefix.toLowerCase(Locale.ROOT), limit, 0);
+    }
+    
+    /**
+     * Complete an item ID within one category
+     * 
+     * @param categoryId The category ID
+     * @param prefix The typed prefix
+     * @param limit The maximum number of completions
+     * @return Item IDs of the category starting with the prefix, in alphabetical order
+     */
+    public List<String> completeItemIds(final String categoryId, final String prefix, final int limit) {
+        final String categoryPrefix = categoryId + "/";
+        return completeSorted(this.sortedKeys, categoryPrefix + prefix.toLowerCase(Locale.ROOT), limit,
+                categoryPrefix.length());
+    }
+    
+    /**
+     * Score every item against one query word
+     */
+    private int[] scoreWord(final String queryWord) {
+        final int[] scores = new int[this.items.length];
+        
+        // Prefix matches, with a bonus for whole-word matches
+        TrieNode node = this.root;
+        for (int i = 0; i < queryWord.length() && node != null; i++) {
+            node = node.children.get(queryWord.charAt(i));
+        }
+        
+        if (node != null) {
+            for (int i = 0; i < node.postingItems.length; i++) {
+                scores[node.postingItems[i]] = node.postingWeights[i] * 10;
+            }
+            if (node.exact != null) {
+                node.exact.forEach((item, weight) -> scores[item] += weight * 5);
+            }
+        }
+        
+        // Infix matches through trigrams, verified against the candidate words
+        if (queryWord.length() >= 3) {
+            int[] candidates = null;
+            for (int i = 0; i + 3 <= queryWord.length(); i++) {
+                final int[] postings = this.trigrams.getOrDefault(queryWord.substring(i, i + 3), NO_POSTINGS);
+                candidates = candidates == null ? postings : intersect(candidates, postings);
+                if (candidates.length == 0) {
+                    break;
+                }
+            }
+            
+            for (int w : candidates) {
+                if (!this.words[w].contains(queryWord)) {
+                    continue;
+                }
+                
+                TrieNode wordNode = this.root;
+                for (int i = 0; i < this.words[w].length(); i++) {
+                    wordNode = wordNode.children.get(this.words[w].charAt(i));
+                }
+                wordNode.exact.forEach((item, weight) -> scores[item] = Math.max(scores[item], weight * 4));
+            }
+        }
+        
+        return scores;
+    }
+    
+    private void addWords(final Map<String, Map<Integer, Integer>> wordWeights, final int ordinal,
+            final String text, final int weight) {
+        if (text == null) {
+            return;
+        }
+        
+        for (String word : tokenize(text)) {
+            wordWeights.computeIfAbsent(word, k -> new HashMap<>()).merge(ordinal, weight, Math::max);
+        }
+    }
+    
+    /**
+     * Split text into lowercase words, dropping color codes and punctuation
+     * 
+     * @param text The text
+     * @return The words
+     */
+    static List<String> tokenize(final String text) {
+        final List<String> tokens = new ArrayList<>();
+        final StringBuilder word = new StringBuilder();
+        
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if ((c == '&' || c == '§') && i + 1 < text.length()) {
+                i++;
+                continue;
+            }
+            
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                tokens.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+        }
+        return tokens;
+    }
+    
+    private static int[] intersect(final int[] a, final int[] b) {
+        final int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+    
+    private static List<String> completeSorted(final String[] sorted, final String prefix, final int limit,
+            final int strip) {
+        int index = Arrays.binarySearch(sorted, prefix);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        
+        final List<String> completions = new ArrayList<>();
+        while (index < sorted.length && completions.size() < limit && sorted[index].startsWith(prefix)) {
+            completions.add(sorted[index].substring(strip));
+            index++;
+        }
+        return completions;
+    }
+    
+    private static final class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private Map<Integer, Integer> exact;
+        private int[] postingItems = NO_POSTINGS;
+        private int[] postingWeights = NO_POSTINGS;
+        
+        private void freeze(final Map<Integer, Integer> postings) {
+            this.postingItems = new int[postings.size()];
+            this.postingWeights = new int[postings.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> entry : postings.entrySet()) {
+                this.postingItems[i] = entry.getKey();
+                this.postingWeights[i] = entry.getValue();
+                i++;
+            }
+        }
+    }
+}
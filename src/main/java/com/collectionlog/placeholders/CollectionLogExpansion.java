@@ -0,0 +1,46 @@
+package com.collectionlog.placeholders;
+
+import com.collectionlog.CollectionLog;
+import me.clip.placeholderapi.expansion.PlaceholderExpansion;
+import org.bukkit.OfflinePlayer;
+
+/**
+ * Exposes collection progress to PlaceholderAPI as %collectionlog_...% placeholders.
+ * Only loaded when PlaceholderAPI is installed; values come from the {@link PlaceholderCache}.
+ */
+public class CollectionLogExpansion extends PlaceholderExpansion {
+
+    private final CollectionLog plugin;
+    private final PlaceholderCache cache;
+    
+    public CollectionLogExpansion(final CollectionLog plugin, final PlaceholderCache cache) {
+        this.plugin = plugin;
+        this.cache = cache;
+    }
+    
+    @Override
+    public String getIdentifier() {
+        return "collectionlog";
+    }
+    
+    @Override
+    public String getAuthor() {
+        return String.join(", ", this.plugin.getDescription().getAuthors());
+    }
+    
+    @Override
+    public String getVersion() {
+        return this.plugin.getDescription().getVersion();
+    }
+    
+    @Override
+    public boolean persist() {
+        // Survive /papi reload, the cache belongs to this plugin
+        return true;
+    }
+    
+    @Override
+    public String onRequest(final OfflinePlayer player, final String params) {
+        return this.cache.resolve(player != null ? player.getUniqueId() : null, params);
+    }
+}
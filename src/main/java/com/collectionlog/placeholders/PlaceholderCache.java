@@ -0,0 +1,377 @@
+package com.collectionlog.placeholders;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.manager.CollectionChangeListener;
+import com.collectionlog.model.Catalog;
+import com.collectionlog.model.ItemCategory;
+import com.collectionlog.model.PlayerCollection;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves placeholder values from per-player counters and strings formatted ahead of time.
+ * Placeholders are polled far more often than collections change, so a player's values are
+ * only recounted when their collection changes: one category when an item is added, and
+ * everything after a reset, reload or profile switch. A request itself is two map lookups.
+ * <p>
+ * Available placeholders, all prefixed with {@code collectionlog_}: {@code total},
+ * {@code max}, {@code percent}, {@code progress}, {@code completed}, {@code categories},
+ * {@code rank}, {@code profile}, and per category {@code count_<category>},
+ * {@code max_<category>}, {@code percent_<category>} and {@code progress_<category>}.
+ */
+public class PlaceholderCache implements CollectionChangeListener {
+
+    private static final String UNRANKED = "-";
+    
+    private final CollectionLog plugin;
+    private final Map<UUID, Progress> progress;
+    
+    private volatile Layout layout;
+    
+    public PlaceholderCache(final CollectionLog plugin) {
+        this.plugin = plugin;
+        this.progress = new ConcurrentHashMap<>();
+    }
+    
+    @Override
+    public void onItemAdded(final UUID playerId, final String profile, final String categoryId,
+            final String itemId) {
+        final Layout current = this.getLayout();
+        final Integer index = current.categoryIndex.get(categoryId);
+        if (index == null) {
+            return;
+        }
+        
+        // Recount the one category from the collection, so a concurrent first count can't be counted twice
+        this.progress.computeIfPresent(playerId, (id, cached) -> {
+            if (cached.layout != current || !cached.profile.equals(profile)) {
+                return cached;
+            }
+            
+            final PlayerCollection collection = this.plugin.getCollectionManager().getPlayerCollection(id, profile);
+            return cached.withCount(index, countCollected(collection, current.categories[index]));
+        });
+    }
+    
+    @Override
+    public void onCollectionChanged(final UUID playerId) {
+        this.progress.remove(playerId);
+    }
+    
+    /**
+     * Drop the values of a player who left
+     * 
+     * @param playerId The UUID of the player
+     */
+    public void forgetPlayer(final UUID playerId) {
+        this.progress.remove(playerId);
+    }
+    
+    /**
+     * Get the value of a placeholder
+     * 
+     * @param playerId The UUID of the player, or null if there is none
+     * @param params The placeholder without the collectionlog_ prefix
+     * @return The value, or null if the placeholder is unknown
+     */
+    public String resolve(final UUID playerId, final String params) {
+        final Layout current = this.getLayout();
+        Request request = current.requests.get(params);
+        if (request == null) {
+            request = current.requests.get(params.toLowerCase(Locale.ROOT));
+            if (request == null) {
+                return null;
+            }
+        }
+        
+        // Values that don't depend on the player
+        switch (request.kind) {
+            case MAX:
+                return current.maxText;
+            case CATEGORIES:
+                return current.categoriesText;
+            case CATEGORY_MAX:
+                return current.sizeText[request.category];
+            default:
+                break;
+        }
+        
+        if (playerId == null) {
+            return "";
+        }
+        
+        final Progress values = this.getProgress(playerId, current);
+        if (values == null) {
+            return "";
+        }
+        
+        switch (request.kind) {
+            case TOTAL:
+                return values.totalText;
+            case PERCENT:
+                return values.percentText;
+            case PROGRESS:
+                return values.progressText;
+            case COMPLETED:
+                return values.completedText;
+            case PROFILE:
+                return values.profile;
+            case RANK:
+                return this.getRankText(playerId, values);
+            case CATEGORY_COUNT:
+                return values.countTexts[request.category];
+            case CATEGORY_PERCENT:
+                return values.percentTexts[request.category];
+            case CATEGORY_PROGRESS:
+                return values.progressTexts[request.category];
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Get a player's cached values, counting them if they changed since the last request
+     * 
+     * @return The values, or null if the player's collection isn't loaded
+     */
+    private Progress getProgress(final UUID playerId, final Layout current) {
+        final Progress cached = this.progress.get(playerId);
+        if (cached != null && cached.layout == current) {
+            return cached;
+        }
+        
+        final PlayerCollection collection = this.plugin.getCollectionManager().getLoadedCollection(playerId);
+        if (collection == null) {
+            return null;
+        }
+        
+        return this.progress.compute(playerId, (id, existing) ->
+                existing != null && existing.layout == current ? existing : Progress.count(current, collection));
+    }
+    
+    /**
+     * Ranks are kept by the owner index for the default profile and may change with any player's
+     * collection, so the formatted rank is reused until the index reports a change
+     */
+    private String getRankText(final UUID playerId, final Progress values) {
+        if (!values.profile.equals(this.plugin.getCollectionManager().getDefaultProfile())) {
+            return UNRANKED;
+        }
+        
+        final long version = this.plugin.getCollectionIndex().getRankVersion();
+        final RankText cached = values.rank;
+        if (cached != null && cached.version == version) {
+            return cached.text;
+        }
+        
+        final int rank = this.plugin.getCollectionIndex().getRank(playerId);
+        final RankText computed = new RankText(version, rank > 0 ? Integer.toString(rank) : UNRANKED);
+        values.rank = computed;
+        return computed.text;
+    }
+    
+    /**
+     * Get the layout for the current catalog, rebuilding it after a reload
+     */
+    private Layout getLayout() {
+        final Catalog catalog = this.plugin.getConfigManager().getCatalog();
+        Layout current = this.layout;
+        if (current == null || current.catalog != catalog) {
+            current = new Layout(catalog);
+            this.layout = current;
+        }
+        return current;
+    }
+    
+    private static int countCollected(final PlayerCollection collection, final ItemCategory category) {
+        final Set<String> collected = collection.getCollectedItems().get(category.getId());
+        if (collected == null) {
+            return 0;
+        }
+        
+        // Items that were removed from the catalog don't count
+        int count = 0;
+        for (String itemId : collected) {
+            if (category.getItems().containsKey(itemId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private static String percent(final int count, final int size) {
+        return Integer.toString(size == 0 ? 0 : (int) (count * 100L / size));
+    }
+    
+    private enum Kind {
+        TOTAL,
+        MAX,
+        PERCENT,
+        PROGRESS,
+        COMPLETED,
+        CATEGORIES,
+        RANK,
+        PROFILE,
+        CATEGORY_COUNT,
+        CATEGORY_MAX,
+        CATEGORY_PERCENT,
+        CATEGORY_PROGRESS
+    }
+    
+    private static final class Request {
+        private final Kind kind;
+        private final int category;
+        
+        private Request(final Kind kind, final int category) {
+            this.kind = kind;
+            this.category = category;
+        }
+    }
+    
+    /**
+     * Everything about the placeholders that only depends on the catalog: the categories by
+     * position, their sizes, and every valid placeholder name parsed once
+     */
+    private static final class Layout {
+        private final Catalog catalog;
+        private final ItemCategory[] categories;
+        private final Map<String, Integer> categoryIndex;
+        private final Map<String, Request> requests;
+        private final int itemCount;
+        private final String maxText;
+        private final String categoriesText;
+        private final String[] sizeText;
+        
+        private Layout(final Catalog catalog) {
+            this.catalog = catalog;
+            this.categories = catalog.getCategories().values().toArray(new ItemCategory[0]);
+            this.categoryIndex = new HashMap<>();
+            this.requests = new HashMap<>();
+            this.sizeText = new String[this.categories.length];
+            
+            int items = 0;
+            for (int i = 0; i < this.categories.length; i++) {
+                final String id = this.categories[i].getId();
+                final int size = this.categories[i].getItems().size();
+                items += size;
+                
+                this.categoryIndex.put(id, i);
+                this.sizeText[i] = Integer.toString(size);
+                this.requests.put("count_" + id, new Request(Kind.CATEGORY_COUNT, i));
+                this.requests.put("max_" + id, new Request(Kind.CATEGORY_MAX, i));
+                this.requests.put("percent_" + id, new Request(Kind.CATEGORY_PERCENT, i));
+                this.requests.put("progress_" + id, new Request(Kind.CATEGORY_PROGRESS, i));
+            }
+            
+            this.itemCount = items;
+            this.maxText = Integer.toString(items);
+            this.categoriesText = Integer.toString(this.categories.length);
+            
+            this.requests.put("total", new Request(Kind.TOTAL, -1));
+            this.requests.put("max", new Request(Kind.MAX, -1));
+            this.requests.put("percent", new Request(Kind.PERCENT, -1));
+            this.requests.put("progress", new Request(Kind.PROGRESS, -1));
+            this.requests.put("completed", new Request(Kind.COMPLETED, -1));
+            this.requests.put("categories", new Request(Kind.CATEGORIES, -1));
+            this.requests.put("rank", new Request(Kind.RANK, -1));
+            this.requests.put("profile", new Request(Kind.PROFILE, -1));
+        }
+    }
+    
+    /**
+     * One player's counters and formatted values for one profile and catalog. Never changed
+     * once built; an added item produces a new instance with one category recounted.
+     */
+    private static final class Progress {
+        private final Layout layout;
+        private final String profile;
+        private final int[] counts;
+        private final String[] countTexts;
+        private final String[] percentTexts;
+        private final String[] progressTexts;
+        private final String totalText;
+        private final String percentText;
+        private final String progressText;
+        private final String completedText;
+        
+        /** The formatted rank, replaced as ranks change */
+        private volatile RankText rank;
+        
+        private Progress(final Layout layout, final String profile, final int[] counts, final String[] countTexts,
+                final String[] percentTexts, final String[] progressTexts) {
+            this.layout = layout;
+            this.profile = profile;
+            this.counts = counts;
+            this.countTexts = countTexts;
+            this.percentTexts = percentTexts;
+            this.progressTexts = progressTexts;
+            
+            int total = 0;
+            int completed = 0;
+            for (int i = 0; i < counts.length; i++) {
+                total += counts[i];
+                if (counts[i] > 0 && counts[i] == layout.categories[i].getItems().size()) {
+                    completed++;
+                }
+            }
+            
+            this.totalText = Integer.toString(total);
+            this.percentText = percent(total, layout.itemCount);
+            this.progressText = total + "/" + layout.itemCount;
+            this.completedText = Integer.toString(completed);
+        }
+        
+        private static Progress count(final Layout layout, final PlayerCollection collection) {
+            final int size = layout.categories.length;
+            final int[] counts = new int[size];
+            final String[] countTexts = new String[size];
+            final String[] percentTexts = new String[size];
+            final String[] progressTexts = new String[size];
+            
+            for (int i = 0; i < size; i++) {
+                counts[i] = countCollected(collection, layout.categories[i]);
+                format(layout, i, counts[i], countTexts, percentTexts, progressTexts);
+            }
+            
+            return new Progress(layout, collection.getProfile(), counts, countTexts, percentTexts, progressTexts);
+        }
+        
+        private Progress withCount(final int category, final int count) {
+            if (this.counts[category] == count) {
+                return this;
+            }
+            
+            final int[] newCounts = this.counts.clone();
+            final String[] newCountTexts = this.countTexts.clone();
+            final String[] newPercentTexts = this.percentTexts.clone();
+            final String[] newProgressTexts = this.progressTexts.clone();
+            
+            newCounts[category] = count;
+            format(this.layout, category, count, newCountTexts, newPercentTexts, newProgressTexts);
+            return new Progress(this.layout, this.profile, newCounts, newCountTexts, newPercentTexts, newProgressTexts);
+        }
+        
+        private static void format(final Layout layout, final int category, final int count, final String[] countTexts,
+                final String[] percentTexts, final String[] progressTexts) {
+            final int size = layout.categories[category].getItems().size();
+            countTexts[category] = Integer.toString(count);
+            percentTexts[category] = percent(count, size);
+            progressTexts[category] = count + "/" + size;
+        }
+    }
+    
+    private static final class RankText {
+        private final long version;
+        private final String text;
+        
+        private RankText(final long version, final String text) {
+            this.version = version;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.collectionlog.rewards;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.config.ConfigSnapshot;
+import com.collectionlog.loadtest.LoadTest;
+import com.collectionlog.manager.CollectionChangeListener;
+import com.collectionlog.model.Catalog;
+import com.collectionlog.model.CollectionItem;
+import com.collectionlog.model.ItemCategory;
+import com.collectionlog.model.PlayerCollection;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Grants collection completion rewards incrementally.
+ * <p>
+ * Rules are compiled once per catalog into an index from each catalog item to the rules
+ * that depend on it, plus a threshold per rule. Each player keeps one counter per rule and
+ * profile, so a new item only touches the rules it affects and each check is O(1). Counters are
+ * computed lazily from the player's collection and dropped whenever it changes other than
+ * by a local addition. Granting is recorded in the player's collection immediately, while
+ * the actual commands and items are executed in one batch on the next tick.
+ */
+public class RewardEngine implements CollectionChangeListener {
+
+    private static final int[] NO_RULES = new int[0];
+    
+    private final CollectionLog plugin;
+    private final Queue<PendingGrant> pending;
+    private final AtomicBoolean flushScheduled;
+    
+    private volatile CompiledRules compiled;
+    
+    public RewardEngine(final CollectionLog plugin) {
+        this.plugin = plugin;
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.flushScheduled = new AtomicBoolean();
+    }
+    
+    @Override
+    public void onItemAdded(final UUID playerId, final String profile, final String categoryId, 
+            final String itemId) {
+        final CompiledRules rules = this.getRules();
+        if (rules.rules.isEmpty()) {
+            return;
+        }
+        
+        final PlayerCollection collection = this.plugin.getCollectionManager().getPlayerCollection(playerId, profile);
+        final Map<String, int[]> playerProgress = rules.progress.computeIfAbsent(playerId, 
+                id -> new ConcurrentHashMap<>());
+        final int[] progress = playerProgress.get(profile);
+        if (progress == null) {
+            // First change since load; the computed counters already include this item
+            playerProgress.putIfAbsent(profile, this.computeProgress(rules, playerId, collection));
+            return;
+        }
+        
+        final Map<String, int[]> categoryIndex = rules.itemIndex.get(categoryId);
+        final int[] affected = categoryIndex == null ? NO_RULES : categoryIndex.getOrDefault(itemId, NO_RULES);
+        
+        synchronized (progress) {
+            for (int ruleIndex : affected) {
+                if (++progress[ruleIndex] == rules.thresholds[ruleIndex]) {
+                    this.grant(playerId, collection, rules.rules.get(ruleIndex));
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void onCollectionChanged(final UUID playerId) {
+        final CompiledRules rules = this.compiled;
+        if (rules != null) {
+            rules.progress.remove(playerId);
+        }
+    }
+    
+    /**
+     * Drop the counters of a player who left
+     * 
+     * @param playerId The UUID of the player
+     */
+    public void forgetPlayer(final UUID playerId) {
+        this.onCollectionChanged(playerId);
+    }
+    
+    /**
+     * Get the compiled rules for the current configuration, recompiling after a reload
+     * 
+     * @return The compiled rules
+     */
+    private CompiledRules getRules() {
+        final ConfigSnapshot snapshot = this.plugin.getConfigManager().getSnapshot();
+        CompiledRules current = this.compiled;
+        
+        if (current == null || current.snapshot != snapshot) {
+            synchronized (this) {
+                current = this.compiled;
+                if (current == null || current.snapshot != snapshot) {
+                    current = this.compile(snapshot);
+                    this.compiled = current;
+                }
+            }
+        }
+        
+        return current;
+    }
+    
+    private CompiledRules compile(final ConfigSnapshot snapshot) {
+        final Catalog catalog = snapshot.getCatalog();
+        final List<RewardRule> rules = new ArrayList<>();
+        final List<Integer> thresholds = new ArrayList<>();
+        final Map<String, Map<String, List<Integer>>> dependencies = new HashMap<>();
+        
+        final ConfigurationSection rewardsSection = snapshot.getRewardsConfig().getConfigurationSection("rewards");
+        if (rewardsSection != null) {
+            for (String rewardId : rewardsSection.getKeys(false)) {
+                final RewardRule rule = RewardRule.fromConfig(rewardId, rewardsSection.getConfigurationSection(rewardId));
+                if (rule == null) {
+                    this.plugin.getLogger().warning("Invalid reward in rewards.yml: " + rewardId);
+                    continue;
+                }
+                
+                final List<CollectionItem> dependsOn = this.resolveDependencies(catalog, rule);
+                final int threshold = rule.getType() == RewardRule.Type.TOTAL ? rule.getAmount() : dependsOn.size();
+                if (threshold <= 0 || threshold > dependsOn.size()) {
+                    this.plugin.getLogger().warning("Reward " + rewardId + " can never be reached, skipping it");
+                    continue;
+                }
+                
+                final int ruleIndex = rules.size();
+                rules.add(rule);
+                thresholds.add(threshold);
+                
+                for (CollectionItem item : dependsOn) {
+                    dependencies.computeIfAbsent(item.getCategoryId(), k -> new HashMap<>())
+                            .computeIfAbsent(item.getId(), k -> new ArrayList<>())
+                            .add(ruleIndex);
+                }
+            }
+        }
+        
+        final Map<String, Map<String, int[]>> itemIndex = new HashMap<>();
+        dependencies.forEach((categoryId, items) -> {
+            final Map<String, int[]> categoryIndex = new HashMap<>();
+            items.forEach((itemId, ruleIndices) ->
+                    categoryIndex.put(itemId, ruleIndices.stream().mapToInt(Integer::intValue).toArray()));
+            itemIndex.put(categoryId, categoryIndex);
+        });
+        
+        this.plugin.debug("Compiled " + rules.size() + " reward rules");
+        return new CompiledRules(snapshot, rules, thresholds.stream().mapToInt(Integer::intValue).toArray(), itemIndex);
+    }
+    
+    private List<CollectionItem> resolveDependencies(final Catalog catalog, final RewardRule rule) {
+        final List<CollectionItem> items = new ArrayList<>();
+        
+        switch (rule.getType()) {
+            case CATEGORY:
+                final ItemCategory category = catalog.getCategory(rule.getTarget());
+                if (category != null) {
+                    items.addAll(category.getItems().values());
+                }
+                break;
+            case TAG:
+                for (ItemCategory each : catalog.getCategories().values()) {
+                    for (CollectionItem item : each.getItems().values()) {
+                        if (item.getTags() != null && item.getTags().contains(rule.getTarget())) {
+                            items.add(item);
+                        }
+                    }
+                }
+                break;
+            case TOTAL:
+                for (ItemCategory each : catalog.getCategories().values()) {
+                    items.addAll(each.getItems().values());
+                }
+                break;
+            default:
+                break;
+        }
+        
+        return items;
+    }
+    
+    /**
+     * Count a player's progress towards every rule, granting any rule already reached
+     */
+    private int[] computeProgress(final CompiledRules rules, final UUID playerId, final PlayerCollection collection) {
+        final int[] progress = new int[rules.rules.size()];
+        
+        for (Map.Entry<String, Set<String>> entry : collection.getCollectedItems().entrySet()) {
+            final Map<String, int[]> categoryIndex = rules.itemIndex.get(entry.getKey());
+            if (categoryIndex == null) {
+                continue;
+            }
+            
+            for (String itemId : entry.getValue()) {
+                for (int ruleIndex : categoryIndex.getOrDefault(itemId, NO_RULES)) {
+                    progress[ruleIndex]++;
+                }
+            }
+        }
+        
+        for (int i = 0; i < progress.length; i++) {
+            if (progress[i] >= rules.thresholds[i]) {
+                this.grant(playerId, collection, rules.rules.get(i));
+            }
+        }
+        
+        return progress;
+    }
+    
+    private void grant(final UUID playerId, final PlayerCollection collection, final RewardRule rule) {
+        if (!collection.markRewardGranted(rule.getId())) {
+            return;
+        }
+        
+        this.plugin.getSaveScheduler().markDirty(playerId);
+        this.pending.add(new PendingGrant(playerId, rule));
+        
+        if (this.flushScheduled.compareAndSet(false, true)) {
+            this.plugin.getTaskScheduler().runGlobal(this::flush);
+        }
+    }
+    
+    /**
+     * Execute every reward granted since the last tick. Runs on the global region, where
+     * console commands belong; anything touching the player moves to their region.
+     */
+    private void flush() {
+        this.flushScheduled.set(false);
+        
+        PendingGrant grant;
+        while ((grant = this.pending.poll()) != null) {
+            this.execute(grant.playerId, grant.rule);
+        }
+    }
+    
+    private void execute(final UUID playerId, final RewardRule rule) {
+        if (LoadTest.isSynthetic(playerId)) {
+            return;
+        }
+        
+        final Player player = Bukkit.getPlayer(playerId);
+        final OfflinePlayer offlinePlayer = player != null ? player : Bukkit.getOfflinePlayer(playerId);
+        final String playerName = offlinePlayer.getName() != null ? offlinePlayer.getName() : playerId.toString();
+        
+        for (String command : rule.getCommands()) {
+            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command.replace("%player%", playerName));
+        }
+        
+        if (player != null) {
+            final Runnable delivery = () -> {
+                for (ItemStack item : rule.getItems()) {
+                    player.getInventory().addItem(item.clone()).values()
+                            .forEach(leftover -> player.getWorld().dropItemNaturally(player.getLocation(), leftover));
+                }
+                
+                if (rule.getMessage() != null) {
+                    player.sendMessage(rule.getMessage().replace('&', '§'));
+                }
+            };
+            
+            if (this.plugin.getTaskScheduler().isOwnedByCurrentRegion(player)) {
+                delivery.run();
+            } else {
+                this.plugin.getTaskScheduler().runForEntity(player, delivery);
+            }
+        } else if (!rule.getItems().isEmpty()) {
+            this.plugin.getLogger().warning("Player " + playerName + " went offline before receiving item rewards for " +
+                    rule.getId());
+        }
+        
+        this.plugin.debug("Granted reward " + rule.getId() + " to " + playerName);
+    }
+    
+    /**
+     * Rules compiled for one configuration snapshot, with per-player counters
+     */
+    private static final class CompiledRules {
+        private final ConfigSnapshot snapshot;
+        private final List<RewardRule> rules;
+        private final int[] thresholds;
+        private final Map<String, Map<String, int[]>> itemIndex;
+        private final Map<UUID, Map<String, int[]>> progress;
+        
+        private CompiledRules(final ConfigSnapshot snapshot, final List<RewardRule> rules, final int[] thresholds,
+                final Map<String, Map<String, int[]>> itemIndex) {
+            this.snapshot = snapshot;
+            this.rules = rules;
+            this.thresholds = thresholds;
+            this.itemIndex = itemIndex;
+            this.progress = new ConcurrentHashMap<>();
+        }
+    }
+    
+    private static final class PendingGrant {
+        private final UUID playerId;
+        private final RewardRule rule;
+        
+        private PendingGrant(final UUID playerId, final RewardRule rule) {
+            this.playerId = playerId;
+            this.rule = rule;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.collectionlog.rewards;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RewardRule {
+
+    /**
+     * The kind of milestone a rule rewards
+     */
+    public enum Type {
+        /** Every item of one category */
+        CATEGORY,
+        /** A number of catalog items in total */
+        TOTAL,
+        /** Every item carrying one tag */
+        TAG
+    }
+    
+    private String id;
+    private Type type;
+    private String target;
+    private int amount;
+    private String message;
+    private List<String> commands;
+    private List<ItemStack> items;
+    
+    /**
+     * Create a reward rule from a configuration section
+     * 
+     * @param id The unique identifier for this reward
+     * @param section The configuration section containing reward details
+     * @return A new RewardRule, or null if the section is invalid
+     */
+    public static RewardRule fromConfig(final String id, final ConfigurationSection section) {
+        if (section == null) {
+            return null;
+        }
+        
+        final Type type;
+        try {
+            type = Type.valueOf(section.getString("type", "").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        
+        final List<ItemStack> items = new ArrayList<>();
+        for (Map<?, ?> itemMap : section.getMapList("items")) {
+            final Material material = Material.matchMaterial(String.valueOf(itemMap.get("material")));
+            if (material == null) {
+                continue;
+            }
+            
+            final Object amount = itemMap.get("amount");
+            items.add(new ItemStack(material, amount instanceof Number number ? number.intValue() : 1));
+        }
+        
+        return RewardRule.builder()
+                .id(id)
+                .type(type)
+                .target(type == Type.CATEGORY ? section.getString("category") 
+                        : type == Type.TAG ? section.getString("tag", "").toLowerCase() : null)
+                .amount(section.getInt("amount", 0))
+                .message(section.getString("message"))
+                .commands(section.getStringList("commands"))
+                .items(items)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.collectionlog.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+
+/**
+ * The scheduler for regular Paper servers, where every region is the main thread.
+ */
+public class BukkitTaskScheduler implements TaskScheduler {
+
+    private final Plugin plugin;
+    private final BukkitScheduler scheduler;
+    
+    public BukkitTaskScheduler(final Plugin plugin) {
+        this.plugin = plugin;
+        this.scheduler = Bukkit.getScheduler();
+    }
+    
+    @Override
+    public TaskHandle runGlobal(final Runnable task) {
+        return this.scheduler.runTask(this.plugin, task)::cancel;
+    }
+    
+    @Override
+    public TaskHandle runGlobalLater(final Runnable task, final long delayTicks) {
+        return this.scheduler.runTaskLater(this.plugin, task, delayTicks)::cancel;
+    }
+    
+    @Override
+    public TaskHandle runGlobalTimer(final Runnable task, final long delayTicks, final long periodTicks) {
+        return this.scheduler.runTaskTimer(this.plugin, task, delayTicks, periodTicks)::cancel;
+    }
+    
+    @Override
+    public TaskHandle runAsync(final Runnable task) {
+        return this.scheduler.runTaskAsynchronously(this.plugin, task)::cancel;
+    }
+    
+    @Override
+    public TaskHandle runAsyncTimer(final Runnable task, final long delayTicks, final long periodTicks) {
+        return this.scheduler.runTaskTimerAsynchronously(this.plugin, task, delayTicks, periodTicks)::cancel;
+    }
+    
+    @Override
+    public TaskHandle runAtLocation(final Location location, final Runnable task) {
+        return this.runGlobal(task);
+    }
+    
+    @Override
+    public TaskHandle runForEntity(final Entity entity, final Runnable task, final Runnable retired) {
+        return this.runGlobal(() -> runOrRetire(entity, task, retired));
+    }
+    
+    @Override
+    public TaskHandle runForEntityLater(final Entity entity, final Runnable task, final Runnable retired,
+            final long delayTicks) {
+        return this.runGlobalLater(() -> runOrRetire(entity, task, retired), delayTicks);
+    }
+    
+    /**
+     * Run an entity task unless the entity is gone, like Folia's entity scheduler. A player
+     * is only gone once they leave; dead players still get their tasks.
+     */
+    private static void runOrRetire(final Entity entity, final Runnable task, final Runnable retired) {
+        if (!(entity instanceof Player player) || player.isOnline()) {
+            task.run();
+        } else if (retired != null) {
+            retired.run();
+        }
+    }
+    
+    @Override
+    public boolean isOwnedByCurrentRegion(final Entity entity) {
+        return Bukkit.isPrimaryThread();
+    }
+    
+    @Override
+    public boolean isGlobalThread() {
+        return Bukkit.isPrimaryThread();
+    }
+}
@@ -0,0 +1,97 @@
+package com.collectionlog.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scheduler for Folia, backed by its global, region, entity and async schedulers.
+ */
+public class FoliaTaskScheduler implements TaskScheduler {
+
+    private static final long MILLIS_PER_TICK = 50L;
+    
+    private final Plugin plugin;
+    
+    public FoliaTaskScheduler(final Plugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public TaskHandle runGlobal(final Runnable task) {
+        return wrap(Bukkit.getGlobalRegionScheduler().run(this.plugin, scheduled -> task.run()));
+    }
+    
+    @Override
+    public TaskHandle runGlobalLater(final Runnable task, final long delayTicks) {
+        return wrap(Bukkit.getGlobalRegionScheduler().runDelayed(this.plugin, scheduled -> task.run(),
+                Math.max(1L, delayTicks)));
+    }
+    
+    @Override
+    public TaskHandle runGlobalTimer(final Runnable task, final long delayTicks, final long periodTicks) {
+        return wrap(Bukkit.getGlobalRegionScheduler().runAtFixedRate(this.plugin, scheduled -> task.run(),
+                Math.max(1L, delayTicks), Math.max(1L, periodTicks)));
+    }
+    
+    @Override
+    public TaskHandle runAsync(final Runnable task) {
+        return wrap(Bukkit.getAsyncScheduler().runNow(this.plugin, scheduled -> task.run()));
+    }
+    
+    @Override
+    public TaskHandle runAsyncTimer(final Runnable task, final long delayTicks, final long periodTicks) {
+        return wrap(Bukkit.getAsyncScheduler().runAtFixedRate(this.plugin, scheduled -> task.run(),
+                Math.max(1L, delayTicks) * MILLIS_PER_TICK, Math.max(1L, periodTicks) * MILLIS_PER_TICK,
+                TimeUnit.MILLISECONDS));
+    }
+    
+    @Override
+    public TaskHandle runAtLocation(final Location location, final Runnable task) {
+        return wrap(Bukkit.getRegionScheduler().run(this.plugin, location, scheduled -> task.run()));
+    }
+    
+    @Override
+    public TaskHandle runForEntity(final Entity entity, final Runnable task, final Runnable retired) {
+        return wrap(entity.getScheduler().run(this.plugin, scheduled -> task.run(), retired), retired);
+    }
+    
+    @Override
+    public TaskHandle runForEntityLater(final Entity entity, final Runnable task, final Runnable retired,
+            final long delayTicks) {
+        return wrap(entity.getScheduler().runDelayed(this.plugin, scheduled -> task.run(), retired,
+                Math.max(1L, delayTicks)), retired);
+    }
+    
+    @Override
+    public boolean isOwnedByCurrentRegion(final Entity entity) {
+        return Bukkit.isOwnedByCurrentRegion(entity);
+    }
+    
+    @Override
+    public boolean isGlobalThread() {
+        return Bukkit.isGlobalTickThread();
+    }
+    
+    /**
+     * Wrap a Folia task; the entity scheduler returns null when the entity is already gone
+     */
+    private static TaskHandle wrap(final ScheduledTask task) {
+        return task == null ? TaskHandle.NONE : task::cancel;
+    }
+    
+    /**
+     * Wrap an entity task, running the retired callback if the entity was already gone,
+     * as the entity scheduler then calls neither
+     */
+    private static TaskHandle wrap(final ScheduledTask task, final Runnable retired) {
+        if (task == null && retired != null) {
+            retired.run();
+        }
+        return wrap(task);
+    }
+}
@@ -0,0 +1,17 @@
+package com.collectionlog.scheduler;
+
+/**
+ * A task scheduled through a {@link TaskScheduler}, whichever scheduler ended up running it.
+ */
+public interface TaskHandle {
+
+    /**
+     * A handle for a task that was never scheduled, e.g. because its entity was removed
+     */
+    TaskHandle NONE = () -> { };
+    
+    /**
+     * Cancel the task if it hasn't run yet, or stop a repeating task
+     */
+    void cancel();
+}
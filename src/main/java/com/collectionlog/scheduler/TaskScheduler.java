@@ -0,0 +1,169 @@
+package com.collectionlog.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Runs the plugin's tasks on the right thread. On Paper everything but async work runs
+ * on the main thread; on Folia, work for an entity or location runs on the region that
+ * owns it, server-wide work on the global region, and nothing may assume a single main thread.
+ * <p>
+ * All delays and periods are in ticks.
+ */
+public interface TaskScheduler {
+
+    /**
+     * Create the scheduler matching the server the plugin runs on
+     * 
+     * @param plugin The plugin owning the tasks
+     * @return A Folia scheduler on Folia, a Bukkit scheduler otherwise
+     */
+    static TaskScheduler create(final Plugin plugin) {
+        return isFolia() ? new FoliaTaskScheduler(plugin) : new BukkitTaskScheduler(plugin);
+    }
+    
+    /**
+     * Check whether the server uses Folia's regionized threading
+     * 
+     * @return True on Folia
+     */
+    static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Run a task on the global region, for server-wide work such as console commands
+     * 
+     * @param task The task
+     * @return The scheduled task
+     */
+    TaskHandle runGlobal(Runnable task);
+    
+    /**
+     * Run a task on the global region after a delay
+     * 
+     * @param task The task
+     * @param delayTicks The delay
+     * @return The scheduled task
+     */
+    TaskHandle runGlobalLater(Runnable task, long delayTicks);
+    
+    /**
+     * Run a task on the global region repeatedly
+     * 
+     * @param task The task
+     * @param delayTicks The delay before the first run
+     * @param periodTicks The time between runs
+     * @return The scheduled task
+     */
+    TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+    
+    /**
+     * Run a task off the server threads
+     * 
+     * @param task The task
+     * @return The scheduled task
+     */
+    TaskHandle runAsync(Runnable task);
+    
+    /**
+     * Run a task off the server threads repeatedly
+     * 
+     * @param task The task
+     * @param delayTicks The delay before the first run
+     * @param periodTicks The time between runs
+     * @return The scheduled task
+     */
+    TaskHandle runAsyncTimer(Runnable task, long delayTicks, long periodTicks);
+    
+    /**
+     * Run a task on the region owning a location
+     * 
+     * @param location The location
+     * @param task The task
+     * @return The scheduled task
+     */
+    TaskHandle runAtLocation(Location location, Runnable task);
+    
+    /**
+     * Run a task on the region owning an entity, following it across regions. The task
+     * is dropped if the entity is removed (for a player, if they leave) before it runs.
+     * 
+     * @param entity The entity
+     * @param task The task
+     * @return The scheduled task
+     */
+    default TaskHandle runForEntity(final Entity entity, final Runnable task) {
+        return this.runForEntity(entity, task, null);
+    }
+    
+    /**
+     * Run a task on the region owning an entity, following it across regions. If the
+     * entity is removed (for a player, if they leave) before the task runs, the retired
+     * callback runs instead, so callers can reset state that waits for the task.
+     * 
+     * @param entity The entity
+     * @param task The task
+     * @param retired Runs instead of the task if the entity is gone, may be null
+     * @return The scheduled task
+     */
+    TaskHandle runForEntity(Entity entity, Runnable task, Runnable retired);
+    
+    /**
+     * Run a task on the region owning an entity after a delay
+     * 
+     * @param entity The entity
+     * @param task The task
+     * @param delayTicks The delay
+     * @return The scheduled task
+     */
+    default TaskHandle runForEntityLater(final Entity entity, final Runnable task, final long delayTicks) {
+        return this.runForEntityLater(entity, task, null, delayTicks);
+    }
+    
+    /**
+     * Run a task on the region owning an entity after a delay, or the retired callback
+     * instead if the entity is removed first
+     * 
+     * @param entity The entity
+     * @param task The task
+     * @param retired Runs instead of the task if the entity is gone, may be null
+     * @param delayTicks The delay
+     * @return The scheduled task
+     */
+    TaskHandle runForEntityLater(Entity entity, Runnable task, Runnable retired, long delayTicks);
+    
+    /**
+     * Check whether the current thread may touch an entity
+     * 
+     * @param entity The entity
+     * @return True if the current thread owns the entity's region
+     */
+    boolean isOwnedByCurrentRegion(Entity entity);
+    
+    /**
+     * Check whether the current thread is the global region thread
+     * 
+     * @return True on the global region (the main thread on Paper)
+     */
+    boolean isGlobalThread();
+    
+    /**
+     * Run a task where it may talk to a command sender: on the player's region for
+     * players, on the global region for the console and everything else
+     * 
+     * @param sender The sender
+     * @param task The task
+     * @return The scheduled task
+     */
+    default TaskHandle runForSender(final CommandSender sender, final Runnable task) {
+        return sender instanceof Entity entity ? this.runForEntity(entity, task) : this.runGlobal(task);
+    }
+}
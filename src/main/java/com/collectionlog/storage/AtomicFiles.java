@@ -0,0 +1,47 @@
+package com.collectionlog.storage;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces files so that readers never see a torn one: the new contents are written to a
+ * uniquely named temporary sibling and moved over the target, atomically where the file
+ * system allows it. Concurrent writers of one file need no coordination; the last move wins.
+ */
+public final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+    
+    /**
+     * Write a file, replacing the old one atomically
+     * 
+     * @param target The file to write
+     * @param bytes The new contents
+     * @throws IOException If the file could not be written
+     */
+    public static void write(final Path target, final byte[] bytes) throws IOException {
+        // A temp file of its own per write, so concurrent writers never share one
+        final Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), 
+                target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Don't leave the temp file behind when the move didn't happen
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+}
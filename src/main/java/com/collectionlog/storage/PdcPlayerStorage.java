@@ -0,0 +1,181 @@
+package com.collectionlog.storage;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.model.PlayerProfiles;
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+/**
+ * Stores each player's profiles in their persistent data container, so the server saves and
+ * loads them with the player file and joining or leaving costs no extra I/O. Online players
+ * are read and written in memory on the thread owning them.
+ * <p>
+ * Offline players can't be written this way; their changes go to the YAML file in the data
+ * folder and are merged into the container when they next join. The same happens to YAML
+ * files left by the file backend, which migrates players one join at a time. Reads of offline
+ * players look into their player file directly.
+ */
+public class PdcPlayerStorage implements PlayerStorage {
+
+    private static final String PLAYER_FILE_EXTENSION = ".dat";
+    
+    private final CollectionLog plugin;
+    private final YamlPlayerStorage files;
+    private final NamespacedKey key;
+    
+    public PdcPlayerStorage(final CollectionLog plugin, final YamlPlayerStorage files) {
+        this.plugin = plugin;
+        this.files = files;
+        this.key = new NamespacedKey(plugin, "collection");
+    }
+    
+    @Override
+    public PlayerProfiles read(final UUID playerId) {
+        // Changes made while the player was offline, or a file not migrated yet
+        final PlayerProfiles profiles = this.files.read(playerId);
+        
+        try {
+            final byte[] bytes = this.readBytes(playerId);
+            if (bytes != null) {
+                profiles.merge(PlayerProfiles.fromBytes(playerId, bytes));
+            }
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Failed to read stored collection of " + playerId, e);
+        }
+        
+        return profiles;
+    }
+    
+    private byte[] readBytes(final UUID playerId) throws IOException {
+        final Player player = this.getOwnedPlayer(playerId);
+        if (player != null) {
+            return player.getPersistentDataContainer().get(this.key, PersistentDataType.BYTE_ARRAY);
+        }
+        return PlayerDataFile.readByteArray(this.getPlayerFile(playerId), this.key.toString());
+    }
+    
+    @Override
+    public long write(final PlayerProfiles profiles) throws IOException {
+        final UUID playerId = profiles.getPlayerId();
+        final Player player = Bukkit.getPlayer(playerId);
+        if (player == null) {
+            return this.files.write(profiles);
+        }
+        
+        final byte[] bytes = profiles.toBytes();
+        if (this.plugin.getTaskScheduler().isOwnedByCurrentRegion(player)) {
+            this.store(player, bytes);
+        } else if (this.plugin.isEnabled()) {
+            this.plugin.getTaskScheduler().runForEntity(player, () -> this.store(player, bytes));
+        } else {
+            // No tasks can be scheduled while disabling, keep it until the next join
+            return this.files.write(profiles);
+        }
+        return bytes.length;
+    }
+    
+    private void store(final Player player, final byte[] bytes) {
+        player.getPersistentDataContainer().set(this.key, PersistentDataType.BYTE_ARRAY, bytes);
+        
+        // The container now holds everything the file did, as it was merged in on join
+        final UUID playerId = player.getUniqueId();
+        if (this.files.exists(playerId)) {
+            try {
+                this.files.delete(playerId);
+            } catch (IOException e) {
+                this.plugin.getLogger().log(Level.WARNING, "Failed to delete migrated file of " + playerId, e);
+            }
+        }
+    }
+    
+    @Override
+    public long getStamp(final UUID playerId) {
+        // The container only changes through this server; only the file has other writers
+        return this.files.getStamp(playerId);
+    }
+    
+    @Override
+    public long getSize(final UUID playerId) {
+        final Player player = this.getOwnedPlayer(playerId);
+        if (player == null) {
+            return this.files.getSize(playerId);
+        }
+        
+        final byte[] bytes = player.getPersistentDataContainer().get(this.key, PersistentDataType.BYTE_ARRAY);
+        return bytes != null ? bytes.length : 0L;
+    }
+    
+    @Override
+    public void delete(final UUID playerId) throws IOException {
+        final Player player = Bukkit.getPlayer(playerId);
+        if (player != null) {
+            if (this.plugin.getTaskScheduler().isOwnedByCurrentRegion(player)) {
+                player.getPersistentDataContainer().remove(this.key);
+            } else {
+                this.plugin.getTaskScheduler().runForEntity(player,
+                        () -> player.getPersistentDataContainer().remove(this.key));
+            }
+        } else if (PlayerDataFile.readByteArray(this.getPlayerFile(playerId), this.key.toString()) != null) {
+            throw new IOException("Can't delete the collection of offline player " + playerId +
+                    " from their player file");
+        }
+        this.files.delete(playerId);
+    }
+    
+    @Override
+    public Stream<UUID> listStored() throws IOException {
+        final Stream<UUID> migrated = this.listPlayerFiles();
+        final Stream<UUID> pending = this.files.listStored();
+        return Stream.concat(migrated, pending)
+                .distinct()
+                .onClose(() -> {
+                    migrated.close();
+                    pending.close();
+                });
+    }
+    
+    private Stream<UUID> listPlayerFiles() throws IOException {
+        final Path folder = this.getPlayerDataFolder().toPath();
+        if (!Files.isDirectory(folder)) {
+            return Stream.empty();
+        }
+        return Files.list(folder)
+                .map(path -> YamlPlayerStorage.parsePlayerId(path, PLAYER_FILE_EXTENSION))
+                .filter(Objects::nonNull);
+    }
+    
+    @Override
+    public boolean isThreadBound() {
+        return true;
+    }
+    
+    /**
+     * Get an online player if the current thread may touch them
+     * 
+     * @param playerId The UUID of the player
+     * @return The player, or null if offline or owned by another thread
+     */
+    private Player getOwnedPlayer(final UUID playerId) {
+        final Player player = Bukkit.getPlayer(playerId);
+        return player != null && this.plugin.getTaskScheduler().isOwnedByCurrentRegion(player) ? player : null;
+    }
+    
+    private File getPlayerDataFolder() {
+        return new File(Bukkit.getWorlds().get(0).getWorldFolder(), "playerdata");
+    }
+    
+    private File getPlayerFile(final UUID playerId) {
+        return new File(this.getPlayerDataFolder(), playerId + PLAYER_FILE_EXTENSION);
+    }
+}
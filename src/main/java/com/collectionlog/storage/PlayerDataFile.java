@@ -0,0 +1,132 @@
+package com.collectionlog.storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads one persistent data value of an offline player straight from their player file
+ * (world/playerdata/&lt;uuid&gt;.dat), without loading the player. The file is compressed NBT;
+ * only the path down to the value is parsed and everything else is skipped.
+ */
+final class PlayerDataFile {
+
+    private static final int TAG_END = 0;
+    private static final int TAG_BYTE = 1;
+    private static final int TAG_SHORT = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_BYTE_ARRAY = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_COMPOUND = 10;
+    private static final int TAG_INT_ARRAY = 11;
+    private static final int TAG_LONG_ARRAY = 12;
+    
+    /** The compound holding values of the persistent data container */
+    private static final String BUKKIT_VALUES = "BukkitValues";
+    
+    private PlayerDataFile() {
+    }
+    
+    /**
+     * Read a byte array value from the persistent data container stored in a player file
+     * 
+     * @param file The player file
+     * @param key The namespaced key of the value, e.g. "plugin:name"
+     * @return The value, or null if the file or value doesn't exist
+     * @throws IOException If the file can't be read or isn't valid NBT
+     */
+    static byte[] readByteArray(final File file, final String key) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file.toPath()))))) {
+            if (in.readUnsignedByte() != TAG_COMPOUND) {
+                throw new IOException("Not a player file: " + file.getName());
+            }
+            in.readUTF();
+            
+            if (!seek(in, BUKKIT_VALUES, TAG_COMPOUND) || !seek(in, key, TAG_BYTE_ARRAY)) {
+                return null;
+            }
+            
+            final byte[] value = new byte[in.readInt()];
+            in.readFully(value);
+            return value;
+        }
+    }
+    
+    /**
+     * Skip through the entries of the compound being read until one with the given name
+     * 
+     * @return True if the entry was found and its payload is next in the stream
+     */
+    private static boolean seek(final DataInputStream in, final String name, final int type) throws IOException {
+        int entryType;
+        while ((entryType = in.readUnsignedByte()) != TAG_END) {
+            final String entryName = in.readUTF();
+            if (entryType == type && entryName.equals(name)) {
+                return true;
+            }
+            skip(in, entryType);
+        }
+        return false;
+    }
+    
+    private static void skip(final DataInputStream in, final int type) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                in.skipNBytes(1);
+                break;
+            case TAG_SHORT:
+                in.skipNBytes(2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                in.skipNBytes(4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                in.skipNBytes(8);
+                break;
+            case TAG_BYTE_ARRAY:
+                in.skipNBytes(in.readInt());
+                break;
+            case TAG_STRING:
+                in.skipNBytes(in.readUnsignedShort());
+                break;
+            case TAG_LIST: {
+                final int elementType = in.readUnsignedByte();
+                final int length = in.readInt();
+                for (int i = 0; i < length; i++) {
+                    skip(in, elementType);
+                }
+                break;
+            }
+            case TAG_COMPOUND: {
+                int entryType;
+                while ((entryType = in.readUnsignedByte()) != TAG_END) {
+                    in.skipNBytes(in.readUnsignedShort());
+                    skip(in, entryType);
+                }
+                break;
+            }
+            case TAG_INT_ARRAY:
+                in.skipNBytes(4L * in.readInt());
+                break;
+            case TAG_LONG_ARRAY:
+                in.skipNBytes(8L * in.readInt());
+                break;
+            default:
+                throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+}
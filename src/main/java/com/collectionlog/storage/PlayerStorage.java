@@ -0,0 +1,95 @@
+package com.collectionlog.storage;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.model.PlayerProfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Where player collections are stored. Implementations only move whole player records;
+ * merging copies from other writers is left to the caller.
+ */
+public interface PlayerStorage {
+
+    /**
+     * Create the storage backend selected in the config
+     * 
+     * @param plugin The plugin instance
+     * @param dataFolder The folder holding player data files
+     * @return The storage backend
+     */
+    static PlayerStorage create(final CollectionLog plugin, final File dataFolder) {
+        final YamlPlayerStorage files = new YamlPlayerStorage(dataFolder);
+        final String backend = plugin.getConfigManager().getMainConfig().getString("storage.backend", "file");
+        
+        if (backend.equalsIgnoreCase("pdc")) {
+            return new PdcPlayerStorage(plugin, files);
+        }
+        
+        if (!backend.equalsIgnoreCase("file")) {
+            plugin.getLogger().warning("Unknown storage backend '" + backend + "', using file storage");
+        }
+        return files;
+    }
+    
+    /**
+     * Read a player's stored profiles
+     * 
+     * @param playerId The UUID of the player
+     * @return The stored profiles, empty if nothing is stored
+     */
+    PlayerProfiles read(UUID playerId);
+    
+    /**
+     * Store a player's profiles, replacing what was stored
+     * 
+     * @param profiles The profiles to store
+     * @return The number of bytes written
+     * @throws IOException If an I/O error occurs
+     */
+    long write(PlayerProfiles profiles) throws IOException;
+    
+    /**
+     * Get a value that changes whenever a player's stored record is rewritten by anyone,
+     * used to tell whether other writers changed it
+     * 
+     * @param playerId The UUID of the player
+     * @return The stamp, or 0 if nothing is stored
+     */
+    long getStamp(UUID playerId);
+    
+    /**
+     * Get the size of a player's stored record
+     * 
+     * @param playerId The UUID of the player
+     * @return The size in bytes, or 0 if unknown
+     */
+    long getSize(UUID playerId);
+    
+    /**
+     * Delete everything stored for a player
+     * 
+     * @param playerId The UUID of the player
+     * @throws IOException If an I/O error occurs
+     */
+    void delete(UUID playerId) throws IOException;
+    
+    /**
+     * List the players that may have something stored. The stream must be closed.
+     * 
+     * @return The UUIDs of the players
+     * @throws IOException If an I/O error occurs
+     */
+    Stream<UUID> listStored() throws IOException;
+    
+    /**
+     * Check whether online players must be read and written on the thread owning them.
+     * Bulk loads and flushes then run on the calling thread instead of the worker pool.
+     * 
+     * @return True if records live on the player entities
+     */
+    boolean isThreadBound();
+}
@@ -0,0 +1,107 @@
+package com.collectionlog.storage;
+
+import com.collectionlog.model.PlayerProfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Stores each player's profiles in their own YAML file in the data folder
+ */
+public class YamlPlayerStorage implements PlayerStorage {
+
+    private static final String EXTENSION = ".yml";
+    
+    private final File dataFolder;
+    
+    public YamlPlayerStorage(final File dataFolder) {
+        this.dataFolder = dataFolder;
+    }
+    
+    @Override
+    public PlayerProfiles read(final UUID playerId) {
+        return PlayerProfiles.fromFile(playerId, this.getFile(playerId));
+    }
+    
+    @Override
+    public long write(final PlayerProfiles profiles) throws IOException {
+        final File file = this.getFile(profiles.getPlayerId());
+        profiles.saveToFile(file);
+        return file.length();
+    }
+    
+    @Override
+    public long getStamp(final UUID playerId) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(this.getFile(playerId).toPath(),
+                    BasicFileAttributes.class);
+            return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) * 31 + attributes.size();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+    
+    @Override
+    public long getSize(final UUID playerId) {
+        return this.getFile(playerId).length();
+    }
+    
+    @Override
+    public void delete(final UUID playerId) throws IOException {
+        Files.deleteIfExists(this.getFile(playerId).toPath());
+    }
+    
+    @Override
+    public Stream<UUID> listStored() throws IOException {
+        return Files.list(this.dataFolder.toPath())
+                .map(path -> parsePlayerId(path, EXTENSION))
+                .filter(Objects::nonNull);
+    }
+    
+    @Override
+    public boolean isThreadBound() {
+        return false;
+    }
+    
+    /**
+     * Check whether a player has a file
+     * 
+     * @param playerId The UUID of the player
+     * @return True if the player's file exists
+     */
+    public boolean exists(final UUID playerId) {
+        return this.getFile(playerId).exists();
+    }
+    
+    private File getFile(final UUID playerId) {
+        return new File(this.dataFolder, playerId.toString() + EXTENSION);
+    }
+    
+    /**
+     * Get the player a file is named after
+     * 
+     * @param path The file
+     * @param extension The extension player files have
+     * @return The UUID, or null if the file isn't named after a player
+     */
+    static UUID parsePlayerId(final Path path, final String extension) {
+        final String name = path.getFileName().toString();
+        if (!name.endsWith(extension)) {
+            return null;
+        }
+        
+        try {
+            return UUID.fromString(name.substring(0, name.length() - extension.length()));
+        } catch (IllegalArgumentException e) {
+            // Not a player file
+            return null;
+        }
+    }
+}
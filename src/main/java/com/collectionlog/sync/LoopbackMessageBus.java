@@ -0,0 +1,44 @@
+package com.collectionlog.sync;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An in-process message bus. Every instance created with the same channel delivers
+ * to every other instance on that channel, which makes it possible to run several
+ * sync services inside one JVM for testing without a proxy.
+ */
+public class LoopbackMessageBus implements MessageBus {
+
+    private static final List<LoopbackMessageBus> INSTANCES = new CopyOnWriteArrayList<>();
+    
+    private final String channel;
+    private volatile Consumer<byte[]> handler;
+    
+    public LoopbackMessageBus(final String channel) {
+        this.channel = channel;
+    }
+    
+    @Override
+    public void start(final Consumer<byte[]> handler) {
+        this.handler = handler;
+        INSTANCES.add(this);
+    }
+    
+    @Override
+    public void publish(final byte[] payload) {
+        for (LoopbackMessageBus bus : INSTANCES) {
+            final Consumer<byte[]> target = bus.handler;
+            if (bus != this && target != null && bus.channel.equals(this.channel)) {
+                target.accept(payload.clone());
+            }
+        }
+    }
+    
+    @Override
+    public void close() {
+        INSTANCES.remove(this);
+        this.handler = null;
+    }
+}
@@ -0,0 +1,30 @@
+package com.collectionlog.sync;
+
+import java.util.function.Consumer;
+
+/**
+ * A transport that carries sync messages between servers sharing the same
+ * collection storage. Implementations only move opaque payloads; encoding is
+ * handled by {@link SyncMessage}.
+ */
+public interface MessageBus {
+
+    /**
+     * Start the transport and deliver every payload received from other servers to the handler
+     * 
+     * @param handler The handler for incoming payloads
+     */
+    void start(Consumer<byte[]> handler);
+    
+    /**
+     * Send a payload to every other server
+     * 
+     * @param payload The encoded message
+     */
+    void publish(byte[] payload);
+    
+    /**
+     * Stop the transport and release its resources
+     */
+    void close();
+}
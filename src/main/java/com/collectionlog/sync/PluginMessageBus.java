@@ -0,0 +1,88 @@
+package com.collectionlog.sync;
+
+import com.collectionlog.CollectionLog;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * A message bus that forwards payloads through the proxy using the BungeeCord
+ * "Forward" plugin message, which Velocity also supports. Plugin messages travel
+ * over a player connection, so nothing is sent while the server is empty; players
+ * who are not cached anywhere are read from shared storage on their next join anyway.
+ */
+public class PluginMessageBus implements MessageBus, PluginMessageListener {
+
+    private static final String CHANNEL = "BungeeCord";
+    private static final String SUBCHANNEL = "CollectionLog";
+    
+    private final CollectionLog plugin;
+    private Consumer<byte[]> handler;
+    
+    public PluginMessageBus(final CollectionLog plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public void start(final Consumer<byte[]> handler) {
+        this.handler = handler;
+        this.plugin.getServer().getMessenger().registerOutgoingPluginChannel(this.plugin, CHANNEL);
+        this.plugin.getServer().getMessenger().registerIncomingPluginChannel(this.plugin, CHANNEL, this);
+    }
+    
+    @Override
+    public void publish(final byte[] payload) {
+        final Iterator<? extends Player> players = this.plugin.getServer().getOnlinePlayers().iterator();
+        if (!players.hasNext()) {
+            return;
+        }
+        
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(SUBCHANNEL);
+            out.writeShort(payload.length);
+            out.write(payload);
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Failed to encode sync message", e);
+            return;
+        }
+        
+        players.next().sendPluginMessage(this.plugin, CHANNEL, bytes.toByteArray());
+    }
+    
+    @Override
+    public void onPluginMessageReceived(final String channel, final Player player, final byte[] message) {
+        if (!CHANNEL.equals(channel) || this.handler == null) {
+            return;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            if (!SUBCHANNEL.equals(in.readUTF())) {
+                return;
+            }
+            
+            final byte[] payload = new byte[in.readUnsignedShort()];
+            in.readFully(payload);
+            this.handler.accept(payload);
+        } catch (IOException e) {
+            this.plugin.debug("Ignoring malformed plugin message: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void close() {
+        this.plugin.getServer().getMessenger().unregisterOutgoingPluginChannel(this.plugin, CHANNEL);
+        this.plugin.getServer().getMessenger().unregisterIncomingPluginChannel(this.plugin, CHANNEL, this);
+        this.handler = null;
+    }
+}
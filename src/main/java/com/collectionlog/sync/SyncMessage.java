@@ -0,0 +1,129 @@
+package com.collectionlog.sync;
+
+import com.collectionlog.model.AcquisitionSource;
+import com.collectionlog.model.PlayerCollection;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+/**
+ * A compact change notification exchanged between servers, e.g. "player X gained item Y".
+ * Messages describe deltas only; receivers patch their cached collections in place.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncMessage {
+
+    /**
+     * The kind of change a message describes
+     */
+    public enum Type {
+        ITEM_ADDED,
+        COLLECTION_RESET,
+        PROFILE_SELECTED
+    }
+    
+    private Type type;
+    private UUID origin;
+    private UUID playerId;
+    private long epoch;
+    /**
+     * The profile the change applies to, or for a selection the selected profile, null to choose by world
+     */
+    private String profile;
+    private String categoryId;
+    private String itemId;
+    private AcquisitionSource source;
+    
+    /**
+     * When the item was acquired, or when the selection was made
+     */
+    private long timestamp;
+    
+    /**
+     * Encode this message to bytes
+     * 
+     * @return The encoded message
+     */
+    public byte[] encode() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(this.type.ordinal());
+            out.writeLong(this.origin.getMostSignificantBits());
+            out.writeLong(this.origin.getLeastSignificantBits());
+            out.writeLong(this.playerId.getMostSignificantBits());
+            out.writeLong(this.playerId.getLeastSignificantBits());
+            out.writeLong(this.epoch);
+            
+            if (this.type == Type.ITEM_ADDED) {
+                out.writeUTF(this.categoryId);
+                out.writeUTF(this.itemId);
+                out.writeByte(this.source == null ? 0 : this.source.ordinal());
+                out.writeLong(this.timestamp);
+            } else if (this.type == Type.PROFILE_SELECTED) {
+                out.writeBoolean(this.profile != null);
+                out.writeLong(this.timestamp);
+            }
+            
+            // Last, so messages from servers without profiles still decode
+            out.writeUTF(this.profile == null ? PlayerCollection.DEFAULT_PROFILE : this.profile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Decode a message from bytes
+     * 
+     * @param payload The encoded message
+     * @return The decoded message
+     * @throws IOException If the payload is malformed
+     */
+    public static SyncMessage decode(final byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            final int typeIndex = in.readUnsignedByte();
+            if (typeIndex >= Type.values().length) {
+                throw new IOException("Unknown sync message type: " + typeIndex);
+            }
+            
+            final SyncMessage message = new SyncMessage();
+            message.type = Type.values()[typeIndex];
+            message.origin = new UUID(in.readLong(), in.readLong());
+            message.playerId = new UUID(in.readLong(), in.readLong());
+            message.epoch = in.readLong();
+            
+            if (message.type == Type.ITEM_ADDED) {
+                message.categoryId = in.readUTF();
+                message.itemId = in.readUTF();
+                message.source = AcquisitionSource.fromId(in.readUnsignedByte());
+                message.timestamp = in.readLong();
+            }
+            
+            boolean selected = true;
+            if (message.type == Type.PROFILE_SELECTED) {
+                selected = in.readBoolean();
+                message.timestamp = in.readLong();
+            }
+            
+            message.profile = in.available() > 0 ? in.readUTF() : PlayerCollection.DEFAULT_PROFILE;
+            if (!selected) {
+                message.profile = null;
+            }
+            
+            return message;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.collectionlog.sync;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.model.AcquisitionSource;
+import lombok.Getter;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Keeps cached collections consistent across servers that share one storage backend.
+ * Every local change is published as a small delta, and deltas from other servers are
+ * patched into the local cache instead of reloading the player from storage.
+ */
+public class SyncService {
+
+    private final CollectionLog plugin;
+    
+    @Getter
+    private final UUID serverId;
+    
+    private MessageBus bus;
+    
+    public SyncService(final CollectionLog plugin) {
+        this.plugin = plugin;
+        this.serverId = UUID.randomUUID();
+    }
+    
+    /**
+     * Start the configured transport if sync is enabled
+     */
+    public void start() {
+        final ConfigurationSection config = this.plugin.getConfigManager().getMainConfig()
+                .getConfigurationSection("sync");
+        
+        if (config == null || !config.getBoolean("enabled", false)) {
+            return;
+        }
+        
+        final String transport = config.getString("transport", "plugin-messaging");
+        switch (transport.toLowerCase()) {
+            case "plugin-messaging":
+                this.bus = new PluginMessageBus(this.plugin);
+                break;
+            case "loopback":
+                this.bus = new LoopbackMessageBus(config.getString("channel", "collectionlog"));
+                break;
+            default:
+                this.plugin.getLogger().warning("Unknown sync transport '" + transport + "', sync disabled");
+                return;
+        }
+        
+        this.bus.start(this::receive);
+        this.plugin.getLogger().info("Collection sync enabled using " + transport + " transport");
+    }
+    
+    /**
+     * Stop the transport
+     */
+    public void stop() {
+        if (this.bus != null) {
+            this.bus.close();
+            this.bus = null;
+        }
+    }
+    
+    /**
+     * Check whether changes are being shared with other servers
+     * 
+     * @return True if a transport is running
+     */
+    public boolean isEnabled() {
+        return this.bus != null;
+    }
+    
+    /**
+     * Tell other servers that a player gained an item
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile the item was added to
+     * @param epoch The epoch of the player's collection
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @param source How the player acquired the item
+     * @param timestampMillis When the player acquired the item
+     */
+    public void publishItemAdded(final UUID playerId, final String profile, final long epoch, final String categoryId, 
+            final String itemId, final AcquisitionSource source, final long timestampMillis) {
+        this.publish(SyncMessage.builder()
+                .type(SyncMessage.Type.ITEM_ADDED)
+                .origin(this.serverId)
+                .playerId(playerId)
+                .profile(profile)
+                .epoch(epoch)
+                .categoryId(categoryId)
+                .itemId(itemId)
+                .source(source)
+                .timestamp(timestampMillis)
+                .build());
+    }
+    
+    /**
+     * Tell other servers that a player's collection was reset
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The profile that was reset
+     * @param epoch The epoch the collection was reset to
+     */
+    public void publishReset(final UUID playerId, final String profile, final long epoch) {
+        this.publish(SyncMessage.builder()
+                .type(SyncMessage.Type.COLLECTION_RESET)
+                .origin(this.serverId)
+                .playerId(playerId)
+                .profile(profile)
+                .epoch(epoch)
+                .build());
+    }
+    
+    /**
+     * Tell other servers that an admin changed a player's selected profile
+     * 
+     * @param playerId The UUID of the player
+     * @param profile The selected profile, or null to choose by world
+     * @param version When the selection was made
+     */
+    public void publishProfileSelected(final UUID playerId, final String profile, final long version) {
+        this.publish(SyncMessage.builder()
+                .type(SyncMessage.Type.PROFILE_SELECTED)
+                .origin(this.serverId)
+                .playerId(playerId)
+                .profile(profile)
+                .timestamp(version)
+                .build());
+    }
+    
+    private void publish(final SyncMessage message) {
+        final MessageBus current = this.bus;
+        if (current == null) {
+            return;
+        }
+        
+        final byte[] payload = message.encode();
+        if (this.plugin.getTaskScheduler().isGlobalThread()) {
+            current.publish(payload);
+        } else {
+            this.plugin.getTaskScheduler().runGlobal(() -> current.publish(payload));
+        }
+    }
+    
+    private void receive(final byte[] payload) {
+        final SyncMessage message;
+        try {
+            message = SyncMessage.decode(payload);
+        } catch (IOException e) {
+            this.plugin.debug("Ignoring malformed sync message: " + e.getMessage());
+            return;
+        }
+        
+        if (this.serverId.equals(message.getOrigin())) {
+            return;
+        }
+        
+        if (this.plugin.getTaskScheduler().isGlobalThread()) {
+            this.apply(message);
+        } else {
+            this.plugin.getTaskScheduler().runGlobal(() -> this.apply(message));
+        }
+    }
+    
+    private void apply(final SyncMessage message) {
+        switch (message.getType()) {
+            case ITEM_ADDED:
+                this.plugin.getCollectionManager().applyRemoteItem(message.getPlayerId(), message.getProfile(),
+                        message.getEpoch(), message.getCategoryId(), message.getItemId(), message.getSource(), 
+                        message.getTimestamp());
+                break;
+            case COLLECTION_RESET:
+                this.plugin.getCollectionManager().applyRemoteReset(message.getPlayerId(), message.getProfile(),
+                        message.getEpoch());
+                break;
+            case PROFILE_SELECTED:
+                this.plugin.getCollectionManager().applyRemoteSelection(message.getPlayerId(), message.getProfile(),
+                        message.getTimestamp());
+                break;
+            default:
+                break;
+        }
+    }
+}
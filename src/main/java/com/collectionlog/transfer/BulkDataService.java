@@ -0,0 +1,431 @@
+package com.collectionlog.transfer;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.manager.BulkTaskRunner;
+import com.collectionlog.manager.CollectionManager;
+import com.collectionlog.model.AcquisitionSource;
+import com.collectionlog.model.Catalog;
+import com.collectionlog.model.CollectionItem;
+import com.collectionlog.model.PlayerCollection;
+import com.collectionlog.model.PlayerProfiles;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Runs bulk operations over every stored collection: export, import, granting or
+ * revoking an item, and backfilling items from vanilla statistics. Stored files are
+ * streamed in fixed-size batches through the bulk worker pool, so memory use doesn't
+ * grow with the number of players, and players that aren't loaded are changed on disk
+ * without being loaded.
+ */
+public class BulkDataService {
+
+    private static final int BATCH_SIZE = 256;
+    private static final long PROGRESS_INTERVAL_MILLIS = 2000L;
+    
+    private final CollectionLog plugin;
+    private final AtomicBoolean running;
+    
+    @Getter
+    private final File exportFolder;
+    
+    public BulkDataService(final CollectionLog plugin) {
+        this.plugin = plugin;
+        this.running = new AtomicBoolean();
+        this.exportFolder = new File(plugin.getDataFolder(), "exports");
+    }
+    
+    /**
+     * Check whether a bulk operation is in progress
+     * 
+     * @return True if an operation is running
+     */
+    public boolean isRunning() {
+        return this.running.get();
+    }
+    
+    /**
+     * Export every stored collection to a new file in the exports folder
+     * 
+     * @param format The file format
+     * @param progress Receives progress messages, called off the main thread
+     * @return A future completed with the outcome
+     */
+    public CompletableFuture<Summary> exportAll(final TransferFormat format, final Consumer<String> progress) {
+        final String fileName = "collections-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) +
+                "." + format.getExtension();
+        final File target = new File(this.exportFolder, fileName);
+        
+        return this.submit("Export", progress, tracker -> {
+            Files.createDirectories(this.exportFolder.toPath());
+            final CollectionManager collectionManager = this.plugin.getCollectionManager();
+            
+            try (BufferedWriter writer = Files.newBufferedWriter(target.toPath(), StandardCharsets.UTF_8);
+                 Stream<UUID> playerIds = this.listStored()) {
+                writer.write(CollectionCodec.header(format));
+                
+                this.runBatches(playerIds.iterator(), tracker, playerId -> {
+                    final StringBuilder lines = new StringBuilder();
+                    final PlayerProfiles profiles = collectionManager.peekPlayerProfiles(playerId);
+                    for (PlayerCollection collection : profiles.getCollections()) {
+                        if (!collection.isEmpty()) {
+                            lines.append(CollectionCodec.encode(collection, format));
+                        }
+                    }
+                    this.write(writer, lines.toString());
+                    return true;
+                });
+            }
+            
+            tracker.message = "written to exports/" + fileName;
+        });
+    }
+    
+    /**
+     * Import a file from the exports folder, merging each record into the stored
+     * collection. Importing is idempotent: records only ever add items, unless they
+     * come from a newer epoch.
+     * 
+     * @param fileName The file name within the exports folder
+     * @param progress Receives progress messages, called off the main thread
+     * @return A future completed with the outcome
+     */
+    public CompletableFuture<Summary> importAll(final String fileName, final Consumer<String> progress) {
+        final File source = new File(this.exportFolder, fileName);
+        final TransferFormat format = TransferFormat.fromFileName(fileName);
+        
+        return this.submit("Import", progress, tracker -> {
+            if (format == null) {
+                throw new IOException("Unknown file type: " + fileName);
+            }
+            
+            if (!source.getCanonicalFile().toPath().startsWith(this.exportFolder.getCanonicalFile().toPath())) {
+                throw new IOException("Imports must come from the exports folder");
+            }
+            
+            final CollectionManager collectionManager = this.plugin.getCollectionManager();
+            try (BufferedReader reader = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8);
+                 CollectionCodec.Reader records = new CollectionCodec.Reader(reader, format)) {
+                this.runBatches(records, tracker, collectionManager::mergeStoredCollection);
+            }
+        });
+    }
+    
+    /**
+     * Give an item to every player with stored data
+     * 
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @param progress Receives progress messages, called off the main thread
+     * @return A future completed with the outcome
+     */
+    public CompletableFuture<Summary> grantAll(final String categoryId, final String itemId,
+            final Consumer<String> progress) {
+        final CollectionManager collectionManager = this.plugin.getCollectionManager();
+        
+        return this.submit("Grant", progress, tracker -> {
+            try (Stream<UUID> playerIds = this.listStored()) {
+                this.runBatches(playerIds.iterator(), tracker,
+                        playerId -> collectionManager.grantStoredItem(playerId, categoryId, itemId));
+            }
+        });
+    }
+    
+    /**
+     * Take an item away from every player with stored data
+     * 
+     * @param categoryId The category ID
+     * @param itemId The item ID
+     * @param progress Receives progress messages, called off the main thread
+     * @return A future completed with the outcome
+     */
+    public CompletableFuture<Summary> revokeAll(final String categoryId, final String itemId,
+            final Consumer<String> progress) {
+        final CollectionManager collectionManager = this.plugin.getCollectionManager();
+        
+        return this.submit("Revoke", progress, tracker -> {
+            try (Stream<UUID> playerIds = this.listStored()) {
+                this.runBatches(playerIds.iterator(), tracker,
+                        playerId -> collectionManager.revokeItem(playerId, categoryId, itemId));
+            }
+        });
+    }
+    
+    /**
+     * Run a task for every stored collection, such as rebuilding a derived index
+     * 
+     * @param name The operation name used in progress messages
+     * @param task The task, run on worker threads; returns true if it changed something
+     * @param progress Receives progress messages, called off the main thread
+     * @return A future completed with the outcome
+     */
+    public CompletableFuture<Summary> forEachStored(final String name, final Predicate<PlayerCollection> task, 
+            final Consumer<String> progress) {
+        final CollectionManager collectionManager = this.plugin.getCollectionManager();
+        
+        return this.submit(name, progress, tracker -> {
+            try (Stream<UUID> playerIds = this.listStored()) {
+                this.runBatches(playerIds.iterator(), tracker, 
+                        playerId -> task.test(collectionManager.peekPlayerCollection(playerId)));
+            }
+        });
+    }
+    
+    /**
+     * Give players the catalog items their vanilla statistics show they picked up or crafted,
+     * for servers that ran before the log was installed. Every statistics file of the main
+     * world is parsed on the worker pool, at most {@code settings.backfill.files-per-second}
+     * a second, and each player's new items are written to their default profile at once.
+     * Only items matched by material alone can be recognised this way.
+     * 
+     * @param progress Receives progress messages, called off the main thread
+     * @return A future completed with the outcome
+     */
+    public CompletableFuture<Summary> backfillStatistics(final Consumer<String> progress) {
+        final Path statsFolder = new File(Bukkit.getWorlds().get(0).getWorldFolder(), "stats").toPath();
+        final int filesPerSecond = Math.max(0, this.plugin.getConfigManager().getMainConfig()
+                .getInt("settings.backfill.files-per-second", 500));
+        
+        return this.submit("Backfill", progress, tracker -> {
+            if (!Files.isDirectory(statsFolder)) {
+                throw new IOException("No statistics folder at " + statsFolder);
+            }
+            
+            final CollectionManager collectionManager = this.plugin.getCollectionManager();
+            final Catalog catalog = this.plugin.getConfigManager().getCatalog();
+            try (Stream<Path> files = Files.list(statsFolder)) {
+                this.runBatches(files.iterator(), tracker, file -> {
+                    final UUID playerId = StatisticsFile.getPlayerId(file);
+                    if (playerId == null) {
+                        return false;
+                    }
+                    
+                    final Map<CollectionItem, AcquisitionSource> items = new LinkedHashMap<>();
+                    try {
+                        StatisticsFile.read(file, (key, source) -> {
+                            final Material material = Material.matchMaterial(key);
+                            if (material == null) {
+                                return;
+                            }
+                            
+                            // Items that need custom model data can't be told apart by material
+                            for (CollectionItem item : catalog.getItemsByMaterial(material)) {
+                                if (item.getCustomModelData() == null) {
+                                    items.putIfAbsent(item, source);
+                                }
+                            }
+                        });
+                        
+                        // The file's age is the latest the items can have been collected
+                        final long timestamp = Files.getLastModifiedTime(file).toMillis();
+                        return !items.isEmpty() && collectionManager.backfillItems(playerId, items, timestamp);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, filesPerSecond);
+            }
+        });
+    }
+    
+    /**
+     * List the files in the exports folder
+     * 
+     * @return The file names, empty if the folder doesn't exist
+     */
+    public List<String> listExports() {
+        final String[] names = this.exportFolder.list((dir, name) -> TransferFormat.fromFileName(name) != null);
+        return names == null ? List.of() : List.of(names);
+    }
+    
+    private CompletableFuture<Summary> submit(final String name, final Consumer<String> progress,
+            final Operation operation) {
+        final CompletableFuture<Summary> future = new CompletableFuture<>();
+        if (!this.running.compareAndSet(false, true)) {
+            future.completeExceptionally(new IllegalStateException("Another bulk operation is already running"));
+            return future;
+        }
+        
+        this.plugin.getTaskScheduler().runAsync(() -> {
+            final Tracker tracker = new Tracker(name, progress);
+            try {
+                operation.run(tracker);
+                final Summary summary = tracker.summarize();
+                this.plugin.getLogger().info(name + " finished: " + summary.describe());
+                future.complete(summary);
+            } catch (Throwable t) {
+                future.completeExceptionally(t instanceof UncheckedIOException ? t.getCause() : t);
+            } finally {
+                this.running.set(false);
+            }
+        });
+        
+        return future;
+    }
+    
+    private <T> void runBatches(final Iterator<T> items, final Tracker tracker, final Predicate<T> task) {
+        this.runBatches(items, tracker, task, 0);
+    }
+    
+    /**
+     * Feed items to the worker pool one batch at a time, so only one batch is held in memory,
+     * pausing between batches to stay under a rate if one is given
+     */
+    private <T> void runBatches(final Iterator<T> items, final Tracker tracker, final Predicate<T> task, 
+            final int maxPerSecond) {
+        final BulkTaskRunner runner = this.plugin.getBulkTaskRunner();
+        final long timeoutMillis = Math.max(1, this.plugin.getConfigManager().getMainConfig()
+                .getInt("settings.bulk-io.timeout-seconds", 30)) * 1000L;
+        final List<T> batch = new ArrayList<>(BATCH_SIZE);
+        
+        while (items.hasNext()) {
+            batch.clear();
+            while (batch.size() < BATCH_SIZE && items.hasNext()) {
+                batch.add(items.next());
+            }
+            
+            final BulkTaskRunner.BulkResult<T> result = runner.runAll(batch, item -> {
+                if (task.test(item)) {
+                    tracker.changed.incrementAndGet();
+                }
+            }, timeoutMillis);
+            
+            tracker.processed.addAndGet(result.getCompleted());
+            tracker.failed.addAndGet(result.getFailed().size() + result.getTimedOut().size());
+            tracker.report();
+            
+            if (maxPerSecond > 0) {
+                this.throttle(tracker, maxPerSecond);
+            }
+        }
+    }
+    
+    /**
+     * Sleep until the items handled so far are within the rate
+     */
+    private void throttle(final Tracker tracker, final int maxPerSecond) {
+        final long handled = tracker.processed.get() + tracker.failed.get();
+        final long dueMillis = handled * 1000L / maxPerSecond - (System.currentTimeMillis() - tracker.start);
+        if (dueMillis <= 0) {
+            return;
+        }
+        
+        try {
+            Thread.sleep(dueMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+    
+    private Stream<UUID> listStored() throws IOException {
+        return this.plugin.getCollectionManager().getStorage().listStored();
+    }
+    
+    private void write(final Writer writer, final String lines) {
+        // Each player's lines are written together so CSV rows of one player stay consecutive
+        synchronized (writer) {
+            try {
+                writer.write(lines);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    private interface Operation {
+        void run(Tracker tracker) throws IOException;
+    }
+    
+    /**
+     * Counters of a running operation, with rate-limited progress reports
+     */
+    private final class Tracker {
+        private final String name;
+        private final Consumer<String> progress;
+        private final long start;
+        private final AtomicInteger processed;
+        private final AtomicInteger changed;
+        private final AtomicInteger failed;
+        
+        private long lastReport;
+        private String message;
+        
+        private Tracker(final String name, final Consumer<String> progress) {
+            this.name = name;
+            this.progress = progress;
+            this.start = System.currentTimeMillis();
+            this.processed = new AtomicInteger();
+            this.changed = new AtomicInteger();
+            this.failed = new AtomicInteger();
+        }
+        
+        private void report() {
+            final long now = System.currentTimeMillis();
+            if (now - this.lastReport < PROGRESS_INTERVAL_MILLIS) {
+                return;
+            }
+            
+            this.lastReport = now;
+            final String line = this.name + ": " + this.processed.get() + " players processed, " +
+                    this.changed.get() + " affected, " + this.failed.get() + " failed";
+            BulkDataService.this.plugin.debug(line);
+            this.progress.accept(line);
+        }
+        
+        private Summary summarize() {
+            return new Summary(this.processed.get(), this.changed.get(), this.failed.get(),
+                    System.currentTimeMillis() - this.start, this.message);
+        }
+    }
+    
+    /**
+     * The outcome of a bulk operation
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class Summary {
+        
+        private final int processed;
+        private final int changed;
+        private final int failed;
+        private final long elapsedMillis;
+        private final String message;
+        
+        /**
+         * Describe the outcome in one line
+         * 
+         * @return The description
+         */
+        public String describe() {
+            return this.processed + " players processed, " + this.changed + " affected, " + this.failed +
+                    " failed in " + this.elapsedMillis + "ms" + (this.message != null ? ", " + this.message : "");
+        }
+    }
+}
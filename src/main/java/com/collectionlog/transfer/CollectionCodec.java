@@ -0,0 +1,358 @@
+package com.collectionlog.transfer;
+
+import com.collectionlog.model.AcquisitionHistory;
+import com.collectionlog.model.AcquisitionSource;
+import com.collectionlog.model.PlayerCollection;
+import com.collectionlog.model.PlayerProfiles;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Converts player collections to and from the bulk transfer formats, one player profile
+ * at a time so that exports and imports run in constant memory. Records without a
+ * profile, written before profiles existed, belong to the default profile.
+ */
+public final class CollectionCodec {
+
+    private static final String CSV_HEADER = "player,epoch,category,item,collected,source,profile";
+    private static final String CSV_HEADER_START = "player,";
+    
+    private CollectionCodec() {
+    }
+    
+    /**
+     * Get the header written once at the start of a file
+     * 
+     * @param format The format
+     * @return The header including its line break, or an empty string if the format has none
+     */
+    public static String header(final TransferFormat format) {
+        return format == TransferFormat.CSV ? CSV_HEADER + "\n" : "";
+    }
+    
+    /**
+     * Encode one profile of a player's collection
+     * 
+     * @param collection The collection
+     * @param format The format
+     * @return The encoded lines, each terminated by a line break
+     */
+    public static String encode(final PlayerCollection collection, final TransferFormat format) {
+        final Map<String, AcquisitionHistory> history;
+        final List<String> rewards;
+        final long epoch;
+        
+        synchronized (collection) {
+            history = new HashMap<>(collection.getHistory());
+            rewards = new ArrayList<>(collection.getGrantedRewards());
+            epoch = collection.getEpoch();
+        }
+        
+        return format == TransferFormat.CSV
+                ? encodeCsv(collection.getPlayerId(), collection.getProfile(), epoch, history)
+                : encodeJson(collection.getPlayerId(), collection.getProfile(), epoch, rewards, history);
+    }
+    
+    private static String encodeJson(final UUID playerId, final String profile, final long epoch, 
+            final List<String> rewards, final Map<String, AcquisitionHistory> history) {
+        final StringWriter buffer = new StringWriter();
+        
+        try (JsonWriter json = new JsonWriter(buffer)) {
+            json.beginObject();
+            json.name("player").value(playerId.toString());
+            json.name("profile").value(profile);
+            json.name("epoch").value(epoch);
+            
+            json.name("rewards").beginArray();
+            for (String rewardId : rewards) {
+                json.value(rewardId);
+            }
+            json.endArray();
+            
+            json.name("items").beginObject();
+            for (Map.Entry<String, AcquisitionHistory> entry : history.entrySet()) {
+                final AcquisitionHistory categoryHistory = entry.getValue();
+                json.name(entry.getKey()).beginArray();
+                
+                for (int i = 0; i < categoryHistory.size(); i++) {
+                    json.beginObject();
+                    json.name("id").value(categoryHistory.getItemId(i));
+                    json.name("collected").value(categoryHistory.getTimestamp(i));
+                    json.name("source").value(categoryHistory.getSource(i).name());
+                    json.endObject();
+                }
+                
+                json.endArray();
+            }
+            json.endObject();
+            json.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        return buffer.append('\n').toString();
+    }
+    
+    private static String encodeCsv(final UUID playerId, final String profile, final long epoch, 
+            final Map<String, AcquisitionHistory> history) {
+        final StringBuilder builder = new StringBuilder();
+        final String prefix = playerId + "," + epoch + ",";
+        final String suffix = "," + profile + "\n";
+        
+        for (Map.Entry<String, AcquisitionHistory> entry : history.entrySet()) {
+            final AcquisitionHistory categoryHistory = entry.getValue();
+            for (int i = 0; i < categoryHistory.size(); i++) {
+                builder.append(prefix)
+                        .append(escapeCsv(entry.getKey())).append(',')
+                        .append(escapeCsv(categoryHistory.getItemId(i))).append(',')
+                        .append(categoryHistory.getTimestamp(i)).append(',')
+                        .append(categoryHistory.getSource(i).name()).append(suffix);
+            }
+        }
+        
+        // Keep players without items so their epoch survives a round trip
+        if (builder.length() == 0) {
+            builder.append(prefix).append(",,0,").append(suffix);
+        }
+        
+        return builder.toString();
+    }
+    
+    private static String escapeCsv(final String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+    
+    private static List<String> splitCsv(final String line) {
+        final List<String> fields = new ArrayList<>(7);
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    /**
+     * Parse the profile of a record
+     * 
+     * @param profile The profile name, or null or empty for the default profile
+     * @return The profile name
+     * @throws IllegalArgumentException If the name is not a valid profile name
+     */
+    private static String parseProfile(final String profile) {
+        if (profile == null || profile.isEmpty()) {
+            return PlayerCollection.DEFAULT_PROFILE;
+        }
+        
+        if (!PlayerProfiles.isValidName(profile)) {
+            throw new IllegalArgumentException("Invalid profile name: " + profile);
+        }
+        
+        return profile.intern();
+    }
+    
+    private static AcquisitionSource parseSource(final String name) {
+        try {
+            return AcquisitionSource.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return AcquisitionSource.UNKNOWN;
+        }
+    }
+    
+    /**
+     * Streams player collections out of an export file. Only the collection being read
+     * is held in memory; CSV rows of one player profile are expected to be consecutive,
+     * as written by {@link #encode(PlayerCollection, TransferFormat)}.
+     */
+    public static final class Reader implements Iterator<PlayerCollection>, Closeable {
+        
+        private final BufferedReader reader;
+        private final TransferFormat format;
+        
+        private PlayerCollection next;
+        private String pendingLine;
+        private int lineNumber;
+        
+        public Reader(final BufferedReader reader, final TransferFormat format) {
+            this.reader = reader;
+            this.format = format;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (this.next == null) {
+                try {
+                    this.next = this.format == TransferFormat.CSV ? this.readCsv() : this.readJson();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            return this.next != null;
+        }
+        
+        @Override
+        public PlayerCollection next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            
+            final PlayerCollection collection = this.next;
+            this.next = null;
+            return collection;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            this.reader.close();
+        }
+        
+        private String readLine() throws IOException {
+            if (this.pendingLine != null) {
+                final String line = this.pendingLine;
+                this.pendingLine = null;
+                return line;
+            }
+            
+            String line;
+            do {
+                line = this.reader.readLine();
+                this.lineNumber++;
+            } while (line != null && line.isBlank());
+            
+            return line;
+        }
+        
+        private PlayerCollection readJson() throws IOException {
+            final String line = this.readLine();
+            if (line == null) {
+                return null;
+            }
+            
+            try {
+                final JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+                final PlayerCollection collection = PlayerCollection.createEmpty(
+                        UUID.fromString(json.get("player").getAsString()),
+                        parseProfile(json.has("profile") ? json.get("profile").getAsString() : null));
+                collection.setEpoch(json.has("epoch") ? json.get("epoch").getAsLong() : 0L);
+                
+                if (json.has("rewards")) {
+                    for (JsonElement reward : json.getAsJsonArray("rewards")) {
+                        collection.markRewardGranted(reward.getAsString());
+                    }
+                }
+                
+                if (json.has("items")) {
+                    for (Map.Entry<String, JsonElement> category : json.getAsJsonObject("items").entrySet()) {
+                        final JsonArray items = category.getValue().getAsJsonArray();
+                        for (JsonElement element : items) {
+                            final JsonObject item = element.getAsJsonObject();
+                            collection.addItem(category.getKey(), item.get("id").getAsString(),
+                                    item.has("source") ? parseSource(item.get("source").getAsString())
+                                            : AcquisitionSource.UNKNOWN,
+                                    item.has("collected") ? item.get("collected").getAsLong() : 0L);
+                        }
+                    }
+                }
+                
+                return collection;
+            } catch (JsonParseException | IllegalStateException | IllegalArgumentException | NullPointerException e) {
+                throw new IOException("Malformed record on line " + this.lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        
+        private PlayerCollection readCsv() throws IOException {
+            PlayerCollection collection = null;
+            
+            String line;
+            while ((line = this.readLine()) != null) {
+                if (line.startsWith(CSV_HEADER_START)) {
+                    continue;
+                }
+                
+                final List<String> fields = splitCsv(line);
+                if (fields.size() < 6) {
+                    throw new IOException("Malformed row on line " + this.lineNumber + ": expected 6 columns");
+                }
+                
+                final UUID playerId;
+                try {
+                    playerId = UUID.fromString(fields.get(0));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Malformed player on line " + this.lineNumber + ": " + fields.get(0), e);
+                }
+                
+                final String profile;
+                try {
+                    profile = parseProfile(fields.size() > 6 ? fields.get(6) : null);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Malformed profile on line " + this.lineNumber + ": " + fields.get(6), e);
+                }
+                
+                if (collection != null && (!collection.getPlayerId().equals(playerId) 
+                        || !collection.getProfile().equals(profile))) {
+                    // First row of the next player or profile, read it again next time
+                    this.pendingLine = line;
+                    break;
+                }
+                
+                try {
+                    if (collection == null) {
+                        collection = PlayerCollection.createEmpty(playerId, profile);
+                        collection.setEpoch(Long.parseLong(fields.get(1)));
+                    }
+                    
+                    if (!fields.get(2).isEmpty() && !fields.get(3).isEmpty()) {
+                        collection.addItem(fields.get(2), fields.get(3), parseSource(fields.get(5)),
+                                fields.get(4).isEmpty() ? 0L : Long.parseLong(fields.get(4)));
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed number on line " + this.lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+            
+            return collection;
+        }
+    }
+}
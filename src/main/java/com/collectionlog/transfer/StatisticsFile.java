@@ -0,0 +1,90 @@
+package com.collectionlog.transfer;
+
+import com.collectionlog.model.AcquisitionSource;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads a player's vanilla statistics file (world/stats/&lt;uuid&gt;.json) as a stream,
+ * picking out the items they picked up or crafted at least once. Nothing else in the
+ * file is kept in memory.
+ */
+final class StatisticsFile {
+
+    private static final String EXTENSION = ".json";
+    
+    /** The statistics that show a player had an item, and what they map to */
+    private static final Map<String, AcquisitionSource> SOURCES = Map.of(
+            "minecraft:picked_up", AcquisitionSource.PICKUP,
+            "minecraft:crafted", AcquisitionSource.CRAFT);
+    
+    private StatisticsFile() {
+    }
+    
+    /**
+     * Get the player a statistics file belongs to
+     * 
+     * @param file The file
+     * @return The UUID, or null if the file isn't a player's statistics file
+     */
+    static UUID getPlayerId(final Path file) {
+        final String name = file.getFileName().toString();
+        if (!name.endsWith(EXTENSION)) {
+            return null;
+        }
+        
+        try {
+            return UUID.fromString(name.substring(0, name.length() - EXTENSION.length()));
+        } catch (IllegalArgumentException e) {
+            // Not a player file
+            return null;
+        }
+    }
+    
+    /**
+     * Read the items a player picked up or crafted
+     * 
+     * @param file The statistics file
+     * @param consumer Receives the namespaced item key and how it was acquired, for every
+     *                 item with a count above zero
+     * @throws IOException If the file can't be read or isn't valid JSON
+     */
+    static void read(final Path file, final BiConsumer<String, AcquisitionSource> consumer) throws IOException {
+        try (JsonReader json = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!json.nextName().equals("stats")) {
+                    json.skipValue();
+                    continue;
+                }
+                
+                json.beginObject();
+                while (json.hasNext()) {
+                    final AcquisitionSource source = SOURCES.get(json.nextName());
+                    if (source == null) {
+                        json.skipValue();
+                        continue;
+                    }
+                    
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        final String key = json.nextName();
+                        if (json.nextLong() > 0) {
+                            consumer.accept(key, source);
+                        }
+                    }
+                    json.endObject();
+                }
+                json.endObject();
+            }
+            json.endObject();
+        }
+    }
+}
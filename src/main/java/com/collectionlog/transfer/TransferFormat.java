@@ -0,0 +1,46 @@
+package com.collectionlog.transfer;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * File formats for bulk collection export and import
+ */
+@Getter
+@RequiredArgsConstructor
+public enum TransferFormat {
+
+    /** One JSON object per player per line */
+    NDJSON("ndjson"),
+    /** One row per collected item */
+    CSV("csv");
+    
+    private final String extension;
+    
+    /**
+     * Get a format by name or file extension
+     * 
+     * @param name The name, case insensitive
+     * @return The format, or null if unknown
+     */
+    public static TransferFormat fromName(final String name) {
+        for (TransferFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name) || format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get the format of a file from its extension
+     * 
+     * @param fileName The file name
+     * @return The format, or null if the extension is unknown
+     */
+    public static TransferFormat fromFileName(final String fileName) {
+        final int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? null : fromName(fileName.substring(dot + 1));
+    }
+}
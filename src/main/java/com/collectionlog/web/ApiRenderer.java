@@ -0,0 +1,225 @@
+package com.collectionlog.web;
+
+import com.collectionlog.index.RankedPlayer;
+import com.collectionlog.model.AcquisitionHistory;
+import com.collectionlog.model.Catalog;
+import com.collectionlog.model.ItemCategory;
+import com.collectionlog.model.PlayerCollection;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Renders API responses as JSON. Collections passed in must be private snapshots, as they
+ * are read without their locks.
+ */
+final class ApiRenderer {
+
+    private static final Pattern COLOR_CODE = Pattern.compile("[&§][0-9a-fk-orx]", Pattern.CASE_INSENSITIVE);
+    
+    private ApiRenderer() {
+    }
+    
+    /**
+     * Render the catalog: every category with its items
+     * 
+     * @param catalog The catalog
+     * @return The JSON body
+     */
+    static byte[] categories(final Catalog catalog) {
+        return render(json -> {
+            json.beginObject();
+            json.name("items").value(catalog.getItemCount());
+            json.name("categories").beginArray();
+            for (ItemCategory category : catalog.getCategories().values()) {
+                json.beginObject();
+                json.name("id").value(category.getId());
+                json.name("name").value(plain(category.getDisplayName()));
+                json.name("icon").value(category.getDisplayItem().getKey().toString());
+                json.name("items").beginArray();
+                for (String itemId : category.getItems().keySet()) {
+                    json.value(itemId);
+                }
+                json.endArray();
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        });
+    }
+    
+    /**
+     * Render a player's collected items in every profile
+     * 
+     * @param player The player
+     * @param snapshot Private copies of the player's collections
+     * @return The JSON body
+     */
+    static byte[] player(final PlayerInfo player, final List<PlayerCollection> snapshot) {
+        return render(json -> {
+            json.beginObject();
+            writePlayer(json, player);
+            json.name("profiles").beginObject();
+            for (PlayerCollection collection : snapshot) {
+                json.name(collection.getProfile()).beginObject();
+                json.name("epoch").value(collection.getEpoch());
+                json.name("total").value(collection.getTotalCollectionCount());
+                json.name("items").beginObject();
+                for (Map.Entry<String, AcquisitionHistory> entry : collection.getHistory().entrySet()) {
+                    final AcquisitionHistory history = entry.getValue();
+                    json.name(entry.getKey()).beginArray();
+                    for (int i = 0; i < history.size(); i++) {
+                        json.beginObject();
+                        json.name("id").value(history.getItemId(i));
+                        json.name("collected").value(history.getTimestamp(i));
+                        json.name("source").value(history.getSource(i).name());
+                        json.endObject();
+                    }
+                    json.endArray();
+                }
+                json.endObject();
+                json.endObject();
+            }
+            json.endObject();
+            json.endObject();
+        });
+    }
+    
+    /**
+     * Render a player's progress per category in every profile, counting only items
+     * that are in the catalog
+     * 
+     * @param player The player
+     * @param snapshot Private copies of the player's collections
+     * @param catalog The catalog
+     * @return The JSON body
+     */
+    static byte[] progress(final PlayerInfo player, final List<PlayerCollection> snapshot, final Catalog catalog) {
+        return render(json -> {
+            json.beginObject();
+            writePlayer(json, player);
+            json.name("profiles").beginObject();
+            for (PlayerCollection collection : snapshot) {
+                json.name(collection.getProfile()).beginObject();
+                
+                int total = 0;
+                json.name("categories").beginArray();
+                for (ItemCategory category : catalog.getCategories().values()) {
+                    final int count = countCollected(collection, category);
+                    final int size = category.getItems().size();
+                    total += count;
+                    
+                    json.beginObject();
+                    json.name("id").value(category.getId());
+                    json.name("count").value(count);
+                    json.name("max").value(size);
+                    json.name("percent").value(percent(count, size));
+                    json.name("complete").value(size > 0 && count == size);
+                    json.endObject();
+                }
+                json.endArray();
+                
+                json.name("total").value(total);
+                json.name("max").value(catalog.getItemCount());
+                json.name("percent").value(percent(total, catalog.getItemCount()));
+                json.endObject();
+            }
+            json.endObject();
+            json.endObject();
+        });
+    }
+    
+    /**
+     * Render the players owning the most items
+     * 
+     * @param players The ranked players, highest first
+     * @param names Looks up a player's name, returning null if unknown
+     * @param catalog The catalog
+     * @return The JSON body
+     */
+    static byte[] leaderboard(final List<RankedPlayer> players, final Function<UUID, String> names,
+            final Catalog catalog) {
+        return render(json -> {
+            json.beginObject();
+            json.name("max").value(catalog.getItemCount());
+            json.name("players").beginArray();
+            for (RankedPlayer player : players) {
+                json.beginObject();
+                json.name("rank").value(player.getRank());
+                json.name("uuid").value(player.getPlayerId().toString());
+                json.name("name").value(names.apply(player.getPlayerId()));
+                json.name("total").value(player.getTotal());
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        });
+    }
+    
+    /**
+     * Render an error
+     * 
+     * @param message The error message
+     * @return The JSON body
+     */
+    static byte[] error(final String message) {
+        return render(json -> {
+            json.beginObject();
+            json.name("error").value(message);
+            json.endObject();
+        });
+    }
+    
+    private static void writePlayer(final JsonWriter json, final PlayerInfo player) throws IOException {
+        json.name("uuid").value(player.getPlayerId().toString());
+        json.name("name").value(player.getName());
+        json.name("activeProfile").value(player.getActiveProfile());
+    }
+    
+    private static int countCollected(final PlayerCollection collection, final ItemCategory category) {
+        final Set<String> collected = collection.getCollectedItems().get(category.getId());
+        if (collected == null) {
+            return 0;
+        }
+        
+        int count = 0;
+        for (String itemId : collected) {
+            if (category.getItems().containsKey(itemId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private static int percent(final int count, final int size) {
+        return size == 0 ? 0 : (int) (count * 100L / size);
+    }
+    
+    private static String plain(final String text) {
+        return text == null ? null : COLOR_CODE.matcher(text).replaceAll("");
+    }
+    
+    private static byte[] render(final Body body) {
+        final StringWriter buffer = new StringWriter();
+        try (JsonWriter json = new JsonWriter(buffer)) {
+            body.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonWriter json) throws IOException;
+    }
+}
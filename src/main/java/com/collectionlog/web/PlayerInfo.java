@@ -0,0 +1,16 @@
+package com.collectionlog.web;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * Who a player response is about
+ */
+@Data
+class PlayerInfo {
+
+    private final UUID playerId;
+    private final String name;
+    private final String activeProfile;
+}
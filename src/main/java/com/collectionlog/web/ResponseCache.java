@@ -0,0 +1,93 @@
+package com.collectionlog.web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A small LRU cache of rendered responses. An entry is reused while the data it was
+ * rendered from keeps the same version and it is younger than the time to live; the
+ * time to live bounds how stale changes made by other servers can get.
+ */
+final class ResponseCache {
+
+    private final Map<String, Response> entries;
+    private final long ttlMillis;
+    
+    ResponseCache(final int capacity, final long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Response> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+    
+    /**
+     * Get a cached response if it is still current
+     * 
+     * @param key The request key
+     * @param source The object the response was rendered from, compared by identity
+     * @param version The current version of the data
+     * @return The response, or null if there is none or it is outdated
+     */
+    synchronized Response get(final String key, final Object source, final long version) {
+        final Response response = this.entries.get(key);
+        if (response == null || response.source != source || response.version != version
+                || System.currentTimeMillis() - response.createdAt >= this.ttlMillis) {
+            return null;
+        }
+        return response;
+    }
+    
+    /**
+     * Cache a rendered response
+     * 
+     * @param key The request key
+     * @param response The response
+     */
+    synchronized void put(final String key, final Response response) {
+        this.entries.put(key, response);
+    }
+    
+    /**
+     * Drop a cached response
+     * 
+     * @param key The request key
+     */
+    synchronized void remove(final String key) {
+        this.entries.remove(key);
+    }
+    
+    /**
+     * A rendered response body with its entity tag. The tag is a checksum of the body, so
+     * it stays the same across re-renders and restarts as long as the content does.
+     */
+    static final class Response {
+        private final Object source;
+        private final long version;
+        private final long createdAt;
+        private final byte[] body;
+        private final String etag;
+        
+        Response(final Object source, final long version, final byte[] body) {
+            this.source = source;
+            this.version = version;
+            this.createdAt = System.currentTimeMillis();
+            this.body = body;
+            
+            final CRC32 checksum = new CRC32();
+            checksum.update(body);
+            this.etag = "\"" + Long.toHexString(checksum.getValue()) + "-" + Integer.toHexString(body.length) + "\"";
+        }
+        
+        byte[] getBody() {
+            return this.body;
+        }
+        
+        String getEtag() {
+            return this.etag;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.collectionlog.web;
+
+import com.collectionlog.CollectionLog;
+import com.collectionlog.manager.CollectionChangeListener;
+import com.collectionlog.manager.CollectionManager;
+import com.collectionlog.model.Catalog;
+import com.collectionlog.model.PlayerCollection;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * A read-only JSON API over HTTP for websites, served by the JDK's built-in server on its
+ * own threads. Responses are rendered from private copies of collections and cached until
+ * the player, catalog or ranking they came from changes, so polling never runs on the
+ * server threads and doesn't hold any collection's lock for longer than a copy.
+ * <p>
+ * Endpoints, each answering GET and HEAD with entity tags for conditional requests:
+ * <ul>
+ *     <li>{@code /api/categories} - the catalog</li>
+ *     <li>{@code /api/leaderboard?limit=<n>} - the players owning the most items</li>
+ *     <li>{@code /api/players/<uuid or name>} - a player's items in every profile</li>
+ *     <li>{@code /api/players/<uuid or name>/progress} - a player's progress per category</li>
+ * </ul>
+ */
+public class WebServer implements CollectionChangeListener {
+
+    private static final String CONTEXT = "/api/";
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    
+    private final CollectionLog plugin;
+    private final boolean enabled;
+    private final String host;
+    private final int port;
+    private final int threads;
+    private final int cacheSeconds;
+    private final int leaderboardSize;
+    private final ResponseCache cache;
+    
+    /** Bumped on every change to a player's collection, so cached responses can be validated */
+    private final Map<UUID, Long> playerVersions;
+    
+    private HttpServer server;
+    private ExecutorService executor;
+    
+    public WebServer(final CollectionLog plugin) {
+        this.plugin = plugin;
+        
+        final ConfigurationSection config = plugin.getConfigManager().getMainConfig();
+        this.enabled = config.getBoolean("settings.web.enabled", false);
+        this.host = config.getString("settings.web.host", "127.0.0.1");
+        this.port = config.getInt("settings.web.port", 8765);
+        this.threads = Math.max(1, config.getInt("settings.web.threads", 2));
+        this.cacheSeconds = Math.max(0, config.getInt("settings.web.cache-seconds", 10));
+        this.leaderboardSize = Math.max(1, config.getInt("settings.web.leaderboard-size", 100));
+        this.cache = new ResponseCache(Math.max(1, config.getInt("settings.web.cache-size", 512)),
+                this.cacheSeconds * 1000L);
+        this.playerVersions = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Start serving if enabled in the config
+     */
+    public void start() {
+        if (!this.enabled) {
+            return;
+        }
+        
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(this.host, this.port), 0);
+        } catch (IOException e) {
+            this.plugin.getLogger().log(Level.SEVERE, "Failed to start the web API on " + this.host + ":" +
+                    this.port, e);
+            return;
+        }
+        
+        final AtomicInteger counter = new AtomicInteger();
+        final ThreadFactory factory = runnable -> {
+            final Thread thread = new Thread(runnable, "CollectionLog-Web-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        
+        this.executor = Executors.newFixedThreadPool(this.threads, factory);
+        this.server.setExecutor(this.executor);
+        this.server.createContext(CONTEXT, this::handle);
+        this.server.start();
+        this.plugin.getLogger().info("Serving the web API on http://" + this.host + ":" + this.port + CONTEXT);
+    }
+    
+    /**
+     * Stop serving
+     */
+    public void stop() {
+        if (this.server != null) {
+            this.server.stop(0);
+            this.server = null;
+        }
+        
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+    
+    @Override
+    public void onItemAdded(final UUID playerId, final String profile, final String categoryId,
+            final String itemId) {
+        this.onCollectionChanged(playerId);
+    }
+    
+    @Override
+    public void onCollectionChanged(final UUID playerId) {
+        if (this.enabled) {
+            this.playerVersions.merge(playerId, 1L, Long::sum);
+        }
+    }
+    
+    /**
+     * Forget a player's version and cached responses once they leave. Their responses
+     * are rendered afresh at version 0 from then on, so none can be served stale.
+     * 
+     * @param playerId The UUID of the player
+     */
+    public void forgetPlayer(final UUID playerId) {
+        if (this.playerVersions.remove(playerId) != null) {
+            this.cache.remove("players/" + playerId);
+            this.cache.remove("players/" + playerId + "/progress");
+        }
+    }
+    
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            final String method = exchange.getRequestMethod();
+            final boolean head = method.equals("HEAD");
+            if (!head && !method.equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                this.send(exchange, 405, ApiRenderer.error("Method not allowed"), false);
+                return;
+            }
+            
+            final ResponseCache.Response response;
+            try {
+                response = this.route(exchange.getRequestURI());
+            } catch (RuntimeException e) {
+                this.plugin.getLogger().log(Level.WARNING, "Failed to serve " + exchange.getRequestURI(), e);
+                this.send(exchange, 500, ApiRenderer.error("Internal error"), head);
+                return;
+            }
+            
+            if (response == null) {
+                this.send(exchange, 404, ApiRenderer.error("Not found"), head);
+                return;
+            }
+            
+            exchange.getResponseHeaders().set("ETag", response.getEtag());
+            exchange.getResponseHeaders().set("Cache-Control", "max-age=" + this.cacheSeconds);
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), response.getEtag())) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            
+            this.send(exchange, 200, response.getBody(), head);
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Find the response for a request path, from the cache if it is still current
+     * 
+     * @param uri The request URI
+     * @return The response, or null if nothing is found at the path
+     */
+    private ResponseCache.Response route(final URI uri) {
+        String path = uri.getPath().substring(CONTEXT.length());
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        
+        final String[] segments = path.split("/");
+        final Catalog catalog = this.plugin.getConfigManager().getCatalog();
+        
+        if (segments.length == 1 && segments[0].equals("categories")) {
+            return this.cached("categories", catalog, 0L, () -> ApiRenderer.categories(catalog));
+        }
+        
+        if (segments.length == 1 && segments[0].equals("leaderboard")) {
+            final int limit = this.parseLimit(uri.getQuery());
+            final long version = this.plugin.getCollectionIndex().getRankVersion();
+            return this.cached("leaderboard/" + limit, catalog, version, () -> ApiRenderer.leaderboard(
+                    this.plugin.getCollectionIndex().getTopPlayers(limit), this::getName, catalog));
+        }
+        
+        if (segments.length >= 2 && segments.length <= 3 && segments[0].equals("players")) {
+            final boolean progress = segments.length == 3;
+            if (progress && !segments[2].equals("progress")) {
+                return null;
+            }
+            
+            final UUID playerId = this.findPlayer(segments[1]);
+            if (playerId == null) {
+                return null;
+            }
+            
+            final CollectionManager collectionManager = this.plugin.getCollectionManager();
+            if (!collectionManager.isLoaded(playerId) && collectionManager.getStorage().getStamp(playerId) == 0L) {
+                return null;
+            }
+            
+            final long version = this.playerVersions.getOrDefault(playerId, 0L);
+            final String key = "players/" + playerId + (progress ? "/progress" : "");
+            return this.cached(key, catalog, version, () -> {
+                final PlayerInfo player = new PlayerInfo(playerId, this.getName(playerId),
+                        this.plugin.getCollectionManager().getActiveProfile(playerId));
+                final List<PlayerCollection> snapshot = this.snapshot(playerId);
+                return progress ? ApiRenderer.progress(player, snapshot, catalog)
+                        : ApiRenderer.player(player, snapshot);
+            });
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get a cached response, rendering and caching it if it is missing or outdated. The
+     * version is read before rendering, so a change during rendering outdates the result.
+     */
+    private ResponseCache.Response cached(final String key, final Object source, final long version,
+            final Renderer renderer) {
+        final ResponseCache.Response cached = this.cache.get(key, source, version);
+        if (cached != null) {
+            return cached;
+        }
+        
+        final ResponseCache.Response rendered = new ResponseCache.Response(source, version, renderer.render());
+        this.cache.put(key, rendered);
+        return rendered;
+    }
+    
+    /**
+     * Take private copies of a player's non-empty collections, ordered by profile
+     */
+    private List<PlayerCollection> snapshot(final UUID playerId) {
+        final CollectionManager collectionManager = this.plugin.getCollectionManager();
+        return collectionManager.peekPlayerProfiles(playerId).getCollections().stream()
+                .map(PlayerCollection::copy)
+                .filter(collection -> !collection.isEmpty())
+                .sorted(Comparator.comparing(PlayerCollection::getProfile))
+                .collect(Collectors.toList());
+    }
+    
+    private UUID findPlayer(final String idOrName) {
+        try {
+            return UUID.fromString(idOrName);
+        } catch (IllegalArgumentException e) {
+            // Not a UUID, look the name up without a web request
+            final OfflinePlayer player = Bukkit.getOfflinePlayerIfCached(idOrName);
+            return player != null ? player.getUniqueId() : null;
+        }
+    }
+    
+    private String getName(final UUID playerId) {
+        return Bukkit.getOfflinePlayer(playerId).getName();
+    }
+    
+    private int parseLimit(final String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("limit=")) {
+                    try {
+                        return Math.max(1, Math.min(this.leaderboardSize,
+                                Integer.parseInt(parameter.substring("limit=".length()))));
+                    } catch (NumberFormatException e) {
+                        // Fall back to the full leaderboard
+                    }
+                }
+            }
+        }
+        return this.leaderboardSize;
+    }
+    
+    private void send(final HttpExchange exchange, final int status, final byte[] body, final boolean head)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        if (head) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    /**
+     * Check whether an If-None-Match header matches an entity tag
+     */
+    private static boolean matches(final String header, final String etag) {
+        if (header == null) {
+            return false;
+        }
+        
+        for (String tag : header.split(",")) {
+            final String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @FunctionalInterface
+    private interface Renderer {
+        byte[] render();
+    }
+}